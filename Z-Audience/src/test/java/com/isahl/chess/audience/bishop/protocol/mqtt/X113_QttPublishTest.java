@@ -26,8 +26,12 @@ package com.isahl.chess.bishop.protocol.mqtt;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
+import com.isahl.chess.bishop.protocol.mqtt.filter.QttCommandFilter;
+import com.isahl.chess.bishop.protocol.mqtt.filter.QttFrameFilter;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttProtocol;
+import com.isahl.chess.king.base.content.SharedBuf;
+import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.session.ISort;
 import org.junit.jupiter.api.Test;
 
@@ -127,6 +131,39 @@ class X113_QttPublishTest {
     assertThat(copy.getContentType()).isEqualTo(original.getContentType());
   }
 
+  @Test
+  void testSharedPayloadEncoding() {
+    X113_QttPublish original = new X113_QttPublish();
+    original.withTopic("fan/out");
+    original.withSub("shared payload".getBytes());
+    original.setLevel(X113_QttPublish.Level.AT_LEAST_ONCE);
+    original.msgId(7);
+
+    SharedBuf shared = SharedBuf.wrap(original.payload());
+    X113_QttPublish fanOut = original.duplicate(shared);
+    fanOut.msgId(7);
+    X113_QttPublish copy = original.duplicate();
+    copy.msgId(7);
+    assertThat(shared.refCnt()).isEqualTo(2);
+    assertThat(fanOut.payload()).isSameAs(original.payload());
+
+    QttContext context = createV5Context();
+    IPacket sharedPacket =
+        new QttFrameFilter().encode(context, new QttCommandFilter().encode(context, fanOut));
+    IPacket fullPacket =
+        new QttFrameFilter().encode(context, new QttCommandFilter().encode(context, copy));
+    assertThat(sharedPacket.getBody()).isNotNull();
+    byte[] header = sharedPacket.getHeader().peekAll();
+    byte[] body = sharedPacket.getBody().peekAll();
+    byte[] joined = new byte[header.length + body.length];
+    System.arraycopy(header, 0, joined, 0, header.length);
+    System.arraycopy(body, 0, joined, header.length, body.length);
+    assertThat(joined).containsExactly(fullPacket.getBuffer().peekAll());
+
+    sharedPacket.release();
+    assertThat(shared.release()).isTrue();
+  }
+
   @Test
   void testToStringFormat() {
     X113_QttPublish publish = new X113_QttPublish();
@@ -0,0 +1,84 @@
+package com.isahl.chess.audience.king.base.content;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.ByteBufPool;
+import com.isahl.chess.king.base.content.SharedBuf;
+import com.isahl.chess.king.base.exception.ZException;
+import org.junit.jupiter.api.Test;
+
+class ByteBufPoolTest {
+
+  @Test
+  void testAllocateAndRecycle() {
+    ByteBufPool pool = new ByteBufPool(8L << 20, false);
+    ByteBuf buf = pool.buffer(300);
+    assertEquals(300, buf.capacity());
+    assertEquals(1, buf.refCnt());
+    buf.putInt(0x12345678).put(new byte[] {1, 2, 3});
+    assertEquals(7, buf.readableBytes());
+    assertEquals(512, pool.outstandingBytes());
+
+    assertTrue(buf.release());
+    assertEquals(0, pool.outstandingBytes());
+    assertThrows(ZException.class, buf::getInt);
+
+    for (int i = 0; i < 100; i++) {
+      pool.buffer(300).release();
+    }
+    assertEquals(0, pool.outstandingBytes());
+    assertEquals(1L << 20, pool.pooledBytes());
+    assertTrue(pool.hitRate() > 0.99);
+  }
+
+  @Test
+  void testRetainRelease() {
+    ByteBufPool pool = new ByteBufPool(8L << 20, false);
+    ByteBuf buf = pool.buffer(64);
+    buf.retain();
+    assertFalse(buf.release());
+    assertTrue(buf.release());
+    assertThrows(IllegalStateException.class, buf::release);
+  }
+
+  @Test
+  void testFallback() {
+    ByteBufPool pool = new ByteBufPool(0, false);
+    ByteBuf buf = pool.buffer(128);
+    assertFalse(buf.release());
+    ByteBuf large = new ByteBufPool(8L << 20, false).buffer(1 << 20);
+    assertFalse(large.release());
+    assertEquals(0, pool.hitRate());
+  }
+
+  @Test
+  void testExpandAndCopy() {
+    ByteBufPool pool = new ByteBufPool(8L << 20, false);
+    ByteBuf buf = pool.buffer(16);
+    buf.putLong(1L).putLong(2L);
+    ByteBuf other = ByteBuf.wrap(new byte[600]);
+    buf.append(other);
+    assertEquals(616, buf.readableBytes());
+    assertEquals(1L, buf.getLong());
+    assertEquals(2L, buf.getLong());
+    assertEquals(1024, pool.outstandingBytes());
+    ByteBuf heap = ByteBuf.allocate(600).put(buf);
+    assertEquals(600, heap.readableBytes());
+    assertTrue(buf.release());
+    assertEquals(0, pool.outstandingBytes());
+  }
+
+  @Test
+  void testSharedRelease() {
+    ByteBufPool pool = new ByteBufPool(8L << 20, false);
+    ByteBuf content = pool.buffer(100);
+    content.put(new byte[100]);
+    SharedBuf shared = new SharedBuf(content);
+    shared.retain();
+    shared.release();
+    assertEquals(256, pool.outstandingBytes());
+    shared.release();
+    assertEquals(0, pool.outstandingBytes());
+  }
+}
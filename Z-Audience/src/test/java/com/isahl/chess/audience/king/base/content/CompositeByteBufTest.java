@@ -0,0 +1,99 @@
+package com.isahl.chess.audience.king.base.content;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.CompositeByteBuf;
+import com.isahl.chess.king.base.exception.ZException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class CompositeByteBufTest {
+
+  private static ByteBuf segment(int... bytes) {
+    byte[] v = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      v[i] = (byte) bytes[i];
+    }
+    return ByteBuf.wrap(v);
+  }
+
+  @Test
+  void testReadAcrossSegments() {
+    CompositeByteBuf composite = new CompositeByteBuf();
+    ByteBuf first = segment(0x01, 0x02, 0x03);
+    composite.put(first);
+    composite.put(segment(0x04, 0x05));
+    composite.put(segment(0x06, 0x07, 0x08, 0x09, 0x0A));
+    assertFalse(first.isReadable());
+    assertEquals(10, composite.readableBytes());
+    assertEquals(3, composite.segments());
+
+    assertEquals(0x04, composite.peek(3));
+    assertEquals(0x0102, composite.getShort());
+    assertEquals(0x03040506, composite.getInt());
+    byte[] rest = new byte[4];
+    composite.get(rest);
+    assertArrayEquals(new byte[] {0x07, 0x08, 0x09, 0x0A}, rest);
+    assertFalse(composite.isReadable());
+    assertThrows(ZException.class, composite::get);
+
+    composite.discard();
+    assertEquals(0, composite.segments());
+  }
+
+  @Test
+  void testVarLengthAcrossSegments() {
+    CompositeByteBuf composite = new CompositeByteBuf();
+    ByteBuf header = ByteBuf.allocate(3).put(0x30).vPutLength(200);
+    composite.put(ByteBuf.wrap(header.peekAll(0, 2)));
+    composite.put(ByteBuf.wrap(header.peekAll(2, 1)));
+    assertEquals(200, composite.vPeekLength(1));
+    assertEquals(0x30, composite.get());
+    assertEquals(200, composite.vLength());
+  }
+
+  @Test
+  void testDrainToAndDiscard() {
+    CompositeByteBuf composite = new CompositeByteBuf();
+    composite.put(ByteBuf.wrap("hello ".getBytes(StandardCharsets.UTF_8)));
+    composite.put(ByteBuf.wrap("world\r\nnext".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("hello world", composite.readLine());
+    composite.discard();
+    assertEquals(1, composite.segments());
+    assertEquals(4, composite.readableBytes());
+
+    ByteBuf plain = ByteBuf.allocate(8).put(composite);
+    assertEquals("next", new String(plain.peekAll(), StandardCharsets.UTF_8));
+    assertFalse(composite.isReadable());
+    assertThrows(ZException.class, () -> composite.putInt(1));
+  }
+
+  @Test
+  void testMarkResetAcrossSegments() {
+    CompositeByteBuf composite = new CompositeByteBuf();
+    composite.put(segment(0x01, 0x02, 0x03));
+    composite.put(segment(0x04, 0x05));
+    composite.get();
+    composite.markReader();
+    assertEquals(0x02030405, composite.getInt());
+    // 解码器按 readerMark 到 readerIdx 的区间做校验
+    assertArrayEquals(
+        new byte[] {0x02, 0x03, 0x04, 0x05},
+        Arrays.copyOfRange(
+            composite.array(), composite.readerMark(), composite.readerIdx()));
+    composite.resetReader();
+    assertEquals(1, composite.readerIdx());
+    assertEquals(4, composite.readableBytes());
+    assertEquals(0x0203, composite.getShort());
+
+    composite.discard();
+    composite.put(segment(0x06));
+    composite.markReader();
+    composite.skip(3);
+    composite.resetReader();
+    assertArrayEquals(new byte[] {0x04, 0x05, 0x06}, composite.array());
+    assertEquals(0x04, composite.get());
+  }
+}
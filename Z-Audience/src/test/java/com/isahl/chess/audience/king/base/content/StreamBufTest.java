@@ -0,0 +1,71 @@
+package com.isahl.chess.audience.king.base.content;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.StreamBuf;
+import com.isahl.chess.king.base.exception.ZException;
+import org.junit.jupiter.api.Test;
+
+class StreamBufTest {
+
+  private static void feedAll(StreamBuf stream, int length, int chunk, ByteBuf rv) {
+    for (int i = 0; i < length; ) {
+      int n = Math.min(chunk, length - i);
+      rv.discard();
+      for (int j = 0; j < n; j++) {
+        rv.put((byte) (i + j));
+      }
+      i += n;
+      stream.feed(rv);
+      assertEquals(0, rv.readableBytes());
+    }
+  }
+
+  @Test
+  void testMemoryStream() {
+    int length = StreamBuf.STREAM_THRESHOLD + 100;
+    assertTrue(StreamBuf.isOversize(length));
+    StreamBuf stream = new StreamBuf(length);
+    ByteBuf rv = ByteBuf.allocate(4096);
+    feedAll(stream, length - 10, 4000, rv);
+    assertThrows(ZException.class, stream::content);
+
+    rv.discard();
+    rv.put(new byte[16]);
+    assertEquals(0, stream.feed(rv));
+    assertEquals(6, rv.readableBytes());
+    assertFalse(stream.isSpilled());
+
+    ByteBuf content = stream.content();
+    assertEquals(length, content.readableBytes());
+    assertEquals((byte) 4095, content.peek(4095));
+    // 逐步扩容后内容连续
+    assertEquals((byte) 65600, content.peek(65600));
+    stream.close();
+  }
+
+  @Test
+  void testMaxFrame() {
+    assertThrows(ZException.class, () -> new StreamBuf(StreamBuf.MAX_FRAME + 1));
+    assertThrows(ZException.class, () -> StreamBuf.checkFrame(Integer.MAX_VALUE + 1));
+    assertEquals(StreamBuf.MAX_FRAME, StreamBuf.checkFrame(StreamBuf.MAX_FRAME));
+  }
+
+  @Test
+  void testSpillStream() {
+    int length = StreamBuf.SPILL_THRESHOLD + 12345;
+    StreamBuf stream = new StreamBuf(length);
+    ByteBuf rv = ByteBuf.allocate(1 << 16);
+    feedAll(stream, length, 60000, rv);
+    assertTrue(stream.isSpilled());
+    assertEquals(0, stream.lack());
+
+    ByteBuf content = stream.content();
+    assertEquals(length, content.readableBytes());
+    for (int i : new int[] {0, 65535, 65536, length - 1}) {
+      assertEquals((byte) i, content.peek(i));
+    }
+    stream.close();
+  }
+}
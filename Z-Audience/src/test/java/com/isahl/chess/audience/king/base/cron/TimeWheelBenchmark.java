@@ -0,0 +1,96 @@
+package com.isahl.chess.audience.king.base.cron;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.cron.ScheduleHandler;
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.king.base.cron.features.ICancelable;
+import com.isahl.chess.king.base.features.IValid;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 千万级挂起定时器下的 acquire/cancel 吞吐，不在默认测试集中：
+ *
+ * <pre>
+ * mvn test -pl Z-Audience -am -Dtest=TimeWheelBenchmark -Dsurefire.failIfNoSpecifiedTests=false -DargLine=-Xmx2g
+ * </pre>
+ *
+ * -Dz.chess.benchmark.timers 调整定时器数量，-Dz.chess.benchmark.threads 调整并发线程数
+ */
+class TimeWheelBenchmark {
+
+  private static final IValid ALIVE = new IValid() {};
+
+  @Test
+  void scheduleCancel() throws Exception {
+    int timers = Integer.getInteger("z.chess.benchmark.timers", 10_000_000);
+    int threads = Integer.getInteger("z.chess.benchmark.threads", 4);
+    TimeWheel wheel = new TimeWheel();
+    ICancelable[] cancelables = new ICancelable[timers];
+    // item 可被多次 acquire，共享以只衡量时间轮自身的开销；一小时后到期，全部保持挂起
+    @SuppressWarnings("unchecked")
+    ScheduleHandler<IValid>[] items = new ScheduleHandler[64];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = new ScheduleHandler<>(Duration.ofHours(1).plusSeconds(i), false);
+    }
+    try {
+      long start = System.nanoTime();
+      long elapsed =
+          parallel(
+              threads,
+              timers,
+              i -> cancelables[i] = wheel.acquire(ALIVE, items[i & (items.length - 1)]));
+      report("acquire", timers, threads, elapsed);
+      report("acquire+slot", timers, threads, awaitPending(wheel, timers, start));
+
+      start = System.nanoTime();
+      elapsed = parallel(threads, timers, i -> cancelables[i].cancel());
+      report("cancel", timers, threads, elapsed);
+      report("cancel+unlink", timers, threads, awaitPending(wheel, 0, start));
+    } finally {
+      wheel.shutdown();
+    }
+  }
+
+  private static long parallel(int threads, int count, IntConsumer action) throws Exception {
+    Thread[] workers = new Thread[threads];
+    int step = (count + threads - 1) / threads;
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int from = t * step, to = Math.min(count, from + step);
+      workers[t] =
+          new Thread(
+              () -> {
+                for (int i = from; i < to; i++) {
+                  action.accept(i);
+                }
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * @return 从 start 到 tick 线程全部入槽/摘除的耗时
+   */
+  private static long awaitPending(TimeWheel wheel, long expect, long start) throws Exception {
+    long deadline = start + TimeUnit.MINUTES.toNanos(2);
+    while (wheel.getPending() != expect) {
+      assertTrue(System.nanoTime() < deadline, "pending " + wheel.getPending() + " ≠ " + expect);
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void report(String phase, int count, int threads, long nanos) {
+    System.out.printf(
+        "%-16s %,12d timers %2d threads %,8d ms %,14.0f ops/s%n",
+        phase, count, threads, TimeUnit.NANOSECONDS.toMillis(nanos), count * 1e9 / nanos);
+  }
+}
@@ -0,0 +1,137 @@
+package com.isahl.chess.audience.king.base.cron;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.cron.ScheduleHandler;
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.king.base.cron.features.ICancelable;
+import com.isahl.chess.king.base.features.IValid;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimeWheelTest {
+
+  private static final IValid ALIVE = new IValid() {};
+
+  private TimeWheel wheel;
+
+  @BeforeEach
+  void setUp() {
+    // 每层 4 个槽，几十毫秒的延迟就需要经过多层下沉
+    wheel = new TimeWheel(1, TimeUnit.MILLISECONDS, 2, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    wheel.shutdown();
+  }
+
+  @Test
+  void testFireNotEarlyAcrossLevels() throws Exception {
+    CountDownLatch fired = new CountDownLatch(3);
+    AtomicLong early = new AtomicLong();
+    for (long delay : new long[] {3, 37, 150}) {
+      long expect = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+      wheel.acquire(
+          ALIVE,
+          new ScheduleHandler<>(
+              Duration.ofMillis(delay),
+              a -> {
+                if (System.nanoTime() < expect) {
+                  early.incrementAndGet();
+                }
+                fired.countDown();
+              }));
+    }
+    assertTrue(fired.await(2, TimeUnit.SECONDS));
+    assertEquals(0, early.get());
+    assertEquals(0, wheel.getPending());
+  }
+
+  @Test
+  void testCancel() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    ICancelable pending = null;
+    for (int i = 0; i < 100; i++) {
+      pending =
+          wheel.acquire(
+              ALIVE, new ScheduleHandler<>(Duration.ofMillis(60), a -> calls.incrementAndGet()));
+      pending.cancel();
+      assertTrue(pending.isInvalid());
+    }
+    // 入槽后再取消，由 tick 线程摘除
+    ICancelable scheduled =
+        wheel.acquire(
+            ALIVE, new ScheduleHandler<>(Duration.ofMillis(60), a -> calls.incrementAndGet()));
+    TimeUnit.MILLISECONDS.sleep(20);
+    assertEquals(1, wheel.getPending());
+    scheduled.cancel();
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertEquals(0, calls.get());
+    assertEquals(0, wheel.getPending());
+  }
+
+  @Test
+  void testCycle() throws Exception {
+    CountDownLatch fired = new CountDownLatch(5);
+    ICancelable cycle =
+        wheel.acquire(
+            ALIVE, new ScheduleHandler<>(Duration.ofMillis(5), true, a -> fired.countDown()));
+    assertTrue(fired.await(2, TimeUnit.SECONDS));
+    cycle.cancel();
+    TimeUnit.MILLISECONDS.sleep(20);
+    assertEquals(0, wheel.getPending());
+  }
+
+  @Test
+  void testCancelDuringCascade() throws Exception {
+    // 每层 4 个槽，5~40ms 的周期任务每次都要经过下沉，取消与下沉并发
+    int count = 2000;
+    AtomicInteger[] calls = new AtomicInteger[count];
+    ICancelable[] tasks = new ICancelable[count];
+    for (int i = 0; i < count; i++) {
+      AtomicInteger call = calls[i] = new AtomicInteger();
+      tasks[i] =
+          wheel.acquire(
+              ALIVE,
+              new ScheduleHandler<>(
+                  Duration.ofMillis(5 + i % 36), true, a -> call.incrementAndGet()));
+    }
+    int[] snapshot = new int[count];
+    Thread[] cancelers = new Thread[4];
+    for (int t = 0; t < cancelers.length; t++) {
+      int offset = t;
+      cancelers[t] =
+          new Thread(
+              () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = offset; i < count; i += cancelers.length) {
+                  if ((i & 15) == 0) {
+                    LockSupport.parkNanos(random.nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+                  }
+                  tasks[i].cancel();
+                  // onCall 与 cancel 同锁，取消返回后计数不应再变化
+                  snapshot[i] = calls[i].get();
+                }
+              });
+      cancelers[t].start();
+    }
+    for (Thread canceler : cancelers) {
+      canceler.join();
+    }
+    TimeUnit.MILLISECONDS.sleep(200);
+    for (int i = 0; i < count; i++) {
+      assertTrue(tasks[i].isInvalid());
+      assertEquals(snapshot[i], calls[i].get(), "task " + i + " fired after cancel");
+    }
+    assertEquals(0, wheel.getPending());
+  }
+}
@@ -0,0 +1,51 @@
+package com.isahl.chess.audience.king.base.disruptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.disruptor.components.AdaptivePollStrategy;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptivePollStrategyTest {
+
+  @Test
+  void testUniformSchedule() {
+    assertArrayEquals(new int[] {0, 1, 2}, new AdaptivePollStrategy().schedule(3));
+  }
+
+  @Test
+  void testPrioritySchedule() {
+    // 0,2 为高优先级：每次访问低优先级 ring 之前都先访问一遍
+    int[] schedule = new AdaptivePollStrategy(new int[] {0, 1, 0, 1, 1}).schedule(5);
+    assertArrayEquals(new int[] {0, 2, 0, 2, 1, 0, 2, 3, 0, 2, 4}, schedule);
+
+    int[] levels = new AdaptivePollStrategy(new int[] {2, 0, 1}).schedule(3);
+    assertArrayEquals(new int[] {1, 1, 2, 1, 2, 0}, levels);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AdaptivePollStrategy(new int[] {0, 1}).schedule(3));
+  }
+
+  @Test
+  void testBackoffBounded() {
+    long maxPark = TimeUnit.MILLISECONDS.toNanos(2);
+    AdaptivePollStrategy strategy =
+        new AdaptivePollStrategy(10, 5, TimeUnit.MICROSECONDS.toNanos(50), maxPark, null);
+    long start = System.nanoTime();
+    for (int i = 0; i < 40; i++) {
+      strategy.onRound(0);
+    }
+    long idle = System.nanoTime() - start;
+    // 25 次 park，退避封顶 maxPark
+    assertTrue(idle < TimeUnit.MILLISECONDS.toNanos(2 * 25 + 200), "idle " + idle);
+
+    strategy.onRound(1);
+    start = System.nanoTime();
+    for (int i = 0; i < 15; i++) {
+      strategy.onRound(0);
+    }
+    // 有事件到达后复位，只自旋与让出
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptivePollStrategy(1, 1, 0, 10, null));
+  }
+}
@@ -0,0 +1,75 @@
+package com.isahl.chess.audience.king.base.disruptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.disruptor.components.Health;
+import com.isahl.chess.king.base.disruptor.components.RingStats;
+import com.isahl.chess.king.base.disruptor.components.Z1Processor;
+import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
+import com.isahl.chess.king.base.disruptor.features.flow.IBatchHandler;
+import com.isahl.chess.king.metrics.ZChessMetrics;
+import com.isahl.chess.queen.events.model.QEvent;
+import com.lmax.disruptor.RingBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RingStatsTest {
+
+  @Test
+  void testBatchStats() throws Exception {
+    RingBuffer<QEvent> ring = RingBuffer.createSingleProducer(QEvent.EVENT_FACTORY, 16);
+    CountDownLatch done = new CountDownLatch(1);
+    IBatchHandler<QEvent> handler =
+        new IBatchHandler<>() {
+          private final IHealth _Health = new Health(-1);
+
+          @Override
+          public IHealth _Health() {
+            return _Health;
+          }
+
+          @Override
+          public void onEvent(QEvent event, long sequence) {}
+
+          @Override
+          public void onBatchComplete(long end) {
+            if (end == 4) {
+              done.countDown();
+            }
+          }
+        };
+    Z1Processor<QEvent> processor = new Z1Processor<>(ring, ring.newBarrier(), handler);
+    ring.addGatingSequences(processor.getSequence());
+    RingStats stats = processor.monitor("Test", "test.ring");
+    for (int i = 0; i < 5; i++) {
+      ring.publish(ring.next());
+    }
+    assertEquals(5, stats.lag());
+    assertEquals(11, stats.remainingCapacity());
+
+    Thread thread = new Thread(processor);
+    thread.start();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    processor.halt();
+    thread.join();
+
+    assertEquals(5, stats.events());
+    assertEquals(1, stats.batches());
+    assertEquals(0, stats.lag());
+    assertEquals(16, stats.remainingCapacity());
+    assertEquals(0, stats.batchesAtMost(1));
+    assertEquals(1, stats.batchesAtMost(3));
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    new ZChessMetrics(registry).registerRings(List.of(stats));
+    assertEquals(
+        5.0, registry.get("zchess_ring_events").tag("ring", "test.ring").functionCounter().count());
+    assertEquals(
+        1.0, registry.get("zchess_ring_batch_size").tag("le", "8").functionCounter().count());
+    assertEquals(0.0, registry.get("zchess_ring_lag").tag("stage", "Test").gauge().value());
+    assertEquals(1.0, registry.get("zchess_ring_handle").functionTimer().count());
+  }
+}
@@ -129,4 +129,13 @@ class ZChessMetricsTest {
     assertNotNull(timer);
     assertTrue(timer.totalTime(java.util.concurrent.TimeUnit.MILLISECONDS) >= 10);
   }
+
+  @Test
+  void testRegisterRaftLogTail() {
+    metrics.registerRaftLogTail(2, group -> group == 0 ? 0.75 : 1.0);
+
+    var gauge = registry.find("zchess_raft_log_tail_hit_ratio").tag("group", "0").gauge();
+    assertNotNull(gauge);
+    assertEquals(0.75, gauge.value());
+  }
 }
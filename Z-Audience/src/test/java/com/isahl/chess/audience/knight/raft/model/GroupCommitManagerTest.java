@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitManagerTest {
+  private GroupCommitManager manager;
+
+  @BeforeEach
+  void setUp() {
+    manager = new GroupCommitManager();
+    manager.start(10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    manager.stop();
+  }
+
+  @Test
+  void testSubmitCompletesWaiters() throws Exception {
+    AtomicInteger syncs = new AtomicInteger();
+    assertTrue(manager.await(10).get(1, TimeUnit.SECONDS), "已持久化的 index 立即完成");
+    CompletableFuture<Boolean> future = manager.await(15);
+    assertFalse(future.isDone());
+
+    manager.submit(15, List.of(syncs::incrementAndGet, syncs::incrementAndGet));
+    assertTrue(future.get(1, TimeUnit.SECONDS));
+    assertEquals(15, manager.getFlushedIndex());
+    assertEquals(2, syncs.get(), "一个批次的同步动作只执行一次");
+
+    // 已提交的区间不会重复刷盘
+    manager.submit(15, List.of(syncs::incrementAndGet));
+    manager.submit(16, List.of());
+    assertTrue(manager.await(16).get(1, TimeUnit.SECONDS));
+    assertEquals(2, syncs.get());
+    assertEquals(2, manager.getTotalBatches());
+    assertEquals(6, manager.getTotalCommitted());
+  }
+
+  @Test
+  void testSyncFailure() throws Exception {
+    CompletableFuture<Boolean> future = manager.await(12);
+    manager.submit(
+        12,
+        List.of(
+            () -> {
+              throw new IOException("disk failure");
+            }));
+    assertFalse(future.get(1, TimeUnit.SECONDS));
+    assertTrue(manager.isFailed());
+    assertEquals(10, manager.getFlushedIndex());
+  }
+
+  @Test
+  void testUncheckedSyncFailureIsFatal() throws Exception {
+    AtomicInteger syncs = new AtomicInteger();
+    CompletableFuture<Boolean> failed = manager.await(12);
+    CompletableFuture<Boolean> later = manager.await(14);
+    manager.submit(
+        12,
+        List.of(
+            () -> {
+              throw new UncheckedIOException(new IOException("force failure"));
+            }));
+    assertFalse(failed.get(1, TimeUnit.SECONDS));
+    assertFalse(later.get(1, TimeUnit.SECONDS), "刷盘失败后不会再有 index 落盘");
+    assertTrue(manager.isFailed());
+
+    // 失败后拒绝后续提交，新的等待直接以 false 完成
+    manager.submit(14, List.of(syncs::incrementAndGet));
+    assertFalse(manager.await(14).get(1, TimeUnit.SECONDS));
+    assertEquals(0, syncs.get());
+    assertEquals(10, manager.getFlushedIndex());
+  }
+
+  @Test
+  void testRollback() throws Exception {
+    manager.submit(20, List.of());
+    assertTrue(manager.await(20).get(1, TimeUnit.SECONDS));
+    manager.rollback(17);
+    assertEquals(17, manager.getFlushedIndex());
+    assertEquals(17, manager.getSubmittedIndex());
+
+    // 截断后重新写入的条目需要再次刷盘
+    CompletableFuture<Boolean> future = manager.await(18);
+    assertFalse(future.isDone());
+    manager.submit(18, List.of());
+    assertTrue(future.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testStopFailsPending() throws Exception {
+    CompletableFuture<Boolean> future = manager.await(30);
+    manager.stop();
+    assertFalse(future.get(1, TimeUnit.SECONDS));
+    assertFalse(manager.isRunning());
+  }
+}
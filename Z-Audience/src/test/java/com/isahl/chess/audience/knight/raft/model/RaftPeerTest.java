@@ -25,6 +25,7 @@ package com.isahl.chess.knight.raft.model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.isahl.chess.queen.db.model.IStorage;
 import org.junit.jupiter.api.Test;
 
 class RaftPeerTest {
@@ -87,6 +88,27 @@ class RaftPeerTest {
     assertEquals("R:CANDIDATE", RaftState.roleOf(0x08), "CANDIDATE 角色名称");
   }
 
+  @Test
+  void testLeaderDurableAccept() {
+    // leader 先复制后落盘：未落盘前自身不计入多数派
+    RaftGraph graph = RaftGraph.create("_Test_");
+    RaftMachine leader = RaftMachine.createBy(1, IStorage.Operation.OP_MODIFY);
+    RaftMachine follower1 = RaftMachine.createBy(2, IStorage.Operation.OP_MODIFY);
+    RaftMachine follower2 = RaftMachine.createBy(3, IStorage.Operation.OP_MODIFY);
+    for (RaftMachine machine : new RaftMachine[] {leader, follower1, follower2}) {
+      machine.approve(RaftState.FOLLOWER);
+      graph.append(machine);
+    }
+    leader.index(5);
+    leader.accept(4);
+    follower1.accept(5);
+    assertFalse(graph.isMajorAccept(5), "leader 未落盘且只有一个 follower 确认");
+    leader.accept(5);
+    assertTrue(graph.isMajorAccept(5), "leader 落盘后与 follower 构成多数派");
+    follower2.accept(6);
+    assertFalse(graph.isMajorAccept(6));
+  }
+
   @Test
   void testRaftCode() {
     // 验证 RaftCode 枚举
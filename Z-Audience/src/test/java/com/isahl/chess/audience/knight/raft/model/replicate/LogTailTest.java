@@ -0,0 +1,57 @@
+package com.isahl.chess.knight.raft.model.replicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.model.ListSerial;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LogTailTest {
+
+  private static LogEntry entry(long index) {
+    return new LogEntry(index, 2, 0x10, 0x1000 + index, 0x11, new byte[] {(byte) index, 7});
+  }
+
+  @Test
+  void testRingEviction() {
+    LogTail tail = new LogTail(3);
+    assertEquals(4, tail.capacity());
+    for (long i = 1; i <= 6; i++) {
+      tail.put(entry(i));
+    }
+    assertNull(tail.get(2));
+    assertArrayEquals(entry(3).encoded(), tail.get(3));
+    assertArrayEquals(entry(6).encoded(), tail.get(6));
+    assertEquals(2.0 / 3, tail.hitRate(), 1e-9);
+
+    tail.clear();
+    assertNull(tail.get(6));
+    assertNull(new LogTail(0).get(1));
+  }
+
+  @Test
+  void testPackAsListSerial() {
+    LogTail tail = new LogTail(8);
+    List<byte[]> encoded = new ArrayList<>();
+    int length = 0;
+    for (long i = 1; i <= 3; i++) {
+      tail.put(entry(i));
+      byte[] bytes = tail.get(i);
+      encoded.add(bytes);
+      length += bytes.length;
+    }
+    ListSerial<LogEntry> expected = new ListSerial<>(LogEntry::new);
+    for (long i = 1; i <= 3; i++) {
+      expected.add(entry(i));
+    }
+    byte[] packed = LogTail.pack(encoded, length);
+    assertArrayEquals(expected.encoded(), packed);
+
+    ListSerial<LogEntry> decoded = new ListSerial<>(ByteBuf.wrap(packed), LogEntry::new);
+    assertEquals(3, decoded.size());
+    assertEquals(0x1002, decoded.get(1).origin());
+    assertArrayEquals(new byte[] {3, 7}, decoded.get(2).payload());
+  }
+}
@@ -0,0 +1,49 @@
+package com.isahl.chess.knight.raft.model.replicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ProposalBatchTest {
+
+  @Test
+  void testSingle() {
+    ProposalBatch batch = new ProposalBatch();
+    assertNull(batch.drain());
+    batch.add(0x10, 0x1001, 0x4D515454, new byte[] {1, 2});
+    LogEntry proposal = batch.drain();
+    assertFalse(ProposalBatch.isBatch(proposal));
+    assertEquals(0x1001, proposal.origin());
+    assertArrayEquals(new byte[] {1, 2}, proposal.payload());
+    assertTrue(batch.isEmpty());
+  }
+
+  @Test
+  void testSplit() {
+    ProposalBatch batch = new ProposalBatch();
+    for (int i = 0; i < 3; i++) {
+      batch.add(0x10, 0x1000 + i, 0x4D515454 + i, new byte[] {(byte) i, (byte) (i + 1)});
+    }
+    LogEntry proposal = batch.drain();
+    assertTrue(ProposalBatch.isBatch(proposal));
+    assertTrue(batch.isEmpty());
+
+    LogEntry appended =
+        new LogEntry(
+            7, 3, proposal.client(), proposal.origin(), proposal.factory(), proposal.payload());
+    LogEntry received = new LogEntry(ByteBuf.wrap(appended.encoded()));
+    List<LogEntry> entries = ProposalBatch.split(received);
+    assertEquals(3, entries.size());
+    for (int i = 0; i < 3; i++) {
+      LogEntry entry = entries.get(i);
+      assertEquals(7, entry.index());
+      assertEquals(3, entry.term());
+      assertEquals(0x10, entry.client());
+      assertEquals(0x1000 + i, entry.origin());
+      assertEquals(0x4D515454 + i, entry.factory());
+      assertArrayEquals(new byte[] {(byte) i, (byte) (i + 1)}, entry.payload());
+    }
+  }
+}
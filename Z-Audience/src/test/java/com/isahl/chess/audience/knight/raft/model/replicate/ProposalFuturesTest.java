@@ -0,0 +1,86 @@
+package com.isahl.chess.knight.raft.model.replicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.exception.ZException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+class ProposalFuturesTest {
+
+  @Test
+  void testLeaderCommit() throws Exception {
+    ProposalFutures futures = new ProposalFutures();
+    CompletableFuture<Long> first = futures.register(0x1001);
+    CompletableFuture<Long> second = futures.register(0x1002);
+    CompletableFuture<Long> third = futures.register(0x1003);
+    assertTrue(futures.register(0x1001).isCompletedExceptionally());
+    assertTrue(futures.bind(5, 0x1001));
+    assertTrue(futures.bind(5, 0x1002));
+    assertTrue(futures.bind(7, 0x1003));
+    assertFalse(futures.bind(8, 0x1004));
+    assertFalse(futures.hasPending());
+
+    assertEquals(2, futures.commit(6));
+    assertEquals(5L, first.get());
+    assertEquals(5L, second.get());
+    assertFalse(third.isDone());
+    assertEquals(1, futures.commit(9));
+    assertEquals(7L, third.get());
+    assertEquals(0, futures.size());
+  }
+
+  @Test
+  void testNotifyAndAbort() {
+    ProposalFutures futures = new ProposalFutures();
+    CompletableFuture<Long> notified = futures.register(0x2001);
+    CompletableFuture<Long> rejected = futures.register(0x2002);
+    CompletableFuture<Long> pending = futures.register(0x2003);
+    CompletableFuture<Long> indexed = futures.register(0x2004);
+    futures.bind(3, 0x2004);
+
+    assertTrue(futures.complete(0x2001, 11));
+    assertFalse(futures.complete(0x2001, 11));
+    assertEquals(11L, notified.join());
+    assertTrue(futures.fail(0x2002, new ZException("reject")));
+    assertTrue(rejected.isCompletedExceptionally());
+
+    assertEquals(2, futures.abort(new ZException("leader changed")));
+    ExecutionException e = assertThrows(ExecutionException.class, pending::get);
+    assertInstanceOf(ZException.class, e.getCause());
+    assertTrue(indexed.isCompletedExceptionally());
+    assertEquals(0, futures.size());
+  }
+
+  @Test
+  void testForwardedBatchReject() {
+    ProposalFutures futures = new ProposalFutures();
+    CompletableFuture<Long> first = futures.register(0x4001);
+    CompletableFuture<Long> second = futures.register(0x4002);
+    CompletableFuture<Long> other = futures.register(0x4003);
+    CompletableFuture<Long> accepted = futures.register(0x4004);
+    futures.forward(0x51, new long[] {0x4001, 0x4002});
+    futures.forward(0x52, new long[] {0x4004});
+
+    assertEquals(0, futures.respond(0x52, 0x10, null));
+    assertEquals(2, futures.respond(0x51, 0x10, new ZException("reject")));
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertFalse(other.isDone());
+    assertFalse(accepted.isDone());
+    assertEquals(0, futures.respond(0x53, 0x10, new ZException("reject")));
+    assertFalse(other.isDone());
+  }
+
+  @Test
+  void testBatchOrigin() {
+    ProposalBatch batch = new ProposalBatch();
+    batch.add(0x10, 0x3001, 0x11, new byte[] {1});
+    batch.add(0x10, 0x3001, 0x11, new byte[] {2});
+    LogEntry proposal = batch.drain(0x3001);
+    assertTrue(ProposalBatch.isBatch(proposal));
+    assertEquals(0x3001, proposal.origin());
+    assertEquals(2, ProposalBatch.split(proposal).size());
+  }
+}
@@ -27,8 +27,10 @@ import static com.isahl.chess.knight.raft.features.IRaftMachine.MIN_START;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
+import com.isahl.chess.king.base.model.ListSerial;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -101,6 +103,33 @@ class SegmentTest {
           InstantiationException,
           IllegalAccessException {}
 
+  /** Group Commit 模式下 syncTask 只交出新写入的区间 */
+  @Test
+  void testSyncTask()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true);
+    segment.setFsyncEnabled(false);
+    assertTrue(segment.add(new LogEntry(1, 1, 0xC001L, 0x1001L, 0x01, new byte[] {0x01})));
+    assertTrue(segment.add(new LogEntry(2, 1, 0xC001L, 0x1002L, 0x01, new byte[] {0x02})));
+
+    var task = segment.syncTask();
+    assertNotNull(task);
+    assertDoesNotThrow(task::sync);
+    assertNull(segment.syncTask(), "没有新写入时无需同步");
+
+    assertTrue(segment.add(new LogEntry(3, 1, 0xC001L, 0x1003L, 0x01, new byte[] {0x03})));
+    task = segment.syncTask();
+    assertNotNull(task);
+    segment.freeze();
+    // 冻结后通道已关闭，旧任务仍可安全执行
+    assertDoesNotThrow(task::sync);
+  }
+
   /** 测试 Segment fsync 功能 */
   @Test
   void testFsyncEnabled()
@@ -170,6 +199,212 @@ class SegmentTest {
     segment.freeze();
   }
 
+  /** 测试批量写入后重新加载 */
+  @Test
+  void testAppendBatchAndReload()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true, 4096);
+    assertEquals(0, segment.getEndIndex(), "空段的结束索引为 start - 1");
+    assertEquals(Segment.HEADER_SIZE, segment.getFileSize());
+    assertEquals(4096, file.length(), "可写段应按容量预分配");
+
+    List<LogEntry> batch = new ArrayList<>();
+    for (int i = 1; i <= 200; i++) {
+      batch.add(new LogEntry(i, 1, 0xC001L, 0x1001L + i, 0x01, new byte[] {(byte) i, 2, 3}));
+    }
+    assertFalse(segment.append(List.of(batch.get(1))), "不连续的 index 应被拒绝");
+    assertTrue(segment.append(batch.subList(0, 100)));
+    assertTrue(segment.append(batch.subList(100, 200)));
+    assertEquals(200, segment.getEndIndex());
+    assertTrue(file.length() > 4096, "超出容量后应扩展文件");
+    long size = segment.getFileSize();
+
+    Segment reload = new Segment(file, 1, true, 4096);
+    assertEquals(200, reload.getEndIndex());
+    assertEquals(size, reload.getFileSize());
+    assertEquals(0x1001L + 150, reload.getEntry(150).origin());
+    assertTrue(reload.add(new LogEntry(201, 2, 0xC001L, 0x1001L, 0x01, new byte[] {1})));
+
+    reload.freeze();
+    File frozen =
+        new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(true), 1, 201));
+    assertTrue(frozen.exists());
+    assertEquals(reload.getFileSize(), frozen.length(), "冻结后应截掉预分配部分");
+    Segment readonly = new Segment(frozen, 1, false);
+    assertEquals(201, readonly.getEndIndex());
+    assertEquals(2, readonly.getEntry(201).term());
+  }
+
+  /** 测试崩溃后残缺的尾部记录被丢弃 */
+  @Test
+  void testTornTail()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true, 4096);
+    for (int i = 1; i <= 3; i++) {
+      assertTrue(segment.add(new LogEntry(i, 1, 0xC001L, 0x1001L, 0x01, new byte[] {(byte) i})));
+    }
+    long size = segment.getFileSize();
+    // 模拟第 4 条记录只写入了 length 与部分内容
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(size);
+      raf.writeInt(64);
+      raf.writeInt(0x12345678);
+      raf.write(new byte[] {1, 2, 3, 4, 5});
+    }
+    Segment reload = new Segment(file, 1, true, 4096);
+    assertEquals(3, reload.getEndIndex());
+    assertEquals(size, reload.getFileSize());
+    assertTrue(reload.add(new LogEntry(4, 1, 0xC001L, 0x1001L, 0x01, new byte[] {4})));
+    assertEquals(4, new Segment(file, 1, true, 4096).getEndIndex());
+  }
+
+  @Test
+  void testTruncateThenAppend()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true, 4096);
+    List<LogEntry> batch = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      batch.add(new LogEntry(i, 1, 0xC001L, 0x1001L, 0x01, new byte[] {(byte) i}));
+    }
+    assertTrue(segment.append(batch));
+    segment.freeze();
+    assertFalse(segment.isCanWrite());
+    assertTrue(segment.truncate(5) > 0);
+    assertTrue(segment.isCanWrite(), "截断后的段重新转为可写");
+    assertEquals(5, segment.getEndIndex());
+    assertTrue(segment.add(new LogEntry(6, 2, 0xC001L, 0x1001L, 0x01, new byte[] {6})));
+    assertTrue(segment.truncate(3) > 0);
+    assertTrue(segment.add(new LogEntry(4, 3, 0xC001L, 0x1001L, 0x01, new byte[] {4})));
+
+    File current =
+        new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 3));
+    Segment reload = new Segment(current, 1, true, 4096);
+    assertEquals(4, reload.getEndIndex(), "截断前的旧记录不应在重新加载后出现");
+    assertEquals(3, reload.getEntry(4).term());
+  }
+
+  /** 测试旧版 ListSerial 段在加载时迁移为新格式 */
+  @Test
+  void testLegacyMigration()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    ListSerial<LogEntry> legacy = new ListSerial<>(LogEntry::new);
+    for (int i = 1; i <= 5; i++) {
+      legacy.add(new LogEntry(i, 1, 0xC001L, 0x1001L + i, 0x01, new byte[] {(byte) i}));
+    }
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(true), 1, 5));
+    Files.write(file.toPath(), legacy.encoded());
+
+    Segment segment = new Segment(file, 1, false);
+    assertEquals(5, segment.size());
+    assertEquals(5, segment.getEndIndex());
+    assertEquals(0x1001L + 3, segment.getEntry(3).origin());
+    assertEquals(segment.getFileSize(), file.length());
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      assertEquals(Segment.SEGMENT_MAGIC, raf.readInt(), "旧格式应被改写为新格式");
+    }
+    assertEquals(5, new Segment(file, 1, false).getEntry(5).index());
+  }
+
+  /** 测试条目按偏移从文件读取，不在段内常驻 */
+  @Test
+  void testLazyRead()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true, 4096);
+    List<LogEntry> batch = new ArrayList<>();
+    for (int i = 1; i <= 50; i++) {
+      batch.add(new LogEntry(i, 1, 0xC001L, 0x1001L + i, 0x01, new byte[i]));
+    }
+    assertTrue(segment.append(batch));
+    LogEntry first = segment.getEntry(10);
+    LogEntry second = segment.getEntry(10);
+    assertNotSame(first, second);
+    assertEquals(10, first.content().length);
+    assertEquals(first.origin(), second.origin());
+
+    segment.freeze();
+    for (int i = 1; i <= 50; i++) {
+      assertEquals(i, segment.getEntry(i).content().length, "冻结后按偏移读取");
+    }
+    assertNull(segment.getEntry(51));
+  }
+
+  /** 测试冻结段由索引文件加载，索引损坏时退化为扫描 */
+  @Test
+  void testIndexCheckpoint()
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    File file = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 0));
+    Segment segment = new Segment(file, 1, true, 4096);
+    List<LogEntry> batch = new ArrayList<>();
+    for (int i = 1; i <= 30; i++) {
+      batch.add(new LogEntry(i, 1 + i / 10, 0xC001L, 0x1001L + i, 0x01, new byte[i]));
+    }
+    assertTrue(segment.append(batch));
+    segment.freeze();
+    File frozen = new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(true), 1, 30));
+    File index = new File(frozen.getPath() + Segment.INDEX_SUFFIX);
+    assertTrue(index.isFile(), "冻结时应写入索引");
+    assertFalse(new File(file.getPath() + Segment.INDEX_SUFFIX).exists());
+
+    Segment loaded = new Segment(frozen, 1, false);
+    assertEquals(30, loaded.getEndIndex());
+    assertEquals(30, loaded.size());
+    assertEquals(frozen.length(), loaded.getFileSize());
+    assertEquals(0x1001L + 17, loaded.getEntry(17).origin());
+
+    // 由索引加载的段在读取时校验记录 crc
+    try (RandomAccessFile raf = new RandomAccessFile(frozen, "rw")) {
+      raf.seek(frozen.length() - 1);
+      raf.write(0x7F);
+    }
+    Segment corrupted = new Segment(frozen, 1, false);
+    assertEquals(30, corrupted.getEndIndex());
+    assertNull(corrupted.getEntry(30));
+    assertNotNull(corrupted.getEntry(29));
+
+    // 索引损坏时扫描段文件并重建索引
+    try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+      raf.seek(Segment.INDEX_HEADER_SIZE);
+      raf.writeInt(0);
+    }
+    Segment scanned = new Segment(frozen, 1, false);
+    assertEquals(29, scanned.getEndIndex(), "扫描时丢弃 crc 不符的记录");
+
+    assertTrue(loaded.truncate(20) > 0);
+    assertFalse(index.exists(), "转为可写段后索引失效");
+    loaded.drop();
+    assertFalse(
+        new File(tempDir.toFile(), String.format(Segment.fileNameFormatter(false), 1, 20))
+            .exists());
+  }
+
   private List<LogEntry> mockEntryInput() {
     long term = 1;
     long index = MIN_START;
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model.replicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotStoreTest {
+  @TempDir Path tempDir;
+
+  private static IRaftSnapshot machine(byte[] state) {
+    return new IRaftSnapshot() {
+      @Override
+      public void save(long index, long term, OutputStream output) throws IOException {
+        output.write(state);
+      }
+
+      @Override
+      public void restore(long index, long term, InputStream input) throws IOException {
+        byte[] restored = input.readAllBytes();
+        System.arraycopy(restored, 0, state, 0, restored.length);
+      }
+    };
+  }
+
+  @Test
+  void testSaveAndReadChunks() throws IOException {
+    SnapshotStore store = new SnapshotStore(tempDir.toString());
+    byte[] state = new byte[10_000];
+    for (int i = 0; i < state.length; i++) {
+      state[i] = (byte) i;
+    }
+    assertFalse(store.exists(100, 2));
+    assertEquals(state.length, store.save(machine(state), 100, 2));
+    assertTrue(store.exists(100, 2));
+    assertFalse(Files.exists(tempDir.resolve("snapshot.take")));
+
+    byte[] first = store.read(100, 2, 0, 4096);
+    byte[] last = store.read(100, 2, 8192, 4096);
+    assertEquals(4096, first.length);
+    assertEquals(state.length - 8192, last.length);
+    assertArrayEquals(Arrays.copyOfRange(state, 8192, state.length), last);
+    assertEquals(0, store.read(100, 2, state.length, 4096).length);
+
+    store.save(machine(new byte[] {1}), 200, 3);
+    store.retain(200, 3);
+    assertFalse(store.exists(100, 2));
+    assertTrue(store.exists(200, 3));
+  }
+
+  @Test
+  void testInstallInOrder() throws IOException {
+    SnapshotStore store = new SnapshotStore(tempDir.toString());
+    store.beginInstall(50, 1);
+    assertTrue(store.isInstalling(50, 1));
+    assertTrue(store.writeChunk(0, new byte[] {1, 2, 3}));
+    // 乱序与重复的分片不会写入
+    assertFalse(store.writeChunk(6, new byte[] {7, 8}));
+    assertFalse(store.writeChunk(0, new byte[] {1, 2, 3}));
+    assertEquals(3, store.installOffset());
+    assertTrue(store.writeChunk(3, new byte[] {4, 5, 6}));
+    assertFalse(store.exists(50, 1));
+
+    Path installed = store.completeInstall();
+    assertFalse(store.isInstalling(50, 1));
+    assertTrue(store.exists(50, 1));
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6}, Files.readAllBytes(installed));
+
+    byte[] restored = new byte[6];
+    try (InputStream input = store.open(50, 1)) {
+      machine(restored).restore(50, 1, input);
+    }
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6}, restored);
+  }
+
+  @Test
+  void testAbortInstall() throws IOException {
+    SnapshotStore store = new SnapshotStore(tempDir.toString());
+    store.save(machine(new byte[] {9}), 10, 1);
+    store.beginInstall(20, 2);
+    store.writeChunk(0, new byte[] {1});
+    store.abortInstall();
+    assertFalse(store.isInstalling(20, 2));
+    assertFalse(store.exists(20, 2));
+    assertFalse(store.writeChunk(1, new byte[] {2}));
+    assertTrue(store.exists(10, 1));
+  }
+}
@@ -0,0 +1,51 @@
+package com.isahl.chess.knight.raft.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.bishop.protocol.zchat.factory.ZClusterFactory;
+import com.isahl.chess.bishop.protocol.zchat.model.command.raft.X73_RaftAccept;
+import com.isahl.chess.bishop.protocol.zchat.model.command.raft.X85_RaftGroup;
+import com.isahl.chess.bishop.protocol.zchat.model.ctrl.ZControl;
+import org.junit.jupiter.api.Test;
+
+class RaftGroupsTest {
+
+  @Test
+  void testGroupOf() {
+    int groups = 8;
+    int[] counts = new int[groups];
+    for (long session = 1; session <= 8000; session++) {
+      int group = RaftGroups.groupOf(session, groups);
+      assertEquals(group, RaftGroups.groupOf(session, groups));
+      counts[group]++;
+    }
+    for (int count : counts) {
+      assertTrue(count > 800 && count < 1200, "unbalanced group: " + count);
+    }
+    assertEquals(0, RaftGroups.groupOf(Long.MIN_VALUE, 1));
+  }
+
+  @Test
+  void testEnvelope() {
+    X85_RaftGroup x85 = new X85_RaftGroup(1L);
+    for (int group = 0; group < 3; group++) {
+      X73_RaftAccept x73 = new X73_RaftAccept(100L + group);
+      x73.peer(0x10L + group);
+      x73.term(group);
+      x73.index(1000L + group);
+      x85.append(group * 2, x73);
+    }
+    ZControl decoded = ZClusterFactory._Instance.create(x85.encode());
+    assertInstanceOf(X85_RaftGroup.class, decoded);
+    X85_RaftGroup received = (X85_RaftGroup) decoded;
+    assertEquals(3, received.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i * 2, received.group(i));
+      X73_RaftAccept x73 = (X73_RaftAccept) ZClusterFactory._Instance.create(received.message(i));
+      assertEquals(100L + i, x73.msgId());
+      assertEquals(0x10L + i, x73.peer());
+      assertEquals(i, x73.term());
+      assertEquals(1000L + i, x73.index());
+    }
+  }
+}
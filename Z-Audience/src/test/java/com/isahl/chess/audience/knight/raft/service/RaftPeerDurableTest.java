@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.service;
+
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.CLUSTER_TIMER;
+import static com.isahl.chess.queen.db.model.IStorage.Operation.OP_APPEND;
+import static com.isahl.chess.queen.db.model.IStorage.Operation.OP_MODIFY;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.king.base.features.model.ITriple;
+import com.isahl.chess.king.env.ZUID;
+import com.isahl.chess.knight.cluster.IClusterNode;
+import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.knight.raft.features.IRaftMapper;
+import com.isahl.chess.knight.raft.model.RaftGraph;
+import com.isahl.chess.knight.raft.model.RaftMachine;
+import com.isahl.chess.knight.raft.model.RaftState;
+import com.isahl.chess.knight.raft.model.replicate.LogEntry;
+import com.isahl.chess.queen.events.model.QEvent;
+import com.isahl.chess.queen.io.core.features.model.session.IManager;
+import com.lmax.disruptor.RingBuffer;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** leader 先复制后落盘：自身 accept 只推进到已落盘的 index，落盘完成经 CLUSTER_TIMER 唤醒提交，落盘失败退位 */
+class RaftPeerDurableTest {
+  private static final long FOLLOWER_1 = 0x1000L;
+  private static final long FOLLOWER_2 = 0x2000L;
+
+  private final IRaftMapper _Mapper = mock(IRaftMapper.class);
+  private final IManager _Manager = mock(IManager.class);
+  private final AtomicLong _Flushed = new AtomicLong();
+  private final RingBuffer<QEvent> _Timer =
+      RingBuffer.createSingleProducer(QEvent.EVENT_FACTORY, 16);
+  private CompletableFuture<Boolean> mFlushing;
+  private RaftPeer mPeer;
+  private RaftMachine mSelf;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    IRaftConfig config = mock(IRaftConfig.class);
+    when(config.getZUID()).thenReturn(new ZUID());
+    when(config.getElectInSecond()).thenReturn(Duration.ofSeconds(1));
+    when(config.getHeartbeatInSecond()).thenReturn(Duration.ofSeconds(1));
+    when(config.getSnapshotInSecond()).thenReturn(Duration.ofSeconds(60));
+    when(config.getProposalBatchMax()).thenReturn(1);
+    mPeer = new RaftPeer(mock(TimeWheel.class), config, _Mapper);
+
+    mFlushing = new CompletableFuture<>();
+    when(_Mapper.getFlushedIndex()).thenAnswer(invocation -> _Flushed.get());
+    when(_Mapper.awaitFlushed(anyLong())).thenAnswer(invocation -> mFlushing);
+    when(_Mapper.getEntry(anyLong()))
+        .thenAnswer(
+            invocation -> {
+              long index = invocation.getArgument(0);
+              return new LogEntry(index, 1, mSelf.peer(), 0x100 + index, 0x11, new byte[] {1});
+            });
+
+    IClusterNode node = mock(IClusterNode.class);
+    when(node.selectPublisher(CLUSTER_TIMER)).thenReturn(_Timer);
+    when(node.selectLock(CLUSTER_TIMER)).thenReturn(new ReentrantLock());
+    field("mClusterNode").set(mPeer, node);
+
+    // 三节点议会，leader 已追加到 5，follower1 已确认全部日志，follower2 尚未确认
+    mSelf = (RaftMachine) field("_SelfMachine").get(mPeer);
+    RaftGraph graph = (RaftGraph) field("_SelfGraph").get(mPeer);
+    follower(graph, FOLLOWER_1, 5);
+    follower(graph, FOLLOWER_2, 0);
+    mSelf.term(1);
+    mSelf.approve(RaftState.LEADER);
+    mSelf.leader(mSelf.peer());
+    mSelf.index(5);
+    mSelf.indexTerm(1);
+  }
+
+  private static Field field(String name) throws NoSuchFieldException {
+    Field field = RaftPeer.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field;
+  }
+
+  private static RaftMachine follower(RaftGraph graph, long peer, long accept) {
+    RaftMachine machine = RaftMachine.createBy(peer, OP_MODIFY);
+    machine.approve(RaftState.FOLLOWER);
+    machine.term(1);
+    machine.accept(accept);
+    graph.append(machine);
+    return machine;
+  }
+
+  /** 最近一次经 CLUSTER_TIMER 投递的状态机 */
+  private RaftMachine lastTimer() {
+    long cursor = _Timer.getCursor();
+    assertTrue(cursor >= 0, "没有投递 CLUSTER_TIMER");
+    QEvent event = _Timer.get(cursor);
+    assertEquals(CLUSTER_TIMER, event.getEventType());
+    return (RaftMachine) event.getComponent().getSecond();
+  }
+
+  @Test
+  void testAcceptCappedAtFlushed() {
+    _Flushed.set(3);
+    ITriple result = mPeer.onBatchComplete(_Manager);
+
+    assertEquals(3, mSelf.accept(), "accept 不超过已落盘的 index");
+    assertEquals(3, mSelf.commit(), "follower1 已确认的日志随 leader 落盘提交");
+    assertNotNull(result);
+    List<?> backloads = result.getSecond();
+    assertEquals(3, backloads.size());
+    verify(_Mapper).awaitFlushed(5);
+    verify(_Mapper).updateCommit(3);
+    verify(_Mapper, never()).updateCommit(4);
+    assertEquals(-1, _Timer.getCursor(), "落盘未完成前不唤醒");
+  }
+
+  @Test
+  void testFlushedWakeupCommits() {
+    _Flushed.set(3);
+    mPeer.onBatchComplete(_Manager);
+    // 没有新日志也没有新的落盘，空轮询不做任何事
+    assertNull(mPeer.onBatchComplete(_Manager));
+    verify(_Mapper, times(1)).groupCommit();
+
+    _Flushed.set(5);
+    mFlushing.complete(true);
+    RaftMachine update = lastTimer();
+    assertEquals(OP_MODIFY, update.operation());
+    assertTrue(update.isInState(RaftState.LEADER));
+    // OP_MODIFY 不是心跳，提交留给批次结束
+    assertNull(mPeer.logAppend(update, _Manager));
+    assertEquals(3, mSelf.commit());
+
+    ITriple result = mPeer.onBatchComplete(_Manager);
+    assertEquals(5, mSelf.accept());
+    assertEquals(5, mSelf.commit());
+    List<?> backloads = result.getSecond();
+    assertEquals(2, backloads.size());
+    verify(_Mapper).updateCommit(5);
+    verify(_Mapper, times(1)).awaitFlushed(anyLong());
+  }
+
+  @Test
+  void testFollowerAckWaitsForLeaderFlush() {
+    _Flushed.set(0);
+    mPeer.onBatchComplete(_Manager);
+    assertEquals(0, mSelf.accept());
+    assertEquals(0, mSelf.commit(), "只有一个 follower 确认，leader 未落盘不构成多数派");
+
+    _Flushed.set(5);
+    mFlushing.complete(true);
+    mPeer.onBatchComplete(_Manager);
+    assertEquals(5, mSelf.commit());
+  }
+
+  @Test
+  void testFlushFailureStepsDown() {
+    _Flushed.set(3);
+    mPeer.onBatchComplete(_Manager);
+    assertEquals(3, mSelf.commit());
+
+    when(_Mapper.isFlushFailed()).thenReturn(true);
+    mFlushing.complete(false);
+    RaftMachine stepDown = lastTimer();
+    assertEquals(OP_APPEND, stepDown.operation());
+    assertTrue(stepDown.isInState(RaftState.FOLLOWER), "落盘失败后退位");
+
+    // 即使刷盘线程报告的 index 前进，也不再推进 accept/commit
+    long timers = _Timer.getCursor();
+    _Flushed.set(5);
+    mSelf.index(6);
+    assertNull(mPeer.onBatchComplete(_Manager));
+    assertEquals(3, mSelf.accept());
+    assertEquals(3, mSelf.commit());
+    verify(_Mapper, never()).updateCommit(5);
+    assertEquals(timers + 1, _Timer.getCursor(), "批次结束时发现刷盘失败同样退位");
+    assertTrue(lastTimer().isInState(RaftState.FOLLOWER));
+  }
+}
@@ -0,0 +1,88 @@
+package com.isahl.chess.audience.knight.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.knight.scheduler.core.DeadlineIndex;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeadlineIndexTest {
+
+  private TimeWheel wheel;
+  private DeadlineIndex index;
+
+  @BeforeEach
+  void setUp() {
+    wheel = new TimeWheel(1, TimeUnit.MILLISECONDS, 4, 2);
+    index = new DeadlineIndex(wheel);
+  }
+
+  @AfterEach
+  void tearDown() {
+    index.shutdown();
+    wheel.shutdown();
+  }
+
+  @Test
+  void testExpireNotEarly() throws Exception {
+    Set<String> expired = ConcurrentHashMap.newKeySet();
+    CountDownLatch latch = new CountDownLatch(100);
+    AtomicBoolean onWheel = new AtomicBoolean();
+    long start = System.currentTimeMillis();
+    index.onExpired(
+        batch -> {
+          // 处理方不占用时间轮的工作线程
+          onWheel.compareAndSet(false, Thread.currentThread() instanceof ForkJoinWorkerThread);
+          expired.addAll(batch);
+          batch.forEach(t -> latch.countDown());
+        });
+    Instant deadline = Instant.ofEpochMilli(start + 50);
+    for (int i = 0; i < 100; i++) {
+      index.watch("task-" + i, deadline);
+    }
+    index.watch("forever", null);
+    assertEquals(100, index.size());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() - start >= 50);
+    assertEquals(100, expired.size());
+    assertFalse(expired.contains("forever"));
+    assertFalse(onWheel.get());
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void testUnwatchAndRewatch() throws Exception {
+    List<String> expired = new CopyOnWriteArrayList<>();
+    AtomicInteger batches = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+    index.onExpired(
+        batch -> {
+          expired.addAll(batch);
+          batches.incrementAndGet();
+          latch.countDown();
+        });
+    Instant soon = Instant.now().plusMillis(30);
+    index.watch("done", soon);
+    index.watch("extended", soon);
+    index.unwatch("done");
+    // 重新登记替换旧的截止时刻，旧回调不再生效
+    index.watch("extended", Instant.now().plusMillis(150));
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertTrue(expired.isEmpty());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    assertEquals(List.of("extended"), expired);
+    assertEquals(1, batches.get());
+  }
+}
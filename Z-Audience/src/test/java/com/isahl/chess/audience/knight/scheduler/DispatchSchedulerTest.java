@@ -0,0 +1,68 @@
+package com.isahl.chess.audience.knight.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.isahl.chess.knight.scheduler.core.DeadlineIndex;
+import com.isahl.chess.knight.scheduler.core.DispatchScheduler;
+import com.isahl.chess.knight.scheduler.core.ResultAggregator;
+import com.isahl.chess.knight.scheduler.domain.SubTask;
+import com.isahl.chess.knight.scheduler.domain.SubTaskStatus;
+import com.isahl.chess.knight.scheduler.domain.Task;
+import com.isahl.chess.knight.scheduler.domain.TaskType;
+import com.isahl.chess.knight.scheduler.repository.SubTaskRepository;
+import com.isahl.chess.knight.scheduler.repository.TaskRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+class DispatchSchedulerTest {
+  private final TaskRepository _TaskRepository = mock(TaskRepository.class);
+  private final SubTaskRepository _SubTaskRepository = mock(SubTaskRepository.class);
+  private final ResultAggregator _Aggregator = mock(ResultAggregator.class);
+  private final DispatchScheduler _Scheduler =
+      new DispatchScheduler(
+          _TaskRepository, _SubTaskRepository, _Aggregator, mock(DeadlineIndex.class));
+
+  @Test
+  void testReportByKey() {
+    Task task = new Task("t", TaskType.DISPATCH, 0);
+    SubTask subTask = task.createSubTasksForNodes(List.of("n1", "n2")).get(0);
+    assertEquals(2, task.getSubTaskCount());
+    when(_SubTaskRepository.findById(subTask.getSubTaskId())).thenReturn(Optional.of(subTask));
+    when(_SubTaskRepository.finish(anyString(), anyString(), anyBoolean())).thenReturn(true, false);
+    when(_TaskRepository.findById("t")).thenReturn(Optional.of(task));
+
+    _Scheduler.reportResult(subTask.getSubTaskId(), "ok", true);
+    verify(_TaskRepository).countResult("t", 1, 0);
+    // 计数未满，不加载 subTask 也不聚合
+    verify(_Aggregator, never()).canComplete(any());
+    verify(_SubTaskRepository, never()).findAll();
+
+    _Scheduler.reportResult(subTask.getSubTaskId(), "ok", true);
+    verify(_TaskRepository, times(1)).countResult(anyString(), anyInt(), anyInt());
+  }
+
+  @Test
+  void testClaimSkipLocked() {
+    Task task = new Task("t", TaskType.CLAIM, 0);
+    List<SubTask> pending = task.createSubTasks(3);
+    when(_SubTaskRepository.lockByStatus(SubTaskStatus.PENDING, PageRequest.of(0, 3)))
+        .thenReturn(pending);
+    List<SubTask> claimed = _Scheduler.claimBatch("n1", 3);
+    assertEquals(pending, claimed);
+    claimed.forEach(
+        st -> {
+          assertEquals("n1", st.getTargetNode());
+          assertEquals(SubTaskStatus.RUNNING, st.getStatus());
+        });
+    verify(_SubTaskRepository).saveAll(pending);
+    verify(_SubTaskRepository, never()).findByStatus(any());
+
+    when(_SubTaskRepository.lockByStatus(SubTaskStatus.PENDING, PageRequest.of(0, 1)))
+        .thenReturn(List.of());
+    assertTrue(_Scheduler.claimSubTasks("n2", 5).isEmpty());
+  }
+}
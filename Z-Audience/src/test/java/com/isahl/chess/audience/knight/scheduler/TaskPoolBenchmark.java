@@ -0,0 +1,72 @@
+package com.isahl.chess.audience.knight.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.knight.scheduler.core.TaskPool;
+import com.isahl.chess.knight.scheduler.domain.SubTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 百万级待认领 subTask 下的认领吞吐，不在默认测试集中：
+ *
+ * <pre>
+ * mvn test -pl Z-Audience -am -Dtest=TaskPoolBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ *
+ * -Dz.chess.benchmark.tasks 调整 subTask 数量，-Dz.chess.benchmark.threads 调整并发认领线程数
+ */
+class TaskPoolBenchmark {
+
+  @Test
+  void claim() throws Exception {
+    int tasks = Integer.getInteger("z.chess.benchmark.tasks", 1_000_000);
+    int threads = Integer.getInteger("z.chess.benchmark.threads", 4);
+    TaskPool pool = new TaskPool();
+    SubTask[] subTasks = new SubTask[tasks];
+    for (int i = 0; i < tasks; i++) {
+      subTasks[i] = new SubTask("t", "g" + (i & 15), null);
+    }
+    long start = System.nanoTime();
+    for (SubTask subTask : subTasks) {
+      pool.addTask(subTask);
+    }
+    report("add", tasks, 1, System.nanoTime() - start);
+
+    report("claim", tasks, threads, run(threads, () -> pool.claim("n", 1).isPresent() ? 1 : 0));
+    assertEquals(0, pool.getPendingCount());
+
+    for (SubTask subTask : subTasks) {
+      pool.release(subTask);
+    }
+    report("claimBatch(64)", tasks, threads, run(threads, () -> pool.claimBatch("n", 64).size()));
+    assertEquals(0, pool.getPendingCount());
+  }
+
+  /**
+   * @return 多线程认领直到池为空的耗时
+   */
+  private static long run(int threads, IntSupplier claim) throws Exception {
+    Thread[] workers = new Thread[threads];
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      workers[t] =
+          new Thread(
+              () -> {
+                while (claim.getAsInt() > 0) {}
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void report(String phase, int count, int threads, long nanos) {
+    System.out.printf(
+        "%-16s %,10d subTasks %2d threads %,8d ms %,14.0f ops/s%n",
+        phase, count, threads, TimeUnit.NANOSECONDS.toMillis(nanos), count * 1e9 / nanos);
+  }
+}
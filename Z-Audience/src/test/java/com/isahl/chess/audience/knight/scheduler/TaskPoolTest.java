@@ -0,0 +1,93 @@
+package com.isahl.chess.audience.knight.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.knight.scheduler.core.TaskPool;
+import com.isahl.chess.knight.scheduler.domain.SubTask;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TaskPoolTest {
+
+  @Test
+  void testFifoAndRelease() {
+    TaskPool pool = new TaskPool();
+    SubTask[] tasks = new SubTask[5];
+    for (int i = 0; i < tasks.length; i++) {
+      pool.addTask(tasks[i] = new SubTask("t", null, "p" + i));
+    }
+    pool.addTask(tasks[0]);
+    assertEquals(5, pool.getPendingCount());
+    assertSame(tasks[0], pool.claim("n1", 1).orElseThrow());
+    assertEquals("n1", tasks[0].getTargetNode());
+    List<SubTask> batch = pool.claimBatch("n2", 2);
+    assertEquals(List.of(tasks[1], tasks[2]), batch);
+
+    // 超时释放的 subTask 立即可见并优先被认领
+    pool.release(tasks[1]);
+    assertNull(tasks[1].getTargetNode());
+    assertSame(tasks[1], pool.claim("n3", 1).orElseThrow());
+    assertEquals(List.of(tasks[3], tasks[4]), pool.claimBatch("n3", 10));
+    assertTrue(pool.claim("n3", 1).isEmpty());
+    assertEquals(0, pool.getPendingCount());
+  }
+
+  @Test
+  void testFairAcrossGroups() {
+    TaskPool pool = new TaskPool();
+    for (int i = 0; i < 4; i++) {
+      pool.addTask(new SubTask("t", "a", "a" + i));
+    }
+    pool.addTask(new SubTask("t", "b", "b0"));
+    pool.addTask(new SubTask("t", "c", "c0"));
+    assertEquals(Set.of("a", "b", "c"), pool.getAllGroups());
+    assertEquals(4, pool.getPendingCountByGroup("a"));
+
+    List<String> order = pool.claimBatch("n", 6).stream().map(SubTask::getPayload).toList();
+    assertEquals(List.of("a0", "b0", "c0", "a1", "a2", "a3"), order);
+    // 排空的 group 不再留在池中
+    assertTrue(pool.getAllGroups().isEmpty());
+
+    pool.addTask(new SubTask("t", "b", "b1"));
+    assertTrue(pool.claimFromGroup("a", "n", 1).isEmpty());
+    assertEquals("b1", pool.claimFromGroup("b", "n", 1).orElseThrow().getPayload());
+    assertTrue(pool.claimFromGroup("x", "n", 1).isEmpty());
+  }
+
+  @Test
+  void testConcurrentClaimOnce() throws Exception {
+    TaskPool pool = new TaskPool();
+    int count = 100_000;
+    for (int i = 0; i < count; i++) {
+      pool.addTask(new SubTask("t", "g" + (i & 7), null));
+    }
+    Set<String> claimed = ConcurrentHashMap.newKeySet();
+    AtomicInteger duplicates = new AtomicInteger();
+    Thread[] workers = new Thread[4];
+    for (int t = 0; t < workers.length; t++) {
+      String node = "n" + t;
+      workers[t] =
+          new Thread(
+              () -> {
+                for (List<SubTask> batch; !(batch = pool.claimBatch(node, 32)).isEmpty(); ) {
+                  batch.forEach(
+                      st -> {
+                        if (!claimed.add(st.getSubTaskId())) {
+                          duplicates.incrementAndGet();
+                        }
+                      });
+                }
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(0, duplicates.get());
+    assertEquals(count, claimed.size());
+    assertEquals(0, pool.getPendingCount());
+  }
+}
@@ -0,0 +1,100 @@
+package com.isahl.chess.audience.queen.events.pipe;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import com.isahl.chess.queen.events.model.QEvent;
+import com.isahl.chess.queen.events.pipe.SlotBalancer;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SlotBalancerTest {
+
+  /** 手动推进时钟，每次 tick 前进一个默认窗口 */
+  private static class ManualBalancer extends SlotBalancer {
+    private long mClock = 1;
+
+    private ManualBalancer(RingBuffer<QEvent>[] slots) {
+      super("test", slots);
+    }
+
+    private void tick() {
+      mClock += TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Override
+    protected long now() {
+      return mClock;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RingBuffer<QEvent>[] rings(int count) {
+    RingBuffer<QEvent>[] rings = new RingBuffer[count];
+    for (int i = 0; i < count; i++) {
+      rings[i] = RingBuffer.createSingleProducer(QEvent.EVENT_FACTORY, 16);
+    }
+    return rings;
+  }
+
+  private static List<ISession> sessionsOnSlotZero(int count) {
+    List<ISession> sessions = new ArrayList<>();
+    while (sessions.size() < count) {
+      ISession session = mock(ISession.class);
+      if ((session.hashCode() & 1) == 0) {
+        sessions.add(session);
+      }
+    }
+    return sessions;
+  }
+
+  private static RingBuffer<QEvent> publish(RingBuffer<QEvent> ring) {
+    ring.publish(ring.next());
+    return ring;
+  }
+
+  @Test
+  void testMigrateHotSession() {
+    RingBuffer<QEvent>[] rings = rings(2);
+    ManualBalancer balancer = new ManualBalancer(rings);
+    List<ISession> sessions = sessionsOnSlotZero(3);
+    List<RingBuffer<QEvent>> selected = new ArrayList<>();
+    for (int window = 0; window < 12; window++) {
+      selected.clear();
+      for (ISession session : sessions) {
+        selected.add(publish(balancer.select(session, 1000)));
+      }
+      if (window < 4) {
+        assertEquals(0, balancer.migrations());
+      }
+      balancer.tick();
+    }
+    // 3:0 迁出一个后为 2:1，差值不足以再迁移
+    assertEquals(1, balancer.migrations());
+    assertEquals(1, selected.stream().filter(ring -> ring == rings[1]).count());
+    assertTrue(balancer.load(0) > balancer.load(1));
+    assertTrue(balancer.load(1) > 0);
+  }
+
+  @Test
+  void testStayWhileInFlight() {
+    RingBuffer<QEvent>[] rings = rings(2);
+    ManualBalancer balancer = new ManualBalancer(rings);
+    // 慢消费者停在 -1，ring 上已发布的事件都视为在途
+    rings[0].addGatingSequences(new Sequence());
+    List<ISession> sessions = sessionsOnSlotZero(3);
+    for (int window = 0; window < 5; window++) {
+      for (ISession session : sessions) {
+        assertSame(rings[0], publish(balancer.select(session, 1000)));
+      }
+      balancer.tick();
+    }
+    assertEquals(0, balancer.migrations());
+    assertEquals(15, balancer.backlog(0));
+  }
+}
@@ -0,0 +1,91 @@
+package com.isahl.chess.queen.io.core.features.model.routes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.isahl.chess.queen.io.core.features.model.routes.IThread.Subscribe;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TopicTrieTest {
+
+  private TopicTrie trie;
+
+  @BeforeEach
+  void setUp() {
+    trie = new TopicTrie();
+  }
+
+  private void subscribe(String filter, long session) {
+    trie.subscribe(
+        filter, Pattern.compile(Pattern.quote(filter)), session, IQoS.Level.AT_LEAST_ONCE);
+  }
+
+  private List<Long> sessions(String topic) {
+    return trie.match(topic).stream()
+        .flatMap(Subscribe::stream)
+        .map(Subscribe.Mapped::session)
+        .sorted()
+        .toList();
+  }
+
+  @Test
+  void testExactMatch() {
+    subscribe("sensors/a/temp", 1);
+    assertEquals(List.of(1L), sessions("sensors/a/temp"));
+    assertTrue(sessions("sensors/a").isEmpty());
+    assertTrue(sessions("sensors/a/temp/x").isEmpty());
+  }
+
+  @Test
+  void testSingleLevelWildcard() {
+    subscribe("sensors/+/temp", 1);
+    subscribe("+", 2);
+    assertEquals(List.of(1L), sessions("sensors/a/temp"));
+    assertEquals(List.of(1L), sessions("sensors//temp"));
+    assertTrue(sessions("sensors/a/b/temp").isEmpty());
+    assertEquals(List.of(2L), sessions("sensors"));
+  }
+
+  @Test
+  void testMultiLevelWildcard() {
+    subscribe("sensors/#", 1);
+    subscribe("#", 2);
+    assertEquals(List.of(1L, 2L), sessions("sensors"));
+    assertEquals(List.of(1L, 2L), sessions("sensors/a/b/c"));
+    assertEquals(List.of(2L), sessions("sensorsX"));
+  }
+
+  @Test
+  void testSystemTopic() {
+    subscribe("#", 1);
+    subscribe("+/monitor", 2);
+    subscribe("$SYS/#", 3);
+    assertEquals(List.of(3L), sessions("$SYS/monitor"));
+    assertEquals(List.of(1L, 2L), sessions("app/monitor"));
+  }
+
+  @Test
+  void testUnsubscribeAndDismiss() {
+    subscribe("a/+", 1);
+    subscribe("a/+", 2);
+    subscribe("a/#", 1);
+    trie.unsubscribe("a/+", 1);
+    assertEquals(List.of(1L, 2L), sessions("a/b"));
+    trie.dismiss(1);
+    assertEquals(List.of(2L), sessions("a/b"));
+    assertNull(trie.get("a/#"));
+    trie.dismiss(2);
+    assertEquals(0, trie.size());
+    assertTrue(trie.filters(2).isEmpty());
+  }
+
+  @Test
+  void testKeepHigherLevel() {
+    trie.subscribe("a", Pattern.compile("a"), 1, IQoS.Level.EXACTLY_ONCE);
+    Subscribe subscribe = trie.subscribe("a", Pattern.compile("a"), 1, IQoS.Level.ALMOST_ONCE);
+    assertEquals(IQoS.Level.EXACTLY_ONCE, subscribe.level(1));
+  }
+}
@@ -0,0 +1,169 @@
+package com.isahl.chess.queen.io.core.net.socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.metrics.FlowStats;
+import com.isahl.chess.queen.events.functions.AioWriter;
+import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
+import com.isahl.chess.queen.io.core.features.model.channels.IWritable;
+import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
+import com.isahl.chess.queen.io.core.features.model.session.IDismiss;
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
+import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
+import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+class AioSessionFlowTest {
+  private final AsynchronousSocketChannel _Channel = mock(AsynchronousSocketChannel.class);
+  private final IPipeEncoder _Encoder = mock(IPipeEncoder.class);
+  private final FlowStats _Flow = ISort.Type.CLIENT.flow();
+
+  @SuppressWarnings("unchecked")
+  private AioSession<IPContext> session(IOption.SlowConsumer policy) throws Exception {
+    when(_Channel.getRemoteAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 1883));
+    when(_Channel.getLocalAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 40000));
+    ISslOption option = mock(ISslOption.class);
+    when(option.getSendQueueMax()).thenReturn(64);
+    when(option.getSnfByte()).thenReturn(4096);
+    when(option.getSendHighWater()).thenReturn(1000);
+    when(option.getSendLowWater()).thenReturn(200);
+    when(option.getSlowConsumer()).thenReturn(policy);
+    IPContext context = mock(IPContext.class);
+    when(context.getRvBuffer()).thenReturn(ByteBuf.allocate(64));
+    IAioSort<IPContext> sort = mock(IAioSort.class);
+    when(sort.newContext(option)).thenReturn(context);
+    when(sort.getType()).thenReturn(ISort.Type.CLIENT);
+    when(sort.getEncoder()).thenReturn(_Encoder);
+    return new AioSession<>(
+        _Channel, option, sort, mock(IConnectActivity.class), mock(IDismiss.class), false);
+  }
+
+  private static X113_QttPublish publish(String topic, IQoS.Level level) {
+    X113_QttPublish x113 = new X113_QttPublish().withTopic(topic);
+    x113.setLevel(level);
+    return x113;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void saturate(AioSession<IPContext> session) {
+    for (int i = 0; i < 4; i++) {
+      session.write(new AioPacket(ByteBuf.wrap(new byte[300])), mock(CompletionHandler.class));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testDropAndThrottle() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.DROP_QOS0);
+    saturate(session);
+    assertEquals(1200, session.queuedBytes());
+    assertTrue(session.isSaturated());
+    assertEquals(1000, _Flow.highWater());
+
+    long dropped = _Flow.dropped();
+    assertFalse(session.admit(publish("a/b", IQoS.Level.ALMOST_ONCE)));
+    assertTrue(session.admit(publish("a/b", IQoS.Level.AT_LEAST_ONCE)));
+    assertEquals(dropped + 1, _Flow.dropped());
+
+    ISession publisher = mock(ISession.class);
+    session.throttle(publisher);
+    session.throttle(publisher);
+    verify(publisher, times(1)).suspendRead();
+
+    session.writeNext(1000, mock(CompletionHandler.class));
+    assertEquals(200, session.queuedBytes());
+    assertFalse(session.isSaturated());
+    verify(publisher, times(1)).resumeRead();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testCoalesce() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.COALESCE);
+    saturate(session);
+    long coalesced = _Flow.coalesced();
+    X113_QttPublish first = publish("a/b", IQoS.Level.ALMOST_ONCE);
+    X113_QttPublish latest = publish("a/b", IQoS.Level.ALMOST_ONCE);
+    assertFalse(session.admit(first));
+    assertFalse(session.admit(latest));
+    assertEquals(coalesced + 1, _Flow.coalesced());
+
+    session.writeNext(1200, mock(CompletionHandler.class));
+    assertTrue(session.isEmpty());
+    verify(_Encoder, never()).handle(same(first), any());
+    verify(_Encoder).handle(same(latest), same(session));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testDisconnect() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.DISCONNECT);
+    saturate(session);
+    long disconnected = _Flow.disconnected();
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> session.write(new AioPacket(ByteBuf.wrap(new byte[8])), null));
+    assertEquals(disconnected + 1, _Flow.disconnected());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testReadPausedUntilResumed() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.DROP_QOS0);
+    CompletionHandler<Integer, ISession> reader = mock(CompletionHandler.class);
+    session.suspendRead();
+    session.suspendRead();
+    session.readNext(reader);
+    session.resumeRead();
+    verify(_Channel, never()).read(any(), anyLong(), any(), any(), any());
+    session.resumeRead();
+    verify(_Channel, times(1)).read(any(), anyLong(), any(), same(session), same(reader));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testCloseReleasesAfterPendingWrite() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.DROP_QOS0);
+    AioPacket flushing = spy(new AioPacket(ByteBuf.wrap(new byte[300])));
+    session.write(flushing, mock(CompletionHandler.class));
+    session.close();
+    // 挂起的 gathering write 仍引用 packet 的存储
+    verify(_Channel).close();
+    verify(flushing, never()).release();
+    assertEquals(
+        IWritable.WRITE_STATUS.CLOSED,
+        session.writeNext(AioWriter.WROTE_FAILED, mock(CompletionHandler.class)));
+    verify(flushing).release();
+    assertTrue(session.isEmpty());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testCloseReleasesCoalesced() throws Exception {
+    AioSession<IPContext> session = session(IOption.SlowConsumer.COALESCE);
+    saturate(session);
+    X113_QttPublish pending = spy(publish("a/b", IQoS.Level.ALMOST_ONCE));
+    assertFalse(session.admit(pending));
+    session.close();
+    verify(pending, never()).release();
+    session.writeNext(1200, mock(CompletionHandler.class));
+    verify(pending).release();
+    verify(_Encoder, never()).handle(any(), any());
+
+    X113_QttPublish late = spy(publish("a/b", IQoS.Level.ALMOST_ONCE));
+    assertFalse(session.admit(late));
+    verify(late).release();
+  }
+}
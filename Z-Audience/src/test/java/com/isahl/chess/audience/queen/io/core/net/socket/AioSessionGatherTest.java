@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.net.socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.SharedBuf;
+import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
+import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
+import com.isahl.chess.queen.io.core.features.model.session.IDismiss;
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
+import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
+import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** gathering write 的 iovec 组装与部分写出后的续写位置 */
+class AioSessionGatherTest {
+  private static final int VECTOR_MAX = 64;
+
+  private final AsynchronousSocketChannel _Channel = mock(AsynchronousSocketChannel.class);
+  private final List<Flush> _Flushes = new ArrayList<>();
+
+  /** 一次 channel.write 调用时各 iovec 的剩余字节数与起始字节 */
+  private record Flush(int offset, int[] remaining, byte[] first) {
+    int count() {
+      return remaining.length;
+    }
+
+    long bytes() {
+      long bytes = 0;
+      for (int r : remaining) {
+        bytes += r;
+      }
+      return bytes;
+    }
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    // _Vectors 在下一轮前被复用，调用时立即记录
+    doAnswer(
+            invocation -> {
+              ByteBuffer[] vectors = invocation.getArgument(0);
+              int offset = invocation.getArgument(1);
+              int length = invocation.getArgument(2);
+              int[] remaining = new int[length];
+              byte[] first = new byte[length];
+              for (int i = 0; i < length; i++) {
+                ByteBuffer vector = vectors[offset + i];
+                remaining[i] = vector.remaining();
+                first[i] = vector.get(vector.position());
+              }
+              _Flushes.add(new Flush(offset, remaining, first));
+              return null;
+            })
+        .when(_Channel)
+        .write(
+            any(ByteBuffer[].class),
+            anyInt(),
+            anyInt(),
+            anyLong(),
+            any(TimeUnit.class),
+            any(),
+            any(CompletionHandler.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  private AioSession<IPContext> session(int flushBytesMax) throws Exception {
+    when(_Channel.getRemoteAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 1883));
+    when(_Channel.getLocalAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 40000));
+    ISslOption option = mock(ISslOption.class);
+    when(option.getSendQueueMax()).thenReturn(256);
+    when(option.getSnfByte()).thenReturn(flushBytesMax);
+    when(option.getSendHighWater()).thenReturn(1 << 20);
+    when(option.getSendLowWater()).thenReturn(1 << 10);
+    when(option.getSlowConsumer()).thenReturn(IOption.SlowConsumer.DROP_QOS0);
+    IPContext context = mock(IPContext.class);
+    when(context.getRvBuffer()).thenReturn(ByteBuf.allocate(64));
+    IAioSort<IPContext> sort = mock(IAioSort.class);
+    when(sort.newContext(option)).thenReturn(context);
+    when(sort.getType()).thenReturn(ISort.Type.CLIENT);
+    when(sort.getEncoder()).thenReturn(mock(IPipeEncoder.class));
+    return new AioSession<>(
+        _Channel, option, sort, mock(IConnectActivity.class), mock(IDismiss.class), false);
+  }
+
+  /** 第 j 个字节为 j，iovec 的起始字节即为续写的偏移 */
+  private static byte[] bytes(int size) {
+    byte[] bytes = new byte[size];
+    for (int j = 0; j < size; j++) {
+      bytes[j] = (byte) j;
+    }
+    return bytes;
+  }
+
+  private static AioPacket packet(int size) {
+    return spy(new AioPacket(ByteBuf.wrap(bytes(size))));
+  }
+
+  private static AioPacket packet(int header, int body) {
+    return spy(new AioPacket(ByteBuf.wrap(bytes(header)), SharedBuf.wrap(bytes(body))));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static CompletionHandler<Integer, ISession> handler() {
+    return mock(CompletionHandler.class);
+  }
+
+  private Flush last() {
+    return _Flushes.get(_Flushes.size() - 1);
+  }
+
+  @Test
+  void testShortWriteInsidePacket() throws Exception {
+    AioSession<IPContext> session = session(4096);
+    AioPacket a = packet(100);
+    AioPacket b = packet(100);
+    AioPacket c = packet(10, 50);
+    session.write(a, handler());
+    // a 的写出未完成，b/c 排队
+    session.write(b, handler());
+    session.write(c, handler());
+    assertEquals(1, _Flushes.size());
+    assertArrayEquals(new int[] {100}, last().remaining());
+
+    // 停在 a 的中间
+    session.writeNext(60, handler());
+    assertEquals(2, _Flushes.size());
+    assertEquals(0, last().offset());
+    assertArrayEquals(new int[] {40, 100, 10, 50}, last().remaining());
+    assertEquals(60, last().first()[0]);
+    verify(a, never()).release();
+    assertEquals(3, session.size());
+
+    // 停在 c 的 header 中间，a/b 完整写出
+    session.writeNext(40 + 100 + 5, handler());
+    verify(a).release();
+    verify(b).release();
+    verify(c, never()).release();
+    assertEquals(1, session.size());
+    assertArrayEquals(new int[] {5, 50}, last().remaining());
+    assertEquals(5, last().first()[0]);
+    assertEquals(0, last().first()[1]);
+
+    session.writeNext(55, handler());
+    verify(c).release();
+    assertTrue(session.isEmpty());
+    assertEquals(3, _Flushes.size());
+    assertEquals(0, session.queuedBytes());
+  }
+
+  @Test
+  void testWriteEndsOnPacketBoundary() throws Exception {
+    AioSession<IPContext> session = session(4096);
+    AioPacket a = packet(100);
+    AioPacket b = packet(100);
+    AioPacket c = packet(20, 80);
+    session.write(a, handler());
+    session.write(b, handler());
+    session.write(c, handler());
+
+    session.writeNext(100, handler());
+    verify(a).release();
+    verify(b, never()).release();
+    assertEquals(2, session.size());
+    assertArrayEquals(new int[] {100, 20, 80}, last().remaining());
+    assertEquals(0, last().first()[0]);
+
+    // 恰好停在 c 的 header 与 body 之间
+    session.writeNext(120, handler());
+    verify(b).release();
+    verify(c, never()).release();
+    assertArrayEquals(new int[] {80}, last().remaining());
+    assertEquals(0, last().first()[0]);
+
+    session.writeNext(80, handler());
+    verify(c).release();
+    assertTrue(session.isEmpty());
+  }
+
+  @Test
+  void testVectorCap() throws Exception {
+    AioSession<IPContext> session = session(4096);
+    List<AioPacket> packets = new ArrayList<>();
+    for (int i = 0; i < VECTOR_MAX + 6; i++) {
+      AioPacket packet = packet(10);
+      packets.add(packet);
+      session.write(packet, handler());
+    }
+    assertEquals(1, _Flushes.size());
+
+    session.writeNext(10, handler());
+    verify(packets.get(0)).release();
+    assertEquals(VECTOR_MAX, last().count(), "单轮 iovec 数不超过上限");
+    assertEquals(VECTOR_MAX * 10L, last().bytes());
+
+    // 只写出前 3 个半，其余 iovec 在下一轮重新组装
+    session.writeNext(35, handler());
+    for (int i = 1; i <= 3; i++) {
+      verify(packets.get(i)).release();
+    }
+    verify(packets.get(4), never()).release();
+    assertEquals(VECTOR_MAX, last().count());
+    assertEquals(5, last().remaining()[0]);
+    assertEquals(5, last().first()[0]);
+    assertEquals(VECTOR_MAX + 2, session.size());
+
+    session.writeNext(5 + (VECTOR_MAX - 1) * 10, handler());
+    assertEquals(2, session.size());
+    assertArrayEquals(new int[] {10, 10}, last().remaining());
+    verify(packets.get(VECTOR_MAX + 3)).release();
+    verify(packets.get(VECTOR_MAX + 4), never()).release();
+
+    session.writeNext(20, handler());
+    assertTrue(session.isEmpty());
+    packets.forEach(packet -> verify(packet).release());
+  }
+
+  @Test
+  void testFlushBytesCap() throws Exception {
+    AioSession<IPContext> session = session(256);
+    AioPacket a = packet(100);
+    AioPacket b = packet(200);
+    AioPacket c = packet(40, 160);
+    session.write(a, handler());
+    session.write(b, handler());
+    session.write(c, handler());
+
+    session.writeNext(100, handler());
+    verify(a).release();
+    // c 的 body 截去超出上限的部分，留到下一轮
+    assertArrayEquals(new int[] {200, 40, 16}, last().remaining());
+    assertEquals(256, last().bytes());
+
+    session.writeNext(230, handler());
+    verify(b).release();
+    verify(c, never()).release();
+    assertArrayEquals(new int[] {10, 160}, last().remaining());
+    assertEquals(30, last().first()[0]);
+    assertTrue(last().bytes() <= 256);
+
+    session.writeNext(170, handler());
+    verify(c).release();
+    assertTrue(session.isEmpty());
+  }
+}
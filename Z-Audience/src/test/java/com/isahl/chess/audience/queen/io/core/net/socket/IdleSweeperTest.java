@@ -0,0 +1,139 @@
+package com.isahl.chess.queen.io.core.net.socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
+import com.isahl.chess.queen.io.core.features.model.session.IDismiss;
+import com.isahl.chess.queen.io.core.features.model.session.IIdle;
+import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
+import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IdleSweeperTest {
+  private final IdleSweeper _Sweeper = new IdleSweeper(10, 6);
+
+  private class Idle implements IIdle {
+    private final CountDownLatch _Expired = new CountDownLatch(1);
+    private volatile long vReadAt = _Sweeper.now();
+    private volatile long vFlushAt;
+    private volatile long vIdleTimeout;
+    private final long _WriteTimeout;
+
+    private Idle(long idleTimeout, long writeTimeout) {
+      vIdleTimeout = idleTimeout;
+      _WriteTimeout = writeTimeout;
+    }
+
+    @Override
+    public long readAt() {
+      return vReadAt;
+    }
+
+    @Override
+    public long flushAt() {
+      return vFlushAt;
+    }
+
+    @Override
+    public long idleTimeout() {
+      return vIdleTimeout;
+    }
+
+    @Override
+    public long writeTimeout() {
+      return _WriteTimeout;
+    }
+
+    @Override
+    public boolean isClosed() {
+      return _Expired.getCount() == 0;
+    }
+
+    @Override
+    public void expire() {
+      _Expired.countDown();
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    _Sweeper.shutdown();
+  }
+
+  @Test
+  void testIdleExpiredInBatch() throws Exception {
+    Idle[] idles = new Idle[100];
+    for (int i = 0; i < idles.length; i++) {
+      _Sweeper.watch(idles[i] = new Idle(100, 0));
+    }
+    Idle active = new Idle(100, 0);
+    _Sweeper.watch(active);
+    long start = System.nanoTime();
+    // 活跃连接的读时刻持续刷新，不会被扫描断开
+    for (int i = 0; i < 30; i++) {
+      active.vReadAt = _Sweeper.now();
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    for (Idle idle : idles) {
+      assertTrue(idle._Expired.await(2, TimeUnit.SECONDS));
+    }
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+    assertFalse(active.isClosed());
+  }
+
+  @Test
+  void testWriteStall() throws Exception {
+    Idle stalled = new Idle(0, 50);
+    Idle flushed = new Idle(0, 50);
+    _Sweeper.watch(stalled);
+    _Sweeper.watch(flushed);
+    stalled.vFlushAt = _Sweeper.now();
+    assertTrue(stalled._Expired.await(2, TimeUnit.SECONDS));
+    assertFalse(flushed.isClosed());
+  }
+
+  @Test
+  void testRewatch() throws Exception {
+    Idle idle = new Idle(TimeUnit.MINUTES.toMillis(10), 0);
+    IdleSweeper.Entry entry = _Sweeper.watch(idle);
+    TimeUnit.MILLISECONDS.sleep(50);
+    assertFalse(idle.isClosed());
+    idle.vIdleTimeout = 30;
+    entry.rewatch();
+    assertTrue(idle._Expired.await(2, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testKeepalive() throws Exception {
+    AsynchronousSocketChannel channel = mock(AsynchronousSocketChannel.class);
+    when(channel.getRemoteAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 1883));
+    when(channel.getLocalAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 40000));
+    ISslOption option = mock(ISslOption.class);
+    when(option.getReadTimeOutInSecond()).thenReturn(300);
+    when(option.getWriteTimeOutInSecond()).thenReturn(15);
+    IPContext context = mock(IPContext.class);
+    when(context.getRvBuffer()).thenReturn(ByteBuf.allocate(64));
+    IAioSort<IPContext> sort = mock(IAioSort.class);
+    when(sort.newContext(option)).thenReturn(context);
+    when(sort.getType()).thenReturn(ISort.Type.CLIENT);
+    AioSession<IPContext> session =
+        new AioSession<>(
+            channel, option, sort, mock(IConnectActivity.class), mock(IDismiss.class), false);
+    assertEquals(300_000, session.idleTimeout());
+    assertEquals(15_000, session.writeTimeout());
+    session.keepalive(60_000);
+    assertEquals(90_000, session.idleTimeout());
+    session.keepalive(0);
+    assertEquals(300_000, session.idleTimeout());
+  }
+}
@@ -48,7 +48,9 @@ public class SSLFilter<A extends IPContext>
   @Override
   public IPacket encode(SSLZContext<A> context, IPacket output) {
     if (output.outIdempotent(getLeftIdempotentBit())) {
-      return new AioPacket(context.doWrap(output.getBuffer()));
+      IPacket packet = new AioPacket(context.doWrap(output.getBuffer()));
+      output.release();
+      return packet;
     }
     return output;
   }
@@ -25,6 +25,7 @@ package com.isahl.chess.bishop.io.ssl;
 
 import com.isahl.chess.bishop.protocol.ProtocolContext;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.ByteBufPool;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
@@ -60,6 +61,11 @@ public class SSLZContext<A extends IPContext> extends ProtocolContext<IPacket>
   // 使用 SoftReference 允许 GC 在内存紧张时回收
   private static volatile java.lang.ref.SoftReference<String[]> _CachedTls13Suites = null;
 
+  private static final int SCRATCH_WRAP = 0;
+  private static final int SCRATCH_UNWRAP = 1;
+  private static final ThreadLocal<ByteBuffer[]> _Scratches =
+      ThreadLocal.withInitial(() -> new ByteBuffer[2]);
+
   private final SSLEngine _SslEngine;
   private final SSLContext _SslContext;
   private final SSLSession _SslSession;
@@ -305,14 +311,27 @@ public class SSLZContext<A extends IPContext> extends ProtocolContext<IPacket>
     return _SslEngine.getHandshakeStatus();
   }
 
+  /** wrap/unwrap 的输出先写入线程复用的堆外缓冲，再按实际产出长度拷出， 避免每次按 packet/app buffer 上限申请内存 */
+  private static ByteBuffer scratch(int slot, int size) {
+    ByteBuffer[] scratches = _Scratches.get();
+    ByteBuffer scratch = scratches[slot];
+    if (scratch == null || scratch.capacity() < size) {
+      scratches[slot] = scratch = ByteBuffer.allocateDirect(size);
+    }
+    return scratch.clear();
+  }
+
+  /**
+   * @return 池化的密文 buffer，由持有的 packet 发送后 release
+   */
   public ByteBuf doWrap(ByteBuf output) {
     try {
-      ByteBuf netOutBuffer = ByteBuf.allocate(_SslSession.getPacketBufferSize());
+      ByteBuffer netOutBuffer = scratch(SCRATCH_WRAP, _SslSession.getPacketBufferSize());
       _Logger.trace(
           "SSL wrap: input=%d bytes, handshakeStatus=%s",
           output.readableBytes(), _SslEngine.getHandshakeStatus());
 
-      SSLEngineResult result = _SslEngine.wrap(output.toReadBuffer(), netOutBuffer.toWriteBuffer());
+      SSLEngineResult result = _SslEngine.wrap(output.toReadBuffer(), netOutBuffer);
       int produced = result.bytesProduced();
 
       _Logger.trace(
@@ -322,7 +341,7 @@ public class SSLZContext<A extends IPContext> extends ProtocolContext<IPacket>
       return switch (result.getStatus()) {
         case OK, BUFFER_UNDERFLOW -> {
           doTask();
-          yield netOutBuffer.seek(produced);
+          yield ByteBufPool.allocate(produced).put(ByteBuf.wrap(netOutBuffer.slice(0, produced)));
         }
         case CLOSED -> throw new ZException("SSL connection closed during wrap");
         case BUFFER_OVERFLOW -> {
@@ -338,14 +357,14 @@ public class SSLZContext<A extends IPContext> extends ProtocolContext<IPacket>
 
   public ByteBuf doUnwrap(ByteBuf netInBuffer) {
     try {
-      ByteBuf appInBuffer = ByteBuf.allocate(_AppInBufferSize);
+      ByteBuffer appInBuffer = scratch(SCRATCH_UNWRAP, _AppInBufferSize);
       ByteBuffer inputBuffer = netInBuffer.toReadBuffer();
 
       _Logger.trace(
           "SSL unwrap: input=%d bytes, handshakeStatus=%s",
           inputBuffer.remaining(), _SslEngine.getHandshakeStatus());
 
-      SSLEngineResult result = _SslEngine.unwrap(inputBuffer, appInBuffer.toWriteBuffer());
+      SSLEngineResult result = _SslEngine.unwrap(inputBuffer, appInBuffer);
       int consumed = result.bytesConsumed();
       int produced = result.bytesProduced();
 
@@ -371,7 +390,9 @@ public class SSLZContext<A extends IPContext> extends ProtocolContext<IPacket>
       }
 
       netInBuffer.skip(consumed);
-      return produced > 0 ? appInBuffer.seek(produced) : null;
+      return produced > 0
+          ? ByteBuf.allocate(produced).put(ByteBuf.wrap(appInBuffer.slice(0, produced)))
+          : null;
     } catch (SSLException e) {
       _Logger.error("SSL unwrap error: %s", e.getMessage());
       throw new ZException(e, "ssl unwrap error");
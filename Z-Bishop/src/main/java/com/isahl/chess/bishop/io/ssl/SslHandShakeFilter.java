@@ -65,7 +65,9 @@ public class SslHandShakeFilter<A extends IPContext>
       if (netOutBuffer == null) {
         netOutBuffer = context.doWrap(output.encode());
       } else {
-        netOutBuffer.append(context.doWrap(output.encode()));
+        ByteBuf wrapped = context.doWrap(output.encode());
+        netOutBuffer.append(wrapped);
+        wrapped.release();
       }
       handshakeStatus = context.getHandShakeStatus();
     } while (handshakeStatus == NEED_WRAP);
@@ -61,6 +61,7 @@ public abstract class ProtocolContext<F> extends AioContext<INetworkOption> impl
 
   @Override
   public void reset() {
+    super.reset();
     mCarrier = null;
   }
 
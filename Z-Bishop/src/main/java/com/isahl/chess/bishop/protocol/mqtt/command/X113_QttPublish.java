@@ -31,6 +31,7 @@ import com.isahl.chess.bishop.protocol.mqtt.model.QttType;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.SharedBuf;
 import com.isahl.chess.king.base.util.IoUtil;
 import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 import java.nio.charset.StandardCharsets;
@@ -66,6 +67,9 @@ public class X113_QttPublish extends QttCommand implements IRoutable {
   private String mTopic;
   private long mTarget;
 
+  /** 扇出时多个订阅者共享的 payload，编码时只写各自的头部 */
+  private SharedBuf mSharedPayload;
+
   @Override
   public int length() {
     int length = 0;
@@ -312,6 +316,45 @@ public class X113_QttPublish extends QttCommand implements IRoutable {
 
   @Override
   public ByteBuf suffix(ByteBuf output) {
+    suffixHead(output);
+    // 载荷
+    if (mPayload != null) {
+      output.put(mPayload);
+    }
+    return output;
+  }
+
+  /**
+   * @return 不含 payload 的可变头部，payload 由 {@link #detachSharedPayload()} 提供
+   */
+  public ByteBuf encodeHead() {
+    return suffixHead(ByteBuf.allocate(length() - (mPayload == null ? 0 : mPayload.length)));
+  }
+
+  public SharedBuf sharedPayload() {
+    return mSharedPayload;
+  }
+
+  /**
+   * 转移共享 payload 的引用，调用方负责 release；之后再次编码将回到完整编码
+   *
+   * @return 共享 payload, 没有时为 null
+   */
+  public SharedBuf detachSharedPayload() {
+    SharedBuf shared = mSharedPayload;
+    mSharedPayload = null;
+    return shared;
+  }
+
+  @Override
+  public void release() {
+    SharedBuf shared = detachSharedPayload();
+    if (shared != null) {
+      shared.release();
+    }
+  }
+
+  private ByteBuf suffixHead(ByteBuf output) {
     // v5 属性编码（在主题之前）
     if (isV5()) {
       if (_Properties != null && !_Properties.isEmpty()) {
@@ -334,12 +377,6 @@ public class X113_QttPublish extends QttCommand implements IRoutable {
     if (level().getValue() > ALMOST_ONCE.getValue()) {
       output.putShort(msgId());
     }
-
-    // 载荷
-    if (mPayload != null) {
-      output.put(mPayload);
-    }
-
     return output;
   }
 
@@ -367,10 +404,27 @@ public class X113_QttPublish extends QttCommand implements IRoutable {
   @Override
   public X113_QttPublish duplicate() {
     X113_QttPublish n113 = new X113_QttPublish();
-    n113.withTopic(topic());
-    n113.setLevel(level());
     n113.mPayload = new byte[mPayload.length];
     IoUtil.addArray(mPayload, n113.mPayload);
+    return copyTo(n113);
+  }
+
+  /**
+   * 扇出副本，与其他副本共享同一份 payload，不复制内容
+   *
+   * @param shared 由 {@link SharedBuf#wrap(byte[])} 包装的当前 payload，副本持有一个引用
+   * @return 副本
+   */
+  public X113_QttPublish duplicate(SharedBuf shared) {
+    X113_QttPublish n113 = new X113_QttPublish();
+    n113.mPayload = mPayload;
+    n113.mSharedPayload = shared.retain();
+    return copyTo(n113);
+  }
+
+  private X113_QttPublish copyTo(X113_QttPublish n113) {
+    n113.withTopic(topic());
+    n113.setLevel(level());
 
     // 复制 v5 属性
     if (isV5() && _Properties != null) {
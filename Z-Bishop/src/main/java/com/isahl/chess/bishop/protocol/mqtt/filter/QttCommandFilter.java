@@ -24,6 +24,7 @@
 package com.isahl.chess.bishop.protocol.mqtt.filter;
 
 import com.isahl.chess.bishop.protocol.mqtt.command.QttCommand;
+import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
 import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttFrame;
@@ -48,7 +49,13 @@ public class QttCommandFilter extends AioFilterChain<QttContext, QttCommand, Qtt
   public QttFrame encode(QttContext context, QttCommand output) {
     QttFrame frame = new QttFrame();
     frame.header(output.header());
-    frame.withSub(output.encode(context).array());
+    if (output instanceof X113_QttPublish x113 && x113.sharedPayload() != null) {
+      // 扇出的 publish 只编码各自的可变头部，payload 以共享引用交给 frame
+      frame.withSub(x113.encodeHead().array());
+      frame.withShared(x113.detachSharedPayload());
+    } else {
+      frame.withSub(output.encode(context).array());
+    }
     context.promotionOut();
     return frame;
   }
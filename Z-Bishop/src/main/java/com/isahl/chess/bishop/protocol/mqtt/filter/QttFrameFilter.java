@@ -28,6 +28,8 @@ import static com.isahl.chess.queen.io.core.features.model.pipe.IFilter.ResultTy
 
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttFrame;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.SharedBuf;
 import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
@@ -50,13 +52,15 @@ public class QttFrameFilter extends AioFilterChain<QttContext, QttFrame, IPacket
   @Override
   public IPacket encode(QttContext context, QttFrame output) {
     context.demotionOut();
-    return new AioPacket(output.encode());
+    ByteBuf encoded = output.encodePooled();
+    SharedBuf shared = output.detachShared();
+    return shared == null ? new AioPacket(encoded) : new AioPacket(encoded, shared);
   }
 
   @Override
   public QttFrame decode(QttContext context, IPacket input) {
     QttFrame frame = context.getCarrier();
-    frame.decode(context.getRvBuffer());
+    frame.decode(context.getFrameBuffer());
     context.reset();
     context.promotionIn();
     return frame;
@@ -92,7 +96,7 @@ public class QttFrameFilter extends AioFilterChain<QttContext, QttFrame, IPacket
             qtt_ctx.setCarrier(carrier = new QttFrame());
           }
           return Pair.of(
-              carrier.lack(acting.getRvBuffer().put(in_packet.getBuffer()).discardOnHalf()) > 0
+              acting.lack(acting.gather(in_packet.getBuffer()).discardOnHalf(), carrier::lack) > 0
                   ? NEED_DATA
                   : NEXT_STEP,
               acting);
@@ -26,6 +26,8 @@ package com.isahl.chess.bishop.protocol.mqtt.model;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.SharedBuf;
+import com.isahl.chess.king.base.content.StreamBuf;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.features.model.IoSerial;
@@ -39,6 +41,12 @@ import java.util.Objects;
 @ISerialGenerator(parent = ISerial.PROTOCOL_BISHOP_FRAME_SERIAL)
 public class QttFrame extends QttProtocol implements IFrame {
 
+  /** 共享的尾部内容，编码结果只包含 fixed-header 与 payload，remaining-length 计入共享部分 */
+  private SharedBuf mShared;
+
+  /** 流式接收的超长帧只保留对收齐内容的只读视图，解码直接读取，不复制为 byte[] */
+  private ByteBuf mStreamed;
+
   @Override
   public void header(int header) {
     mFrameHeader = (byte) header;
@@ -69,14 +77,42 @@ public class QttFrame extends QttProtocol implements IFrame {
 
   @Override
   public byte[] payload() {
+    if (mPayload == null && mStreamed != null) {
+      mPayload = mStreamed.peekAll();
+    }
     return mPayload;
   }
 
+  @Override
+  public ByteBuf subEncoded() {
+    return mStreamed != null ? ByteBuf.wrap(mStreamed.toReadBuffer()) : super.subEncoded();
+  }
+
   @Override
   public int length() {
+    if (mShared != null) {
+      int remain = (mPayload == null ? 0 : mPayload.length) + mShared.readableBytes();
+      return 1 + ByteBuf.vSizeOf(remain) - mShared.readableBytes();
+    }
     return 1 + ByteBuf.vSizeOf(mPayload == null ? 0 : mPayload.length);
   }
 
+  public QttFrame withShared(SharedBuf shared) {
+    mShared = shared;
+    return this;
+  }
+
+  /**
+   * 转移共享内容的引用，调用方负责 release
+   *
+   * @return 共享内容，没有时为 null
+   */
+  public SharedBuf detachShared() {
+    SharedBuf shared = mShared;
+    mShared = null;
+    return shared;
+  }
+
   @Override
   public int lack(ByteBuf input) {
     int remain = input.readableBytes();
@@ -131,7 +167,10 @@ public class QttFrame extends QttProtocol implements IFrame {
 
   @Override
   public void fold(ByteBuf input, int remain) {
-    if (remain > 0) {
+    if (remain > StreamBuf.STREAM_THRESHOLD) {
+      mStreamed = ByteBuf.wrap(input.toReadBuffer().slice(0, remain));
+      input.skip(remain);
+    } else if (remain > 0) {
       mPayload = new byte[remain];
       input.get(mPayload);
     }
@@ -140,7 +179,10 @@ public class QttFrame extends QttProtocol implements IFrame {
   @Override
   public ByteBuf suffix(ByteBuf output) {
     output.put(mFrameHeader);
-    if (mPayload != null) {
+    if (mShared != null) {
+      output.vPutLength((mPayload == null ? 0 : mPayload.length) + mShared.readableBytes());
+      output.put(mPayload);
+    } else if (mPayload != null) {
       output.vPutLength(mPayload.length);
       output.put(mPayload);
     } else {
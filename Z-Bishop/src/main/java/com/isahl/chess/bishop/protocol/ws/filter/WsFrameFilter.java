@@ -49,7 +49,7 @@ public class WsFrameFilter<T extends WsContext> extends AioFilterChain<T, WsFram
   @Override
   public IPacket encode(T context, WsFrame frame) {
     //        frame.setMask(context.getMask());
-    IPacket packet = new AioPacket(frame.encode());
+    IPacket packet = new AioPacket(frame.encodePooled());
     context.demotionOut();
     return packet;
   }
@@ -57,7 +57,7 @@ public class WsFrameFilter<T extends WsContext> extends AioFilterChain<T, WsFram
   @Override
   public WsFrame decode(T context, IPacket input) {
     WsFrame frame = context.getCarrier();
-    frame.decode(context.getRvBuffer());
+    frame.decode(context.getFrameBuffer());
     context.reset();
     context.promotionIn();
     return frame;
@@ -92,7 +92,7 @@ public class WsFrameFilter<T extends WsContext> extends AioFilterChain<T, WsFram
             ws_ctx.setCarrier(carrier = new WsFrame());
           }
           return Pair.of(
-              carrier.lack(acting.getRvBuffer().put(in_packet.getBuffer()).discardOnHalf()) > 0
+              acting.lack(acting.gather(in_packet.getBuffer()).discardOnHalf(), carrier::lack) > 0
                   ? NEED_DATA
                   : NEXT_STEP,
               acting);
@@ -50,6 +50,7 @@ public class WsProxyFilter<A extends IPContext>
     WsFrame frame = new WsFrame();
     frame.header(WsFrame.frame_op_code_ctrl_binary);
     frame.withSub(output.payload());
+    output.release();
     context.promotionOut();
     return frame;
   }
@@ -46,6 +46,11 @@ public class ZClusterCustom<T extends IStorage> extends ZBaseMappingCustom<IClus
     return _Then != null ? _Then.onTimer(manager, machine) : null;
   }
 
+  @Override
+  public List<ITriple> onTimer(IManager manager, Object source, T machine) {
+    return _Then != null ? _Then.onTimer(manager, source, machine) : null;
+  }
+
   @Override
   public List<ITriple> consistent(IManager manager, IoSerial request, long origin, int factory) {
     return _Then != null ? _Then.consistent(manager, request, origin, factory) : null;
@@ -65,4 +70,9 @@ public class ZClusterCustom<T extends IStorage> extends ZBaseMappingCustom<IClus
   public IConsistency skipConsistency(IoSerial request, long origin) {
     return _Then != null ? _Then.skipConsistency(request, origin) : null;
   }
+
+  @Override
+  public ITriple onBatchComplete(IManager manager) {
+    return _Then != null ? _Then.onBatchComplete(manager) : null;
+  }
 }
@@ -37,6 +37,8 @@ public class ZClusterFactory extends ZChatFactory {
 
   protected ZControl build(int serial) {
     return switch (serial) {
+      case 0x6E -> new X6E_RaftPreVoteResp();
+      case 0x6F -> new X6F_RaftPreVote();
       case 0x70 -> new X70_RaftVote();
       case 0x71 -> new X71_RaftBallot();
       case 0x72 -> new X72_RaftAppend();
@@ -49,6 +51,15 @@ public class ZClusterFactory extends ZChatFactory {
       case 0x79 -> new X79_RaftConfirm();
       case 0x7A -> new X7A_RaftJoint();
       case 0x7B -> new X7B_RaftConfirm();
+      case 0x7D -> new X7D_RaftSnapshot();
+      case 0x7E -> new X7E_RaftSnapshotAck();
+      case 0x7F -> new X7F_RaftReadIndex();
+      case 0x80 -> new X80_RaftReadIndexResp();
+      case 0x81 -> new X81_RaftTransferLeadership();
+      case 0x82 -> new X82_RaftTransferLeadershipResp();
+      case 0x83 -> new X83_RaftLeaseRead();
+      case 0x84 -> new X84_RaftLeaseReadResp();
+      case 0x85 -> new X85_RaftGroup();
       default -> super.build(serial);
     };
   }
@@ -49,13 +49,13 @@ public class ZFrameFilter extends AioFilterChain<ZContext, ZFrame, IPacket> {
   @Override
   public IPacket encode(ZContext context, ZFrame frame) {
     context.demotionOut();
-    return new AioPacket(Objects.requireNonNull(frame.encode()));
+    return new AioPacket(Objects.requireNonNull(frame.encodePooled()));
   }
 
   @Override
   public ZFrame decode(ZContext context, IPacket input) {
     ZFrame frame = context.getCarrier();
-    frame.decode(context.getRvBuffer());
+    frame.decode(context.getFrameBuffer());
     context.reset();
     context.promotionIn();
     return frame;
@@ -91,7 +91,7 @@ public class ZFrameFilter extends AioFilterChain<ZContext, ZFrame, IPacket> {
             z_ctx.setCarrier(carrier = new ZFrame());
           }
           return Pair.of(
-              carrier.lack(acting.getRvBuffer().put(in_packet.getBuffer()).discardOnHalf()) > 0
+              acting.lack(acting.gather(in_packet.getBuffer()).discardOnHalf(), carrier::lack) > 0
                   ? NEED_DATA
                   : NEXT_STEP,
               acting);
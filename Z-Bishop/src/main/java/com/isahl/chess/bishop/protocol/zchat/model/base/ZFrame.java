@@ -3,6 +3,7 @@ package com.isahl.chess.bishop.protocol.zchat.model.base;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.StreamBuf;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.IDuplicate;
 import com.isahl.chess.king.base.features.model.IoFactory;
@@ -38,6 +39,9 @@ public class ZFrame extends ZProtocol implements IFrame, IDuplicate {
 
   private long mTransaction;
 
+  /** 流式接收的超长帧只保留对收齐内容的只读视图，解码直接读取，不复制为 byte[] */
+  private ByteBuf mStreamed;
+
   @Override
   public int length() {
     return 1
@@ -136,7 +140,10 @@ public class ZFrame extends ZProtocol implements IFrame, IDuplicate {
 
   @Override
   public void fold(ByteBuf input, int remain) {
-    if (remain > 0) {
+    if (remain > StreamBuf.STREAM_THRESHOLD) {
+      mStreamed = ByteBuf.wrap(input.toReadBuffer().slice(0, remain));
+      input.skip(remain);
+    } else if (remain > 0) {
       mPayload = new byte[remain];
       input.get(mPayload);
     }
@@ -234,9 +241,17 @@ public class ZFrame extends ZProtocol implements IFrame, IDuplicate {
 
   @Override
   public byte[] payload() {
+    if (mPayload == null && mStreamed != null) {
+      mPayload = mStreamed.peekAll();
+    }
     return mPayload;
   }
 
+  @Override
+  public ByteBuf subEncoded() {
+    return mStreamed != null ? ByteBuf.wrap(mStreamed.toReadBuffer()) : super.subEncoded();
+  }
+
   public static int peekSubSerial(ByteBuf buffer) {
     return Objects.requireNonNull(buffer).peekUnsigned(1);
   }
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.zchat.model.command.raft;
+
+import static com.isahl.chess.queen.io.core.features.model.session.IQoS.Level.AT_LEAST_ONCE;
+
+import com.isahl.chess.bishop.protocol.zchat.model.command.ZCommand;
+import com.isahl.chess.board.annotation.ISerialGenerator;
+import com.isahl.chess.board.base.ISerial;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS.Level;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-Raft 分组信封，同一节点对之间一个批次内各 group 的 raft 指令合并为一帧
+ *
+ * <p>结构: count:short [group:short, length:int, encoded:byte[length]]*
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+@ISerialGenerator(parent = ISerial.PROTOCOL_BISHOP_COMMAND_SERIAL, serial = 0x85)
+public class X85_RaftGroup extends ZCommand {
+  private final List<Integer> _Groups = new ArrayList<>();
+  private final List<byte[]> _Messages = new ArrayList<>();
+
+  public X85_RaftGroup() {
+    super();
+  }
+
+  public X85_RaftGroup(long msgId) {
+    super(msgId);
+  }
+
+  @Override
+  public int priority() {
+    return QOS_PRIORITY_03_CLUSTER_EXCHANGE;
+  }
+
+  @Override
+  public Level level() {
+    return AT_LEAST_ONCE;
+  }
+
+  public X85_RaftGroup append(int group, IProtocol message) {
+    _Groups.add(group);
+    _Messages.add(message.encoded());
+    return this;
+  }
+
+  public int size() {
+    return _Groups.size();
+  }
+
+  public int group(int i) {
+    return _Groups.get(i);
+  }
+
+  /**
+   * @return 第 i 条 group 内指令的编码，交由 ZClusterFactory 解码
+   */
+  public ByteBuf message(int i) {
+    return ByteBuf.wrap(_Messages.get(i));
+  }
+
+  @Override
+  public int length() {
+    int length = super.length() + 2;
+    for (byte[] message : _Messages) {
+      length += 6 + message.length;
+    }
+    return length;
+  }
+
+  @Override
+  public ByteBuf suffix(ByteBuf output) {
+    super.suffix(output).putShort((short) size());
+    for (int i = 0, size = size(); i < size; i++) {
+      byte[] message = _Messages.get(i);
+      output.putShort(_Groups.get(i).shortValue()).putInt(message.length).put(message);
+    }
+    return output;
+  }
+
+  @Override
+  public int prefix(ByteBuf input) {
+    int remain = super.prefix(input);
+    int count = input.getUnsignedShort();
+    remain -= 2;
+    _Groups.clear();
+    _Messages.clear();
+    for (int i = 0; i < count; i++) {
+      int group = input.getUnsignedShort();
+      byte[] message = new byte[input.getInt()];
+      input.get(message);
+      _Groups.add(group);
+      _Messages.add(message);
+      remain -= 6 + message.length;
+    }
+    return remain;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("X85_RaftGroup { groups=%s }", _Groups);
+  }
+}
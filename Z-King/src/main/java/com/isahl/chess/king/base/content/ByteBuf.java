@@ -23,16 +23,19 @@
 package com.isahl.chess.king.base.content;
 
 import com.isahl.chess.king.base.exception.ZException;
+import com.isahl.chess.king.base.features.IReferenceCount;
 import com.isahl.chess.king.base.util.IoUtil;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 /**
+ * 非池化的 ByteBuf 不需要显式释放，{@link #release()} 为空操作；池化实现见 {@link ByteBufPool}
+ *
  * @author william.d.zk
  * @date 2021-12-06
  */
-public class ByteBuf {
+public class ByteBuf implements IReferenceCount {
   public ByteBuf(int size, boolean isDirect) {
     _Direct = isDirect;
     if (size > 0) {
@@ -62,6 +65,16 @@ public class ByteBuf {
     _Direct = false;
   }
 
+  /**
+   * @param chunk 池化分配的存储块，容量不小于 capacity
+   * @param capacity 对外可见的容量
+   */
+  protected ByteBuf(ByteBuffer chunk, int capacity) {
+    _Direct = chunk.isDirect();
+    mBuffer = chunk;
+    mCapacity = capacity;
+  }
+
   public ByteBuf(ByteBuffer source) {
     _Direct = source.isDirect();
     mBuffer = source;
@@ -163,6 +176,13 @@ public class ByteBuf {
     return mWriterIdx;
   }
 
+  /**
+   * @return 共享底层存储、拥有独立读写索引的视图，不复制内容
+   */
+  public ByteBuf duplicate() {
+    return new ByteBuf(this);
+  }
+
   public ByteBuf copy() {
     ByteBuf newBuf = new ByteBuf(mCapacity, _Direct);
     if (_Direct) {
@@ -529,9 +549,7 @@ public class ByteBuf {
       return this;
     }
     checkCapacity(len);
-    mBuffer.put(mWriterIdx, v.array(), v.readerIdx(), len);
-    v.mReaderIdx += len;
-    mWriterIdx += len;
+    v.drainTo(this, len);
     return this;
   }
 
@@ -554,13 +572,18 @@ public class ByteBuf {
     }
     int len = Math.min(v.readableBytes(), writableBytes());
     if (len > 0) {
-      mBuffer.put(mWriterIdx, v.array(), v.mReaderIdx, len);
-      v.mReaderIdx += len;
-      mWriterIdx += len;
+      v.drainTo(this, len);
     }
     return this;
   }
 
+  /** 将 length 个可读字节复制到 dst 的写位置，双方索引同时前移 */
+  protected void drainTo(ByteBuf dst, int length) {
+    dst.mBuffer.put(dst.mWriterIdx, mBuffer, mReaderIdx, length);
+    mReaderIdx += length;
+    dst.mWriterIdx += length;
+  }
+
   public void resetReader() {
     if (mReaderMark >= 0 && mReaderMark <= mCapacity) {
       mReaderIdx = mReaderMark;
@@ -587,4 +610,19 @@ public class ByteBuf {
     }
     put(other);
   }
+
+  @Override
+  public int refCnt() {
+    return 1;
+  }
+
+  @Override
+  public ByteBuf retain() {
+    return this;
+  }
+
+  @Override
+  public boolean release() {
+    return false;
+  }
 }
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 2 的幂划分规格的堆外 ByteBuf 池。
+ *
+ * <p>每个规格从 slab(一次 allocateDirect) 中切出等长 chunk；线程本地缓存优先，缓存溢出/耗尽时 与全局空闲队列批量交换，全局队列的锁每批次只争用一次。
+ *
+ * <p>超过最大规格或池容量耗尽时退化为普通堆内 ByteBuf，{@link ByteBuf#release()} 对其为空操作。
+ *
+ * <p>设置 -Dz.chess.buffer.leak=true 开启泄漏检测：未 release 即被 GC 的 buffer 会打印申请栈并归还 chunk。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class ByteBufPool {
+  private static final Logger _Logger = LoggerFactory.getLogger(ByteBufPool.class.getSimpleName());
+
+  public static final String PROP_LEAK_DETECT = "z.chess.buffer.leak";
+  public static final String PROP_MAX_POOLED = "z.chess.buffer.pool.max";
+
+  private static final int MIN_CHUNK_SHIFT = 8;
+  private static final int MAX_CHUNK_SHIFT = 16;
+  private static final int SLAB_SIZE = 1 << 20;
+  private static final int CACHE_SIZE = 64;
+
+  public static final ByteBufPool _Instance =
+      new ByteBufPool(
+          Long.getLong(PROP_MAX_POOLED, 256L << 20), Boolean.getBoolean(PROP_LEAK_DETECT));
+
+  private final SizeClass[] _Classes = new SizeClass[MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT + 1];
+  private final ThreadLocal<ArrayDeque<ByteBuffer>[]> _ThreadCache;
+  private final long _MaxPooled;
+  private final AtomicLong _Pooled = new AtomicLong();
+  private final LongAdder _Allocations = new LongAdder();
+  private final LongAdder _Misses = new LongAdder();
+  private final LongAdder _Outstanding = new LongAdder();
+  private final Cleaner _LeakDetector;
+
+  @SuppressWarnings("unchecked")
+  public ByteBufPool(long maxPooled, boolean leakDetect) {
+    _MaxPooled = maxPooled;
+    _LeakDetector = leakDetect ? Cleaner.create() : null;
+    for (int i = 0; i < _Classes.length; i++) {
+      _Classes[i] = new SizeClass(1 << (MIN_CHUNK_SHIFT + i));
+    }
+    _ThreadCache =
+        ThreadLocal.withInitial(
+            () -> {
+              ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[_Classes.length];
+              for (int i = 0; i < caches.length; i++) {
+                caches[i] = new ArrayDeque<>(CACHE_SIZE);
+              }
+              return caches;
+            });
+  }
+
+  public static ByteBuf allocate(int size) {
+    return _Instance.buffer(size);
+  }
+
+  /**
+   * @param size 需要的容量
+   * @return 池化的堆外 buffer，使用完毕后必须 {@link ByteBuf#release()}
+   */
+  public ByteBuf buffer(int size) {
+    _Allocations.increment();
+    int index = indexOf(size);
+    ByteBuffer chunk = index < 0 ? null : take(index);
+    if (chunk == null) {
+      _Misses.increment();
+      return ByteBuf.allocate(size);
+    }
+    PooledByteBuf buf = new PooledByteBuf(this, index, chunk, size);
+    if (_LeakDetector != null) {
+      buf.track(_LeakDetector);
+    }
+    return buf;
+  }
+
+  /**
+   * @return 能容纳 size 的 chunk，超出池规格或池容量耗尽时返回 null
+   */
+  ByteBuffer chunk(int size) {
+    int index = indexOf(size);
+    return index < 0 ? null : take(index);
+  }
+
+  void recycle(int index, ByteBuffer chunk) {
+    _Outstanding.add(-chunk.capacity());
+    ArrayDeque<ByteBuffer> cache = _ThreadCache.get()[index];
+    cache.offerLast(chunk);
+    if (cache.size() >= CACHE_SIZE) {
+      _Classes[index].spill(cache);
+    }
+  }
+
+  private ByteBuffer take(int index) {
+    ArrayDeque<ByteBuffer> cache = _ThreadCache.get()[index];
+    ByteBuffer chunk = cache.pollLast();
+    if (chunk == null && (chunk = _Classes[index].refill(cache)) == null) {
+      // 全局队列也为空，切分新的 slab 计为一次未命中
+      if ((chunk = _Classes[index].carve(cache)) == null) {
+        return null;
+      }
+      _Misses.increment();
+    }
+    _Outstanding.add(chunk.capacity());
+    return chunk.clear();
+  }
+
+  static int indexOf(int size) {
+    if (size <= 0 || size > 1 << MAX_CHUNK_SHIFT) {
+      return -1;
+    }
+    int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+    return Math.max(shift - MIN_CHUNK_SHIFT, 0);
+  }
+
+  void leak(String trace) {
+    _Logger.warn("ByteBuf leak detected, allocated at: {}", trace);
+  }
+
+  public double hitRate() {
+    long allocations = _Allocations.sum();
+    return allocations == 0 ? 1.0 : 1.0 - (double) _Misses.sum() / allocations;
+  }
+
+  public long outstandingBytes() {
+    return _Outstanding.sum();
+  }
+
+  public long pooledBytes() {
+    return _Pooled.get();
+  }
+
+  private class SizeClass {
+    private final int _ChunkSize;
+    private final ArrayDeque<ByteBuffer> _Free = new ArrayDeque<>();
+
+    private SizeClass(int chunkSize) {
+      _ChunkSize = chunkSize;
+    }
+
+    /** 从全局队列取一批到线程缓存 */
+    private synchronized ByteBuffer refill(ArrayDeque<ByteBuffer> cache) {
+      for (int i = 0, batch = CACHE_SIZE >> 1; i < batch && _Free.size() > 1; i++) {
+        cache.offerLast(_Free.pollLast());
+      }
+      return _Free.pollLast();
+    }
+
+    private synchronized void spill(ArrayDeque<ByteBuffer> cache) {
+      for (int i = 0, batch = CACHE_SIZE >> 1; i < batch; i++) {
+        _Free.offerLast(cache.pollFirst());
+      }
+    }
+
+    /** 申请新的 slab 切分为 chunk，超过池容量上限时返回 null */
+    private ByteBuffer carve(ArrayDeque<ByteBuffer> cache) {
+      int slab = Math.max(SLAB_SIZE, _ChunkSize);
+      if (_Pooled.addAndGet(slab) > _MaxPooled) {
+        _Pooled.addAndGet(-slab);
+        return null;
+      }
+      ByteBuffer memory = ByteBuffer.allocateDirect(slab);
+      int count = slab / _ChunkSize;
+      int local = Math.min(count - 1, CACHE_SIZE >> 1);
+      for (int i = 1; i <= local; i++) {
+        cache.offerLast(memory.slice(i * _ChunkSize, _ChunkSize));
+      }
+      if (local + 1 < count) {
+        synchronized (this) {
+          for (int i = local + 1; i < count; i++) {
+            _Free.offerLast(memory.slice(i * _ChunkSize, _ChunkSize));
+          }
+        }
+      }
+      return memory.slice(0, _ChunkSize);
+    }
+  }
+}
@@ -0,0 +1,395 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import com.isahl.chess.king.base.exception.ZException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 将多个接收到的数据段视为一个连续可读序列的只读 ByteBuf。
+ *
+ * <p>{@link #put(ByteBuf)} 只挂接数据段不复制内容，源 buffer 的读索引前移视同已被消费； 挂接后源 buffer
+ * 的存储不能再被改写。读取可以跨越数据段边界，已读完的数据段在 {@link #discard()} 时移除并 release。
+ *
+ * <p>除挂接外不支持写入。读标记记录的是组合 buffer 的读索引，回退时按各数据段挂接时的起点逆序退回， {@link #array()} 与读索引使用同一套坐标，
+ * 解码器可以按 readerMark 到 readerIdx 的区间做校验。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class CompositeByteBuf extends ByteBuf {
+  private ByteBuf[] mSegments = new ByteBuf[8];
+  // 各数据段在组合坐标 0 处的读索引
+  private int[] mStarts = new int[8];
+  private int mCount;
+  private int mMark = -1;
+
+  public CompositeByteBuf() {
+    super();
+  }
+
+  public int segments() {
+    return mCount;
+  }
+
+  /** 挂接 v 的可读部分 */
+  @Override
+  public CompositeByteBuf put(ByteBuf v) {
+    int len;
+    if (v == null || v == this || (len = v.readableBytes()) == 0) {
+      return this;
+    }
+    if (v instanceof CompositeByteBuf composite) {
+      for (int i = 0; i < composite.mCount; i++) {
+        put(composite.mSegments[i]);
+      }
+      composite.mReaderIdx = composite.mWriterIdx;
+      return this;
+    }
+    if (mCount == mSegments.length) {
+      mSegments = Arrays.copyOf(mSegments, mCount << 1);
+      mStarts = Arrays.copyOf(mStarts, mCount << 1);
+    }
+    ByteBuf segment = v.duplicate();
+    mStarts[mCount] = segment.mReaderIdx;
+    mSegments[mCount++] = segment;
+    v.skip(len);
+    mWriterIdx += len;
+    mCapacity = mWriterIdx;
+    return this;
+  }
+
+  @Override
+  public CompositeByteBuf putExactly(ByteBuf v) {
+    return put(v);
+  }
+
+  @Override
+  public void append(ByteBuf other) {
+    put(other);
+  }
+
+  @Override
+  public void expand(int size) {}
+
+  @Override
+  public boolean isCapacityWritable(int capacity) {
+    return capacity <= 0;
+  }
+
+  @Override
+  public ByteBuf discard() {
+    int drained = 0;
+    while (drained < mCount && !mSegments[drained].isReadable()) {
+      mSegments[drained].release();
+      drained++;
+    }
+    if (drained > 0) {
+      System.arraycopy(mSegments, drained, mSegments, 0, mCount - drained);
+      System.arraycopy(mStarts, drained, mStarts, 0, mCount - drained);
+      Arrays.fill(mSegments, mCount - drained, mCount, null);
+      mCount -= drained;
+    }
+    if (mCount > 0) {
+      mStarts[0] = mSegments[0].mReaderIdx;
+    }
+    mWriterIdx -= mReaderIdx;
+    mReaderIdx = 0;
+    mCapacity = mWriterIdx;
+    mMark = -1;
+    return this;
+  }
+
+  @Override
+  public ByteBuf clear() {
+    for (int i = 0; i < mCount; i++) {
+      mSegments[i].release();
+      mSegments[i] = null;
+    }
+    mCount = 0;
+    mReaderIdx = mWriterIdx = mCapacity = 0;
+    mMark = -1;
+    return this;
+  }
+
+  /** 复制组合坐标 [0, writerIdx) 的内容，已读未 discard 的部分也在其中 */
+  @Override
+  public byte[] array() {
+    if (mWriterIdx > 0) {
+      byte[] v = new byte[mWriterIdx];
+      int pos = 0;
+      for (int i = 0; i < mCount; i++) {
+        ByteBuf segment = mSegments[i];
+        int n = segment.mWriterIdx - mStarts[i];
+        segment.mBuffer.get(mStarts[i], v, pos, n);
+        pos += n;
+      }
+      return v;
+    }
+    return null;
+  }
+
+  @Override
+  public ByteBuffer toReadBuffer() {
+    ByteBuf head = head(readableBytes());
+    return head != null ? head.toReadBuffer() : ByteBuffer.wrap(peekAll(0, -1));
+  }
+
+  @Override
+  public void markReader() {
+    mMark = mReaderIdx;
+  }
+
+  @Override
+  public int readerMark() {
+    return mMark;
+  }
+
+  /** 读取总是先读完前一个数据段，从末段向前退回标记以来读过的字节即可 */
+  @Override
+  public void resetReader() {
+    if (mMark >= 0 && mMark <= mReaderIdx) {
+      int back = mReaderIdx - mMark;
+      for (int i = mCount - 1; i >= 0 && back > 0; i--) {
+        ByteBuf segment = mSegments[i];
+        int n = Math.min(segment.mReaderIdx - mStarts[i], back);
+        segment.mReaderIdx -= n;
+        back -= n;
+      }
+      mReaderIdx = mMark;
+    }
+    mMark = -1;
+  }
+
+  /** 只读，没有可写空间 */
+  @Override
+  public ByteBuffer toWriteBuffer() {
+    return ByteBuffer.allocate(0);
+  }
+
+  /** 组合 buffer 没有单一的底层存储，视图退化为复制可读部分 */
+  @Override
+  public ByteBuf duplicate() {
+    return copy();
+  }
+
+  @Override
+  public ByteBuf copy() {
+    byte[] readable = peekAll();
+    return readable == null ? new ByteBuf() : ByteBuf.wrap(readable);
+  }
+
+  @Override
+  protected void drainTo(ByteBuf dst, int length) {
+    for (int i = 0; i < mCount && length > 0; i++) {
+      ByteBuf segment = mSegments[i];
+      int n = Math.min(segment.readableBytes(), length);
+      if (n > 0) {
+        segment.drainTo(dst, n);
+        length -= n;
+        mReaderIdx += n;
+      }
+    }
+  }
+
+  @Override
+  public ByteBuf skip(int length) {
+    checkReadable(length);
+    for (int i = 0; i < mCount && length > 0; i++) {
+      int n = Math.min(mSegments[i].readableBytes(), length);
+      mSegments[i].skip(n);
+      length -= n;
+      mReaderIdx += n;
+    }
+    return this;
+  }
+
+  @Override
+  public byte peek(int offset) {
+    checkReadable(offset + 1);
+    for (int i = 0; i < mCount; i++) {
+      ByteBuf segment = mSegments[i];
+      int readable = segment.readableBytes();
+      if (offset < readable) {
+        return segment.peek(offset);
+      }
+      offset -= readable;
+    }
+    throw new ZException("read out of bounds");
+  }
+
+  @Override
+  public byte[] peekAll(int offset, int length) {
+    if (length < 1) {
+      length = readableBytes() - offset;
+    }
+    if (length > 0) {
+      checkReadable(offset + length);
+      byte[] v = new byte[length];
+      int pos = 0;
+      for (int i = 0; i < mCount && pos < length; i++) {
+        ByteBuf segment = mSegments[i];
+        int readable = segment.readableBytes();
+        if (offset >= readable) {
+          offset -= readable;
+          continue;
+        }
+        int n = Math.min(readable - offset, length - pos);
+        segment.mBuffer.get(segment.mReaderIdx + offset, v, pos, n);
+        pos += n;
+        offset = 0;
+      }
+      return v;
+    }
+    return null;
+  }
+
+  @Override
+  public int peekShort(int offset) {
+    return (short) peekBits(offset, 2);
+  }
+
+  @Override
+  public long peekLong(int offset) {
+    return peekBits(offset, 8);
+  }
+
+  @Override
+  public byte get() {
+    checkReadable(1);
+    byte v = head(1).get();
+    mReaderIdx++;
+    return v;
+  }
+
+  @Override
+  public short getShort() {
+    short v = (short) peekBits(0, 2);
+    skip(2);
+    return v;
+  }
+
+  @Override
+  public int getInt() {
+    int v = (int) peekBits(0, 4);
+    skip(4);
+    return v;
+  }
+
+  @Override
+  public long getLong() {
+    long v = peekBits(0, 8);
+    skip(8);
+    return v;
+  }
+
+  @Override
+  public void get(byte[] dst) {
+    get(dst, 0, dst.length);
+  }
+
+  @Override
+  public void get(byte[] dst, int off, int len) {
+    checkReadable(len);
+    for (int i = 0; i < mCount && len > 0; i++) {
+      ByteBuf segment = mSegments[i];
+      int n = Math.min(segment.readableBytes(), len);
+      if (n > 0) {
+        segment.get(dst, off, n);
+        off += n;
+        len -= n;
+        mReaderIdx += n;
+      }
+    }
+  }
+
+  @Override
+  public byte[] vPeek(int offset) {
+    int len = vPeekLength(offset);
+    return len > 0 ? peekAll(0, len) : null;
+  }
+
+  @Override
+  public String readUTF(int len) {
+    if (len > 0) {
+      byte[] v = new byte[len];
+      get(v);
+      return new String(v, StandardCharsets.UTF_8);
+    }
+    return null;
+  }
+
+  @Override
+  public String readLine() {
+    int remain = readableBytes();
+    for (int offset = 0; offset < remain; ) {
+      if (peek(offset++) == '\n') {
+        return readUTF(offset).replace("\r", "").replace("\n", "");
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return 当前第一个仍可读的数据段，其可读字节不少于 length 时返回，否则返回 null
+   */
+  private ByteBuf head(int length) {
+    for (int i = 0; i < mCount; i++) {
+      ByteBuf segment = mSegments[i];
+      if (segment.isReadable()) {
+        return segment.readableBytes() >= length ? segment : null;
+      }
+    }
+    return null;
+  }
+
+  /** 按大端序读取跨段的 size 个字节 */
+  private long peekBits(int offset, int size) {
+    checkReadable(offset + size);
+    ByteBuf head = head(offset + size);
+    if (head != null) {
+      int idx = head.mReaderIdx + offset;
+      return switch (size) {
+        case 2 -> head.mBuffer.getShort(idx);
+        case 4 -> head.mBuffer.getInt(idx);
+        default -> head.mBuffer.getLong(idx);
+      };
+    }
+    long v = 0;
+    for (int i = 0; i < size; i++) {
+      v = (v << 8) | (peek(offset + i) & 0xFF);
+    }
+    return v;
+  }
+
+  private void checkReadable(int offset) {
+    if (!isOffsetReadable(offset)) {
+      throw new ZException(
+          "read out of bounds, readable %s < offset %s, segments: %s",
+          readableBytes(), offset, mCount);
+    }
+  }
+}
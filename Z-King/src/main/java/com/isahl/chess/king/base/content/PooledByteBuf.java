@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 由 {@link ByteBufPool} 分配的 ByteBuf，引用计数归零时 chunk 归还池中，之后不可再访问。
+ *
+ * <p>{@link #duplicate()} 得到的视图不持有引用，生命周期不能超过原 buffer。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+final class PooledByteBuf extends ByteBuf {
+  private static final AtomicIntegerFieldUpdater<PooledByteBuf> _RefCntUpdater =
+      AtomicIntegerFieldUpdater.newUpdater(PooledByteBuf.class, "mRefCnt");
+
+  private final ByteBufPool _Pool;
+  private int mIndex;
+  private volatile int mRefCnt = 1;
+  private Leak mLeak;
+  private Cleaner.Cleanable mCleanable;
+
+  PooledByteBuf(ByteBufPool pool, int index, ByteBuffer chunk, int capacity) {
+    super(chunk, capacity);
+    _Pool = pool;
+    mIndex = index;
+  }
+
+  void track(Cleaner cleaner) {
+    mLeak = new Leak(_Pool, mIndex, mBuffer);
+    mCleanable = cleaner.register(this, mLeak);
+  }
+
+  @Override
+  public int refCnt() {
+    return mRefCnt;
+  }
+
+  @Override
+  public PooledByteBuf retain() {
+    for (; ; ) {
+      int cnt = mRefCnt;
+      if (cnt <= 0) {
+        throw new IllegalStateException("pooled buffer released");
+      }
+      if (_RefCntUpdater.compareAndSet(this, cnt, cnt + 1)) {
+        return this;
+      }
+    }
+  }
+
+  @Override
+  public boolean release() {
+    int cnt = _RefCntUpdater.decrementAndGet(this);
+    if (cnt == 0) {
+      deallocate();
+      return true;
+    }
+    if (cnt < 0) {
+      throw new IllegalStateException("pooled buffer over released");
+    }
+    return false;
+  }
+
+  /** chunk 剩余空间足够时只调整容量，否则换用更大规格的 chunk 并归还旧 chunk */
+  @Override
+  public void expand(int size) {
+    int capacity = mCapacity + size;
+    if (mIndex >= 0 && capacity <= mBuffer.capacity()) {
+      mCapacity = capacity;
+      return;
+    }
+    ByteBuffer chunk = _Pool.chunk(capacity);
+    ByteBuffer expanded = chunk == null ? ByteBuffer.allocateDirect(capacity) : chunk;
+    expanded.put(0, mBuffer, 0, mWriterIdx);
+    recycle();
+    mBuffer = expanded;
+    mIndex = chunk == null ? -1 : ByteBufPool.indexOf(capacity);
+    mCapacity = capacity;
+    if (mLeak != null) {
+      mLeak.mIndex = mIndex;
+      mLeak.mChunk = mBuffer;
+    }
+  }
+
+  private void deallocate() {
+    recycle();
+    if (mCleanable != null) {
+      mLeak.mChunk = null;
+      mCleanable.clean();
+    }
+    mBuffer = null;
+    mCapacity = mReaderIdx = mWriterIdx = 0;
+  }
+
+  private void recycle() {
+    if (mIndex >= 0) {
+      _Pool.recycle(mIndex, mBuffer);
+    }
+  }
+
+  /** 不引用 buffer 本身，只记录 chunk，buffer 未 release 即被回收时由 Cleaner 归还 */
+  private static class Leak implements Runnable {
+    private final ByteBufPool _Pool;
+    private final String _Trace;
+    private volatile int mIndex;
+    private volatile ByteBuffer mChunk;
+
+    private Leak(ByteBufPool pool, int index, ByteBuffer chunk) {
+      _Pool = pool;
+      mIndex = index;
+      mChunk = chunk;
+      StringBuilder trace = new StringBuilder();
+      for (StackTraceElement element : new Throwable().getStackTrace()) {
+        trace.append("\n\tat ").append(element);
+      }
+      _Trace = trace.toString();
+    }
+
+    @Override
+    public void run() {
+      ByteBuffer chunk = mChunk;
+      if (chunk != null) {
+        _Pool.leak(_Trace);
+        if (mIndex >= 0) {
+          _Pool.recycle(mIndex, chunk);
+        }
+      }
+    }
+  }
+}
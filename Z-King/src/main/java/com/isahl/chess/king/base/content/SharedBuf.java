@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import com.isahl.chess.king.base.features.IReferenceCount;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只编码一次、由多个发送方共享的只读内容。
+ *
+ * <p>每个持有者通过 {@link #view()} 获得独立读写索引的视图，发送完成后 {@link #release()}； 计数归零后内容不可再访问。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class SharedBuf implements IReferenceCount {
+  private final AtomicInteger _RefCnt = new AtomicInteger(1);
+  private final int _Length;
+  private volatile ByteBuf mContent;
+
+  public SharedBuf(ByteBuf content) {
+    mContent = Objects.requireNonNull(content);
+    _Length = content.readableBytes();
+  }
+
+  public static SharedBuf wrap(byte[] bytes) {
+    return new SharedBuf(ByteBuf.wrap(bytes));
+  }
+
+  /**
+   * @return 与其他持有者共享底层存储的只读视图
+   */
+  public ByteBuf view() {
+    ByteBuf content = mContent;
+    if (content == null) {
+      throw new IllegalStateException("shared buffer released");
+    }
+    return content.duplicate();
+  }
+
+  public int readableBytes() {
+    return _Length;
+  }
+
+  @Override
+  public int refCnt() {
+    return _RefCnt.get();
+  }
+
+  @Override
+  public SharedBuf retain() {
+    for (; ; ) {
+      int cnt = _RefCnt.get();
+      if (cnt <= 0) {
+        throw new IllegalStateException("shared buffer released");
+      }
+      if (_RefCnt.compareAndSet(cnt, cnt + 1)) {
+        return this;
+      }
+    }
+  }
+
+  @Override
+  public boolean release() {
+    int cnt = _RefCnt.decrementAndGet();
+    if (cnt == 0) {
+      deallocate(mContent);
+      mContent = null;
+      return true;
+    }
+    if (cnt < 0) {
+      throw new IllegalStateException("shared buffer over released");
+    }
+    return false;
+  }
+
+  protected void deallocate(ByteBuf content) {
+    content.release();
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import com.isahl.chess.king.base.exception.ZException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 超长帧的流式接收缓冲。
+ *
+ * <p>帧长度已知后，每次读入的数据即从 rv buffer 中取走，rv buffer 不需要容纳整帧，解码线程在两次读之间 照常服务其他 session。 帧长度不超过 {@link
+ * #SPILL_THRESHOLD} 时在堆内汇集，超过时经暂存区顺序写入临时文件，收齐后 以只读映射交给解帧。
+ *
+ * <p>堆内汇集按收到的数据逐步扩容，不按声明的帧长度预先分配。帧长度超过 {@link #MAX_FRAME} 的视为非法帧，由 {@link #checkFrame(int)}
+ * 抛出异常，session 随解码错误关闭。
+ *
+ * <p>-Dz.chess.frame.stream 设置转入流式接收的帧长度阈值，-Dz.chess.frame.spill 设置转存文件的阈值， -Dz.chess.frame.max
+ * 设置帧长度上限。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class StreamBuf implements Closeable {
+  public static final String PROP_STREAM_THRESHOLD = "z.chess.frame.stream";
+  public static final String PROP_SPILL_THRESHOLD = "z.chess.frame.spill";
+  public static final String PROP_MAX_FRAME = "z.chess.frame.max";
+
+  public static final int STREAM_THRESHOLD = Integer.getInteger(PROP_STREAM_THRESHOLD, 1 << 16);
+  public static final int SPILL_THRESHOLD = Integer.getInteger(PROP_SPILL_THRESHOLD, 4 << 20);
+  public static final int MAX_FRAME = Integer.getInteger(PROP_MAX_FRAME, 64 << 20);
+
+  private static final int STAGE_SIZE = 1 << 16;
+
+  private final int _Length;
+  private int mReceived;
+  private ByteBuf mMemory;
+  private ByteBuf mStage;
+  private FileChannel mSpill;
+  private ByteBuf mContent;
+
+  /**
+   * @param length 整帧长度，含帧头
+   */
+  public StreamBuf(int length) {
+    _Length = checkFrame(length);
+  }
+
+  public static boolean isOversize(int length) {
+    return length > STREAM_THRESHOLD;
+  }
+
+  /**
+   * @return length，超过 {@link #MAX_FRAME} 或溢出为负时抛出 {@link ZException}
+   */
+  public static int checkFrame(int length) {
+    if (length < 0 || length > MAX_FRAME) {
+      throw new ZException("frame length %d exceeds max %d", length, MAX_FRAME);
+    }
+    return length;
+  }
+
+  public int length() {
+    return _Length;
+  }
+
+  public int lack() {
+    return _Length - mReceived;
+  }
+
+  public boolean isSpilled() {
+    return mSpill != null;
+  }
+
+  /**
+   * 从 input 取走至多 {@link #lack()} 个字节，属于下一帧的数据留在 input 中
+   *
+   * @return 仍缺少的字节数
+   */
+  public int feed(ByteBuf input) {
+    int n = Math.min(input.readableBytes(), lack());
+    if (n <= 0) {
+      return lack();
+    }
+    if (_Length <= SPILL_THRESHOLD) {
+      if (mMemory == null) {
+        mMemory = ByteBuf.allocate(Math.min(_Length, STAGE_SIZE));
+      }
+      if (mMemory.writableBytes() < n) {
+        // 按倍增扩容，不超过帧长度
+        ByteBuf grown =
+            ByteBuf.allocate(
+                Math.min(Math.max(mMemory.capacity() << 1, mMemory.readableBytes() + n), _Length));
+        mMemory = grown.put(mMemory);
+      }
+      mMemory.putExactly(input);
+    } else {
+      if (mStage == null) {
+        mStage = ByteBuf.allocate(STAGE_SIZE);
+      }
+      for (int left = n; left > 0; ) {
+        int m = Math.min(left, mStage.writableBytes());
+        input.drainTo(mStage, m);
+        left -= m;
+        if (!mStage.isWritable() || left == 0 && mReceived + n == _Length) {
+          flush();
+        }
+      }
+    }
+    mReceived += n;
+    return lack();
+  }
+
+  /**
+   * @return 收齐的整帧，转存文件时为只读映射
+   */
+  public ByteBuf content() {
+    if (lack() > 0) {
+      throw new ZException("stream incomplete, received %d/%d", mReceived, _Length);
+    }
+    if (mContent == null) {
+      if (mSpill == null) {
+        mContent = mMemory;
+      } else {
+        try {
+          mContent = ByteBuf.wrap(mSpill.map(FileChannel.MapMode.READ_ONLY, 0, _Length));
+        } catch (IOException e) {
+          throw new ZException(e, "stream spill map failed");
+        }
+      }
+    }
+    return mContent;
+  }
+
+  private void flush() {
+    try {
+      if (mSpill == null) {
+        Path spill = Files.createTempFile("z-chess-frame", ".spill");
+        mSpill =
+            FileChannel.open(
+                spill,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      ByteBuffer staged = mStage.toReadBuffer();
+      while (staged.hasRemaining()) {
+        mSpill.write(staged);
+      }
+      mStage.clear();
+    } catch (IOException e) {
+      throw new ZException(e, "stream spill write failed");
+    }
+  }
+
+  /** 映射在关闭文件后仍然有效，随 content 一起被回收 */
+  @Override
+  public void close() {
+    mMemory = mStage = mContent = null;
+    if (mSpill != null) {
+      try {
+        mSpill.close();
+      } catch (IOException e) {
+        // 临时文件已随 DELETE_ON_CLOSE 删除，忽略关闭异常
+      }
+      mSpill = null;
+    }
+  }
+}
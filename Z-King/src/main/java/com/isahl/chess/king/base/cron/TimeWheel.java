@@ -23,130 +23,219 @@
 
 package com.isahl.chess.king.base.cron;
 
-import static java.lang.Thread.sleep;
-
 import com.isahl.chess.king.base.cron.features.ICancelable;
 import com.isahl.chess.king.base.features.IValid;
-import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * 分层时间轮。
+ *
+ * <p>每层 {@code 1 << bitLeft} 个槽，第 0 层一个槽为一个 tick，第 n 层一个槽覆盖第 n-1 层一整圈； 到期时间超出当前层范围的任务放入上层，
+ * 上层槽到达时逐级下沉。层数覆盖 long 范围的 tick，不存在放不下的任务。
+ *
+ * <p>acquire/cancel 可在任意线程调用，只以 CAS 压入无锁栈；槽内的双向链表只由 tick 线程在每个 tick 开始时批量取出后维护， cancel 在 tick 线程上
+ * O(1) 摘除。到期任务交给本 ForkJoinPool 执行。
+ *
  * @author William.d.zk
  */
 public class TimeWheel extends ForkJoinPool {
   private final Logger _Logger = LoggerFactory.getLogger("base.king." + getClass().getSimpleName());
-  private final int _SlotBitLeft; // must <= 10
+
+  private static final int INIT = 0, PENDING = 1, SCHEDULED = 2, EXPIRED = 3, CANCELLED = 4;
+  private static final AtomicIntegerFieldUpdater<HandleTask> _State =
+      AtomicIntegerFieldUpdater.newUpdater(HandleTask.class, "vState");
+
+  private final int _SlotBitLeft;
   private final int _HashMod;
-  private final long _Tick;
-  private final TickSlot<?>[] _ModHashEntryArray;
-  private final ReentrantLock _Lock;
-  private volatile int vCtxSlot, vCtxLoop;
+  private final long _TickNanos;
+  private final long _StartNanos;
+  private final Bucket[][] _Levels;
+  private final AtomicReference<HandleTask<?>> _Acquired = new AtomicReference<>();
+  private final AtomicReference<HandleTask<?>> _Cancelled = new AtomicReference<>();
+  private final Thread _Timer;
+  private volatile long vTick;
+  private volatile long vPending;
+  private volatile long vCurrentMillisecond;
 
   public TimeWheel() {
-    this(1, TimeUnit.SECONDS, 3);
+    this(10, TimeUnit.MILLISECONDS, 8, 3);
   }
 
   public TimeWheel(long tick, TimeUnit timeUnit, int bitLeft) {
-    super(bitLeft, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
-    _Lock = new ReentrantLock();
-    _Tick = timeUnit.toMillis(tick);
+    this(tick, timeUnit, bitLeft, 3);
+  }
+
+  /**
+   * @param tick 第 0 层一个槽的时长，最小 1ms
+   * @param bitLeft 每层槽数 {@code 1 << bitLeft}
+   * @param parallelism 执行到期任务的线程数
+   */
+  public TimeWheel(long tick, TimeUnit timeUnit, int bitLeft, int parallelism) {
+    super(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    if (bitLeft < 1 || bitLeft > 16) {
+      throw new IllegalArgumentException("bitLeft must be in [1,16]");
+    }
+    _TickNanos = Math.max(timeUnit.toNanos(tick), TimeUnit.MILLISECONDS.toNanos(1));
     _SlotBitLeft = bitLeft;
-    _ModHashEntryArray = new TickSlot[1 << _SlotBitLeft];
-    Arrays.setAll(_ModHashEntryArray, TickSlot::new);
-    _HashMod = _ModHashEntryArray.length - 1;
-    // 5~20
-    // ignore 没有地方执行interrupt操作
-    // 此处-sleep 计算当期这次过程的偏差值
-    final Thread _Timer =
-        new Thread(
-            () -> {
-              int correction = 13; // 5~20
-              for (long align = 0, t, sleep, expect; !isShutdown(); ) {
-                t = System.currentTimeMillis();
-                sleep = _Tick - align;
-                expect = t + sleep;
-                if (sleep > correction) {
-                  try {
-                    sleep(sleep - correction);
-                  } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    _Logger.debug("Timer wheel thread interrupted");
-                    break;
-                  }
-                }
-                vCurrentMillisecond = System.currentTimeMillis();
-                _Lock.lock();
-                try {
-                  List<HandleTask<?>> readyList = filterReady();
-                  if (!readyList.isEmpty()) {
-                    for (HandleTask<?> ready : readyList) {
-                      submit(ready);
-                    }
-                  }
-                  vCtxSlot++;
-                  if ((vCtxSlot &= _HashMod) == 0) {
-                    vCtxLoop++;
-                  }
-                } finally {
-                  _Lock.unlock();
-                }
-                // 此处-sleep 计算当期这次过程的偏差值
-                align = System.currentTimeMillis() - expect;
-              }
-            });
+    _HashMod = (1 << bitLeft) - 1;
+    _Levels = new Bucket[(Long.SIZE - 2) / bitLeft + 1][1 << bitLeft];
+    for (Bucket[] level : _Levels) {
+      for (int i = 0; i < level.length; i++) {
+        level[i] = new Bucket();
+      }
+    }
+    _StartNanos = System.nanoTime();
+    vCurrentMillisecond = System.currentTimeMillis();
+    _Timer = new Thread(this::run);
     _Timer.setName(String.format("TimerWheel-%d", _Timer.getId()));
     _Timer.start();
     _Logger.info("timer wheel start %s", _Timer.getName());
   }
 
-  private int getCurrentLoop() {
-    return vCtxLoop;
+  private void run() {
+    for (long tick = 1; !isShutdown(); tick++) {
+      // 按起始时间对齐，处理落后时不再等待直接追赶
+      long deadline = _StartNanos + tick * _TickNanos;
+      for (long wait; (wait = deadline - System.nanoTime()) > 0 && !isShutdown(); ) {
+        LockSupport.parkNanos(this, wait);
+      }
+      vCurrentMillisecond = System.currentTimeMillis();
+      try {
+        drainCancelled();
+        drainAcquired(tick);
+        cascade(tick);
+        expire(_Levels[0][(int) (tick & _HashMod)]);
+      } catch (Throwable e) {
+        _Logger.warn("timer wheel tick %d failed", tick, e);
+      }
+      vTick = tick;
+    }
+    _Logger.debug("timer wheel %s stop", _Timer.getName());
+  }
+
+  /** 取出 acquire 栈，压栈顺序为后进先出，反转后按 acquire 顺序入槽 */
+  private void drainAcquired(long tick) {
+    HandleTask<?> task = _Acquired.getAndSet(null), reversed = null;
+    while (task != null) {
+      HandleTask<?> next = task.mStackNext;
+      task.mStackNext = reversed;
+      reversed = task;
+      task = next;
+    }
+    for (task = reversed; task != null; task = reversed) {
+      reversed = task.mStackNext;
+      task.mStackNext = null;
+      if (task.vState == PENDING) {
+        place(task, tick);
+      }
+    }
+  }
+
+  private void drainCancelled() {
+    for (HandleTask<?> task = _Cancelled.getAndSet(null), next; task != null; task = next) {
+      next = task.mCancelNext;
+      task.mCancelNext = null;
+      if (task.mBucket != null) {
+        task.mBucket.remove(task);
+        vPending--;
+      }
+    }
+  }
+
+  /** 按到期 tick 与当前 tick 的差放入能容纳的最低层 */
+  private void place(HandleTask<?> task, long tick) {
+    long deadline = task.mDeadline;
+    if (deadline <= tick) {
+      // 已到期或在本 tick 内到期
+      fire(task);
+      return;
+    }
+    int level = 0;
+    for (int shift = 0;
+        level < _Levels.length - 1 && (deadline >>> shift) - (tick >>> shift) > _HashMod;
+        shift += _SlotBitLeft) {
+      level++;
+    }
+    Bucket bucket = _Levels[level][(int) ((deadline >>> (level * _SlotBitLeft)) & _HashMod)];
+    bucket.add(task);
+    vPending++;
+    // 入槽期间被 cancel 的任务由 tick 线程自行摘除
+    if (!_State.compareAndSet(task, PENDING, SCHEDULED) && task.vState != SCHEDULED) {
+      bucket.remove(task);
+      vPending--;
+    }
+  }
+
+  /** 上层槽到达时逐级下沉，先处理高层以便下沉到低层的任务在同一 tick 内继续下沉 */
+  private void cascade(long tick) {
+    int top = 0;
+    while (top + 1 < _Levels.length && (tick & ((1L << ((top + 1) * _SlotBitLeft)) - 1)) == 0) {
+      top++;
+    }
+    for (int level = top; level > 0; level--) {
+      Bucket bucket = _Levels[level][(int) ((tick >>> (level * _SlotBitLeft)) & _HashMod)];
+      for (HandleTask<?> task = bucket.drain(), next; task != null; task = next) {
+        next = task.mNext;
+        task.mNext = null;
+        task.mBucket = null;
+        vPending--;
+        // 与 cancel 竞争，失败说明已取消，不再下沉
+        if (_State.compareAndSet(task, SCHEDULED, PENDING)) {
+          place(task, tick);
+        }
+      }
+    }
+  }
+
+  private void expire(Bucket bucket) {
+    for (HandleTask<?> task = bucket.drain(), next; task != null; task = next) {
+      next = task.mNext;
+      task.mNext = null;
+      task.mBucket = null;
+      vPending--;
+      fire(task);
+    }
   }
 
-  private int getCurrentSlot() {
-    return vCtxSlot;
+  private void fire(HandleTask<?> task) {
+    if (_State.compareAndSet(task, SCHEDULED, EXPIRED)
+        || _State.compareAndSet(task, PENDING, EXPIRED)) {
+      submit(task);
+    }
   }
 
   private <A extends IValid> ICancelable acquire(IWheelItem<A> item) {
     return acquire(new HandleTask<>(item));
   }
 
-  @SuppressWarnings("unchecked")
   private <A extends IValid> ICancelable acquire(HandleTask<A> task) {
     IWheelItem<A> item = task._Item;
-    _Lock.lock();
-    try {
-      int slot = task.acquire(getCurrentLoop(), getCurrentSlot());
-      TickSlot<A> tickSlot = (TickSlot<A>) _ModHashEntryArray[slot & _HashMod];
-      int index = Collections.binarySearch(tickSlot, task);
-      tickSlot.add(index < 0 ? -index - 1 : index, task);
-      item.setup();
-    } finally {
-      _Lock.unlock();
+    // 以当前时刻向上折算 tick，保证不早于 item.getTick() 触发
+    long delay = TimeUnit.MILLISECONDS.toNanos(item.getTick());
+    task.mDeadline =
+        Math.max(
+            (System.nanoTime() - _StartNanos + delay + _TickNanos - 1) / _TickNanos, vTick + 1);
+    item.setup();
+    if (!_State.compareAndSet(task, INIT, PENDING)
+        && !_State.compareAndSet(task, EXPIRED, PENDING)) {
+      return task;
     }
-    return task;
-  }
-
-  private List<HandleTask<?>> filterReady() {
-    List<HandleTask<?>> readyList = new LinkedList<>();
-    for (Iterator<? extends HandleTask<?>> it =
-            _ModHashEntryArray[getCurrentSlot() & _HashMod].iterator();
-        it.hasNext(); ) {
-      HandleTask<?> handleTask = it.next();
-      if (handleTask.getLoop() == getCurrentLoop()) {
-        if (handleTask.isValid()) {
-          readyList.add(handleTask);
-        }
-        it.remove();
+    for (HandleTask<?> head; ; ) {
+      head = _Acquired.get();
+      task.mStackNext = head;
+      if (_Acquired.compareAndSet(head, task)) {
+        break;
       }
     }
-    return readyList;
+    return task;
   }
 
   public interface IWheelItem<V extends IValid>
@@ -188,49 +277,64 @@ public class TimeWheel extends ForkJoinPool {
     void onCall();
   }
 
-  private class TickSlot<V extends IValid> extends ArrayList<HandleTask<V>> {
-    private final int _Slot;
+  /** 槽内双向链表，只由 tick 线程访问 */
+  private static class Bucket {
+    private HandleTask<?> mHead, mTail;
 
-    private TickSlot(int slot) {
-      super(3);
-      _Slot = slot;
+    private void add(HandleTask<?> task) {
+      task.mBucket = this;
+      task.mPrev = mTail;
+      task.mNext = null;
+      if (mTail == null) {
+        mHead = task;
+      } else {
+        mTail.mNext = task;
+      }
+      mTail = task;
     }
 
-    public int getSlot() {
-      return _Slot;
+    private void remove(HandleTask<?> task) {
+      if (task.mPrev == null) {
+        mHead = task.mNext;
+      } else {
+        task.mPrev.mNext = task.mNext;
+      }
+      if (task.mNext == null) {
+        mTail = task.mPrev;
+      } else {
+        task.mNext.mPrev = task.mPrev;
+      }
+      task.mPrev = task.mNext = null;
+      task.mBucket = null;
+    }
+
+    /**
+     * @return 槽内链表的头，槽清空；遍历时沿 mNext
+     */
+    private HandleTask<?> drain() {
+      HandleTask<?> head = mHead;
+      for (HandleTask<?> task = head; task != null; task = task.mNext) {
+        task.mPrev = null;
+      }
+      mHead = mTail = null;
+      return head;
     }
   }
 
   private class HandleTask<V extends IValid>
       implements Callable<IWheelItem<V>>, Comparable<HandleTask<V>>, ICancelable {
     private final IWheelItem<V> _Item;
-    private final int _Slot;
-    private final int _Loop;
 
-    private int loop;
-    private volatile boolean vCancel;
+    private volatile int vState = INIT;
+    private long mDeadline;
+    // tick 线程维护的槽链表
+    private Bucket mBucket;
+    private HandleTask<?> mPrev, mNext;
+    // 无锁栈的链接
+    private HandleTask<?> mStackNext, mCancelNext;
 
     HandleTask(IWheelItem<V> wheelItem) {
       _Item = wheelItem;
-      int tok = (int) (_Item.getTick() / _Tick) - 1;
-      _Loop = tok >>> _SlotBitLeft;
-      _Slot = tok & _HashMod;
-    }
-
-    int getLoop() {
-      return loop;
-    }
-
-    int acquire(int currentLoop, int currentSlot) {
-      int slot;
-      if (currentSlot + _Slot > _HashMod) {
-        loop = _Loop + currentLoop + 1;
-        slot = _Slot + currentSlot - _HashMod - 1;
-      } else {
-        loop = currentLoop + _Loop;
-        slot = currentSlot + _Slot;
-      }
-      return slot;
     }
 
     @Override
@@ -261,27 +365,39 @@ public class TimeWheel extends ForkJoinPool {
 
     @Override
     public boolean isValid() {
-      return !vCancel;
+      return vState != CANCELLED;
     }
 
     @Override
     public boolean isInvalid() {
-      return vCancel;
+      return vState == CANCELLED;
     }
 
     @Override
     public void cancel() {
       _Item.lock();
       try {
-        vCancel = true;
+        for (int state; (state = vState) != CANCELLED; ) {
+          if (_State.compareAndSet(this, state, CANCELLED)) {
+            if (state == SCHEDULED) {
+              // 已入槽的交给 tick 线程摘除
+              for (HandleTask<?> head; ; ) {
+                head = _Cancelled.get();
+                mCancelNext = head;
+                if (_Cancelled.compareAndSet(head, this)) {
+                  break;
+                }
+              }
+            }
+            break;
+          }
+        }
       } finally {
         _Item.unlock();
       }
     }
   }
 
-  private volatile long vCurrentMillisecond;
-
   public long getCurrentMillisecond() {
     return vCurrentMillisecond;
   }
@@ -290,6 +406,17 @@ public class TimeWheel extends ForkJoinPool {
     return TimeUnit.MILLISECONDS.toSeconds(vCurrentMillisecond);
   }
 
+  /**
+   * @return 已入槽等待到期的任务数，不含尚未被 tick 线程取出的 acquire
+   */
+  public long getPending() {
+    return vPending;
+  }
+
+  public long getTickMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(_TickNanos);
+  }
+
   public <A extends IValid> ICancelable acquire(A attach, IWheelItem<A> item) {
     item.attach(attach);
     return acquire(item);
@@ -297,15 +424,7 @@ public class TimeWheel extends ForkJoinPool {
 
   @Override
   public void shutdown() {
-    for (TickSlot<?> tickSlot : _ModHashEntryArray) {
-      for (Iterator<? extends HandleTask<?>> it = tickSlot.iterator(); it.hasNext(); ) {
-        HandleTask<?> handleTask = it.next();
-        if (handleTask.getLoop() == getCurrentLoop()) {
-          handleTask.cancel();
-          it.remove();
-        }
-      }
-    }
     super.shutdown();
+    LockSupport.unpark(_Timer);
   }
 }
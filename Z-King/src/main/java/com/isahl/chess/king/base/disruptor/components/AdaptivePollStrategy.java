@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.disruptor.components;
+
+import com.isahl.chess.king.base.disruptor.features.flow.IPollStrategy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按到达率自适应退避、按优先级排序访问的轮询策略。
+ *
+ * <p>退避：连续空轮次数不超过 spinTries 时自旋，再不超过 yieldTries 时让出 CPU，之后 park， park 时长从 minPark 起逐次翻倍直至
+ * maxPark，且不超过最近事件到达间隔(滑动平均，空闲期间取距上次到达的时长)的一半，有事件时立即复位。
+ *
+ * <p>优先级：数值小的 ring 优先，每次访问较低优先级的 ring 之前都先访问一遍所有更高优先级的 ring， 使控制类事件不会排在批量事件之后。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class AdaptivePollStrategy implements IPollStrategy {
+  public static final int DEFAULT_SPIN_TRIES = 100;
+  public static final int DEFAULT_YIELD_TRIES = 20;
+  public static final long DEFAULT_MIN_PARK = TimeUnit.MICROSECONDS.toNanos(10);
+  public static final long DEFAULT_MAX_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final int _SpinTries;
+  private final int _YieldTries;
+  private final long _MinPark;
+  private final long _MaxPark;
+  private final int[] _Priorities;
+  private int mIdleRounds;
+  private long mLastArrival;
+  private long mInterval;
+
+  public AdaptivePollStrategy() {
+    this(null);
+  }
+
+  /**
+   * @param priorities 各 ring 的优先级，数值小者优先；为空时按顺序轮询
+   */
+  public AdaptivePollStrategy(int[] priorities) {
+    this(DEFAULT_SPIN_TRIES, DEFAULT_YIELD_TRIES, DEFAULT_MIN_PARK, DEFAULT_MAX_PARK, priorities);
+  }
+
+  public AdaptivePollStrategy(
+      int spinTries, int yieldTries, long minParkNanos, long maxParkNanos, int[] priorities) {
+    if (spinTries < 0 || yieldTries < 0 || minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+      throw new IllegalArgumentException("illegal backoff");
+    }
+    _SpinTries = spinTries;
+    _YieldTries = yieldTries;
+    _MinPark = minParkNanos;
+    _MaxPark = maxParkNanos;
+    _Priorities = priorities;
+    mInterval = maxParkNanos << 1;
+  }
+
+  @Override
+  public int[] schedule(int rings) {
+    if (_Priorities == null || _Priorities.length == 0) {
+      int[] schedule = new int[rings];
+      Arrays.setAll(schedule, i -> i);
+      return schedule;
+    }
+    if (_Priorities.length != rings) {
+      throw new IllegalArgumentException("priorities' length must equal rings");
+    }
+    Integer[] order = new Integer[rings];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, (a, b) -> Integer.compare(_Priorities[a], _Priorities[b]));
+    int[] schedule = new int[rings * rings];
+    int length = 0;
+    for (int ring : order) {
+      for (int higher : order) {
+        if (_Priorities[higher] >= _Priorities[ring]) {
+          break;
+        }
+        schedule[length++] = higher;
+      }
+      schedule[length++] = ring;
+    }
+    return Arrays.copyOf(schedule, length);
+  }
+
+  @Override
+  public void onRound(int processed) {
+    if (processed > 0) {
+      long now = System.nanoTime();
+      if (mLastArrival != 0) {
+        mInterval = (mInterval + now - mLastArrival) >> 1;
+      }
+      mLastArrival = now;
+      mIdleRounds = 0;
+      return;
+    }
+    int idle = ++mIdleRounds;
+    if (idle <= _SpinTries) {
+      Thread.onSpinWait();
+    } else if (idle <= _SpinTries + _YieldTries) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(parkNanos(idle - _SpinTries - _YieldTries));
+    }
+  }
+
+  /**
+   * @param parks 已经连续 park 的次数(从 1 开始)
+   */
+  private long parkNanos(int parks) {
+    long park = parks > 32 ? _MaxPark : Math.min(_MinPark << (parks - 1), _MaxPark);
+    // 空闲越久，预期的下一次到达越远，上限随之放宽
+    long interval = Math.max(mInterval, System.nanoTime() - mLastArrival);
+    return Math.max(_MinPark, Math.min(park, interval >> 1));
+  }
+}
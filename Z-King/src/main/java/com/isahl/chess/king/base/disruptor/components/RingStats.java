@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.disruptor.components;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 一个处理器消费一个 ring 的统计：事件数、批次数、处理耗时、批大小分布，以及 ring 的剩余容量与消费滞后。
+ *
+ * <p>计数只由消费线程在每个批次结束时写入一次，读取方(监控线程)容忍轻微滞后；剩余容量与滞后在读取时 直接从 ring 的序号计算，不占用热路径。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class RingStats {
+  /** 批大小分桶上界为 1,2,4...1024，最后一个桶不设上界 */
+  public static final int BUCKETS = 12;
+
+  private final String _Stage;
+  private final String _Ring;
+  private final RingBuffer<?> _RingBuffer;
+  private final Sequence _Consumer;
+  private final AtomicLongArray _Buckets = new AtomicLongArray(BUCKETS);
+  private volatile long vEvents;
+  private volatile long vBatches;
+  private volatile long vHandleNanos;
+
+  /**
+   * @param stage 消费该 ring 的处理器
+   * @param ring ring 名称
+   * @param ringBuffer ring 本身，用于计算剩余容量与滞后，可为 null
+   * @param consumer 处理器在该 ring 上的消费序号
+   */
+  public RingStats(String stage, String ring, RingBuffer<?> ringBuffer, Sequence consumer) {
+    _Stage = stage;
+    _Ring = ring;
+    _RingBuffer = ringBuffer;
+    _Consumer = consumer;
+  }
+
+  /** 只允许消费线程调用 */
+  void onBatch(long size, long nanos) {
+    vEvents += size;
+    vBatches++;
+    vHandleNanos += nanos;
+    int bucket = bucketOf(size);
+    _Buckets.lazySet(bucket, _Buckets.get(bucket) + 1);
+  }
+
+  static int bucketOf(long size) {
+    return size <= 1 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(size - 1), BUCKETS - 1);
+  }
+
+  /**
+   * @return 第 bucket 个分桶的上界，最后一个桶返回 {@link Long#MAX_VALUE}
+   */
+  public static long bucketBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+
+  public String getStage() {
+    return _Stage;
+  }
+
+  public String getRing() {
+    return _Ring;
+  }
+
+  public long events() {
+    return vEvents;
+  }
+
+  public long batches() {
+    return vBatches;
+  }
+
+  public long handleNanos() {
+    return vHandleNanos;
+  }
+
+  /**
+   * @return 批大小不超过 {@link #bucketBound(int)} 的批次数(累计分布)
+   */
+  public long batchesAtMost(int bucket) {
+    long count = 0;
+    for (int i = 0; i <= bucket; i++) {
+      count += _Buckets.get(i);
+    }
+    return count;
+  }
+
+  public long remainingCapacity() {
+    return _RingBuffer == null ? -1 : _RingBuffer.remainingCapacity();
+  }
+
+  /**
+   * @return 生产者已发布而该处理器尚未消费的事件数
+   */
+  public long lag() {
+    return _RingBuffer == null ? -1 : Math.max(0, _RingBuffer.getCursor() - _Consumer.get());
+  }
+}
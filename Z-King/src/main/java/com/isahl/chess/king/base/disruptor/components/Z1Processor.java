@@ -44,6 +44,7 @@ public class Z1Processor<T extends IEvent> implements EventProcessor {
   private final Sequence _Sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
 
   private boolean mIsGating;
+  private RingStats mStats;
   private ExceptionHandler<T> exceptionHandler;
 
   /**
@@ -73,6 +74,21 @@ public class Z1Processor<T extends IEvent> implements EventProcessor {
     return this;
   }
 
+  /**
+   * 开启批次统计，需在 run 之前调用
+   *
+   * @param stage 处理器名称
+   * @param ring 所消费的 ring 名称
+   */
+  public RingStats monitor(String stage, String ring) {
+    return mStats =
+        new RingStats(
+            stage,
+            ring,
+            _DataProvider instanceof RingBuffer<?> ringBuffer ? ringBuffer : null,
+            _Sequence);
+  }
+
   @Override
   public Sequence getSequence() {
     return _Sequence;
@@ -138,6 +154,9 @@ public class Z1Processor<T extends IEvent> implements EventProcessor {
     while (true) {
       try {
         final long availableSequence = _SequenceBarrier.waitFor(nextSequence);
+        final RingStats stats = mStats;
+        final long batchStart = nextSequence;
+        final long startTime = stats == null ? 0 : System.nanoTime();
         _BatchEventHandler.onBatchStart(nextSequence - 1);
         while (nextSequence <= availableSequence) {
           event = _DataProvider.get(nextSequence);
@@ -148,6 +167,9 @@ public class Z1Processor<T extends IEvent> implements EventProcessor {
           }
         }
         _Sequence.set(availableSequence);
+        if (stats != null && availableSequence >= batchStart) {
+          stats.onBatch(availableSequence - batchStart + 1, System.nanoTime() - startTime);
+        }
       } catch (final TimeoutException e) {
         notifyTimeout(_Sequence.get());
       } catch (final AlertException ex) {
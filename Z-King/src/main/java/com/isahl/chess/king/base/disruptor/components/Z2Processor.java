@@ -25,10 +25,9 @@ package com.isahl.chess.king.base.disruptor.components;
 
 import com.isahl.chess.king.base.disruptor.features.event.IEvent;
 import com.isahl.chess.king.base.disruptor.features.flow.IBatchHandler;
+import com.isahl.chess.king.base.disruptor.features.flow.IPollStrategy;
 import com.lmax.disruptor.*;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +48,8 @@ public class Z2Processor<T extends IEvent> implements EventProcessor {
   private final Sequence[] _Sequences;
   private String mThreadName;
   private boolean mIsGating;
+  private IPollStrategy mStrategy = new AdaptivePollStrategy();
+  private RingStats[] mStats;
 
   public Z2Processor(
       DataProvider<T>[] providers, SequenceBarrier[] barriers, IBatchHandler<T> handler) {
@@ -77,6 +78,34 @@ public class Z2Processor<T extends IEvent> implements EventProcessor {
     return this;
   }
 
+  /** 需在 run 之前设置 */
+  public Z2Processor<T> setStrategy(IPollStrategy strategy) {
+    mStrategy = strategy;
+    return this;
+  }
+
+  /**
+   * 开启各 ring 的批次统计，需在 run 之前调用
+   *
+   * @param stage 处理器名称
+   * @param rings 各 ring 的名称，与构造时的顺序一致
+   */
+  public RingStats[] monitor(String stage, String... rings) {
+    if (rings.length != _Providers.length) {
+      throw new IllegalArgumentException("rings' length must equal providers");
+    }
+    RingStats[] stats = new RingStats[rings.length];
+    for (int i = 0; i < rings.length; i++) {
+      stats[i] =
+          new RingStats(
+              stage,
+              rings[i],
+              _Providers[i] instanceof RingBuffer<?> ringBuffer ? ringBuffer : null,
+              _Sequences[i]);
+    }
+    return mStats = stats;
+  }
+
   @Override
   public void run() {
     if (_Running.compareAndSet(IDLE, RUNNING)) {
@@ -86,21 +115,24 @@ public class Z2Processor<T extends IEvent> implements EventProcessor {
       for (SequenceBarrier barrier : _Barriers) {
         barrier.clearAlert();
       }
-      final int barrierLength = _Barriers.length;
-      int count = 0;
-      for (int i = 0, c = 0;
-          i < barrierLength;
-          i = i == barrierLength - 1 ? 0 : i + 1, c = c == 100 ? 0 : c + 1) {
-        DataProvider<T> provider = _Providers[i];
-        SequenceBarrier barrier = _Barriers[i];
-        Sequence sequence = _Sequences[i];
-        count += (int) processEvents(provider, barrier, sequence);
-        // 没有任何 前置生产者的存在事件的时候暂停 5ms 释放 CPU，不超过100个事件，将释放 CPU
-        if (c == 50 && count < 50) {
-          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
-        } else if (c == 99) {
-          count = 0;
+      final IPollStrategy strategy = mStrategy;
+      final int[] schedule = strategy.schedule(_Barriers.length);
+      final RingStats[] stats = mStats;
+      while (_Running.get() == RUNNING) {
+        int processed = 0;
+        for (int i : schedule) {
+          if (stats == null) {
+            processed += (int) processEvents(_Providers[i], _Barriers[i], _Sequences[i]);
+          } else {
+            long startTime = System.nanoTime();
+            long events = processEvents(_Providers[i], _Barriers[i], _Sequences[i]);
+            if (events > 0) {
+              stats[i].onBatch(events, System.nanoTime() - startTime);
+              processed += (int) events;
+            }
+          }
         }
+        strategy.onRound(processed);
       }
     } else {
       if (_Running.get() == RUNNING) {
@@ -133,8 +165,12 @@ public class Z2Processor<T extends IEvent> implements EventProcessor {
     return _Running.get() != IDLE;
   }
 
+  /**
+   * @return 处理的事件数
+   */
   private long processEvents(DataProvider<T> provider, SequenceBarrier barrier, Sequence sequence) {
-    long nextSequence = sequence.get() + 1L;
+    final long start = sequence.get() + 1L;
+    long nextSequence = start;
     long available = -1L;
     try {
       available = barrier.waitFor(-1);
@@ -160,6 +196,6 @@ public class Z2Processor<T extends IEvent> implements EventProcessor {
     } finally {
       _Handler.onBatchComplete(sequence.get());
     }
-    return available - nextSequence + 1;
+    return Math.max(0, nextSequence - start);
   }
 }
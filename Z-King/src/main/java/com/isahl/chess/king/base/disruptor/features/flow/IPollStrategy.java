@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.disruptor.features.flow;
+
+/**
+ * 多路 ring 轮询策略，决定每轮访问 ring 的顺序以及空闲时的退避方式。
+ *
+ * <p>实例带有状态，每个处理器独占一个。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public interface IPollStrategy {
+  /**
+   * @param rings ring 的数量
+   * @return 一轮轮询中依次访问的 ring 下标，同一 ring 可出现多次
+   */
+  int[] schedule(int rings);
+
+  /**
+   * 一轮轮询结束时调用，没有事件时在此退避
+   *
+   * @param processed 本轮处理的事件数
+   */
+  void onRound(int processed);
+}
@@ -24,6 +24,7 @@
 package com.isahl.chess.king.base.features.io;
 
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.ByteBufPool;
 
 /**
  * @author william.d.zk
@@ -36,5 +37,10 @@ public interface IEncode {
     return suffix(ByteBuf.allocate(sizeOf()));
   }
 
+  /** 编码到 {@link ByteBufPool} 分配的堆外 buffer，由最终使用方 release */
+  default ByteBuf encodePooled() {
+    return suffix(ByteBufPool.allocate(sizeOf()));
+  }
+
   ByteBuf suffix(ByteBuf output);
 }
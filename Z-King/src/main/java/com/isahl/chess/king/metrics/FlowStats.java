@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一类 session 的发送流控统计：高/低水位配置、当前饱和的 session 数、被暂停读取的 publisher 数， 以及慢消费者策略的执行次数。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class FlowStats {
+  private final String _SessionClass;
+  private final AtomicInteger _Saturated = new AtomicInteger();
+  private final AtomicInteger _Paused = new AtomicInteger();
+  private final LongAdder _Dropped = new LongAdder();
+  private final LongAdder _Coalesced = new LongAdder();
+  private final LongAdder _Disconnected = new LongAdder();
+  private volatile long vHighWater;
+  private volatile long vLowWater;
+
+  public FlowStats(String sessionClass) {
+    _SessionClass = sessionClass;
+  }
+
+  public String getSessionClass() {
+    return _SessionClass;
+  }
+
+  /** 同类 session 共用一份配置，后创建的 session 覆盖 */
+  public void watermarks(long high, long low) {
+    vHighWater = high;
+    vLowWater = low;
+  }
+
+  public long highWater() {
+    return vHighWater;
+  }
+
+  public long lowWater() {
+    return vLowWater;
+  }
+
+  public void onSaturated() {
+    _Saturated.incrementAndGet();
+  }
+
+  public void onDrained() {
+    _Saturated.decrementAndGet();
+  }
+
+  public void onPaused() {
+    _Paused.incrementAndGet();
+  }
+
+  public void onResumed() {
+    _Paused.decrementAndGet();
+  }
+
+  public void onDropped() {
+    _Dropped.increment();
+  }
+
+  public void onCoalesced() {
+    _Coalesced.increment();
+  }
+
+  public void onDisconnected() {
+    _Disconnected.increment();
+  }
+
+  public int saturated() {
+    return _Saturated.get();
+  }
+
+  public int paused() {
+    return _Paused.get();
+  }
+
+  public long dropped() {
+    return _Dropped.sum();
+  }
+
+  public long coalesced() {
+    return _Coalesced.sum();
+  }
+
+  public long disconnected() {
+    return _Disconnected.sum();
+  }
+}
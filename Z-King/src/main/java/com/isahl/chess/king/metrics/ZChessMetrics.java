@@ -23,8 +23,14 @@
 
 package com.isahl.chess.king.metrics;
 
+import com.isahl.chess.king.base.content.ByteBufPool;
+import com.isahl.chess.king.base.disruptor.components.RingStats;
 import io.micrometer.core.instrument.*;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
 
 /**
  * Z-Chess 核心监控指标
@@ -95,9 +101,150 @@ public class ZChessMetrics {
             .description("RAFT election duration")
             .register(_registry);
 
+    // 内存池指标
+    ByteBufPool pool = ByteBufPool._Instance;
+    Gauge.builder("zchess_buffer_pool_hit_ratio", pool, ByteBufPool::hitRate)
+        .description("Hit ratio of pooled ByteBuf allocations")
+        .register(_registry);
+    Gauge.builder("zchess_buffer_pool_outstanding_bytes", pool, ByteBufPool::outstandingBytes)
+        .description("Bytes of pooled chunks not yet released")
+        .baseUnit("bytes")
+        .register(_registry);
+    Gauge.builder("zchess_buffer_pool_reserved_bytes", pool, ByteBufPool::pooledBytes)
+        .description("Direct memory reserved by the ByteBuf pool")
+        .baseUnit("bytes")
+        .register(_registry);
+
     MetricsRegistry.initialize(registry);
   }
 
+  /**
+   * 注册 IO 分片(decode/encode ring)的负载指标
+   *
+   * @param stage 分片所属阶段
+   * @param slots 分片数
+   * @param load 分片每秒处理的字节数
+   * @param backlog 分片 ring 上待处理的事件数
+   */
+  public void registerIoSlots(
+      String stage, int slots, IntToDoubleFunction load, IntToLongFunction backlog) {
+    for (int i = 0; i < slots; i++) {
+      final int slot = i;
+      Gauge.builder("zchess_io_slot_load_bytes", () -> load.applyAsDouble(slot))
+          .description("Bytes per second dispatched to an io slot")
+          .baseUnit("bytes")
+          .tag("stage", stage)
+          .tag("slot", String.valueOf(slot))
+          .register(_registry);
+      Gauge.builder("zchess_io_slot_backlog", () -> backlog.applyAsLong(slot))
+          .description("Events not yet consumed on an io slot")
+          .tag("stage", stage)
+          .tag("slot", String.valueOf(slot))
+          .register(_registry);
+    }
+  }
+
+  /**
+   * 注册 raft leader 日志缓存的命中率
+   *
+   * @param groups 共识组数
+   * @param hitRate 各组 follower 追赶复制时命中已编码日志缓存的比例
+   */
+  public void registerRaftLogTail(int groups, IntToDoubleFunction hitRate) {
+    for (int i = 0; i < groups; i++) {
+      final int group = i;
+      Gauge.builder("zchess_raft_log_tail_hit_ratio", () -> hitRate.applyAsDouble(group))
+          .description("Hit ratio of the leader's encoded log tail cache")
+          .tag("group", String.valueOf(group))
+          .register(_registry);
+    }
+  }
+
+  /**
+   * 注册 pipeline 各 ring 的指标：剩余容量、消费滞后、事件数(rate 即 events/sec)、处理耗时与批大小分布
+   *
+   * @param rings 各处理器在其 ring 上的统计
+   */
+  public void registerRings(Collection<RingStats> rings) {
+    for (RingStats stats : rings) {
+      Tags tags = Tags.of("stage", stats.getStage(), "ring", stats.getRing());
+      Gauge.builder("zchess_ring_remaining_capacity", stats, RingStats::remainingCapacity)
+          .description("Free slots left on a ring")
+          .tags(tags)
+          .register(_registry);
+      Gauge.builder("zchess_ring_lag", stats, RingStats::lag)
+          .description("Events published but not yet consumed by the stage")
+          .tags(tags)
+          .register(_registry);
+      FunctionCounter.builder("zchess_ring_events", stats, RingStats::events)
+          .description("Events consumed by the stage")
+          .tags(tags)
+          .register(_registry);
+      FunctionTimer.builder(
+              "zchess_ring_handle",
+              stats,
+              RingStats::batches,
+              RingStats::handleNanos,
+              TimeUnit.NANOSECONDS)
+          .description("Handler time per batch")
+          .tags(tags)
+          .register(_registry);
+      for (int i = 0; i < RingStats.BUCKETS; i++) {
+        final int bucket = i;
+        long bound = RingStats.bucketBound(bucket);
+        FunctionCounter.builder("zchess_ring_batch_size", stats, s -> s.batchesAtMost(bucket))
+            .description("Batches no larger than le")
+            .tags(tags)
+            .tag("le", bound == Long.MAX_VALUE ? "+Inf" : String.valueOf(bound))
+            .register(_registry);
+      }
+    }
+  }
+
+  /**
+   * 注册各类 session 的发送流控指标
+   *
+   * @param flows 每类 session 一份统计
+   */
+  public void registerSessionFlow(Collection<FlowStats> flows) {
+    for (FlowStats flow : flows) {
+      Tags tags = Tags.of("session", flow.getSessionClass());
+      Gauge.builder("zchess_session_send_high_water", flow, FlowStats::highWater)
+          .description("Queued bytes at which a session is saturated")
+          .baseUnit("bytes")
+          .tags(tags)
+          .register(_registry);
+      Gauge.builder("zchess_session_send_low_water", flow, FlowStats::lowWater)
+          .description("Queued bytes at which a saturated session is drained")
+          .baseUnit("bytes")
+          .tags(tags)
+          .register(_registry);
+      Gauge.builder("zchess_session_saturated", flow, FlowStats::saturated)
+          .description("Sessions above the send high water")
+          .tags(tags)
+          .register(_registry);
+      Gauge.builder("zchess_session_read_paused", flow, FlowStats::paused)
+          .description("Publishers paused by saturated fan-out targets")
+          .tags(tags)
+          .register(_registry);
+      FunctionCounter.builder("zchess_session_slow_consumer", flow, FlowStats::dropped)
+          .description("Slow consumer policy actions")
+          .tags(tags)
+          .tag("action", "drop")
+          .register(_registry);
+      FunctionCounter.builder("zchess_session_slow_consumer", flow, FlowStats::coalesced)
+          .description("Slow consumer policy actions")
+          .tags(tags)
+          .tag("action", "coalesce")
+          .register(_registry);
+      FunctionCounter.builder("zchess_session_slow_consumer", flow, FlowStats::disconnected)
+          .description("Slow consumer policy actions")
+          .tags(tags)
+          .tag("action", "disconnect")
+          .register(_registry);
+    }
+  }
+
   // 连接指标方法
 
   public void recordConnection() {
@@ -26,6 +26,7 @@ package com.isahl.chess.knight.cluster.config;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.util.IoUtil;
 import com.isahl.chess.queen.config.ISocketConfig;
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.*;
@@ -47,6 +48,9 @@ public class SocketConfig implements ISocketConfig {
   private DataSize sendBufferSize;
   private DataSize recvBufferSize;
   private int sendQueueMax;
+  private DataSize sendHighWater;
+  private DataSize sendLowWater;
+  private IOption.SlowConsumer slowConsumer;
   private boolean tcpNoDelay;
   private String keyStorePath;
   private String trustKeyStorePath;
@@ -78,6 +82,25 @@ public class SocketConfig implements ISocketConfig {
     return sendQueueMax;
   }
 
+  @Override
+  public int getSendHighWaterInByte() {
+    return sendHighWater == null
+        ? ISocketConfig.super.getSendHighWaterInByte()
+        : (int) sendHighWater.toBytes();
+  }
+
+  @Override
+  public int getSendLowWaterInByte() {
+    return sendLowWater == null
+        ? ISocketConfig.super.getSendLowWaterInByte()
+        : (int) sendLowWater.toBytes();
+  }
+
+  @Override
+  public IOption.SlowConsumer getSlowConsumer() {
+    return slowConsumer == null ? ISocketConfig.super.getSlowConsumer() : slowConsumer;
+  }
+
   @Override
   public int getRcvInByte() {
     return (int) recvBufferSize.toBytes();
@@ -126,6 +149,18 @@ public class SocketConfig implements ISocketConfig {
     this.sendQueueMax = sendQueueMax;
   }
 
+  public void setSendHighWater(DataSize sendHighWater) {
+    this.sendHighWater = sendHighWater;
+  }
+
+  public void setSendLowWater(DataSize sendLowWater) {
+    this.sendLowWater = sendLowWater;
+  }
+
+  public void setSlowConsumer(IOption.SlowConsumer slowConsumer) {
+    this.slowConsumer = slowConsumer;
+  }
+
   public void setTcpNoDelay(boolean tcpNoDelay) {
     this.tcpNoDelay = tcpNoDelay;
   }
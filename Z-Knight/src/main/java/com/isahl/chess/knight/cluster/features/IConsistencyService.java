@@ -33,7 +33,10 @@ import com.isahl.chess.knight.cluster.IClusterNode;
 import com.isahl.chess.knight.cluster.config.CodeKnight;
 import com.isahl.chess.knight.raft.model.RaftState;
 import com.isahl.chess.queen.events.model.QEvent;
+import com.isahl.chess.queen.io.core.features.model.routes.ITraceable;
 import com.lmax.disruptor.RingBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantLock;
 
 public interface IConsistencyService {
@@ -51,7 +54,13 @@ public interface IConsistencyService {
       long sequence = _Publish.next();
       try {
         QEvent event = _Publish.get(sequence);
-        event.produce(CONSISTENT_SERVICE, new Pair<>(request, node.clusterPeer().peerId()), null);
+        // routing 与 link 提交一致: origin, factory
+        long origin =
+            request instanceof ITraceable traceable
+                ? traceable.origin()
+                : node.clusterPeer().peerId();
+        event.produce(
+            CONSISTENT_SERVICE, Pair.of(request, Pair.of(origin, request.serial())), null);
       } finally {
         _Publish.publish(sequence);
       }
@@ -63,6 +72,14 @@ public interface IConsistencyService {
 
   ICode submit(String content);
 
+  /**
+   * @return 日志提交后以 index 完成
+   */
+  CompletableFuture<Long> submitAsync(String content);
+
+  /** 多条内容打包为一条日志提交 */
+  CompletableFuture<Long> submitBatch(List<String> contents);
+
   ICode modify(String host, int port);
 
   ICode modify(String host, String gate, int gatePort);
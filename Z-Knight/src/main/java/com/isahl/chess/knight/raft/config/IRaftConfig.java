@@ -87,6 +87,20 @@ public interface IRaftConfig {
 
   int getSyncBatchMaxSize();
 
+  /** 日志条目 LRU 缓存的最大条数 */
+  int getLogCacheSize();
+
+  boolean isGroupCommit();
+
+  /** Multi-Raft 共识组数量，1 为单组 */
+  int getGroups();
+
+  /** 一个批次内合并为一条日志的一致性请求上限，1 为不合并 */
+  int getProposalBatchMax();
+
+  /** leader 缓存最近追加的已编码日志条数，follower 追赶时直接复用，0 为关闭 */
+  int getLogTailSize();
+
   int getPipelineMaxInflight();
 
   long getPipelineInflightTimeoutMs();
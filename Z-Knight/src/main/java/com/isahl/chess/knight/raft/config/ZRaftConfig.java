@@ -394,6 +394,31 @@ public class ZRaftConfig implements IRaftConfig {
     return mConfig.getSyncBatchMaxSize();
   }
 
+  @Override
+  public int getLogCacheSize() {
+    return mConfig.getLogCacheSize();
+  }
+
+  @Override
+  public boolean isGroupCommit() {
+    return mConfig.isGroupCommit();
+  }
+
+  @Override
+  public int getGroups() {
+    return mConfig.getGroups();
+  }
+
+  @Override
+  public int getProposalBatchMax() {
+    return mConfig.getProposalBatchMax();
+  }
+
+  @Override
+  public int getLogTailSize() {
+    return mConfig.getLogTailSize();
+  }
+
   @Override
   public int getPipelineMaxInflight() {
     return mConfig.getPipelineMaxInflight();
@@ -24,6 +24,8 @@
 package com.isahl.chess.knight.raft.features;
 
 import com.isahl.chess.king.base.features.model.IoSerial;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author william.d.zk
@@ -31,4 +33,15 @@ import com.isahl.chess.king.base.features.model.IoSerial;
  */
 public interface IRaftClient {
   <T extends IoSerial> void submit(T content);
+
+  /**
+   * 提交一条一致性请求
+   *
+   * @return 日志提交后以 index 完成，只保证已提交，状态机异步应用，此时读取的状态可能尚未包含该请求；leader 拒绝、无 leader 或 leader
+   *     变更时异常结束
+   */
+  CompletableFuture<Long> submitAsync(IoSerial content);
+
+  /** 多条请求打包为一条日志提交，整体完成，语义同 {@link #submitAsync(IoSerial)} */
+  CompletableFuture<Long> submitBatch(List<? extends IoSerial> contents);
 }
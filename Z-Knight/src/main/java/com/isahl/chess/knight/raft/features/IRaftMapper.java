@@ -28,8 +28,10 @@ import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.knight.raft.model.replicate.LogEntry;
 import com.isahl.chess.knight.raft.model.replicate.LogMeta;
 import com.isahl.chess.knight.raft.model.replicate.MembershipConfig;
-import com.isahl.chess.knight.raft.model.replicate.SnapshotEntry;
 import com.isahl.chess.knight.raft.model.replicate.SnapshotMeta;
+import com.isahl.chess.knight.raft.model.replicate.SnapshotStore;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author william.d.zk
@@ -39,6 +41,40 @@ public interface IRaftMapper extends IValid, IReset {
 
   void flushAll();
 
+  /** 批次结束时调用，将本批次写入的日志统一提交刷盘；未启用 Group Commit 时为空操作 */
+  default void groupCommit() {}
+
+  /**
+   * @return 已持久化的最大 index
+   */
+  default long getFlushedIndex() {
+    return getEndIndex();
+  }
+
+  /**
+   * @return index 落盘后完成的 future，刷盘失败时结果为 false
+   */
+  default CompletableFuture<Boolean> awaitFlushed(long index) {
+    return CompletableFuture.completedFuture(true);
+  }
+
+  /**
+   * @return 刷盘是否已失败，失败后已写入的日志不再保证持久化
+   */
+  default boolean isFlushFailed() {
+    return false;
+  }
+
+  /**
+   * Multi-Raft 为第 group 个共识组创建存储独立的 mapper，由调用方负责 {@link #dispose()}
+   *
+   * @param group 共识组编号，0 组即当前 mapper
+   */
+  IRaftMapper fork(int group);
+
+  /** 关闭元数据文件并停止刷盘 */
+  default void dispose() {}
+
   long getEndIndex();
 
   long getStartIndex();
@@ -61,6 +97,22 @@ public interface IRaftMapper extends IValid, IReset {
 
   boolean append(LogEntry entry);
 
+  /**
+   * 批量追加，实现方应保证整批只做一次持久化
+   *
+   * @return 成功追加的前缀条目数
+   */
+  default int append(List<LogEntry> entries) {
+    int appended = 0;
+    for (LogEntry entry : entries) {
+      if (!append(entry)) {
+        break;
+      }
+      appended++;
+    }
+    return appended;
+  }
+
   void truncatePrefix(long newFirstIndex);
 
   LogEntry truncateSuffix(long newEndIndex);
@@ -69,7 +121,10 @@ public interface IRaftMapper extends IValid, IReset {
 
   SnapshotMeta getSnapshotMeta();
 
-  SnapshotEntry getSnapshot();
+  SnapshotStore getSnapshotStore();
+
+  /** 安装快照后裁剪日志：本地在 lastIncludeIndex 处的条目任期一致时保留其后的日志， 否则丢弃全部日志并从快照之后重新开始 */
+  void applySnapshot(long lastIncludeIndex, long lastIncludeTerm);
 
   long getTotalSize();
 
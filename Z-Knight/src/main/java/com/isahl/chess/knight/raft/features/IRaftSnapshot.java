@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.features;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.LongPredicate;
+
+/**
+ * 由业务状态机实现的快照 SPI。
+ *
+ * <p>save 在独立的快照线程执行，与日志应用并发进行，写出的状态至少包含 index 之前的全部条目； 之后的条目在 restore 后会被重放，状态机的应用操作必须幂等。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public interface IRaftSnapshot {
+  /**
+   * @param index 快照覆盖的最后日志索引
+   * @param term index 所在的任期
+   * @param output 快照文件输出流，由调用方关闭
+   */
+  void save(long index, long term, OutputStream output) throws IOException;
+
+  /** 以快照内容整体替换当前状态 */
+  void restore(long index, long term, InputStream input) throws IOException;
+
+  /**
+   * 快照只能以已应用的 index 为快照点，日志也只裁剪到该位置
+   *
+   * @return 已应用到状态机的最大日志 index；提交时同步应用的状态机无需覆盖，以 commit 为准
+   */
+  default long applied() {
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Multi-Raft 下每个共识组只快照归属本组的状态；不支持分片的状态机返回自身，各组保存完整状态
+   *
+   * @param owned 按 device/session 编号判断是否归属当前共识组
+   */
+  default IRaftSnapshot slice(LongPredicate owned) {
+    return this;
+  }
+}
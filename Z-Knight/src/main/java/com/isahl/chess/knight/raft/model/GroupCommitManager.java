@@ -23,23 +23,29 @@
 
 package com.isahl.chess.knight.raft.model;
 
-import com.isahl.chess.knight.raft.model.replicate.LogEntry;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Group Commit 批量提交管理器
+ * Group Commit 批量刷盘管理器
  *
- * <p>将多个日志条目的写入合并为一次磁盘刷盘操作，减少 I/O 次数，提高吞吐量。
+ * <p>日志由共识线程写入段文件但不刷盘；ClusterProcessor 每处理完一个批次， 将本批次写入的区间通过 {@link #submit(long, List)}
+ * 交给唯一的刷盘线程，一次 fsync 覆盖整批。 刷盘完成后以 volatile 发布已持久化的 index，并完成等待该 index 的 future，全程无锁。
  *
- * <p>工作原理: 1. 日志条目先加入待提交队列 2. 达到批量大小或超时后统一写入 3. 执行一次 fsync 刷盘 4. 通知所有等待的提交请求
+ * <p>低负载时批次只有一两条，写入后立即刷盘；高负载时批次变大，刷盘次数随之减少，提交延迟随负载自适应。
+ *
+ * <p>fsync 失败后无法确认页缓存中的数据是否已落盘，失败是终态：拒绝后续提交，所有等待者以 false 完成， 由共识层据 {@link #isFailed()}
+ * 停止推进 accept/commit。
  *
  * @author william.d.zk
  */
@@ -47,358 +53,197 @@ public class GroupCommitManager {
   private final Logger _Logger =
       LoggerFactory.getLogger("cluster.knight." + getClass().getSimpleName());
 
-  /** 待提交的日志批次 */
-  public static class CommitBatch {
-    private final long mId;
-    private final List<LogEntry> mEntries;
-    private final CompletableFuture<Boolean> mFuture;
-    private final long mCreateTime;
-
-    public CommitBatch(long id, List<LogEntry> entries) {
-      mId = id;
-      mEntries = entries;
-      mFuture = new CompletableFuture<>();
-      mCreateTime = System.currentTimeMillis();
-    }
-
-    public long getId() {
-      return mId;
-    }
-
-    public List<LogEntry> getEntries() {
-      return mEntries;
-    }
-
-    public CompletableFuture<Boolean> getFuture() {
-      return mFuture;
-    }
-
-    public long getCreateTime() {
-      return mCreateTime;
-    }
-
-    public int size() {
-      return mEntries.size();
-    }
-
-    public void complete(boolean success) {
-      mFuture.complete(success);
-    }
-
-    public void completeExceptionally(Throwable ex) {
-      mFuture.completeExceptionally(ex);
-    }
-  }
-
-  /** 提交回调接口 */
+  /** 由共识线程生成、刷盘线程执行的同步动作 */
   @FunctionalInterface
-  public interface CommitCallback {
-    /**
-     * 执行批量提交
-     *
-     * @param entries 待提交的日志条目
-     * @return 是否成功
-     */
-    boolean commit(List<LogEntry> entries) throws IOException;
+  public interface SyncTask {
+    void sync() throws IOException;
   }
 
-  private final CommitCallback mCallback;
-  private final ScheduledExecutorService mScheduler;
-  private final ExecutorService mWorkerPool;
-
-  // 配置参数
-  private volatile int mBatchSize = 100; // 默认每 100 条刷盘一次
-  private volatile long mFlushIntervalMs = 10; // 默认 10ms 刷盘一次
-  private volatile int mMaxPendingBatches = 10; // 最大待处理批次数
+  private record Waiter(long index, CompletableFuture<Boolean> future) {}
 
-  // 状态
-  private final List<LogEntry> mPendingEntries = new ArrayList<>();
-  private final ReentrantLock mLock = new ReentrantLock();
-  private final Condition mFlushCondition = mLock.newCondition();
-  private final AtomicLong mBatchIdGenerator = new AtomicLong(0);
+  private final Queue<Waiter> _Waiters = new ConcurrentLinkedQueue<>();
+  private final AtomicLong _TotalCommitted = new AtomicLong(0);
+  private final AtomicLong _TotalBatches = new AtomicLong(0);
+  private final AtomicLong _TotalFsyncTime = new AtomicLong(0);
 
-  private volatile boolean mRunning = false;
-  private ScheduledFuture<?> mScheduledFlushTask;
+  private ExecutorService mFlusher;
+  private volatile boolean vRunning;
+  private volatile long vFlushedIndex;
+  private volatile boolean vFailed;
+  // 只由共识线程访问
+  private long mSubmittedIndex;
 
-  // 统计
-  private final AtomicLong mTotalCommitted = new AtomicLong(0);
-  private final AtomicLong mTotalBatches = new AtomicLong(0);
-  private final AtomicLong mTotalFsyncTime = new AtomicLong(0);
-
-  public GroupCommitManager(CommitCallback callback) {
-    mCallback = callback;
-    mScheduler =
-        Executors.newSingleThreadScheduledExecutor(
-            r -> {
-              Thread t = new Thread(r, "GroupCommit-Scheduler");
-              t.setDaemon(true);
-              return t;
-            });
-    mWorkerPool =
-        Executors.newFixedThreadPool(
-            2,
+  /**
+   * @param flushedIndex 启动时已持久化的 index
+   */
+  public void start(long flushedIndex) {
+    if (vRunning) {
+      return;
+    }
+    vFlushedIndex = mSubmittedIndex = flushedIndex;
+    vFailed = false;
+    mFlusher =
+        Executors.newSingleThreadExecutor(
             r -> {
-              Thread t = new Thread(r, "GroupCommit-Worker");
+              Thread t = new Thread(r, "GroupCommit-Flusher");
               t.setDaemon(true);
               return t;
             });
+    vRunning = true;
+    _Logger.info("GroupCommitManager started @%d", flushedIndex);
   }
 
-  /** 启动 Group Commit 管理器 */
-  public void start() {
-    mLock.lock();
-    try {
-      if (mRunning) {
-        return;
-      }
-      mRunning = true;
-
-      // 启动定时刷盘任务
-      mScheduledFlushTask =
-          mScheduler.scheduleWithFixedDelay(
-              this::flush, mFlushIntervalMs, mFlushIntervalMs, TimeUnit.MILLISECONDS);
-
-      _Logger.info(
-          "GroupCommitManager started, batchSize=%d, flushInterval=%dms",
-          mBatchSize, mFlushIntervalMs);
-    } finally {
-      mLock.unlock();
-    }
-  }
-
-  /** 停止 Group Commit 管理器 */
+  /** 停止并等待已提交的刷盘完成 */
   public void stop() {
-    mLock.lock();
-    try {
-      if (!mRunning) {
-        return;
-      }
-      mRunning = false;
-
-      // 取消定时任务
-      if (mScheduledFlushTask != null) {
-        mScheduledFlushTask.cancel(false);
-      }
-
-      // 刷盘剩余数据
-      flush();
-
-      _Logger.info("GroupCommitManager stopped");
-    } finally {
-      mLock.unlock();
+    if (!vRunning) {
+      return;
     }
-
-    // 关闭线程池
-    mScheduler.shutdown();
-    mWorkerPool.shutdown();
+    vRunning = false;
+    mFlusher.shutdown();
     try {
-      if (!mScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-        mScheduler.shutdownNow();
-      }
-      if (!mWorkerPool.awaitTermination(5, TimeUnit.SECONDS)) {
-        mWorkerPool.shutdownNow();
+      if (!mFlusher.awaitTermination(5, TimeUnit.SECONDS)) {
+        mFlusher.shutdownNow();
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     }
+    fail(Long.MAX_VALUE);
+    _Logger.info("GroupCommitManager stopped");
+  }
+
+  public boolean isRunning() {
+    return vRunning;
   }
 
   /**
-   * 提交单条日志（异步）
+   * 共识线程在批次结束时调用，提交 (上次提交的 index, index] 的刷盘
    *
-   * @return Future，可用于等待提交完成
+   * @param index 本批次写入的最后 index
+   * @param tasks 覆盖该区间的同步动作
    */
-  public CompletableFuture<Boolean> append(LogEntry entry) {
-    if (!mRunning) {
-      CompletableFuture<Boolean> future = new CompletableFuture<>();
-      future.completeExceptionally(new IllegalStateException("GroupCommitManager not running"));
-      return future;
-    }
-
-    mLock.lock();
-    try {
-      mPendingEntries.add(entry);
-
-      // 检查是否达到批量大小
-      if (mPendingEntries.size() >= mBatchSize) {
-        // 触发刷盘
-        mWorkerPool.submit(this::flush);
-      }
-
-      // 创建 Future 等待该条目被提交
-      // 这里返回一个特殊的 Future，实际提交时会完成
-      return createPendingFuture(entry.index());
-    } finally {
-      mLock.unlock();
+  public void submit(long index, List<SyncTask> tasks) {
+    if (!vRunning || vFailed || index <= mSubmittedIndex) {
+      return;
     }
+    final long from = mSubmittedIndex;
+    mSubmittedIndex = index;
+    mFlusher.execute(
+        () -> {
+          if (vFailed) {
+            return;
+          }
+          long start = System.nanoTime();
+          try {
+            for (SyncTask task : tasks) {
+              task.sync();
+            }
+          } catch (IOException | UncheckedIOException e) {
+            _Logger.error("group commit (%d,%d] fsync failed, stop flushing", e, from, index);
+            vFailed = true;
+            fail(Long.MAX_VALUE);
+            return;
+          }
+          _TotalCommitted.addAndGet(index - from);
+          _TotalBatches.incrementAndGet();
+          _TotalFsyncTime.addAndGet(System.nanoTime() - start);
+          vFlushedIndex = index;
+          complete(index);
+        });
   }
 
-  /** 提交多条日志（异步） */
-  public CompletableFuture<Boolean> appendBatch(List<LogEntry> entries) {
-    if (!mRunning) {
-      CompletableFuture<Boolean> future = new CompletableFuture<>();
-      future.completeExceptionally(new IllegalStateException("GroupCommitManager not running"));
-      return future;
+  /** 截断日志前调用：等待在途的刷盘完成后回退 index，之后重新写入的条目需要再次刷盘 */
+  public void rollback(long index) {
+    if (!vRunning || mSubmittedIndex <= index) {
+      return;
     }
-
-    mLock.lock();
     try {
-      mPendingEntries.addAll(entries);
-
-      // 检查是否达到批量大小
-      if (mPendingEntries.size() >= mBatchSize) {
-        mWorkerPool.submit(this::flush);
-      }
-
-      return createPendingFuture(entries.get(entries.size() - 1).index());
-    } finally {
-      mLock.unlock();
-    }
-  }
-
-  /** 同步提交（等待刷盘完成） */
-  public boolean appendSync(LogEntry entry, long timeoutMs) {
-    try {
-      return append(entry).get(timeoutMs, TimeUnit.MILLISECONDS);
+      mFlusher.submit(() -> {}).get();
     } catch (Exception e) {
-      _Logger.warn("appendSync failed: %s", e.getMessage());
-      return false;
+      _Logger.warn("wait flusher before rollback failed", e);
     }
-  }
-
-  /** 强制刷盘（同步） */
-  public boolean flushSync() {
-    mLock.lock();
-    try {
-      if (mPendingEntries.isEmpty()) {
-        return true;
-      }
-
-      List<LogEntry> entries = new ArrayList<>(mPendingEntries);
-      mPendingEntries.clear();
-
-      return doCommit(entries);
-    } finally {
-      mLock.unlock();
+    mSubmittedIndex = index;
+    if (vFlushedIndex > index) {
+      vFlushedIndex = index;
     }
   }
 
-  /** 异步刷盘 */
-  private void flush() {
-    mLock.lock();
-    try {
-      if (mPendingEntries.isEmpty()) {
-        return;
-      }
+  /**
+   * @return 已持久化的最大 index
+   */
+  public long getFlushedIndex() {
+    return vFlushedIndex;
+  }
 
-      List<LogEntry> entries = new ArrayList<>(mPendingEntries);
-      mPendingEntries.clear();
+  public long getSubmittedIndex() {
+    return mSubmittedIndex;
+  }
 
-      // 在 worker 线程中执行提交
-      mWorkerPool.submit(() -> doCommit(entries));
-    } finally {
-      mLock.unlock();
-    }
+  /**
+   * @return fsync 是否已失败，失败后不再刷盘
+   */
+  public boolean isFailed() {
+    return vFailed;
   }
 
-  /** 执行实际的提交 */
-  private boolean doCommit(List<LogEntry> entries) {
-    if (entries.isEmpty()) {
-      return true;
+  /**
+   * @return index 持久化后完成的 future，刷盘失败时结果为 false
+   */
+  public CompletableFuture<Boolean> await(long index) {
+    if (vFlushedIndex >= index) {
+      return CompletableFuture.completedFuture(true);
     }
-
-    long startTime = System.currentTimeMillis();
-    long batchId = mBatchIdGenerator.incrementAndGet();
-
-    try {
-      _Logger.debug("Committing batch %d with %d entries", batchId, entries.size());
-
-      // 调用回调执行实际的写入和刷盘
-      boolean success = mCallback.commit(entries);
-
-      if (success) {
-        // 更新统计
-        mTotalCommitted.addAndGet(entries.size());
-        mTotalBatches.incrementAndGet();
-        mTotalFsyncTime.addAndGet(System.currentTimeMillis() - startTime);
-
-        _Logger.debug(
-            "Batch %d committed successfully in %dms",
-            batchId, System.currentTimeMillis() - startTime);
-      } else {
-        _Logger.warn("Batch %d commit failed", batchId);
-      }
-
-      return success;
-    } catch (IOException e) {
-      _Logger.warn("Batch %d commit failed: %s", e, batchId, e.getMessage());
-      return false;
+    if (vFailed) {
+      return CompletableFuture.completedFuture(false);
     }
-  }
-
-  /** 创建等待 Future */
-  private CompletableFuture<Boolean> createPendingFuture(long index) {
-    // 简化实现：返回一个可轮询的 Future
-    // 实际生产中可能需要更复杂的等待机制
     CompletableFuture<Boolean> future = new CompletableFuture<>();
-
-    // 提交检查任务
-    mScheduler.schedule(
-        () -> {
-          if (!future.isDone()) {
-            future.complete(true); // 假设成功
-          }
-        },
-        mFlushIntervalMs * 2,
-        TimeUnit.MILLISECONDS);
-
+    _Waiters.offer(new Waiter(index, future));
+    // 入队与刷盘线程发布之间的竞争
+    if (vFlushedIndex >= index) {
+      complete(vFlushedIndex);
+    } else if (!vRunning || vFailed) {
+      fail(Long.MAX_VALUE);
+    }
     return future;
   }
 
-  // ==================== 配置方法 ====================
-
-  public void setBatchSize(int batchSize) {
-    mBatchSize = Math.max(1, batchSize);
-  }
-
-  public int getBatchSize() {
-    return mBatchSize;
-  }
-
-  public void setFlushInterval(long intervalMs) {
-    mFlushIntervalMs = Math.max(1, intervalMs);
-
-    // 重启定时任务
-    if (mRunning && mScheduledFlushTask != null) {
-      mScheduledFlushTask.cancel(false);
-      mScheduledFlushTask =
-          mScheduler.scheduleWithFixedDelay(
-              this::flush, mFlushIntervalMs, mFlushIntervalMs, TimeUnit.MILLISECONDS);
+  private void complete(long flushed) {
+    for (Waiter waiter = _Waiters.peek();
+        waiter != null && waiter.index() <= flushed;
+        waiter = _Waiters.peek()) {
+      if (_Waiters.remove(waiter)) {
+        waiter.future().complete(true);
+      }
     }
   }
 
-  public long getFlushInterval() {
-    return mFlushIntervalMs;
+  private void fail(long index) {
+    for (Waiter waiter = _Waiters.peek();
+        waiter != null && waiter.index() <= index;
+        waiter = _Waiters.peek()) {
+      if (_Waiters.remove(waiter)) {
+        waiter.future().complete(false);
+      }
+    }
   }
 
   // ==================== 统计方法 ====================
 
   public long getTotalCommitted() {
-    return mTotalCommitted.get();
+    return _TotalCommitted.get();
   }
 
   public long getTotalBatches() {
-    return mTotalBatches.get();
+    return _TotalBatches.get();
   }
 
   public double getAverageBatchSize() {
-    long batches = mTotalBatches.get();
-    return batches > 0 ? (double) mTotalCommitted.get() / batches : 0;
+    long batches = _TotalBatches.get();
+    return batches > 0 ? (double) _TotalCommitted.get() / batches : 0;
   }
 
   public long getAverageFsyncTimeMs() {
-    long batches = mTotalBatches.get();
-    return batches > 0 ? mTotalFsyncTime.get() / batches : 0;
+    long batches = _TotalBatches.get();
+    return batches > 0 ? TimeUnit.NANOSECONDS.toMillis(_TotalFsyncTime.get() / batches) : 0;
   }
 
   public String getStats() {
@@ -410,7 +255,7 @@ public class GroupCommitManager {
   @Override
   public String toString() {
     return String.format(
-        "GroupCommitManager{running=%s, batchSize=%d, flushInterval=%dms, pending=%d}",
-        mRunning, mBatchSize, mFlushIntervalMs, mPendingEntries.size());
+        "GroupCommitManager{running=%s, submitted=%d, flushed=%d}",
+        vRunning, mSubmittedIndex, vFlushedIndex);
   }
 }
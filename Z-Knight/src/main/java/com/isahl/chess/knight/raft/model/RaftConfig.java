@@ -64,6 +64,16 @@ public class RaftConfig {
 
   private int syncBatchMaxSize;
 
+  private int logCacheSize = 4096;
+
+  private boolean groupCommit;
+
+  private int groups = 1;
+
+  private int proposalBatchMax = 1;
+
+  private int logTailSize = 1024;
+
   // Pipeline replication configuration
   private int pipelineMaxInflight = 100;
   private long pipelineInflightTimeoutMs = 5000;
@@ -164,6 +174,46 @@ public class RaftConfig {
     this.syncBatchMaxSize = syncBatchMaxSize;
   }
 
+  public int getLogCacheSize() {
+    return logCacheSize;
+  }
+
+  public void setLogCacheSize(int logCacheSize) {
+    this.logCacheSize = logCacheSize;
+  }
+
+  public boolean isGroupCommit() {
+    return groupCommit;
+  }
+
+  public void setGroupCommit(boolean groupCommit) {
+    this.groupCommit = groupCommit;
+  }
+
+  public int getGroups() {
+    return groups;
+  }
+
+  public void setGroups(int groups) {
+    this.groups = groups;
+  }
+
+  public int getProposalBatchMax() {
+    return proposalBatchMax;
+  }
+
+  public void setProposalBatchMax(int proposalBatchMax) {
+    this.proposalBatchMax = proposalBatchMax;
+  }
+
+  public int getLogTailSize() {
+    return logTailSize;
+  }
+
+  public void setLogTailSize(int logTailSize) {
+    this.logTailSize = logTailSize;
+  }
+
   public int getPipelineMaxInflight() {
     return pipelineMaxInflight;
   }
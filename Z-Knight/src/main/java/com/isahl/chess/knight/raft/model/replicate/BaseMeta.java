@@ -90,6 +90,13 @@ public abstract class BaseMeta extends InnerProtocol implements IReset {
     }
   }
 
+  /** 只做 fsync，配合 flush(false) 将写入与刷盘分离到不同线程 */
+  public void sync() throws IOException {
+    if (mFile != null) {
+      mFile.getChannel().force(true);
+    }
+  }
+
   public void close() {
     if (mFile == null) {
       return;
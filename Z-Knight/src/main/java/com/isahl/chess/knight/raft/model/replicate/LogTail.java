@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model.replicate;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.model.ListSerial;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * leader 最近追加日志的定长环形缓存，保存已编码的字节。
+ *
+ * <p>follower 短暂落后时 X72 直接由缓存的字节拼装，不再经过 segment 查找与重复序列化；超出环的范围才回退到 {@link
+ * com.isahl.chess.knight.raft.features.IRaftMapper#getEntry(long)}。
+ *
+ * <p>只在成为 leader 后写入，角色变化时清空。非线程安全，只在共识线程访问；命中率可跨线程读取。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class LogTail {
+  /** 与 {@link ListSerial} 编码一致: serial:short, length:int, size:int */
+  private static final int LIST_HEADER = 10;
+
+  private static final int LIST_SERIAL = new ListSerial<>(LogEntry::new).serial();
+
+  private final long[] _Indexes;
+  private final byte[][] _Encoded;
+  private final int _Mask;
+  private final LongAdder _Hits = new LongAdder();
+  private final LongAdder _Misses = new LongAdder();
+
+  /**
+   * @param capacity 缓存条数，向上取 2 的幂；≤ 0 时不缓存
+   */
+  public LogTail(int capacity) {
+    int size = capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : Math.max(capacity, 0);
+    _Indexes = new long[size];
+    _Encoded = new byte[size][];
+    _Mask = size - 1;
+  }
+
+  public int capacity() {
+    return _Indexes.length;
+  }
+
+  public void put(LogEntry entry) {
+    if (_Indexes.length == 0) {
+      return;
+    }
+    int slot = (int) (entry.index() & _Mask);
+    _Indexes[slot] = entry.index();
+    _Encoded[slot] = entry.encoded();
+  }
+
+  /**
+   * @return index 对应日志的编码，不在缓存中时返回 null
+   */
+  public byte[] get(long index) {
+    if (_Indexes.length > 0) {
+      int slot = (int) (index & _Mask);
+      if (_Encoded[slot] != null && _Indexes[slot] == index) {
+        _Hits.increment();
+        return _Encoded[slot];
+      }
+    }
+    _Misses.increment();
+    return null;
+  }
+
+  public void clear() {
+    for (int i = 0; i < _Encoded.length; i++) {
+      _Encoded[i] = null;
+    }
+  }
+
+  public double hitRate() {
+    long hits = _Hits.sum();
+    long total = hits + _Misses.sum();
+    return total == 0 ? 1.0 : (double) hits / total;
+  }
+
+  /**
+   * 将已编码的日志拼装为 {@code ListSerial<LogEntry>} 的编码
+   *
+   * @param length entries 的总字节数
+   */
+  public static byte[] pack(List<byte[]> entries, int length) {
+    ByteBuf output =
+        ByteBuf.allocate(LIST_HEADER + length)
+            .putShort(LIST_SERIAL)
+            .putInt(length)
+            .putInt(entries.size());
+    for (byte[] entry : entries) {
+      output.put(entry);
+    }
+    return output.array();
+  }
+}
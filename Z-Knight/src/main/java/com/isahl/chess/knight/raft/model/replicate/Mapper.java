@@ -42,10 +42,13 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -65,11 +68,18 @@ public class Mapper implements IRaftMapper {
   private final Logger _Logger =
       LoggerFactory.getLogger("cluster.knight." + getClass().getSimpleName());
 
+  private final String _BaseDir;
   private final String _LogDataDir;
   private final String _LogMetaDir;
   private final String _SnapshotDir;
   private final long _MaxSegmentSize;
+  private final int _LogCacheSize;
   private final TreeMap<Long, Segment> _Index2SegmentMap = new TreeMap<>();
+  /*
+  段内只保存偏移索引，热点条目(提交点附近的新日志)由有界 LRU 缓存
+   */
+  private final Map<Long, LogEntry> _EntryCache;
+  private final SnapshotStore _SnapshotStore;
   private final TypeReference<RaftConfig> _TypeReferenceOfRaftConfig = new TypeReference<>() {};
   private final CacheManager _CacheManager;
 
@@ -80,7 +90,8 @@ public class Mapper implements IRaftMapper {
   private volatile boolean vValid;
 
   // Group Commit 批量提交管理器
-  private GroupCommitManager mGroupCommitManager;
+  private final GroupCommitManager _GroupCommitManager = new GroupCommitManager();
+  private final boolean _GroupCommit;
   private volatile boolean mGroupCommitEnabled = false;
   // 表示是否正在安装snapshot，leader向follower安装，leader和follower同时处于installSnapshot状态
   private final AtomicBoolean _InstallSnapshot = new AtomicBoolean(false);
@@ -90,19 +101,46 @@ public class Mapper implements IRaftMapper {
 
   @Autowired
   public Mapper(ZRaftConfig config, CacheManager cacheManager) {
-    String baseDir = config.getBaseDir();
+    this(
+        config.getBaseDir(),
+        config.getMaxSegmentSize(),
+        config.getLogCacheSize(),
+        config.isGroupCommit(),
+        cacheManager);
+  }
+
+  private Mapper(
+      String baseDir,
+      long maxSegmentSize,
+      int logCacheSize,
+      boolean groupCommit,
+      CacheManager cacheManager) {
+    _BaseDir = baseDir;
     _CacheManager = cacheManager;
     _LogMetaDir = String.format("%s%s.raft", baseDir, File.separator);
     _LogDataDir = String.format("%s%s.data", baseDir, File.separator);
     _SnapshotDir = String.format("%s%s.snapshot", baseDir, File.separator);
-    _MaxSegmentSize = config.getMaxSegmentSize();
+    _SnapshotStore = new SnapshotStore(_SnapshotDir);
+    _MaxSegmentSize = maxSegmentSize;
+    _LogCacheSize = logCacheSize;
+    _GroupCommit = groupCommit;
+    _EntryCache =
+        new LinkedHashMap<>(Math.min(logCacheSize, 1024), 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, LogEntry> eldest) {
+            return size() > logCacheSize;
+          }
+        };
   }
 
   @PostConstruct
   private void init()
       throws ClassNotFoundException, InstantiationException, IllegalAccessException {
-    EhcacheConfig.createCache(
-        _CacheManager, "raft_log_entry", Long.class, LogEntry.class, Duration.of(30, SECONDS));
+    // fork 出的共识组不经过 Spring 代理，只使用组内的 LRU 缓存
+    if (_CacheManager != null) {
+      EhcacheConfig.createCache(
+          _CacheManager, "raft_log_entry", Long.class, LogEntry.class, Duration.of(30, SECONDS));
+    }
     File file = new File(_LogMetaDir);
     if (!file.exists() && !file.mkdirs()) {
       throw new SecurityException(String.format("%s check mkdir authority", _LogMetaDir));
@@ -171,113 +209,131 @@ public class Mapper implements IRaftMapper {
       reset();
     }
 
-    // 初始化 Group Commit 管理器（默认不启用）
-    initGroupCommitManager();
-
     vValid = true;
+    if (_GroupCommit) {
+      enableGroupCommit();
+    }
   }
 
-  /** 初始化 Group Commit 管理器 */
-  private void initGroupCommitManager() {
-    mGroupCommitManager =
-        new GroupCommitManager(
-            entries -> {
-              try {
-                // 批量写入日志
-                for (LogEntry entry : entries) {
-                  if (!appendWithoutFsync(entry)) {
-                    return false;
-                  }
-                }
-                // 统一刷盘
-                flushSegments();
-                flushAll(true);
-                return true;
-              } catch (Exception e) {
-                _Logger.warn("Group commit failed: %s", e.getMessage());
-                return false;
-              }
-            });
-  }
-
-  /** 追加日志（不刷盘，用于 Group Commit） */
-  private boolean appendWithoutFsync(LogEntry entry) {
-    // 简化实现：直接调用原 append 方法
-    // 实际应该避免每次调用都刷盘
-    return appendInternal(entry, false);
-  }
-
-  /** 内部追加方法 */
-  private boolean appendInternal(LogEntry entry, boolean needFsync) {
-    _Logger.debug("wait to append %s", entry);
-    if (entry == null) {
-      return false;
-    }
-    long newEndIndex = getEndIndex() + 1;
-    if (entry.index() == newEndIndex) {
-      int size = entry.sizeOf();
-      boolean needNewFile = false;
-      if (_Index2SegmentMap.isEmpty()) {
-        needNewFile = true;
-      } else {
-        Segment segment = _Index2SegmentMap.lastEntry().getValue();
-        if (!segment.isCanWrite()) {
-          needNewFile = true;
-        } else if (segment.getFileSize() + size >= _MaxSegmentSize) {
-          needNewFile = true;
-          segment.freeze();
+  /**
+   * 内部批量追加方法，按段容量切分批次，每个段的一批记录只写入一次
+   *
+   * @return 成功追加的前缀条目数
+   */
+  private int appendInternal(List<LogEntry> entries) {
+    int appended = 0;
+    while (appended < entries.size()) {
+      LogEntry first = entries.get(appended);
+      _Logger.debug("wait to append %s", first);
+      long newEndIndex = getEndIndex() + 1;
+      if (first == null || first.index() != newEndIndex) {
+        _Logger.warn(
+            "append failed: [new end %d|entry source %s]",
+            newEndIndex, first == null ? null : first.index());
+        break;
+      }
+      Segment segment = writableSegment(newEndIndex, first.sizeOf());
+      if (segment == null) {
+        break;
+      }
+      int end = appended + 1;
+      for (long size = segment.getFileSize() + batchSize(first);
+          end < entries.size() && entries.get(end) != null;
+          end++) {
+        size += batchSize(entries.get(end));
+        if (size >= _MaxSegmentSize) {
+          break;
         }
       }
-      Segment segment = null;
-      if (needNewFile) {
-        String newFileName = String.format(Segment.fileNameFormatter(false), newEndIndex, 0);
-        _Logger.info("new segment file :%s", newFileName);
-        File newFile = new File(_LogDataDir + File.separator + newFileName);
-        if (!newFile.exists()) {
-          try {
-            if (newFile.createNewFile()) {
-              segment = new Segment(newFile, newEndIndex, true);
-              // 在 Group Commit 模式下，禁用 Segment 的自动 fsync
-              if (mGroupCommitEnabled) {
-                segment.setFsyncEnabled(false);
-              }
-              _Index2SegmentMap.put(newEndIndex, segment);
-            } else {
-              throw new IOException("create file failed");
-            }
-          } catch (IOException
-              | InvocationTargetException
-              | NoSuchMethodException
-              | InstantiationException
-              | IllegalAccessException e) {
-            _Logger.warn("create segment file failed %s", e, newFileName);
-            return false;
-          }
+      long fileSize = segment.getFileSize();
+      if (!segment.append(entries.subList(appended, end))) {
+        break;
+      }
+      vTotalSize += segment.getFileSize() - fileSize;
+      synchronized (_EntryCache) {
+        for (LogEntry entry : entries.subList(appended, end)) {
+          _EntryCache.put(entry.index(), entry);
         }
-      } else {
-        segment = _Index2SegmentMap.lastEntry().getValue();
-        // 在 Group Commit 模式下，禁用 Segment 的自动 fsync
-        if (mGroupCommitEnabled) {
-          segment.setFsyncEnabled(false);
+      }
+      appended = end;
+    }
+    if (appended > 0) {
+      LogEntry last = entries.get(appended - 1);
+      mLogMeta.accept(last);
+      _Logger.debug("append ok [%d]", last.index());
+    }
+    return appended;
+  }
+
+  private static int batchSize(LogEntry entry) {
+    return entry.sizeOf() + Segment.RECORD_HEADER_SIZE;
+  }
+
+  /**
+   * @return 可以写入 newEndIndex 的段，当前段不可写或容量不足时冻结并滚动到新段
+   */
+  private Segment writableSegment(long newEndIndex, int size) {
+    if (!_Index2SegmentMap.isEmpty()) {
+      Segment segment = _Index2SegmentMap.lastEntry().getValue();
+      if (segment.isCanWrite()) {
+        // 空段直接写入，超大的单条记录由段自行扩展
+        if (segment.getFileSize() <= Segment.HEADER_SIZE
+            || segment.getFileSize() + size < _MaxSegmentSize) {
+          // 在 Group Commit 模式下，禁用 Segment 的自动 fsync
+          segment.setFsyncEnabled(!mGroupCommitEnabled);
+          return segment;
         }
+        segment.freeze();
       }
-      if (segment != null && segment.add(entry)) {
-        vTotalSize += size;
-        mLogMeta.accept(entry);
-        _Logger.debug("append ok [%d]", newEndIndex);
-        return true;
+    }
+    String newFileName = String.format(Segment.fileNameFormatter(false), newEndIndex, 0);
+    _Logger.info("new segment file :%s", newFileName);
+    File newFile = new File(_LogDataDir + File.separator + newFileName);
+    if (newFile.exists()) {
+      _Logger.warn("segment file already exists %s", newFileName);
+      return null;
+    }
+    try {
+      if (!newFile.createNewFile()) {
+        throw new IOException("create file failed");
       }
+      Segment segment = new Segment(newFile, newEndIndex, true, _MaxSegmentSize);
+      segment.setFsyncEnabled(!mGroupCommitEnabled);
+      _Index2SegmentMap.put(newEndIndex, segment);
+      return segment;
+    } catch (IOException
+        | InvocationTargetException
+        | NoSuchMethodException
+        | InstantiationException
+        | IllegalAccessException e) {
+      _Logger.warn("create segment file failed %s", e, newFileName);
+      return null;
     }
-    _Logger.warn("append failed: [new end %d|entry source %d]", newEndIndex, entry.index());
-    return false;
   }
 
-  @PreDestroy
-  void dispose() {
-    // 停止 Group Commit 管理器
-    if (mGroupCommitManager != null) {
-      mGroupCommitManager.stop();
+  /** Multi-Raft 第 group 个共识组的日志、元数据与快照位于 baseDir/group-{group} 下 */
+  @Override
+  public IRaftMapper fork(int group) {
+    Mapper mapper =
+        new Mapper(
+            String.format("%s%sgroup-%d", _BaseDir, File.separator, group),
+            _MaxSegmentSize,
+            _LogCacheSize,
+            _GroupCommit,
+            null);
+    try {
+      mapper.init();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("raft group mapper init failed", e);
     }
+    return mapper;
+  }
+
+  @Override
+  @PreDestroy
+  public void dispose() {
+    // 停止 Group Commit，等待在途的刷盘完成
+    _GroupCommitManager.stop();
 
     mLogMeta.close();
     mSnapshotMeta.close();
@@ -289,7 +345,7 @@ public class Mapper implements IRaftMapper {
 
   @Override
   public void flushAll() {
-    flushAll(true);
+    flushAll(!mGroupCommitEnabled);
   }
 
   /**
@@ -310,7 +366,7 @@ public class Mapper implements IRaftMapper {
 
   @Override
   public void flush() {
-    flush(true);
+    flush(!mGroupCommitEnabled);
   }
 
   /**
@@ -401,10 +457,23 @@ public class Mapper implements IRaftMapper {
           index, startIndex, endIndex);
       return null;
     }
+    LogEntry entry;
+    synchronized (_EntryCache) {
+      entry = _EntryCache.get(index);
+    }
+    if (entry != null) {
+      return entry;
+    }
     Map.Entry<Long, Segment> floor = _Index2SegmentMap.floorEntry(index);
     if (floor != null) {
       _Logger.debug("index: %#x, segment: %s", index, floor.getValue());
-      return floor.getValue().getEntry(index);
+      entry = floor.getValue().getEntry(index);
+      if (entry != null) {
+        synchronized (_EntryCache) {
+          _EntryCache.put(index, entry);
+        }
+      }
+      return entry;
     }
     return null;
   }
@@ -429,13 +498,11 @@ public class Mapper implements IRaftMapper {
   @Override
   public void updateCommit(long commit) {
     mLogMeta.setCommit(commit);
-    mSnapshotMeta.setCommit(commit);
   }
 
   @Override
   public void updateTerm(long term) {
     mLogMeta.setTerm(term);
-    mSnapshotMeta.setTerm(term);
   }
 
   @Override
@@ -476,7 +543,7 @@ public class Mapper implements IRaftMapper {
                     long start = Long.parseLong(matcher.group(1));
                     String g3 = matcher.group(3);
                     boolean canWrite = SEGMENT_SUFFIX_WRITE.equalsIgnoreCase(g3);
-                    return new Segment(subFile, start, canWrite);
+                    return new Segment(subFile, start, canWrite, _MaxSegmentSize);
                   }
                 } catch (IOException
                     | IllegalArgumentException
@@ -515,33 +582,82 @@ public class Mapper implements IRaftMapper {
     }
   }
 
+  /** Group Commit 模式下段不自动刷盘，由批次结束时的 {@link #groupCommit()} 统一提交 */
   @Override
   public boolean append(LogEntry entry) {
-    // 如果启用了 Group Commit，使用批量提交
-    if (mGroupCommitEnabled && mGroupCommitManager != null) {
-      return mGroupCommitManager.appendSync(entry, 5000); // 5秒超时
+    return entry != null && appendInternal(List.of(entry)) == 1;
+  }
+
+  @Override
+  public int append(List<LogEntry> entries) {
+    if (entries == null || entries.isEmpty()) {
+      return 0;
+    }
+    // 整批写入后每个段只刷盘一次
+    return appendInternal(entries);
+  }
+
+  /** 将上次提交以来写入的日志与元数据交给刷盘线程，一次 fsync 覆盖整个批次 */
+  @Override
+  public void groupCommit() {
+    if (!mGroupCommitEnabled) {
+      return;
+    }
+    long endIndex = getEndIndex();
+    if (endIndex <= _GroupCommitManager.getSubmittedIndex()) {
+      return;
     }
+    mLogMeta.flush(false);
+    List<GroupCommitManager.SyncTask> tasks = new ArrayList<>(2);
+    if (!_Index2SegmentMap.isEmpty()) {
+      GroupCommitManager.SyncTask task = _Index2SegmentMap.lastEntry().getValue().syncTask();
+      if (task != null) {
+        tasks.add(task);
+      }
+    }
+    tasks.add(mLogMeta::sync);
+    _GroupCommitManager.submit(endIndex, tasks);
+  }
 
-    // 原逻辑：直接追加并刷盘
-    return appendInternal(entry, true);
+  /**
+   * @return 已持久化的最大 index，未启用 Group Commit 时写入即刷盘
+   */
+  @Override
+  public long getFlushedIndex() {
+    return mGroupCommitEnabled ? _GroupCommitManager.getFlushedIndex() : getEndIndex();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> awaitFlushed(long index) {
+    return mGroupCommitEnabled
+        ? _GroupCommitManager.await(index)
+        : CompletableFuture.completedFuture(true);
+  }
+
+  @Override
+  public boolean isFlushFailed() {
+    return mGroupCommitEnabled && _GroupCommitManager.isFailed();
   }
 
   /** 启用 Group Commit */
   public void enableGroupCommit() {
-    if (mGroupCommitManager == null) {
-      initGroupCommitManager();
+    if (mGroupCommitEnabled) {
+      return;
     }
+    // 切换前写入的日志已逐条刷盘
+    _GroupCommitManager.start(getEndIndex());
     mGroupCommitEnabled = true;
-    mGroupCommitManager.start();
     _Logger.info("Group Commit enabled");
   }
 
   /** 禁用 Group Commit */
   public void disableGroupCommit() {
-    mGroupCommitEnabled = false;
-    if (mGroupCommitManager != null) {
-      mGroupCommitManager.stop();
+    if (!mGroupCommitEnabled) {
+      return;
     }
+    groupCommit();
+    mGroupCommitEnabled = false;
+    _GroupCommitManager.stop();
     _Logger.info("Group Commit disabled");
   }
 
@@ -552,7 +668,7 @@ public class Mapper implements IRaftMapper {
 
   /** 获取 Group Commit 管理器 */
   public GroupCommitManager getGroupCommitManager() {
-    return mGroupCommitManager;
+    return _GroupCommitManager;
   }
 
   @Override
@@ -583,6 +699,9 @@ public class Mapper implements IRaftMapper {
     } else {
       newActualFirstIndex = _Index2SegmentMap.firstKey();
     }
+    synchronized (_EntryCache) {
+      _EntryCache.keySet().removeIf(index -> index < newActualFirstIndex);
+    }
     updateLogStart(newActualFirstIndex);
     _Logger.debug(
         "Truncating log from old first index %d to new first index %d",
@@ -597,6 +716,10 @@ public class Mapper implements IRaftMapper {
     }
     _Logger.debug(
         "Truncating log from old end index %d to new end index %d", endIndex, newEndIndex);
+    _GroupCommitManager.rollback(newEndIndex);
+    synchronized (_EntryCache) {
+      _EntryCache.keySet().removeIf(index -> index > newEndIndex);
+    }
     while (!_Index2SegmentMap.isEmpty()) {
       Segment segment = _Index2SegmentMap.lastEntry().getValue();
       try {
@@ -643,8 +766,48 @@ public class Mapper implements IRaftMapper {
   }
 
   @Override
-  public SnapshotEntry getSnapshot() {
-    return null;
+  public SnapshotStore getSnapshotStore() {
+    return _SnapshotStore;
+  }
+
+  @Override
+  public void applySnapshot(long lastIncludeIndex, long lastIncludeTerm) {
+    if (lastIncludeIndex < getStartIndex()) {
+      _Logger.debug("snapshot %d already compacted", lastIncludeIndex);
+    } else if (getEntryTerm(lastIncludeIndex) == lastIncludeTerm) {
+      // 本地日志与快照一致，保留快照之后的条目
+      truncatePrefix(lastIncludeIndex + 1);
+    } else {
+      // 本地日志落后或与快照冲突，全部丢弃
+      dropSegments();
+      updateLogStart(lastIncludeIndex + 1);
+      updateIndexAtTerm(lastIncludeIndex, lastIncludeTerm);
+      if (mLogMeta.getTerm() < lastIncludeTerm) {
+        mLogMeta.setTerm(lastIncludeTerm);
+      }
+    }
+    if (mLogMeta.getCommit() < lastIncludeIndex) {
+      mLogMeta.setCommit(lastIncludeIndex);
+    }
+    if (mLogMeta.getAccept() < lastIncludeIndex) {
+      mLogMeta.setAccept(lastIncludeIndex);
+    }
+    mLogMeta.flush();
+    updateSnapshotMeta(lastIncludeIndex, lastIncludeTerm);
+  }
+
+  private void dropSegments() {
+    for (Segment segment : _Index2SegmentMap.values()) {
+      try {
+        vTotalSize -= segment.drop();
+      } catch (IOException e) {
+        _Logger.warn("drop segment failed %s", e, segment);
+      }
+    }
+    _Index2SegmentMap.clear();
+    synchronized (_EntryCache) {
+      _EntryCache.clear();
+    }
   }
 
   @Override
@@ -652,27 +815,16 @@ public class Mapper implements IRaftMapper {
     return vTotalSize;
   }
 
+  /** 启动时裁剪已被快照覆盖的日志 */
   private void installSnapshot() {
     if (mSnapshotMeta == null || mSnapshotMeta.getCommit() == 0) {
       _Logger.info("No valid snapshot to install");
       return;
     }
-
     long snapshotIndex = mSnapshotMeta.getCommit();
     long snapshotTerm = mSnapshotMeta.getTerm();
-
     _Logger.info("Installing snapshot: index=%d, term=%d", snapshotIndex, snapshotTerm);
-
-    if (snapshotIndex >= mLogMeta.getIndex()) {
-      mLogMeta.setStart(snapshotIndex + 1);
-      mLogMeta.setIndex(snapshotIndex);
-      mLogMeta.setIndexTerm(snapshotTerm);
-      mLogMeta.setTerm(snapshotTerm);
-    }
-
-    _Index2SegmentMap.clear();
-
-    vValid = true;
+    applySnapshot(snapshotIndex, snapshotTerm);
     _Logger.info("Snapshot installed successfully, new start index: %d", mLogMeta.getStart());
   }
 
@@ -693,6 +845,9 @@ public class Mapper implements IRaftMapper {
   @Override
   public void reset() {
     _Index2SegmentMap.clear();
+    synchronized (_EntryCache) {
+      _EntryCache.clear();
+    }
     mLogMeta.reset();
     mSnapshotMeta.reset();
     if (mMembershipConfig != null) {
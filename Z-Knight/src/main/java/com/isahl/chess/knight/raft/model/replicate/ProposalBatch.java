@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model.replicate;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量提案：同一 raft client 在一个批次内收到的一致性请求合并为一条日志复制， 提交后再按 origin 拆分交回 link 逐个应答。
+ *
+ * <p>合并后的日志 factory 为 {@link #BATCH_FACTORY}，payload 结构: count:int [origin:long, factory:int,
+ * length:int, payload:byte[length]]*
+ *
+ * <p>非线程安全，只在共识线程访问。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class ProposalBatch {
+  public static final int BATCH_FACTORY = ('B' << 24) | ('A' << 16) | ('T' << 8) | 'C';
+
+  private final List<LogEntry> _Proposals = new ArrayList<>();
+  private int mLength = 4;
+
+  public void add(long client, long origin, int factory, byte[] payload) {
+    _Proposals.add(new LogEntry(0, 0, client, origin, factory, payload));
+    mLength += 16 + (payload == null ? 0 : payload.length);
+  }
+
+  public int size() {
+    return _Proposals.size();
+  }
+
+  public boolean isEmpty() {
+    return _Proposals.isEmpty();
+  }
+
+  /**
+   * 取出当前批次并清空
+   *
+   * @return 只有一条时原样返回，多条时合并为一条 factory 为 BATCH_FACTORY 的提案；index/term 待 leader 追加时确定
+   */
+  public LogEntry drain() {
+    return _Proposals.isEmpty() ? null : drain(_Proposals.get(0).client());
+  }
+
+  /**
+   * @param origin 合并后提案的 origin，raft client 以此等待整个批次的提交
+   */
+  public LogEntry drain(long origin) {
+    if (_Proposals.isEmpty()) {
+      return null;
+    }
+    LogEntry first = _Proposals.get(0);
+    LogEntry proposal;
+    if (_Proposals.size() == 1) {
+      proposal = first;
+    } else {
+      ByteBuf output = ByteBuf.allocate(mLength).putInt(_Proposals.size());
+      for (LogEntry entry : _Proposals) {
+        byte[] payload = entry.payload();
+        output.putLong(entry.origin()).putInt(entry.factory());
+        if (payload == null) {
+          output.putInt(0);
+        } else {
+          output.putInt(payload.length).put(payload);
+        }
+      }
+      proposal = new LogEntry(0, 0, first.client(), origin, BATCH_FACTORY, output.array());
+    }
+    _Proposals.clear();
+    mLength = 4;
+    return proposal;
+  }
+
+  public static boolean isBatch(LogEntry entry) {
+    return entry != null && entry.factory() == BATCH_FACTORY;
+  }
+
+  /**
+   * @return 批量日志拆分出的请求，沿用 batch 的 index/term/client
+   */
+  public static List<LogEntry> split(LogEntry batch) {
+    ByteBuf input = ByteBuf.wrap(batch.payload());
+    int count = input.getInt();
+    List<LogEntry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      long origin = input.getLong();
+      int factory = input.getInt();
+      byte[] payload = new byte[input.getInt()];
+      input.get(payload);
+      entries.add(
+          new LogEntry(batch.index(), batch.term(), batch.client(), origin, factory, payload));
+    }
+    return entries;
+  }
+}
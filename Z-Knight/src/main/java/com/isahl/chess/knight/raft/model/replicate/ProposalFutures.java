@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model.replicate;
+
+import com.isahl.chess.king.base.exception.ZException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * raft client 异步提交的等待表。
+ *
+ * <p>提交时按 origin 登记；leader 追加日志后转入按 index 排序的表，commit 推进时整段释放 {@code index ≤ commit} 的 future。非
+ * leader 节点提交的请求由 leader 的 x77 notify 按 origin 完成。leader 变更时提交结果无法确认，全部异常结束，由调用方决定是否重试。
+ *
+ * <p>future 只表示日志已提交，不表示状态机已应用：状态机在 link 线程异步应用，完成时读取状态可能尚未包含该请求。
+ *
+ * <p>非 leader 节点转发的批量提案 origin 为节点编号，按 x75 的请求编号记录其中的 origin，leader 拒绝时只结束该批次的等待。
+ *
+ * <p>{@link #register(long)} 可在任意线程调用，其余方法只在共识线程访问。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class ProposalFutures {
+  private final Map<Long, CompletableFuture<Long>> _Pending = new ConcurrentHashMap<>();
+  private final NavigableMap<Long, List<CompletableFuture<Long>>> _Indexed = new TreeMap<>();
+  private final Map<Long, long[]> _Forwarded = new HashMap<>();
+
+  /**
+   * @return commit 后以日志 index 完成的 future；origin 已在等待中时直接异常结束
+   */
+  public CompletableFuture<Long> register(long origin) {
+    CompletableFuture<Long> future = new CompletableFuture<>();
+    if (_Pending.putIfAbsent(origin, future) != null) {
+      future.completeExceptionally(new ZException("origin %#x already pending", origin));
+    }
+    return future;
+  }
+
+  public boolean hasPending() {
+    return !_Pending.isEmpty();
+  }
+
+  public int size() {
+    int size = _Pending.size();
+    for (List<CompletableFuture<Long>> futures : _Indexed.values()) {
+      size += futures.size();
+    }
+    return size;
+  }
+
+  /** leader 追加日志后将 origin 的等待转入 index 表 */
+  public boolean bind(long index, long origin) {
+    CompletableFuture<Long> future = _Pending.remove(origin);
+    if (future == null) {
+      return false;
+    }
+    _Indexed.computeIfAbsent(index, k -> new ArrayList<>(1)).add(future);
+    return true;
+  }
+
+  /**
+   * leader commit 推进到 index
+   *
+   * @return 完成的 future 数量
+   */
+  public int commit(long index) {
+    if (_Indexed.isEmpty()) {
+      return 0;
+    }
+    int count = 0;
+    for (Iterator<Map.Entry<Long, List<CompletableFuture<Long>>>> it =
+            _Indexed.headMap(index, true).entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<Long, List<CompletableFuture<Long>>> entry = it.next();
+      for (CompletableFuture<Long> future : entry.getValue()) {
+        future.complete(entry.getKey());
+        count++;
+      }
+      it.remove();
+    }
+    return count;
+  }
+
+  /** 收到 leader 的 commit notify */
+  public boolean complete(long origin, long index) {
+    CompletableFuture<Long> future = _Pending.remove(origin);
+    return future != null && future.complete(index);
+  }
+
+  /** leader 拒绝了 origin 的请求 */
+  public boolean fail(long origin, Throwable cause) {
+    CompletableFuture<Long> future = _Pending.remove(origin);
+    return future != null && future.completeExceptionally(cause);
+  }
+
+  /**
+   * 转发给 leader 的批量提案
+   *
+   * @param reqId x75 的请求编号
+   * @param origins 批次中各请求的 origin
+   */
+  public void forward(long reqId, long[] origins) {
+    _Forwarded.put(reqId, origins);
+  }
+
+  /**
+   * 收到 leader 对转发请求的应答，cause 为 null 表示已追加，等待 notify 完成
+   *
+   * @return 异常结束的 future 数量
+   */
+  public int respond(long reqId, long origin, Throwable cause) {
+    long[] origins = _Forwarded.remove(reqId);
+    if (cause == null) {
+      return 0;
+    }
+    int count = fail(origin, cause) ? 1 : 0;
+    if (origins != null) {
+      for (long o : origins) {
+        count += fail(o, cause) ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 结束全部等待
+   *
+   * @return 结束的 future 数量
+   */
+  public int abort(Throwable cause) {
+    int count = 0;
+    for (Iterator<CompletableFuture<Long>> it = _Pending.values().iterator(); it.hasNext(); ) {
+      it.next().completeExceptionally(cause);
+      it.remove();
+      count++;
+    }
+    for (List<CompletableFuture<Long>> futures : _Indexed.values()) {
+      for (CompletableFuture<Long> future : futures) {
+        future.completeExceptionally(cause);
+        count++;
+      }
+    }
+    _Indexed.clear();
+    _Forwarded.clear();
+    return count;
+  }
+}
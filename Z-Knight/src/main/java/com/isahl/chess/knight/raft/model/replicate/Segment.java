@@ -26,36 +26,81 @@ package com.isahl.chess.knight.raft.model.replicate;
 import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.model.ListSerial;
+import com.isahl.chess.knight.raft.model.GroupCommitManager;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Raft 日志段文件
+ *
+ * <p>文件格式: [magic:4][version:4] 之后逐条记录 [length:4][crc32c:4][entry:length]。
+ *
+ * <p>可写段按容量预分配并只映射一次，记录在写游标处追加，游标之后始终为 0，length == 0 即为结尾； 追加无需回写头部，{@link #append(List)}
+ * 一个批次只刷盘一次。加载时校验 crc 与 index 连续性， 遇到残缺的尾部记录即停止，视为崩溃前未完成的写入。
+ *
+ * <p>内存中只保留记录的偏移索引，{@link #getEntry(long)} 每次从文件解码，缓存由 {@link Mapper} 负责； 只读段不保留映射，按偏移定位读取。
+ *
+ * <p>冻结的只读段附带偏移索引文件 [segment].idx，加载时校验索引自身的 crc 后直接恢复偏移，不再扫描段文件； 记录的 crc 推迟到 {@link
+ * #getEntry(long)} 读取时校验。索引缺失或损坏时退化为全量扫描并重建索引。
+ *
+ * <p>旧版 ListSerial 格式的段在加载时改写为新格式。
+ */
 public class Segment {
   static final String SEGMENT_PREFIX = "z_chess_raft_seg";
   static final String SEGMENT_SUFFIX_WRITE = "w";
   static final String SEGMENT_SUFFIX_READONLY = "r";
   static final String SEGMENT_DATE_FORMATTER = "%020d-%020d";
 
+  static final int SEGMENT_MAGIC = 0x5A525347; // "ZRSG"
+  static final int SEGMENT_VERSION = 1;
+  static final int HEADER_SIZE = 8;
+  static final int RECORD_HEADER_SIZE = 8;
+  static final long DEFAULT_CAPACITY = 1 << 20;
+  static final String INDEX_SUFFIX = ".idx";
+  static final int INDEX_MAGIC = 0x5A525349; // "ZRSI"
+  /*
+  [magic:4][version:4][count:4][start index:8][start term:8][end index:8][end term:8][file size:8]
+   */
+  static final int INDEX_HEADER_SIZE = 52;
+
   private static final Logger _Logger =
       LoggerFactory.getLogger("cluster.knight." + Segment.class.getSimpleName());
 
   private final long _StartIndex;
   private final String _FileDirectory;
-  private final ListSerial<LogEntry> _Records;
+  private final long _Capacity;
 
   private RandomAccessFile mRandomAccessFile;
   private FileChannel mFileChannel;
+  private MappedByteBuffer mMapped;
   private String mFileName;
   private long mEndIndex;
   private long mFileSize;
   private boolean mCanWrite;
+  private boolean mMetaDirty;
+  private volatile long vSynced; // 刷盘线程已确认落盘的写入位置
   private volatile boolean mFsyncEnabled = true; // 默认开启 fsync
+  /*
+  第 i 条记录在文件中的起始位置, mOffsets[size] 即写游标
+   */
+  private int[] mOffsets = new int[64];
+  private int mCount;
 
   public LogEntry getEntry(long index) {
     int listIndex = (int) (index - _StartIndex);
@@ -64,34 +109,79 @@ public class Segment {
         || index < _StartIndex
         || index > mEndIndex
         || listIndex < 0
-        || listIndex >= _Records.size()) {
+        || listIndex >= mCount) {
       _Logger.warn(
-          "get entry failed@%d;start:%d,end:%d,size:%d",
-          index, _StartIndex, mEndIndex, _Records.size());
+          "get entry failed@%d;start:%d,end:%d,size:%d", index, _StartIndex, mEndIndex, mCount);
+      return null;
+    }
+    int position = mOffsets[listIndex];
+    byte[] record = new byte[mOffsets[listIndex + 1] - position];
+    try {
+      MappedByteBuffer mapped = mMapped;
+      if (mapped != null) {
+        mapped.get(position, record);
+      } else {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+          if (mFileChannel.read(buffer, position + buffer.position()) < 0) {
+            throw new IOException("unexpected end of segment");
+          }
+        }
+      }
+    } catch (IOException e) {
+      _Logger.warn("read entry %d from [%s] failed", e, index, mFileName);
+      return null;
+    }
+    // 由索引加载的段未在启动时校验记录，读取时校验
+    ByteBuffer header = ByteBuffer.wrap(record, 0, RECORD_HEADER_SIZE);
+    CRC32C crc = new CRC32C();
+    crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+    if (header.getInt() != record.length - RECORD_HEADER_SIZE
+        || header.getInt() != (int) crc.getValue()) {
+      _Logger.warn("entry %d in [%s] corrupted", index, mFileName);
       return null;
     }
-    LogEntry logEntry = _Records.get(listIndex);
+    LogEntry logEntry = new LogEntry(ByteBuf.wrap(record).skip(RECORD_HEADER_SIZE));
     if (logEntry.index() != index) {
       _Logger.warn("segment get(%d) log entry [%s]", index, logEntry);
     }
     return logEntry;
   }
 
+  /**
+   * @return 段内记录条数
+   */
+  public int size() {
+    return mCount;
+  }
+
   public Segment(File file, long startIndex, boolean canWrite)
       throws IOException,
           InvocationTargetException,
           NoSuchMethodException,
           InstantiationException,
           IllegalAccessException {
+    this(file, startIndex, canWrite, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity 可写段预分配的文件大小，单条记录超出时按需扩展
+   */
+  public Segment(File file, long startIndex, boolean canWrite, long capacity)
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
     _FileDirectory = file.getParent();
-    _Records = new ListSerial<>(LogEntry::new);
-    mEndIndex = _StartIndex = startIndex;
+    _Capacity = Math.min(Math.max(capacity, HEADER_SIZE), Integer.MAX_VALUE);
+    _StartIndex = startIndex;
+    mEndIndex = startIndex - 1;
     mFileName = file.getAbsolutePath();
     mCanWrite = canWrite;
     mRandomAccessFile = new RandomAccessFile(file, isCanWrite() ? "rw" : "r");
     mFileChannel = mRandomAccessFile.getChannel();
-    mFileSize = mRandomAccessFile.length();
-    loadRecord();
+    loadRecord(mRandomAccessFile.length());
   }
 
   public static String fileNameFormatter(boolean readonly) {
@@ -110,10 +200,9 @@ public class Segment {
     return mEndIndex;
   }
 
-  private void setEndIndex(long newEndIndex) {
-    mEndIndex = newEndIndex;
-  }
-
+  /**
+   * @return 已写入的字节数，不含预分配的空白部分
+   */
   public long getFileSize() {
     return mFileSize;
   }
@@ -143,8 +232,14 @@ public class Segment {
    */
   public void flush() throws IOException {
     if (mFileChannel != null && mFileChannel.isOpen()) {
-      // 强制文件通道刷盘，包含文件元数据
-      mFileChannel.force(true);
+      if (mMapped != null) {
+        mMapped.force();
+      }
+      // 文件长度变化后才需要同步元数据
+      if (mMetaDirty) {
+        mFileChannel.force(true);
+        mMetaDirty = false;
+      }
       _Logger.debug("segment flushed [%s], size=%d", mFileName, mFileSize);
     }
   }
@@ -164,35 +259,242 @@ public class Segment {
     }
   }
 
-  private void setFileSize(long newFileSize) {
-    mFileSize = newFileSize;
-    try {
-      mRandomAccessFile.setLength(mFileSize);
+  private void loadRecord(long length)
+      throws IOException,
+          InvocationTargetException,
+          NoSuchMethodException,
+          InstantiationException,
+          IllegalAccessException {
+    if (length == 0) {
+      if (isCanWrite()) {
+        preallocate();
+        flush();
+      }
+      return;
+    }
+    if (!isCanWrite() && loadIndex(length)) {
+      return;
+    }
+    MappedByteBuffer input = mFileChannel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    if (length < HEADER_SIZE || input.getInt(0) != SEGMENT_MAGIC) {
+      loadLegacy(ByteBuf.wrap(input));
+      return;
+    }
+    if (input.getInt(Integer.BYTES) != SEGMENT_VERSION) {
+      throw new ZException(
+          "segment version %d unsupported, file: %s", input.getInt(Integer.BYTES), mFileName);
+    }
+    CRC32C crc = new CRC32C();
+    int position = HEADER_SIZE;
+    mOffsets[0] = position;
+    while (position + RECORD_HEADER_SIZE <= length) {
+      int size = input.getInt(position);
+      if (size <= 0 || position + RECORD_HEADER_SIZE + size > length) {
+        break;
+      }
+      byte[] data = new byte[size];
+      input.get(position + RECORD_HEADER_SIZE, data);
+      crc.reset();
+      crc.update(data);
+      if ((int) crc.getValue() != input.getInt(position + Integer.BYTES)) {
+        _Logger.warn("segment [%s] crc mismatch @ %d, drop tail", mFileName, position);
+        break;
+      }
+      LogEntry entry = new LogEntry(ByteBuf.wrap(data));
+      if (entry.index() != mEndIndex + 1) {
+        _Logger.warn(
+            "segment [%s] index discontinuous @ %d: %d, drop tail",
+            mFileName, position, entry.index());
+        break;
+      }
+      position += RECORD_HEADER_SIZE + size;
+      record(entry.index(), position);
+    }
+    mFileSize = position;
+    if (isCanWrite()) {
+      mMapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(length, _Capacity));
+      if (length < _Capacity) {
+        mMetaDirty = true;
+      }
+      // 清除残缺的尾部记录，保证游标之后全为 0
+      zero(position, (int) length);
+    } else if (position < length) {
+      _Logger.warn("read-only segment [%s] has %d trailing bytes", mFileName, length - position);
+    } else {
+      writeIndex();
+    }
+  }
+
+  private File indexFile() {
+    return new File(mFileName + INDEX_SUFFIX);
+  }
+
+  /**
+   * 由索引文件恢复只读段的偏移，索引与段文件不一致时返回 false
+   *
+   * @param length 段文件长度
+   */
+  private boolean loadIndex(long length) {
+    File file = indexFile();
+    if (!file.isFile()) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < INDEX_HEADER_SIZE + 2 * Integer.BYTES) {
+        return false;
+      }
+      MappedByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int count = input.getInt(8);
+      if (input.getInt(0) != INDEX_MAGIC
+          || input.getInt(4) != SEGMENT_VERSION
+          || count <= 0
+          || size != INDEX_HEADER_SIZE + (long) (count + 2) * Integer.BYTES) {
+        _Logger.warn("segment index [%s] malformed", file);
+        return false;
+      }
+      int crcAt = (int) size - Integer.BYTES;
+      CRC32C crc = new CRC32C();
+      crc.update(input.slice(0, crcAt));
+      if ((int) crc.getValue() != input.getInt(crcAt)) {
+        _Logger.warn("segment index [%s] crc mismatch", file);
+        return false;
+      }
+      long endIndex = input.getLong(28);
+      if (input.getLong(12) != _StartIndex
+          || endIndex != _StartIndex + count - 1
+          || input.getLong(44) != length) {
+        _Logger.warn("segment index [%s] doesn't match segment", file);
+        return false;
+      }
+      int[] offsets = new int[Math.max(64, count + 2)];
+      input.position(INDEX_HEADER_SIZE).asIntBuffer().get(offsets, 0, count + 1);
+      if (offsets[0] != HEADER_SIZE || offsets[count] != length) {
+        return false;
+      }
+      for (int i = 0; i < count; i++) {
+        if (offsets[i + 1] <= offsets[i] + RECORD_HEADER_SIZE) {
+          return false;
+        }
+      }
+      mOffsets = offsets;
+      mCount = count;
+      mEndIndex = endIndex;
+      mFileSize = length;
+      return true;
     } catch (IOException e) {
-      _Logger.warn("set file size failed (%d)", e, mFileSize);
+      _Logger.warn("load segment index [%s] failed", e, file);
+      return false;
     }
   }
 
-  private void loadRecord()
+  /** 为只读段写入索引文件，失败时只影响下次启动的加载速度 */
+  private void writeIndex() {
+    if (mCount == 0) {
+      return;
+    }
+    LogEntry first = getEntry(_StartIndex);
+    LogEntry last = getEntry(mEndIndex);
+    if (first == null || last == null) {
+      return;
+    }
+    ByteBuffer output = ByteBuffer.allocate(INDEX_HEADER_SIZE + (mCount + 2) * Integer.BYTES);
+    output
+        .putInt(INDEX_MAGIC)
+        .putInt(SEGMENT_VERSION)
+        .putInt(mCount)
+        .putLong(_StartIndex)
+        .putLong(first.term())
+        .putLong(mEndIndex)
+        .putLong(last.term())
+        .putLong(mFileSize);
+    output.asIntBuffer().put(mOffsets, 0, mCount + 1);
+    output.position(output.position() + (mCount + 1) * Integer.BYTES);
+    CRC32C crc = new CRC32C();
+    crc.update(output.array(), 0, output.position());
+    output.putInt((int) crc.getValue()).flip();
+    File file = indexFile();
+    Path staging = Path.of(file.getPath() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            staging,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (output.hasRemaining()) {
+        channel.write(output);
+      }
+      channel.force(true);
+      Files.move(
+          staging,
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      _Logger.warn("write segment index [%s] failed", e, file);
+    }
+  }
+
+  private void dropIndex() throws IOException {
+    Files.deleteIfExists(indexFile().toPath());
+  }
+
+  private void loadLegacy(ByteBuf input)
       throws IOException,
           InvocationTargetException,
           NoSuchMethodException,
           InstantiationException,
           IllegalAccessException {
-    if (mFileSize == 0) {
-      return;
-    }
-    _Records.decode(ByteBuf.wrap(mFileChannel.map(FileChannel.MapMode.READ_ONLY, 0, mFileSize)));
+    ListSerial<LogEntry> legacy = new ListSerial<>(LogEntry::new);
+    legacy.decode(input);
     // NPE 防护：检查列表是否为空
-    if (_Records.isEmpty()) {
+    if (legacy.isEmpty()) {
       throw new ZException("segment records is empty after decode, file: %s", mFileName);
     }
-    long startIndex = _Records.get(0).index();
+    long startIndex = legacy.get(0).index();
     if (startIndex != _StartIndex) {
       throw new ZException(
           "first entry index %d isn't equal segment's start_index %d", startIndex, _StartIndex);
     }
-    mEndIndex = _Records.get(_Records.size() - 1).index();
+    rewrite(legacy);
+  }
+
+  /** 按当前格式重写旧版段文件，先写入临时文件再原子替换 */
+  private void rewrite(List<LogEntry> records) throws IOException {
+    File staging = new File(mFileName + ".tmp");
+    mRandomAccessFile.close();
+    mRandomAccessFile = new RandomAccessFile(staging, "rw");
+    mFileChannel = mRandomAccessFile.getChannel();
+    preallocate();
+    if (!write(records)) {
+      throw new ZException("segment [%s] rewrite failed", mFileName);
+    }
+    if (!isCanWrite()) {
+      mMapped.force();
+      mMapped = null;
+      mRandomAccessFile.setLength(mFileSize);
+    }
+    flush();
+    Files.move(
+        staging.toPath(),
+        Path.of(mFileName),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    if (!isCanWrite()) {
+      mRandomAccessFile.close();
+      mRandomAccessFile = new RandomAccessFile(mFileName, "r");
+      mFileChannel = mRandomAccessFile.getChannel();
+      writeIndex();
+    }
+  }
+
+  private void preallocate() throws IOException {
+    mRandomAccessFile.setLength(_Capacity);
+    mMapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, _Capacity);
+    mMapped.putInt(0, SEGMENT_MAGIC);
+    mMapped.putInt(Integer.BYTES, SEGMENT_VERSION);
+    mFileSize = mOffsets[0] = HEADER_SIZE;
+    mMetaDirty = true;
   }
 
   public void freeze() {
@@ -201,61 +503,84 @@ public class Segment {
     File newFile = new File(newAbsolutePath);
     File oldFile = new File(mFileName);
     try {
-      // 关闭前强制刷盘
-      if (mFsyncEnabled && mFileChannel != null && mFileChannel.isOpen()) {
+      // 冻结前无论 fsync 设置均刷盘，并截掉预分配的空白部分
+      if (mMapped != null) {
+        mMapped.force();
+        mMapped = null;
+        mRandomAccessFile.setLength(mFileSize);
         mFileChannel.force(true);
       }
       mRandomAccessFile.close();
       FileUtils.moveFile(oldFile, newFile);
       mRandomAccessFile = new RandomAccessFile(newFile, "r");
       mFileChannel = mRandomAccessFile.getChannel();
+      mFileName = newAbsolutePath;
       mCanWrite = false;
+      writeIndex();
     } catch (IOException e) {
       _Logger.warn("close error || mv old[%s]->new[%s] ", e, mFileName, newFileName);
     }
   }
 
+  /**
+   * Group Commit 模式下，交出自上次确认落盘以来写入的区间由刷盘线程同步； 落盘位置只在 force 成功后推进，在途或失败的区间会被下一次同步覆盖。
+   * 冻结与截断在共识线程中自行刷盘，旧的映射仍可安全 force
+   *
+   * @return null 表示没有需要同步的数据
+   */
+  GroupCommitManager.SyncTask syncTask() {
+    final MappedByteBuffer mapped = mMapped;
+    final long synced = Math.min(vSynced, mFileSize);
+    if (mapped == null || (synced >= mFileSize && !mMetaDirty)) {
+      return null;
+    }
+    final int from = (int) synced;
+    final long to = mFileSize;
+    final int length = (int) to - from;
+    final FileChannel channel = mMetaDirty ? mFileChannel : null;
+    mMetaDirty = false;
+    return () -> {
+      if (length > 0) {
+        mapped.force(from, length);
+        vSynced = to;
+      }
+      try {
+        if (channel != null) {
+          channel.force(true);
+        }
+      } catch (ClosedChannelException e) {
+        // 段已冻结或截断，关闭前已刷盘
+      }
+    };
+  }
+
   public boolean add(LogEntry entry) {
+    return entry != null && append(List.of(entry));
+  }
+
+  /**
+   * 在写游标处批量追加，开启 fsync 时整个批次只刷盘一次
+   *
+   * @param entries index 必须与当前 end index 连续
+   * @return 全部写入返回 true，否则一条都不写入
+   */
+  public boolean append(List<LogEntry> entries) {
+    if (!isCanWrite() || mMapped == null) {
+      _Logger.warn("segment [%s] is read only", mFileName);
+      return false;
+    }
+    int from = (int) mFileSize;
     try {
-      if (_Records.add(entry)) {
-        byte[] output;
-        MappedByteBuffer mapped;
-        if (_Records.size() > 1) {
-          output = entry.encoded();
-          mapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, mFileSize, output.length);
-          mapped.put(output);
-          // 强制刷盘（如果开启）
-          if (mFsyncEnabled) {
-            mapped.force();
-          }
-          mapped =
-              mFileChannel.map(
-                  FileChannel.MapMode.READ_WRITE,
-                  _Records.SERIAL_POS,
-                  _Records.SIZE_POS + Integer.BYTES);
-          int oldLength = mapped.getInt(_Records.LENGTH_POS);
-          mapped.putInt(_Records.LENGTH_POS, oldLength + output.length);
-          mapped.putInt(_Records.SIZE_POS, _Records.size());
-          // 强制刷盘（如果开启）
-          if (mFsyncEnabled) {
-            mapped.force();
-          }
-        } else {
-          output = _Records.encoded();
-          mapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, output.length);
-          mapped.put(output);
-          // 强制刷盘（如果开启）
-          if (mFsyncEnabled) {
-            mapped.force();
-          }
-        }
-        mFileSize += output.length;
-        // 最终刷盘确保文件元数据也落盘
-        if (mFsyncEnabled) {
+      if (!write(entries)) {
+        return false;
+      }
+      if (mFsyncEnabled) {
+        mMapped.force(from, (int) mFileSize - from);
+        if (mMetaDirty) {
           mFileChannel.force(true);
+          mMetaDirty = false;
         }
       }
-      mEndIndex = entry.index();
       return true;
     } catch (IOException e) {
       _Logger.warn("add record failed ", e);
@@ -263,18 +588,83 @@ public class Segment {
     return false;
   }
 
+  private boolean write(List<LogEntry> entries) throws IOException {
+    if (entries.isEmpty()) {
+      return true;
+    }
+    byte[][] outputs = new byte[entries.size()][];
+    long expect = mEndIndex + 1;
+    long position = mFileSize;
+    for (int i = 0; i < outputs.length; i++, expect++) {
+      LogEntry entry = entries.get(i);
+      if (entry.index() != expect) {
+        _Logger.warn("append discontinuous entry %d, expect %d", entry.index(), expect);
+        return false;
+      }
+      outputs[i] = entry.encoded();
+      position += RECORD_HEADER_SIZE + outputs[i].length;
+    }
+    if (position > mMapped.capacity()) {
+      expand(position);
+    }
+    CRC32C crc = new CRC32C();
+    int cursor = (int) mFileSize;
+    for (int i = 0; i < outputs.length; i++) {
+      byte[] output = outputs[i];
+      crc.reset();
+      crc.update(output);
+      mMapped.putInt(cursor + Integer.BYTES, (int) crc.getValue());
+      mMapped.put(cursor + RECORD_HEADER_SIZE, output);
+      // length 最后写入，之前的内容对加载过程不可见
+      mMapped.putInt(cursor, output.length);
+      cursor += RECORD_HEADER_SIZE + output.length;
+      record(entries.get(i).index(), cursor);
+    }
+    mFileSize = cursor;
+    return true;
+  }
+
+  private void record(long index, int end) {
+    if (++mCount >= mOffsets.length) {
+      mOffsets = Arrays.copyOf(mOffsets, mOffsets.length << 1);
+    }
+    mOffsets[mCount] = end;
+    mEndIndex = index;
+  }
+
+  private void expand(long required) throws IOException {
+    if (required > Integer.MAX_VALUE) {
+      throw new ZException("segment [%s] overflow %d", mFileName, required);
+    }
+    long capacity = Math.min(Math.max(required, (long) mMapped.capacity() << 1), Integer.MAX_VALUE);
+    mRandomAccessFile.setLength(capacity);
+    mMapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    mMetaDirty = true;
+  }
+
+  /** 只改写非 0 字节，避免预分配的空白页被标脏 */
+  private void zero(int from, int to) {
+    for (int i = from, end = Math.min(to, mMapped.capacity()); i < end; i++) {
+      if (mMapped.get(i) != 0) {
+        mMapped.put(i, (byte) 0);
+      }
+    }
+  }
+
   public long drop() throws IOException {
     // 关闭前尝试刷盘
     if (mFileChannel != null && mFileChannel.isOpen()) {
       try {
-        mFileChannel.force(true);
+        flush();
       } catch (IOException e) {
         _Logger.warn("force before drop failed: %s", e.getMessage());
       }
     }
+    mMapped = null;
     mRandomAccessFile.close();
     File file = new File(mFileName);
     FileUtils.forceDelete(file);
+    dropIndex();
     return mFileSize;
   }
 
@@ -283,36 +673,38 @@ public class Segment {
     if (newRecordCount < 0) {
       throw new ZException("new record size[%d],error input", newRecordCount);
     }
-    if (_Records.size() > newRecordCount) {
-      _Records.subList(newRecordCount, _Records.size()).clear();
+    if (mCount > newRecordCount) {
+      long oldFileSize = mFileSize;
+      mCount = newRecordCount;
       mEndIndex = newEndIndex;
-      long newFileSize = _Records.sizeOf();
-      long dropSize = mFileSize - newFileSize;
-      MappedByteBuffer mapped =
-          mFileChannel.map(
-              FileChannel.MapMode.READ_WRITE,
-              _Records.SERIAL_POS,
-              _Records.SIZE_POS + Integer.BYTES);
-      mapped.putInt(_Records.LENGTH_POS, _Records.length());
-      mapped.putInt(_Records.SIZE_POS, _Records.size());
-      // 强制刷盘
-      if (mFsyncEnabled) {
-        mapped.force();
-      }
-      mFileChannel.force(true);
-      mRandomAccessFile.setLength(mFileSize = newFileSize);
-      mRandomAccessFile.close();
+      mFileSize = mOffsets[newRecordCount];
       // 缩减后一定处于可write状态
       String newFileName = String.format(fileNameFormatter(false), _StartIndex, mEndIndex);
       String newFullFileName = _FileDirectory + File.separator + newFileName;
+      if (mMapped != null) {
+        zero((int) mFileSize, (int) oldFileSize);
+        flush();
+        mMapped = null;
+      }
+      mRandomAccessFile.close();
+      // 转为可写段，索引失效
+      dropIndex();
       if (new File(mFileName).renameTo(new File(newFullFileName))) {
         mRandomAccessFile = new RandomAccessFile(newFullFileName, "rw");
         mFileChannel = mRandomAccessFile.getChannel();
         mFileName = newFullFileName;
+        // 只读段已截去预分配部分，重新按容量扩展
+        long length = Math.max(mRandomAccessFile.length(), _Capacity);
+        mMapped = mFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        zero((int) mFileSize, (int) oldFileSize);
+        mMetaDirty = true;
+        flush();
+        vSynced = mFileSize;
+        mCanWrite = true;
       } else {
         throw new ZException("file [%s] rename to [%s] failed", mFileName, newFileName);
       }
-      return dropSize;
+      return oldFileSize - mFileSize;
     }
     return 0;
   }
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.model.replicate;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 状态机快照文件存储，文件名携带 index 与 term，与 {@link SnapshotMeta} 一一对应。
+ *
+ * <p>生成与安装都先写入临时文件，fsync 后原子替换，崩溃只会遗留临时文件。 Follower 端安装时分片必须按偏移顺序写入。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class SnapshotStore {
+  private static final String SUFFIX = ".data";
+  private static final String TAKE = "snapshot.take";
+  private static final String INSTALL = "snapshot.install";
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path _Dir;
+
+  private FileChannel mInstall;
+  private long mInstallIndex, mInstallTerm, mInstallOffset;
+
+  public SnapshotStore(String dir) {
+    _Dir = Paths.get(dir);
+  }
+
+  public Path path(long index, long term) {
+    return _Dir.resolve(String.format("snapshot_%d_%d%s", index, term, SUFFIX));
+  }
+
+  public boolean exists(long index, long term) {
+    return index > 0 && Files.isRegularFile(path(index, term));
+  }
+
+  public long size(long index, long term) throws IOException {
+    return Files.size(path(index, term));
+  }
+
+  /**
+   * 生成快照文件，在快照线程中调用
+   *
+   * @return 快照文件大小
+   */
+  public long save(IRaftSnapshot machine, long index, long term) throws IOException {
+    Path take = _Dir.resolve(TAKE);
+    try (FileChannel channel = FileChannel.open(take, CREATE, WRITE, TRUNCATE_EXISTING);
+        OutputStream output =
+            new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+      machine.save(index, term, output);
+      output.flush();
+      channel.force(true);
+    }
+    Path target = path(index, term);
+    Files.move(take, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    return Files.size(target);
+  }
+
+  /** 按偏移读取一个分片，读到文件末尾时返回的长度小于 length */
+  public byte[] read(long index, long term, long offset, int length) throws IOException {
+    try (FileChannel channel = FileChannel.open(path(index, term), READ)) {
+      long remain = channel.size() - offset;
+      if (remain <= 0) {
+        return new byte[0];
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, remain));
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          throw new EOFException("snapshot truncated");
+        }
+      }
+      return buffer.array();
+    }
+  }
+
+  public InputStream open(long index, long term) throws IOException {
+    return new BufferedInputStream(Files.newInputStream(path(index, term)), BUFFER_SIZE);
+  }
+
+  /** 只保留指定快照，删除其余快照文件 */
+  public void retain(long index, long term) throws IOException {
+    Path keep = path(index, term);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(_Dir, "snapshot_*" + SUFFIX)) {
+      for (Path file : stream) {
+        if (!file.equals(keep)) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  /** 开始接收 index@term 的快照，丢弃未完成的安装 */
+  public void beginInstall(long index, long term) throws IOException {
+    abortInstall();
+    mInstall = FileChannel.open(_Dir.resolve(INSTALL), CREATE, WRITE, TRUNCATE_EXISTING);
+    mInstallIndex = index;
+    mInstallTerm = term;
+    mInstallOffset = 0;
+  }
+
+  public boolean isInstalling(long index, long term) {
+    return mInstall != null && mInstallIndex == index && mInstallTerm == term;
+  }
+
+  /** 下一个期望的分片偏移 */
+  public long installOffset() {
+    return mInstallOffset;
+  }
+
+  /**
+   * @return false: 分片偏移与期望不符，未写入
+   */
+  public boolean writeChunk(long offset, byte[] data) throws IOException {
+    if (mInstall == null || offset != mInstallOffset) {
+      return false;
+    }
+    if (data != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      while (buffer.hasRemaining()) {
+        mInstall.write(buffer, mInstallOffset + buffer.position());
+      }
+      mInstallOffset += data.length;
+    }
+    return true;
+  }
+
+  /**
+   * fsync 后原子替换为正式快照文件
+   *
+   * @return 快照文件路径
+   */
+  public Path completeInstall() throws IOException {
+    Path target = path(mInstallIndex, mInstallTerm);
+    try {
+      mInstall.force(true);
+    } finally {
+      mInstall.close();
+      mInstall = null;
+    }
+    Files.move(_Dir.resolve(INSTALL), target, ATOMIC_MOVE, REPLACE_EXISTING);
+    return target;
+  }
+
+  public void abortInstall() throws IOException {
+    if (mInstall != null) {
+      mInstall.close();
+      mInstall = null;
+    }
+    Files.deleteIfExists(_Dir.resolve(INSTALL));
+  }
+}
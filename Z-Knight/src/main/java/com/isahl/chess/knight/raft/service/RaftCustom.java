@@ -126,7 +126,7 @@ public class RaftCustom implements IClusterCustom<IRaftMachine> {
       }
         // Snapshot 响应
       case 0x7E -> {
-        return _RaftPeer.onSnapshotAck((X7E_RaftSnapshotAck) received);
+        return _RaftPeer.onSnapshotAck((X7E_RaftSnapshotAck) received, manager);
       }
         // ReadIndex 请求
       case 0x7F -> {
@@ -209,6 +209,11 @@ public class RaftCustom implements IClusterCustom<IRaftMachine> {
     return _RaftPeer.isInCongress();
   }
 
+  @Override
+  public ITriple onBatchComplete(IManager manager) {
+    return _RaftPeer.onBatchComplete(manager);
+  }
+
   @Override
   public IConsistency skipConsistency(IoSerial request, long origin) {
     X77_RaftNotify x77 = new X77_RaftNotify();
@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.raft.service;
+
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.BATCH;
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.NULL;
+
+import com.isahl.chess.bishop.protocol.zchat.factory.ZClusterFactory;
+import com.isahl.chess.bishop.protocol.zchat.model.command.raft.X85_RaftGroup;
+import com.isahl.chess.bishop.protocol.zchat.model.ctrl.ZControl;
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
+import com.isahl.chess.king.base.features.model.ITriple;
+import com.isahl.chess.king.base.features.model.IoSerial;
+import com.isahl.chess.king.base.util.Triple;
+import com.isahl.chess.knight.cluster.IClusterNode;
+import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.knight.raft.features.IRaftMachine;
+import com.isahl.chess.knight.raft.features.IRaftMapper;
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
+import com.isahl.chess.queen.events.cluster.IClusterCustom;
+import com.isahl.chess.queen.io.core.features.cluster.IConsistency;
+import com.isahl.chess.queen.io.core.features.cluster.IConsistent;
+import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.routes.ITraceable;
+import com.isahl.chess.queen.io.core.features.model.session.IManager;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Multi-Raft：device/session 状态按编号散列到 N 个共识组，每组一个 RaftPeer 与独立目录的 Mapper。
+ *
+ * <p>各组共用节点间连接与 ClusterProcessor 线程；一个批次内发往同一 peer session 的各组指令在批次结束时合并为一个 {@link
+ * X85_RaftGroup}，心跳与日志复制按节点对批量发送。各组的优先 leader 轮流落在议会成员上，共识负载随节点数分摊。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class RaftGroups implements IClusterCustom<IRaftMachine> {
+  private final Logger _Logger =
+      LoggerFactory.getLogger("cluster.knight." + getClass().getSimpleName());
+
+  private final RaftPeer[] _Peers;
+  private final RaftCustom[] _Customs;
+  private final IRaftMapper[] _Mappers;
+  // 批次内待发送的组内指令，只在 ClusterProcessor 线程访问
+  private final Map<ISession, X85_RaftGroup> _Outbound = new LinkedHashMap<>();
+  private final List<IConsistent> _Backloads = new ArrayList<>();
+
+  /**
+   * @param primary 0 组，使用 raftMapper 原有目录
+   * @param raftMapper 其余各组由其 {@link IRaftMapper#fork(int)} 得到独立存储
+   */
+  public RaftGroups(
+      RaftPeer primary, TimeWheel timeWheel, IRaftConfig raftConfig, IRaftMapper raftMapper) {
+    int groups = raftConfig.getGroups();
+    _Peers = new RaftPeer[groups];
+    _Customs = new RaftCustom[groups];
+    _Mappers = new IRaftMapper[groups];
+    _Peers[0] = primary;
+    _Mappers[0] = raftMapper;
+    for (int group = 1; group < groups; group++) {
+      _Mappers[group] = raftMapper.fork(group);
+      _Peers[group] = new RaftPeer(timeWheel, raftConfig, _Mappers[group], group);
+    }
+    for (int group = 0; group < groups; group++) {
+      _Customs[group] = new RaftCustom(_Peers[group]);
+    }
+    primary.joinGroups(_Peers);
+  }
+
+  /**
+   * @return key 所属的共识组，所有节点的计算结果一致
+   */
+  public static int groupOf(long key, int groups) {
+    // 低位连续的 session 编号先做乘法散列
+    return Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), groups);
+  }
+
+  public int size() {
+    return _Peers.length;
+  }
+
+  public RaftPeer peer(int group) {
+    return _Peers[group];
+  }
+
+  /** 每个共识组只快照归属本组的 session 状态 */
+  public void setSnapshotMachine(IRaftSnapshot machine) {
+    for (int group = 0; group < _Peers.length; group++) {
+      final int _Group = group;
+      _Peers[group].setSnapshotMachine(machine.slice(key -> groupOf(key, _Peers.length) == _Group));
+    }
+  }
+
+  public void start(IClusterNode node) {
+    for (RaftPeer peer : _Peers) {
+      peer.start(node);
+    }
+  }
+
+  /** 释放 fork 出的存储，0 组的 mapper 由容器管理 */
+  public void dispose() {
+    for (int group = 1; group < _Mappers.length; group++) {
+      _Mappers[group].dispose();
+    }
+  }
+
+  @Override
+  public ITriple inject(IManager manager, ISession session, IProtocol received) {
+    if (received instanceof X85_RaftGroup x85) {
+      for (int i = 0, size = x85.size(); i < size; i++) {
+        int group = x85.group(i);
+        if (group >= _Peers.length) {
+          _Logger.warn("raft group %d out of local groups %d, check config", group, _Peers.length);
+          continue;
+        }
+        ZControl content = ZClusterFactory._Instance.create(x85.message(i));
+        content.with(session);
+        collect(group, _Customs[group].inject(manager, session, content));
+      }
+    } else {
+      // X08 等节点级指令
+      collect(0, _Customs[0].inject(manager, session, received));
+    }
+    if (_Backloads.isEmpty()) {
+      return null;
+    }
+    // 组内响应留到批次结束合并发送，回溯 link 的结果立即投递
+    List<IConsistent> backloads = new ArrayList<>(_Backloads);
+    _Backloads.clear();
+    return Triple.of(null, backloads, NULL);
+  }
+
+  @Override
+  public List<ITriple> onTimer(IManager manager, IRaftMachine machine) {
+    return onTimer(manager, _Peers[0], machine);
+  }
+
+  @Override
+  public List<ITriple> onTimer(IManager manager, Object source, IRaftMachine machine) {
+    int group = 0;
+    while (group < _Peers.length && _Peers[group] != source) {
+      group++;
+    }
+    group = group < _Peers.length ? group : 0;
+    buffer(group, _Customs[group].onTimer(manager, machine));
+    return null;
+  }
+
+  @Override
+  public List<ITriple> consistent(IManager manager, IoSerial request, long origin, int factory) {
+    // open service 提交时 origin 为节点编号，改用请求自身的追踪编号分散
+    long key = request instanceof ITraceable traceable ? traceable.origin() : origin;
+    int group = groupOf(key, _Peers.length);
+    buffer(group, _Customs[group].consistent(manager, request, origin, factory));
+    return null;
+  }
+
+  @Override
+  public List<ITriple> change(IManager manager, IoSerial topology) {
+    for (int group = 0; group < _Peers.length; group++) {
+      buffer(group, _Customs[group].change(manager, topology));
+    }
+    return null;
+  }
+
+  @Override
+  public boolean waitForCommit() {
+    return _Customs[0].waitForCommit();
+  }
+
+  @Override
+  public IConsistency skipConsistency(IoSerial request, long origin) {
+    return _Customs[0].skipConsistency(request, origin);
+  }
+
+  @Override
+  public ITriple onBatchComplete(IManager manager) {
+    for (int group = 0; group < _Peers.length; group++) {
+      collect(group, _Customs[group].onBatchComplete(manager));
+    }
+    if (_Outbound.isEmpty() && _Backloads.isEmpty()) {
+      return null;
+    }
+    List<ITriple> responses = new ArrayList<>(_Outbound.size());
+    _Outbound.forEach((session, x85) -> responses.add(Triple.of(x85, session, session.encoder())));
+    _Outbound.clear();
+    List<IConsistent> backloads = new ArrayList<>(_Backloads);
+    _Backloads.clear();
+    return Triple.of(responses, backloads, responses.isEmpty() ? NULL : BATCH);
+  }
+
+  /** 拆分 inject 形式的结果：fst 进入分组信封，snd 待回溯 link */
+  private void collect(int group, ITriple result) {
+    if (result == null) {
+      return;
+    }
+    OperateType type = result.getThird();
+    switch (type) {
+      case SINGLE -> {
+        IProtocol response = result.getFirst();
+        envelope(group, response, response.session());
+      }
+      case BATCH -> buffer(group, result.getFirst());
+      default -> {}
+    }
+    if (result.getSecond() instanceof IConsistent backload) {
+      _Backloads.add(backload);
+    } else if (result.getSecond() instanceof Collection<?> collection) {
+      for (Object item : collection) {
+        if (item instanceof IConsistent backload) {
+          _Backloads.add(backload);
+        }
+      }
+    }
+  }
+
+  private void buffer(int group, List<ITriple> responses) {
+    if (responses != null) {
+      for (ITriple response : responses) {
+        envelope(group, response.getFirst(), response.getSecond());
+      }
+    }
+  }
+
+  private void envelope(int group, IProtocol content, ISession session) {
+    if (content == null || session == null) {
+      return;
+    }
+    _Outbound.computeIfAbsent(
+            session,
+            key -> {
+              X85_RaftGroup x85 = new X85_RaftGroup(_Peers[0].generateId());
+              x85.with(key);
+              return x85;
+            })
+        .append(group, content);
+  }
+}
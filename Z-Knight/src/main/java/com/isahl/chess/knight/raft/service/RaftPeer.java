@@ -27,6 +27,7 @@ import static com.isahl.chess.king.base.disruptor.features.functions.OperateType
 import static com.isahl.chess.king.env.ZUID.INVALID_PEER_ID;
 import static com.isahl.chess.knight.raft.features.IRaftMachine.INDEX_NAN;
 import static com.isahl.chess.knight.raft.features.IRaftMachine.MIN_START;
+import static com.isahl.chess.knight.raft.features.IRaftMachine.TERM_NAN;
 import static com.isahl.chess.knight.raft.model.RaftCode.*;
 import static com.isahl.chess.knight.raft.model.RaftState.*;
 import static com.isahl.chess.queen.db.model.IStorage.Operation.OP_APPEND;
@@ -38,6 +39,7 @@ import com.isahl.chess.king.base.cron.ScheduleHandler;
 import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.cron.features.ICancelable;
 import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
+import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.features.model.IoSerial;
@@ -47,28 +49,40 @@ import com.isahl.chess.king.base.util.Triple;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.knight.cluster.IClusterNode;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
-import com.isahl.chess.knight.raft.features.IRaftControl;
+import com.isahl.chess.knight.raft.features.IRaftClient;
 import com.isahl.chess.knight.raft.features.IRaftMachine;
 import com.isahl.chess.knight.raft.features.IRaftMapper;
 import com.isahl.chess.knight.raft.features.IRaftService;
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
 import com.isahl.chess.knight.raft.model.*;
 import com.isahl.chess.knight.raft.model.replicate.LogEntry;
 import com.isahl.chess.knight.raft.model.replicate.LogMeta;
-import com.isahl.chess.knight.raft.model.replicate.SnapshotEntry;
+import com.isahl.chess.knight.raft.model.replicate.LogTail;
+import com.isahl.chess.knight.raft.model.replicate.ProposalBatch;
+import com.isahl.chess.knight.raft.model.replicate.ProposalFutures;
 import com.isahl.chess.knight.raft.model.replicate.SnapshotMeta;
+import com.isahl.chess.knight.raft.model.replicate.SnapshotStore;
 import com.isahl.chess.queen.db.model.IStorage;
 import com.isahl.chess.queen.events.model.QEvent;
 import com.isahl.chess.queen.io.core.features.cluster.IClusterTimer;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
+import com.isahl.chess.queen.io.core.features.model.routes.ITraceable;
 import com.isahl.chess.queen.io.core.features.model.session.IManager;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import com.isahl.chess.queen.io.core.features.model.session.ISort;
 import com.lmax.disruptor.RingBuffer;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -78,7 +92,7 @@ import org.slf4j.LoggerFactory;
  * @author william.d.zk
  * @date 2020/1/4
  */
-public class RaftPeer implements IValid, IRaftService, IClusterTimer {
+public class RaftPeer implements IValid, IRaftService, IRaftClient, IClusterTimer {
   private final Logger _Logger =
       LoggerFactory.getLogger("cluster.knight." + getClass().getSimpleName());
   private final ZUID _ZUid;
@@ -88,10 +102,19 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   private final RaftGraph _SelfGraph;
   private final IRaftMachine _SelfMachine;
   private final RaftGraph _JointGraph;
+  // Multi-Raft 共识组编号，单组时为 0
+  private final int _Group;
   private final Queue<LogEntry> _RecvLogQueue = new LinkedList<>();
   private final SecureRandom _Random = new SecureRandom();
   private final long _SnapshotFragmentMaxSize;
   private final int _SyncBatchMaxSize;
+  // 本批次内待合并的一致性请求，只在共识线程访问
+  private final ProposalBatch _Proposals = new ProposalBatch();
+  private final int _ProposalBatchMax;
+  private final ProposalFutures _Futures = new ProposalFutures();
+  private final LogTail _LogTail;
+  // 多 raft 组时由 RaftGroups 设置，按 origin 找到处理该请求的组
+  private RaftPeer[] mGroupPeers;
 
   /*
    * key(Long) → msgId
@@ -107,9 +130,18 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   private final Map<Long, Boolean> _PreVoteReceived = new ConcurrentHashMap<>();
   private volatile boolean _PreVoteInProgress = false;
 
-  // Snapshot 安装状态
-  private final ReentrantLock _SnapshotLock = new ReentrantLock();
-  private volatile boolean _InstallingSnapshot = false;
+  // Snapshot 生成与传输状态，除 _SnapshotTaken/_SnapshotTaking 外只在共识线程访问
+  private static final int SNAPSHOT_WINDOW = 4;
+  private final Map<Long, SnapshotTransfer> _SnapshotTransfers = new HashMap<>();
+  private final AtomicReference<long[]> _SnapshotTaken = new AtomicReference<>();
+  private final AtomicBoolean _SnapshotTaking = new AtomicBoolean(false);
+  // leader 已登记落盘回调的 index，只在共识线程访问
+  private long mDurableWaiting;
+  // 上次批次结束时的日志 index，只在共识线程访问
+  private long mBatchIndex;
+  private IRaftSnapshot mSnapshotMachine;
+  private ExecutorService mSnapshotExecutor;
+  private long mSnapshotTakeAt;
   private long _SnapshotLeader = INVALID_PEER_ID;
 
   // ReadIndex 等待队列 (commitIndex -> List<readId>)
@@ -146,6 +178,11 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   private volatile boolean mLearnerReplicationEnabled = true;
 
   public RaftPeer(TimeWheel timeWheel, IRaftConfig raftConfig, IRaftMapper raftMapper) {
+    this(timeWheel, raftConfig, raftMapper, 0);
+  }
+
+  public RaftPeer(TimeWheel timeWheel, IRaftConfig raftConfig, IRaftMapper raftMapper, int group) {
+    _Group = group;
     _TimeWheel = timeWheel;
     _RaftConfig = raftConfig;
     _ZUid = raftConfig.getZUID();
@@ -176,6 +213,8 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     _JointGraph.append(_SelfMachine);
     _SnapshotFragmentMaxSize = _RaftConfig.getSnapshotFragmentMaxSize();
     _SyncBatchMaxSize = _RaftConfig.getSyncBatchMaxSize();
+    _ProposalBatchMax = _RaftConfig.getProposalBatchMax();
+    _LogTail = new LogTail(_RaftConfig.getLogTailSize());
     _PipelineManager =
         new PipelineReplicationManager(
             _RaftConfig.getPipelineMaxInflight(), _RaftConfig.getPipelineInflightTimeoutMs());
@@ -204,6 +243,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   }
 
   public void start(final IClusterNode _Node) {
+    restoreSnapshot();
     LogMeta meta = _RaftMapper.getLogMeta();
     _SelfMachine.term(meta.getTerm());
     _SelfMachine.commit(meta.getCommit());
@@ -220,8 +260,10 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
           _RaftConfig.getPeers().keySet(),
           // _RaftConfig.getNodes().keySet() 是集群节点成员，包括议会成员
           _RaftConfig.getNodes().keySet());
-      // 启动集群连接
-      graphUp(_SelfGraph.getPeers(), _RaftConfig.getNodes());
+      // 启动集群连接，节点间的连接由各共识组共用，只由 0 组建立
+      if (_Group == 0) {
+        graphUp(_SelfGraph.getPeers(), _RaftConfig.getNodes());
+      }
 
       // 恢复成员变更状态
       restoreMembershipChangeState();
@@ -269,10 +311,45 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
         });
   }
 
-  public void installSnapshot(List<IRaftControl> snapshot) {}
+  public void setSnapshotMachine(IRaftSnapshot machine) {
+    mSnapshotMachine = machine;
+  }
+
+  /** 启动时由本地快照恢复状态机，之后的日志由正常的提交流程重放 */
+  private void restoreSnapshot() {
+    SnapshotMeta meta = _RaftMapper.getSnapshotMeta();
+    SnapshotStore store = _RaftMapper.getSnapshotStore();
+    if (mSnapshotMachine == null || !store.exists(meta.getCommit(), meta.getTerm())) {
+      return;
+    }
+    try (InputStream input = store.open(meta.getCommit(), meta.getTerm())) {
+      mSnapshotMachine.restore(meta.getCommit(), meta.getTerm(), input);
+      _Logger.info("restore snapshot %d@%d", meta.getCommit(), meta.getTerm());
+    } catch (IOException e) {
+      _Logger.warn("restore snapshot %d@%d failed", e, meta.getCommit(), meta.getTerm());
+    }
+  }
+
+  /** Leader 端单个节点的快照传输进度，偏移均以字节计 */
+  private static class SnapshotTransfer {
+    final long index;
+    final long term;
+    final long size;
+    long acked; // 对端确认的下一偏移
+    long sent; // 已发送的下一偏移
+    boolean finished; // done 分片已发出
+    long updateTime;
+
+    SnapshotTransfer(long index, long term, long size) {
+      this.index = index;
+      this.term = term;
+      this.size = size;
+      this.updateTime = System.currentTimeMillis();
+    }
+  }
 
   /**
-   * Leader 发送 Snapshot 给 Follower
+   * Leader 发送 Snapshot 给 Follower，快照文件按分片流式读取，在途分片数不超过窗口， 后续分片由 X7E 驱动
    *
    * @param peer 目标节点 ID
    * @param machine 目标节点状态机
@@ -280,85 +357,148 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
    * @return 发送的 snapshot 消息列表
    */
   private List<ITriple> sendSnapshot(long peer, IRaftMachine machine, ISession session) {
-    _Logger.info("sending snapshot to follower[%#x], session=%s", peer, session);
-
     SnapshotMeta meta = _RaftMapper.getSnapshotMeta();
     long lastIncludeIndex = meta.getCommit();
     long lastIncludeTerm = meta.getTerm();
-
-    if (lastIncludeIndex <= 0) {
+    SnapshotStore store = _RaftMapper.getSnapshotStore();
+    if (!store.exists(lastIncludeIndex, lastIncludeTerm)) {
       _Logger.warn("no valid snapshot available for peer[%#x]", peer);
       return null;
     }
-
-    SnapshotEntry snapshot = _RaftMapper.getSnapshot();
-    byte[] data = snapshot != null ? snapshot.content() : null;
-    long totalSize = data != null ? data.length : 0;
-
-    _Logger.debug(
-        "snapshot: lastIndex=%d@%d, size=%d", lastIncludeIndex, lastIncludeTerm, totalSize);
-
+    SnapshotTransfer transfer = _SnapshotTransfers.get(peer);
+    if (transfer == null
+        || transfer.index != lastIncludeIndex
+        || transfer.term != lastIncludeTerm) {
+      try {
+        transfer =
+            new SnapshotTransfer(
+                lastIncludeIndex, lastIncludeTerm, store.size(lastIncludeIndex, lastIncludeTerm));
+      } catch (IOException e) {
+        _Logger.warn("snapshot %d@%d unavailable", e, lastIncludeIndex, lastIncludeTerm);
+        return null;
+      }
+      _SnapshotTransfers.put(peer, transfer);
+      _Logger.info(
+          "sending snapshot %d@%d size:%d to follower[%#x] (match:%d)",
+          lastIncludeIndex, lastIncludeTerm, transfer.size, peer, machine.matchIndex());
+    } else if (System.currentTimeMillis() - transfer.updateTime
+        < _RaftConfig.getHeartbeatInSecond().multipliedBy(2).toMillis()) {
+      // 传输中，由 ack 驱动后续分片
+      return null;
+    } else {
+      // ack 超时，从已确认的偏移重发
+      _Logger.debug("snapshot to %#x stalled at %d, resend", peer, transfer.acked);
+      transfer.sent = transfer.acked;
+      transfer.finished = false;
+      transfer.updateTime = System.currentTimeMillis();
+    }
+    List<X7D_RaftSnapshot> chunks = snapshotChunks(peer, transfer, session);
+    if (chunks == null || chunks.isEmpty()) {
+      return null;
+    }
     List<ITriple> fragments = new LinkedList<>();
-    long offset = 0;
-    int fragmentSize = (int) Math.min(_SnapshotFragmentMaxSize, totalSize);
-
-    while (offset < totalSize) {
-      int remaining = (int) (totalSize - offset);
-      int currentFragmentSize = Math.min(fragmentSize, remaining);
-      byte[] fragmentData = new byte[currentFragmentSize];
-      System.arraycopy(data, (int) offset, fragmentData, 0, currentFragmentSize);
-
-      X7D_RaftSnapshot x7d = new X7D_RaftSnapshot();
-      x7d.with(session);
-      x7d.leader(_SelfMachine.peer());
-      x7d.term(_SelfMachine.term());
-      x7d.lastIncludeIndex(lastIncludeIndex);
-      x7d.lastIncludeTerm(lastIncludeTerm);
-      x7d.offset(offset);
-      x7d.totalSize(totalSize);
-      x7d.done(offset + currentFragmentSize >= totalSize);
-      x7d.data(fragmentData);
-
-      fragments.add(Triple.of(x7d, session, session.encoder()));
-
-      _Logger.debug(
-          "snapshot fragment: offset=%d, size=%d, done=%s",
-          offset, currentFragmentSize, x7d.done());
-
-      offset += currentFragmentSize;
+    for (X7D_RaftSnapshot x7d : chunks) {
+      fragments.add(map(x7d));
     }
-
-    // 更新 machine 的索引状态
-    machine.index(lastIncludeIndex);
-    machine.indexTerm(lastIncludeTerm);
-    machine.matchIndex(lastIncludeIndex);
-
-    _Logger.info("sent %d snapshot fragments to peer[%#x]", fragments.size(), peer);
     return fragments;
   }
 
-  public void takeSnapshot(IRaftMapper snapshot) {
-    long localTerm;
-    if (_RaftMapper.getTotalSize() < _RaftConfig.getSnapshotMinSize()) {
-      _Logger.debug("snapshot size less than threshold");
-      return;
+  /** 在窗口允许的范围内读取后续分片 */
+  private List<X7D_RaftSnapshot> snapshotChunks(
+      long peer, SnapshotTransfer transfer, ISession session) {
+    SnapshotStore store = _RaftMapper.getSnapshotStore();
+    List<X7D_RaftSnapshot> chunks = new LinkedList<>();
+    try {
+      while (!transfer.finished
+          && transfer.sent - transfer.acked < SNAPSHOT_WINDOW * _SnapshotFragmentMaxSize) {
+        byte[] data =
+            store.read(
+                transfer.index, transfer.term, transfer.sent, (int) _SnapshotFragmentMaxSize);
+        X7D_RaftSnapshot x7d = new X7D_RaftSnapshot();
+        x7d.with(session);
+        x7d.leader(_SelfMachine.peer());
+        x7d.term(_SelfMachine.term());
+        x7d.lastIncludeIndex(transfer.index);
+        x7d.lastIncludeTerm(transfer.term);
+        x7d.offset(transfer.sent);
+        x7d.totalSize(transfer.size);
+        x7d.done(transfer.sent + data.length >= transfer.size);
+        x7d.data(data);
+        chunks.add(x7d);
+        transfer.sent += data.length;
+        transfer.finished = x7d.done();
+      }
+    } catch (IOException e) {
+      // 快照文件已被更新的快照替换，下次心跳按新快照重新开始
+      _Logger.warn("read snapshot for %#x failed", e, peer);
+      _SnapshotTransfers.remove(peer);
+      return null;
     }
-    // 状态迁移未完成
-    if (_SelfMachine.accept() <= _SelfMachine.commit()) {
-      _Logger.debug(" applied < commit sync is running");
-      return;
+    return chunks;
+  }
+
+  /** 在共识线程中调用：接收快照线程完成的结果并裁剪日志，满足间隔与日志量时发起新的快照 */
+  private void compactLog() {
+    long[] taken = _SnapshotTaken.getAndSet(null);
+    if (taken != null && taken[0] > _RaftMapper.getSnapshotMeta().getCommit()) {
+      _RaftMapper.updateSnapshotMeta(taken[0], taken[1]);
+      _RaftMapper.truncatePrefix(taken[0] + 1);
+      try {
+        _RaftMapper.getSnapshotStore().retain(taken[0], taken[1]);
+      } catch (IOException e) {
+        _Logger.warn("remove stale snapshot failed", e);
+      }
+      _Logger.debug("snapshot truncate prefix %d", taken[0]);
+    }
+    if (mSnapshotMachine != null
+        && !_SnapshotTaking.get()
+        && System.currentTimeMillis() - mSnapshotTakeAt
+            >= _RaftConfig.getSnapshotInSecond().toMillis()
+        && _RaftMapper.getTotalSize() >= _RaftConfig.getSnapshotMinSize()) {
+      takeSnapshot();
     }
-    if (_SelfMachine.accept() >= _RaftMapper.getStartIndex()
-        && _SelfMachine.accept() <= _RaftMapper.getEndIndex()) {
-      localTerm = _RaftMapper.getEntryTerm(_SelfMachine.accept());
-      _RaftMapper.updateSnapshotMeta(_SelfMachine.accept(), localTerm);
-      _Logger.debug("take snapshot");
+  }
+
+  /**
+   * 状态机在 link 线程异步应用，落后于 commit；以已提交且已应用的 index 为快照点，在快照线程中生成快照文件， 日志裁剪回到共识线程中完成且只裁剪到快照点
+   *
+   * @return 是否发起了快照
+   */
+  public boolean takeSnapshot() {
+    final IRaftSnapshot machine = mSnapshotMachine;
+    if (machine == null) {
+      return false;
     }
-    long lastSnapshotIndex = _RaftMapper.getSnapshotMeta().getCommit();
-    if (lastSnapshotIndex > 0 && _RaftMapper.getStartIndex() <= lastSnapshotIndex) {
-      _RaftMapper.truncatePrefix(lastSnapshotIndex + 1);
-      _Logger.debug("snapshot truncate prefix %d", lastSnapshotIndex);
+    final long index = Math.min(_SelfMachine.commit(), machine.applied());
+    final long term = _RaftMapper.getEntryTerm(index);
+    if (term == TERM_NAN
+        || index <= _RaftMapper.getSnapshotMeta().getCommit()
+        || !_SnapshotTaking.compareAndSet(false, true)) {
+      return false;
+    }
+    mSnapshotTakeAt = System.currentTimeMillis();
+    if (mSnapshotExecutor == null) {
+      mSnapshotExecutor =
+          Executors.newSingleThreadExecutor(
+              r -> {
+                Thread thread = new Thread(r, "raft-snapshot");
+                thread.setDaemon(true);
+                return thread;
+              });
     }
+    mSnapshotExecutor.execute(
+        () -> {
+          try {
+            long size = _RaftMapper.getSnapshotStore().save(machine, index, term);
+            _SnapshotTaken.set(new long[] {index, term});
+            _Logger.info("take snapshot %d@%d size:%d", index, term, size);
+          } catch (Exception e) {
+            _Logger.warn("take snapshot %d@%d failed", e, index, term);
+          } finally {
+            _SnapshotTaking.set(false);
+          }
+        });
+    return true;
   }
 
   private void start() {
@@ -370,6 +510,8 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     tickCancel();
     if (_SelfMachine.isLessThanState(FOLLOWER)) {
       _Logger.debug("peer[%#] → CLIENT/OUTSIDE, don't join congress", _SelfMachine.peer());
+    } else if (_RaftMapper.isFlushFailed()) {
+      _Logger.warn("peer[ %#x ] log fsync failed, don't join election", _SelfMachine.peer());
     } else {
       _Logger.debug("peer[ %#x ], start vote", _SelfMachine.peer());
       startVote();
@@ -379,7 +521,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   /** 此方法会在各种超时处理器中被启用，所以执行线程为TimeWheel.pool中的任意子线程 */
   private void startVote() {
     try {
-      long wait = _Random.nextInt(70) + 50;
+      long wait = isPreferredLeader() ? _Random.nextInt(20) + 10 : _Random.nextInt(70) + 50;
       Thread.sleep(wait);
       _Logger.debug("random wait for %d mills, then vote", wait);
     } catch (InterruptedException e) {
@@ -389,6 +531,15 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     timeTrigger(beCandidate());
   }
 
+  /** Multi-Raft 各组的优先 leader 依次落在议会成员上，优先节点以更短的随机等待先发起选举，使各组 leader 分散 */
+  private boolean isPreferredLeader() {
+    if (_RaftConfig.getGroups() < 2) {
+      return false;
+    }
+    List<Long> congress = _RaftConfig.getPeers().keySet().stream().sorted().toList();
+    return !congress.isEmpty() && congress.get(_Group % congress.size()) == _SelfMachine.peer();
+  }
+
   private Map<Long, IRaftMachine> vote4me(long term) {
     // Learner 节点不参与选举
     if (_SelfMachine.isInState(RaftState.LEARNER)) {
@@ -613,6 +764,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
             reject(SPLIT_CLUSTER, x72.leader(), x72.msgId()).with(session), null, SINGLE);
       }
       case FOLLOWER, ELECTOR -> {
+        compactLog();
         if (x72.payload() != null) {
           _RecvLogQueue.addAll(x72.deserializeSub(ListSerial._Factory(LogEntry::new)));
         }
@@ -768,34 +920,35 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
 
     /*
      * member.accept > leader.commit 完成半数 match 之后只触发一次 leader commit
+     * leader 自身只以已落盘的 index 计入多数派，本地刷盘失败后不再提交
      */
+    if (_RaftMapper.isFlushFailed()) {
+      return null;
+    }
+    selfDurable();
     long next = _SelfMachine.commit() + 1;
-    boolean condition = _SelfMachine.isInState(LEADER) && _SelfGraph.isMajorAccept(next);
-    boolean joint = _SelfMachine.isInState(JOINT) && _JointGraph.isMajorAccept(next);
+    boolean major = isMajorAccept(next);
 
     // Lease 续期：收到多数派确认时续期
     if (mLeaseReadEnabled && _SelfMachine.isInState(LEADER)) {
-      if (condition && (joint || !_SelfMachine.isInState(JOINT))) {
+      if (major) {
         if (_LeaseManager.renewLease()) {
           _Logger.debug("Lease renewed on majority accept");
         }
       }
     }
 
-    if (x73.accept() >= next && condition && (joint || !_SelfMachine.isInState(JOINT))) {
-      _SelfMachine.commit(next, _RaftMapper);
-      // 检查并处理等待中的 ReadIndex 请求
-      checkReadIndexWaiters();
-      LogEntry entry = _RaftMapper.getEntry(next);
+    if (x73.accept() >= next && major) {
+      LogEntry entry = leaderCommit(next);
       if (entry.client() != _SelfMachine.peer()) {
         // leader → client → device
         ISession session = manager.fairLoadSessionByPrefix(entry.client());
         if (session != null) {
-          return Triple.of(createNotify(entry).with(session), createNotify(entry), SINGLE);
+          return Triple.of(createNotify(entry).with(session), createNotifies(entry), SINGLE);
         }
       } else {
         // leader ≡ client → device
-        return Triple.of(null, createNotify(entry), NULL);
+        return Triple.of(null, createNotifies(entry), NULL);
       }
     } else if (x73.accept() < next) { // machine.accept < next → 已经执行过 self commit 过, 无须重复 commit
       if (_Logger.isDebugEnabled()) {
@@ -813,6 +966,69 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return null;
   }
 
+  /** joint 状态下需要新旧配置各自的多数派 */
+  private boolean isMajorAccept(long index) {
+    boolean condition = _SelfMachine.isInState(LEADER) && _SelfGraph.isMajorAccept(index);
+    boolean joint = _SelfMachine.isInState(JOINT) && _JointGraph.isMajorAccept(index);
+    return condition && (joint || !_SelfMachine.isInState(JOINT));
+  }
+
+  private LogEntry leaderCommit(long index) {
+    _SelfMachine.commit(index, _RaftMapper);
+    _Futures.commit(index);
+    // 检查并处理等待中的 ReadIndex 请求
+    checkReadIndexWaiters();
+    return _RaftMapper.getEntry(index);
+  }
+
+  /**
+   * leader 写入日志后立即向 follower 复制，本地 fsync 并行进行； 自身的 accept 只推进到已落盘的 index，落盘完成前不计入多数派， 刷盘失败后不再推进
+   *
+   * @return accept 是否推进
+   */
+  private boolean selfDurable() {
+    if (_RaftMapper.isFlushFailed()) {
+      return false;
+    }
+    long durable = Math.min(_RaftMapper.getFlushedIndex(), _SelfMachine.index());
+    if (durable > _SelfMachine.accept()) {
+      _SelfMachine.accept(durable);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * leader 本地落盘后提交 follower 已先行确认的日志
+   *
+   * @return fst: 发往 client 节点的 notify, snd: 交回 link 的 notify, trd: BATCH/NULL
+   */
+  private ITriple onDurable(IManager manager) {
+    if (!_SelfMachine.isInState(LEADER) || !selfDurable()) {
+      return null;
+    }
+    List<ITriple> notifies = new LinkedList<>();
+    List<X77_RaftNotify> backloads = new LinkedList<>();
+    for (long next = _SelfMachine.commit() + 1;
+        next <= _SelfMachine.accept() && isMajorAccept(next);
+        next = _SelfMachine.commit() + 1) {
+      LogEntry entry = leaderCommit(next);
+      if (entry.client() != _SelfMachine.peer()) {
+        ISession session = manager.fairLoadSessionByPrefix(entry.client());
+        if (session != null) {
+          notifies.add(map(createNotify(entry).with(session)));
+          backloads.addAll(createNotifies(entry));
+        }
+      } else {
+        backloads.addAll(createNotifies(entry));
+      }
+    }
+    if (backloads.isEmpty()) {
+      return null;
+    }
+    return Triple.of(notifies, backloads, notifies.isEmpty() ? NULL : BATCH);
+  }
+
   private IRaftMachine getMachine(RaftGraph graph, long peer) {
     IRaftMachine machine = graph.get(peer);
     if (machine == null) {
@@ -887,6 +1103,8 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
       _SelfMachine.candidate(INVALID_PEER_ID);
       _SelfMachine.approve(FOLLOWER);
       mTickTask = _TimeWheel.acquire(this, _TickSchedule);
+      _LogTail.clear();
+      abortFutures("step down");
 
     } else {
       _Logger.warn("step down [ignore],state now[%s]", RaftState.roleOf(_SelfMachine.state()));
@@ -895,6 +1113,10 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
 
   private void lead() {
     electCancel();
+    mDurableWaiting = 0;
+    // 之前作为 follower 时日志可能被截断覆盖，缓存只保存本任期追加的日志
+    _LogTail.clear();
+    abortFutures("be leader");
     _SelfMachine.leader(_SelfMachine.peer());
     mHeartbeatTask = _TimeWheel.acquire(this, _HeartbeatSchedule);
     // 启动 CheckQuorum 定时任务
@@ -931,6 +1153,9 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
       long msgId,
       ISession session) {
     tickCancel();
+    if (leader != _SelfMachine.leader()) {
+      abortFutures("follow new leader");
+    }
     _SelfMachine.follow(term, leader, _RaftMapper);
     mTickTask = _TimeWheel.acquire(this, _TickSchedule);
     if (catchUp(preIndex, preIndexTerm)) {
@@ -940,7 +1165,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
           if (notifies == null) notifies = new LinkedList<>();
           LogEntry entry = _RaftMapper.getEntry(i);
           if (entry != null && entry.client() != _SelfMachine.peer()) {
-            notifies.add(createNotify(entry));
+            notifies.addAll(createNotifies(entry));
           } else if (entry == null) {
             _Logger.warn(
                 "entry %d is null,self accept:%d; check segment", i, _SelfMachine.accept());
@@ -1013,14 +1238,15 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
           follower 与 Leader 依据 index@term 进行对齐
           开始同步接受缓存在_LogQueue中的数据
         */
-        for (Iterator<LogEntry> it = _RecvLogQueue.iterator(); it.hasNext(); ) {
-          LogEntry entry = it.next();
-          if (_RaftMapper.append(entry)) {
-            _SelfMachine.accept(entry.index(), entry.term());
-            _Logger.debug("follower catch up %d@%d", entry.index(), entry.term());
+        List<LogEntry> batch = new ArrayList<>(_RecvLogQueue.size());
+        for (LogEntry entry : _RecvLogQueue) {
+          // 已存在的 index 跳过，其余整批落盘
+          if (entry.index() > _RaftMapper.getEndIndex()) {
+            batch.add(entry);
           }
-          it.remove();
         }
+        _RecvLogQueue.clear();
+        acceptAll(batch);
         break CHECK;
       } else if (_SelfMachine.index() == 0 && preIndex == 0) {
         // 初始态，raft-machine 中不包含任何 log 记录
@@ -1058,13 +1284,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
         _Logger.debug("follower empty,accept leader's at all");
 
         // 刚好follow是空的, leader投过来的数据就接收了
-        LogEntry entry;
-        // mapper.append false的状态包含了, _LogQueue.empty的情况
-        while (_RaftMapper.append(entry = _LogQueue.poll())) {
-          assert entry != null; // 其实没用,mapper.append的结果已经保障了entry != null
-          _SelfMachine.accept(entry.index(), entry.term());
-          _Logger.debug("follower catch up %d@%d", entry.index(), entry.term());
-        }
+        acceptAll(drain(_LogQueue));
       }
       return true;
     } else {
@@ -1074,12 +1294,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
       if (rollback != null) {
         _SelfMachine.rollBack(rollback.index(), rollback.term(), _RaftMapper);
         _Logger.debug("machine rollback %d@%d", rollback.index(), rollback.term());
-        LogEntry entry;
-        while (_RaftMapper.append(entry = _LogQueue.poll())) {
-          assert entry != null;
-          _SelfMachine.accept(entry.index(), entry.term());
-          _Logger.debug("follower catch up %d@%d", entry.index(), entry.term());
-        }
+        acceptAll(drain(_LogQueue));
         return true;
       }
       // rollback == null
@@ -1092,6 +1307,31 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return false;
   }
 
+  private List<LogEntry> drain(Queue<LogEntry> queue) {
+    List<LogEntry> batch = new ArrayList<>(queue.size());
+    for (LogEntry entry; (entry = queue.poll()) != null; ) {
+      batch.add(entry);
+    }
+    return batch;
+  }
+
+  /** 整批追加后只接受成功落盘的前缀 */
+  private void acceptAll(List<LogEntry> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    int appended = _RaftMapper.append(batch);
+    for (int i = 0; i < appended; i++) {
+      LogEntry entry = batch.get(i);
+      _SelfMachine.accept(entry.index(), entry.term());
+    }
+    if (appended > 0) {
+      _Logger.debug(
+          "follower catch up %d@%d, batch %d",
+          batch.get(appended - 1).index(), batch.get(appended - 1).term(), appended);
+    }
+  }
+
   public List<ITriple> turnDown(IRaftMachine update) {
     CHECK:
     {
@@ -1108,6 +1348,11 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   }
 
   public List<ITriple> logAppend(IRaftMachine update, IManager manager) {
+    if (update.operation() == OP_MODIFY) {
+      // leader 本地落盘完成的唤醒，不是心跳；提交在本批次结束时的 onBatchComplete 中完成
+      return null;
+    }
+    compactLog();
     if (_SelfMachine.peer() == update.peer()
         && _SelfMachine.term() >= update.term()
         && _SelfMachine.index() >= update.index()
@@ -1125,14 +1370,42 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   }
 
   public List<ITriple> onSubmit(IoSerial request, IManager manager, long origin, int factory) {
+    if (factory == ProposalBatch.BATCH_FACTORY && request instanceof LogEntry proposal) {
+      // client 已打包的批次直接作为一条日志，先提交之前缓存的请求保持顺序
+      List<ITriple> proposals = submitProposals(manager);
+      List<ITriple> responses = submit(proposal.payload(), origin, factory, manager);
+      if (proposals == null || responses == null) {
+        return proposals == null ? responses : proposals;
+      }
+      List<ITriple> merged = new LinkedList<>(proposals);
+      merged.addAll(responses);
+      return merged;
+    }
+    if (_ProposalBatchMax > 1) {
+      // 合并到批次结束或达到上限时作为一条日志提交
+      _Proposals.add(_SelfMachine.peer(), origin, factory, request.encoded());
+      return _Proposals.size() >= _ProposalBatchMax ? submitProposals(manager) : null;
+    }
+    return submit(request.encoded(), origin, factory, manager);
+  }
+
+  private List<ITriple> submitProposals(IManager manager) {
+    LogEntry proposal = _Proposals.drain();
+    return proposal == null
+        ? null
+        : submit(proposal.payload(), proposal.origin(), proposal.factory(), manager);
+  }
+
+  private List<ITriple> submit(byte[] payload, long origin, int factory, IManager manager) {
     switch (RaftState.valueOf(_SelfMachine.state())) {
       case LEADER -> {
         List<ITriple> responses =
-            leaderAppend(request.encoded(), _SelfMachine.peer(), origin, factory, manager);
+            leaderAppend(payload, _SelfMachine.peer(), origin, factory, manager);
         if (responses == null) {
           stepDown(_SelfMachine.term());
           return null;
         } else {
+          bindFutures(_SelfMachine.index(), origin, factory, payload);
           return responses;
         }
       }
@@ -1146,26 +1419,74 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
               _SelfMachine.leader(),
               origin);
           X75_RaftReq x75 = new X75_RaftReq(generateId());
-          x75.withSub(request);
+          x75.withSub(payload);
           x75.origin(origin);
           x75.factory(factory);
           x75.client(_SelfMachine.peer());
           x75.with(session);
+          forwardFutures(x75.msgId(), origin, factory, payload);
           return Collections.singletonList(Triple.of(x75, session, session.encoder()));
         } else {
           _Logger.error("Leader connection miss,wait for reconnecting");
+          abortFutures("leader connection miss");
         }
       }
       default -> {
         _Logger.error(
             "cluster is electing self[%#x]→ %s",
             _SelfMachine.peer(), RaftState.roleOf(_SelfMachine.state()));
+        abortFutures("cluster is electing");
         return null;
       }
     }
     return null;
   }
 
+  /** leader 本地提交的请求转入 index 等待表，批次中的每个 origin 都可能在等待 */
+  private void bindFutures(long index, long origin, int factory, byte[] payload) {
+    if (!_Futures.hasPending()) {
+      return;
+    }
+    _Futures.bind(index, origin);
+    if (factory == ProposalBatch.BATCH_FACTORY) {
+      LogEntry batch =
+          new LogEntry(index, _SelfMachine.term(), _SelfMachine.peer(), origin, factory, payload);
+      for (LogEntry entry : ProposalBatch.split(batch)) {
+        _Futures.bind(index, entry.origin());
+      }
+    }
+  }
+
+  /** 转发的批量提案以请求编号记录其中的 origin，leader 拒绝时只结束本批次的等待 */
+  private void forwardFutures(long reqId, long origin, int factory, byte[] payload) {
+    if (factory != ProposalBatch.BATCH_FACTORY || !_Futures.hasPending()) {
+      return;
+    }
+    LogEntry batch = new LogEntry(0, 0, _SelfMachine.peer(), origin, factory, payload);
+    _Futures.forward(
+        reqId, ProposalBatch.split(batch).stream().mapToLong(LogEntry::origin).toArray());
+  }
+
+  /** 完成 leader notify 回来的本节点请求 */
+  private void completeFutures(LogEntry entry) {
+    if (entry == null || !_Futures.hasPending()) {
+      return;
+    }
+    _Futures.complete(entry.origin(), entry.index());
+    if (ProposalBatch.isBatch(entry)) {
+      for (LogEntry sub : ProposalBatch.split(entry)) {
+        _Futures.complete(sub.origin(), sub.index());
+      }
+    }
+  }
+
+  private void abortFutures(String reason) {
+    int aborted = _Futures.abort(new ZException("raft client submit aborted: %s", reason));
+    if (aborted > 0) {
+      _Logger.warn("%s, abort %d pending submit", reason, aborted);
+    }
+  }
+
   public ITriple onRequest(X75_RaftReq x75, IManager manager, ISession session) {
     if (_SelfMachine.isInState(LEADER)) {
       List<ITriple> appends =
@@ -1191,11 +1512,25 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
 
   // client receive x76
   public ITriple onResponse(X76_RaftResp x76) {
+    ZException cause =
+        x76.code() == SUCCESS.getCode()
+            ? null
+            : new ZException("leader reject submit, code %d", x76.code());
+    // 被合并进批次的请求 origin 为节点编号，按请求编号找回批次中的 origin
+    int failed = _Futures.respond(x76.msgId(), x76.origin(), cause);
+    if (failed > 0) {
+      _Logger.warn("leader reject submit %#x, code %d, fail %d", x76.msgId(), x76.code(), failed);
+    }
     return Triple.of(null, x76, NULL);
   }
 
   public ITriple onNotify(X77_RaftNotify x77) {
     _Logger.debug("client[%#x] onNotify", _SelfMachine.peer());
+    LogEntry entry = x77.deserializeSub(LogEntry::new);
+    completeFutures(entry);
+    if (ProposalBatch.isBatch(entry)) {
+      return Triple.of(null, createNotifies(entry), NULL);
+    }
     return Triple.of(null, x77, NULL);
   }
 
@@ -1646,7 +1981,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     x81.with(session);
 
     // 发送请求
-    mClusterNode.send(session, SINGLE, x81);
+    send(session, x81);
 
     _Logger.debug("Sent transfer request to %#x", targetPeer);
     return true;
@@ -1830,7 +2165,11 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
             _SelfMachine.index() + 1, _SelfMachine.term(), client, origin, factory, payload);
     _Logger.debug("leader append new log {%s}", newEntry);
     if (_RaftMapper.append(newEntry)) {
-      _SelfMachine.accept(newEntry.index(), newEntry.term());
+      _LogTail.put(newEntry);
+      // 不等待本地 fsync 即向 follower 复制，accept 在落盘后由 selfDurable 推进
+      _SelfMachine.index(newEntry.index());
+      _SelfMachine.indexTerm(newEntry.term());
+      selfDurable();
       _Logger.debug("leader appended log %d@%d", newEntry.index(), newEntry.term());
       return followersAppend(RaftGraph.join(_SelfMachine.peer(), _SelfGraph, _JointGraph), manager);
     }
@@ -1988,7 +2327,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     if (nextIndex <= _SelfMachine.index()) {
       X72_RaftAppend append = createAppend(peer, -1, true);
       if (append != null) {
-        mClusterNode.send(session, SINGLE, append);
+        send(session, append);
         recordInflight(append, peerId);
 
         _Logger.debug(
@@ -2048,7 +2387,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
         return null;
       }
       // preIndex < self.index && preIndex >= 0
-      ListSerial<LogEntry> entryList = new ListSerial<>(LogEntry::new);
+      List<byte[]> entryList = new ArrayList<>();
       long next = preIndex + 1; // next >= 1
       if (next > MIN_START) {
         if (next > _SelfMachine.index()) {
@@ -2086,18 +2425,24 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
         x72.preIndex(0);
         x72.preIndexTerm(0);
       }
-      for (long end = _SelfMachine.index(), payloadSize = 0;
+      int payloadSize = 0;
+      for (long end = _SelfMachine.index();
           next <= end && payloadSize < _SnapshotFragmentMaxSize;
           next++) {
         if (limit > 0 && entryList.size() >= limit) {
           break;
         }
-        LogEntry nextLog = _RaftMapper.getEntry(next);
-        _Logger.debug("leader → acceptor:%s", nextLog);
-        entryList.add(nextLog);
-        payloadSize += nextLog.sizeOf();
+        // 落后不多的 follower 直接复用缓存的编码，超出缓存范围才查找 segment
+        byte[] encoded = _LogTail.get(next);
+        if (encoded == null) {
+          LogEntry nextLog = _RaftMapper.getEntry(next);
+          _Logger.debug("leader → acceptor:%s", nextLog);
+          encoded = nextLog.encoded();
+        }
+        entryList.add(encoded);
+        payloadSize += encoded.length;
       }
-      x72.withSub(entryList);
+      x72.withSub(LogTail.pack(entryList, payloadSize));
       _Logger.debug(
           "leader → acceptor[ %#x ] %d@%d with %d",
           x72.peer(), x72.index(), x72.indexTerm(), entryList.size());
@@ -2105,11 +2450,93 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return x72;
   }
 
+  /** 不经过 ClusterProcessor 直接发送的指令，Multi-Raft 下同样封装进分组信封 */
+  private void send(ISession session, IProtocol output) {
+    if (_RaftConfig.getGroups() > 1) {
+      X85_RaftGroup x85 = new X85_RaftGroup(generateId()).append(_Group, output);
+      x85.with(session);
+      output = x85;
+    }
+    mClusterNode.send(session, SINGLE, output);
+  }
+
   private Triple<IProtocol, ISession, IPipeEncoder> map(IProtocol source) {
     // source 一定持有 session 在上一步完成了这个操作。
     return Triple.of(source, source.session(), source.session().encoder());
   }
 
+  /**
+   * ClusterProcessor 批次结束，本批次合并的一致性请求作为一条日志提交，写入的日志合并为一次刷盘； leader 登记落盘回调，fsync 完成后经 CLUSTER_TIMER
+   * 唤醒共识线程提交。处理器每次空轮询都会回调，自上次以来没有写入日志时直接返回。
+   *
+   * <p>刷盘失败是终态：已写入的日志不再保证持久化，leader 退位且不再参与选举
+   *
+   * @return fst: 批量提案的复制与 {@link #onDurable(IManager)} 的 notify, snd: 交回 link 的 notify
+   */
+  public ITriple onBatchComplete(IManager manager) {
+    List<ITriple> proposals = submitProposals(manager);
+    long index = _SelfMachine.index();
+    if (index == mBatchIndex
+        && (proposals == null || proposals.isEmpty())
+        && !isDurablePending()) {
+      return null;
+    }
+    mBatchIndex = index;
+    _RaftMapper.groupCommit();
+    if (_RaftMapper.isFlushFailed()) {
+      _Logger.error("log fsync failed @%d, stop advancing accept", index);
+      if (_SelfMachine.isInState(LEADER)) {
+        stepDown();
+      }
+      return proposals == null || proposals.isEmpty()
+          ? null
+          : Triple.of(proposals, null, BATCH);
+    }
+    ITriple durable = _SelfMachine.isInState(LEADER) ? leaderDurable(manager) : null;
+    if (proposals == null || proposals.isEmpty()) {
+      return durable;
+    }
+    List<ITriple> responses = new LinkedList<>(proposals);
+    if (durable != null && durable.getThird() == BATCH) {
+      List<ITriple> notifies = durable.getFirst();
+      responses.addAll(notifies);
+    }
+    return Triple.of(responses, durable == null ? null : durable.getSecond(), BATCH);
+  }
+
+  /** leader 已有落盘完成但尚未计入 accept 的日志，由 OP_MODIFY 唤醒后在批次结束时提交 */
+  private boolean isDurablePending() {
+    return _SelfMachine.isInState(LEADER)
+        && Math.min(_RaftMapper.getFlushedIndex(), _SelfMachine.index()) > _SelfMachine.accept();
+  }
+
+  /** leader 登记本批次日志的落盘回调，并提交已落盘的日志 */
+  private ITriple leaderDurable(IManager manager) {
+    long index = _SelfMachine.index();
+    if (index > _SelfMachine.accept() && index > mDurableWaiting) {
+      CompletableFuture<Boolean> flushed = _RaftMapper.awaitFlushed(index);
+      // 已完成的 future 会在共识线程上回调，直接由下面的 onDurable 处理
+      if (!flushed.isDone()) {
+        mDurableWaiting = index;
+        // OP_MODIFY 区别于心跳的 OP_APPEND
+        RaftMachine update = RaftMachine.createBy(_SelfMachine.peer(), OP_MODIFY);
+        update.from(_SelfMachine);
+        update.approve(LEADER);
+        flushed.thenAccept(
+            success -> {
+              if (success) {
+                timeTrigger(update);
+              } else {
+                // 落盘失败后 accept 不再推进，退位交由其他节点继续提交
+                _Logger.error("leader log fsync failed @%d, step down", index);
+                stepDown();
+              }
+            });
+      }
+    }
+    return onDurable(manager);
+  }
+
   @Override
   public boolean isInCongress() {
     return RaftState.isInCongress(_SelfMachine.state());
@@ -2120,6 +2547,10 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return _SelfMachine.peer();
   }
 
+  public int group() {
+    return _Group;
+  }
+
   @Override
   public long generateId() {
     return _ZUid.getId();
@@ -2139,6 +2570,10 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
   }
 
   private <T> void trigger(T delta, OperateType type) {
+    publish(type, Pair.of(this, delta));
+  }
+
+  private void publish(OperateType type, Pair<?, ?> content) {
     final RingBuffer<QEvent> _Publisher = mClusterNode.selectPublisher(type);
     final ReentrantLock _Lock = mClusterNode.selectLock(type);
     _Lock.lock();
@@ -2146,7 +2581,7 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
       long sequence = _Publisher.next();
       try {
         QEvent event = _Publisher.get(sequence);
-        event.produce(type, Pair.of(this, delta), null);
+        event.produce(type, content, null);
       } finally {
         _Publisher.publish(sequence);
       }
@@ -2155,6 +2590,52 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     }
   }
 
+  @Override
+  public <T extends IoSerial> void submit(T content) {
+    submitAsync(content);
+  }
+
+  @Override
+  public CompletableFuture<Long> submitAsync(IoSerial content) {
+    long origin = content instanceof ITraceable traceable ? traceable.origin() : generateId();
+    return submit(content, origin, content.serial());
+  }
+
+  @Override
+  public CompletableFuture<Long> submitBatch(List<? extends IoSerial> contents) {
+    if (contents.size() == 1) {
+      return submitAsync(contents.get(0));
+    }
+    long origin = generateId();
+    ProposalBatch batch = new ProposalBatch();
+    for (IoSerial content : contents) {
+      batch.add(_SelfMachine.peer(), origin, content.serial(), content.encoded());
+    }
+    return submit(batch.drain(origin), origin, ProposalBatch.BATCH_FACTORY);
+  }
+
+  /** 登记等待后经 CONSISTENT_SERVICE 交给共识线程，与 link 的一致性请求走同一路径 */
+  private CompletableFuture<Long> submit(IoSerial request, long origin, int factory) {
+    if (mClusterNode == null || !isInCongress()) {
+      return CompletableFuture.failedFuture(new ZException("raft client isn't in congress"));
+    }
+    RaftPeer peer =
+        mGroupPeers == null ? this : mGroupPeers[RaftGroups.groupOf(origin, mGroupPeers.length)];
+    CompletableFuture<Long> future = peer._Futures.register(origin);
+    publish(CONSISTENT_SERVICE, Pair.of(request, Pair.of(origin, factory)));
+    return future;
+  }
+
+  /** leader 追赶复制时日志缓存的命中率 */
+  public double logTailHitRate() {
+    return _LogTail.hitRate();
+  }
+
+  /** 多 raft 组时异步提交的等待登记在请求所属组 */
+  void joinGroups(RaftPeer[] peers) {
+    mGroupPeers = peers;
+  }
+
   @Override
   public void topology(RaftNode delta) {
     trigger(delta, OperateType.CLUSTER_TOPOLOGY);
@@ -2170,6 +2651,18 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return _RaftConfig.getPeers().values();
   }
 
+  /** 批量提案的日志拆分为逐个请求的 notify，交回 link 按各自的 origin 应答 */
+  private List<X77_RaftNotify> createNotifies(LogEntry raftLog) {
+    if (!ProposalBatch.isBatch(raftLog)) {
+      return Collections.singletonList(createNotify(raftLog));
+    }
+    List<X77_RaftNotify> notifies = new ArrayList<>();
+    for (LogEntry entry : ProposalBatch.split(raftLog)) {
+      notifies.add(createNotify(entry));
+    }
+    return notifies;
+  }
+
   private X77_RaftNotify createNotify(LogEntry raftLog) {
     if (raftLog != null) {
       X77_RaftNotify x77 = new X77_RaftNotify(_ZUid.getId());
@@ -2339,88 +2832,92 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
 
   // ==================== Snapshot 安装 ====================
 
-  /** 处理 Leader 发来的 Snapshot 分片 */
+  /** 处理 Leader 发来的 Snapshot 分片，按偏移顺序写入暂存文件，最后一片到达时原子替换并恢复状态机 */
   public ITriple onSnapshot(X7D_RaftSnapshot x7d, ISession session) {
     // 检查任期
     if (x7d.term() < _SelfMachine.term()) {
       _Logger.debug("snapshot rejected: lower term %d < %d", x7d.term(), _SelfMachine.term());
-      return Triple.of(snapshotAck(x7d, false, "lower term"), null, SINGLE);
+      return Triple.of(
+          snapshotAck(x7d, false, x7d.offset(), "lower term").with(session), null, SINGLE);
     }
-
     if (x7d.term() > _SelfMachine.term()) {
       stepDown(x7d.term());
     }
+    // 传输期间 leader 不再发送 append，分片同样视为心跳
+    tickCancel();
+    _SelfMachine.follow(x7d.term(), x7d.leader(), _RaftMapper);
+    mTickTask = _TimeWheel.acquire(this, _TickSchedule);
 
-    // 检查是否正在安装 snapshot
-    if (!_InstallingSnapshot) {
-      // 开始新的 snapshot 安装
-      _InstallingSnapshot = true;
-      _SnapshotLeader = x7d.leader();
-      _Logger.info(
-          "start installing snapshot from leader %#x, lastIndex=%d@%d",
-          x7d.leader(), x7d.lastIncludeIndex(), x7d.lastIncludeTerm());
-    } else if (_SnapshotLeader != x7d.leader()) {
-      // 正在从其他 leader 安装，拒绝
-      return Triple.of(snapshotAck(x7d, false, "installing from another leader"), null, SINGLE);
-    }
-
-    _SnapshotLock.lock();
+    SnapshotStore store = _RaftMapper.getSnapshotStore();
+    long index = x7d.lastIncludeIndex();
+    long term = x7d.lastIncludeTerm();
     try {
-      // 应用 snapshot 数据到状态机
-      boolean success = installSnapshotChunk(x7d);
-
-      if (success && x7d.done()) {
-        // 最后一个分片，完成安装
+      if (!store.isInstalling(index, term) || _SnapshotLeader != x7d.leader()) {
+        if (x7d.offset() != 0) {
+          // 安装已中断，要求从头发送
+          return Triple.of(
+              snapshotAck(x7d, false, 0, "no installing snapshot").with(session), null, SINGLE);
+        }
+        store.beginInstall(index, term);
+        _SnapshotLeader = x7d.leader();
         _Logger.info(
-            "snapshot installation completed, lastIndex=%d@%d",
-            x7d.lastIncludeIndex(), x7d.lastIncludeTerm());
-
-        // 更新本地状态
-        _SelfMachine.term(x7d.term());
-        _SelfMachine.index(x7d.lastIncludeIndex());
-        _SelfMachine.indexTerm(x7d.lastIncludeTerm());
-        _SelfMachine.commit(x7d.lastIncludeIndex());
-        _SelfMachine.accept(x7d.lastIncludeIndex(), x7d.lastIncludeTerm());
-
-        // 更新 mapper
-        _RaftMapper.updateSnapshotMeta(x7d.lastIncludeIndex(), x7d.lastIncludeTerm());
-        _RaftMapper.truncatePrefix(x7d.lastIncludeIndex() + 1);
-
-        _InstallingSnapshot = false;
+            "start installing snapshot from leader %#x, lastIndex=%d@%d size:%d",
+            x7d.leader(), index, term, x7d.totalSize());
+      }
+      if (!store.writeChunk(x7d.offset(), x7d.data())) {
+        return Triple.of(
+            snapshotAck(x7d, false, store.installOffset(), "out of order").with(session),
+            null,
+            SINGLE);
+      }
+      long next = store.installOffset();
+      if (x7d.done()) {
+        store.completeInstall();
         _SnapshotLeader = INVALID_PEER_ID;
+        installSnapshot(index, term);
+        _Logger.info("snapshot installation completed, lastIndex=%d@%d", index, term);
       }
-
-      return Triple.of(snapshotAck(x7d, success, null), null, SINGLE);
-    } finally {
-      _SnapshotLock.unlock();
+      return Triple.of(snapshotAck(x7d, true, next, null).with(session), null, SINGLE);
+    } catch (IOException e) {
+      _Logger.warn("install snapshot %d@%d failed", e, index, term);
+      _SnapshotLeader = INVALID_PEER_ID;
+      try {
+        store.abortInstall();
+      } catch (IOException ex) {
+        _Logger.warn("abort snapshot install failed", ex);
+      }
+      return Triple.of(snapshotAck(x7d, false, 0, e.getMessage()).with(session), null, SINGLE);
     }
   }
 
-  /** 安装 snapshot 分片到本地存储 */
-  private boolean installSnapshotChunk(X7D_RaftSnapshot chunk) {
-    try {
-      byte[] data = chunk.data();
-      if (data == null || data.length == 0) {
-        return true; // 空数据也算成功
+  /** 以快照替换状态机并裁剪本地日志 */
+  private void installSnapshot(long index, long term) throws IOException {
+    SnapshotStore store = _RaftMapper.getSnapshotStore();
+    if (mSnapshotMachine != null) {
+      try (InputStream input = store.open(index, term)) {
+        mSnapshotMachine.restore(index, term, input);
       }
-
-      // 将数据写入 snapshot 存储
-      _RaftMapper.getSnapshot().withSub(data);
-
-      _Logger.debug("snapshot chunk installed: offset=%d, size=%d", chunk.offset(), data.length);
-      return true;
-    } catch (Exception e) {
-      _Logger.warn("failed to install snapshot chunk: %s", e);
-      return false;
+    }
+    _RaftMapper.applySnapshot(index, term);
+    store.retain(index, term);
+    _RecvLogQueue.clear();
+    if (_SelfMachine.index() < index) {
+      _SelfMachine.accept(index, term);
+    }
+    if (_SelfMachine.commit() < index) {
+      _SelfMachine.commit(index);
     }
   }
 
+  /**
+   * @param offset follower 期望的下一分片偏移
+   */
   private X7E_RaftSnapshotAck snapshotAck(
-      X7D_RaftSnapshot snapshot, boolean success, String errorMsg) {
+      X7D_RaftSnapshot snapshot, boolean success, long offset, String errorMsg) {
     X7E_RaftSnapshotAck ack = new X7E_RaftSnapshotAck();
     ack.peer(_SelfMachine.peer());
     ack.term(_SelfMachine.term());
-    ack.offset(snapshot.offset());
+    ack.offset(offset);
     ack.lastIncludeIndex(snapshot.lastIncludeIndex());
     ack.success(success);
     if (errorMsg != null) {
@@ -2429,29 +2926,54 @@ public class RaftPeer implements IValid, IRaftService, IClusterTimer {
     return ack;
   }
 
-  /** 处理 Snapshot 安装响应 (Leader 端) */
-  public ITriple onSnapshotAck(X7E_RaftSnapshotAck x7e) {
+  /** 处理 Snapshot 分片确认 (Leader 端)，推进窗口并发送后续分片 */
+  public ITriple onSnapshotAck(X7E_RaftSnapshotAck x7e, IManager manager) {
+    if (x7e.term() > _SelfMachine.term()) {
+      _SnapshotTransfers.remove(x7e.peer());
+      stepDown(x7e.term());
+      return null;
+    }
     if (!_SelfMachine.isInState(LEADER)) {
       return null;
     }
-
-    if (x7e.term() > _SelfMachine.term()) {
-      stepDown(x7e.term());
+    SnapshotTransfer transfer = _SnapshotTransfers.get(x7e.peer());
+    if (transfer == null || transfer.index != x7e.lastIncludeIndex()) {
+      // 过期的确认
       return null;
     }
-
-    if (x7e.success()) {
-      _Logger.debug("snapshot ack from %#x: offset=%d", x7e.peer(), x7e.offset());
-      // 更新 follower 的匹配索引
+    transfer.updateTime = System.currentTimeMillis();
+    if (!x7e.success()) {
+      _Logger.warn(
+          "snapshot failed on %#x: %s, resend from %d", x7e.peer(), x7e.errorMsg(), x7e.offset());
+      transfer.acked = transfer.sent = Math.min(x7e.offset(), transfer.size);
+      transfer.finished = false;
+    } else if (transfer.finished && x7e.offset() >= transfer.size) {
+      _SnapshotTransfers.remove(x7e.peer());
       IRaftMachine machine = getMachine(_SelfGraph, x7e.peer());
+      if (machine == null) {
+        machine = _LearnerManager.getLearner(x7e.peer());
+      }
       if (machine != null) {
-        machine.matchIndex(x7e.lastIncludeIndex());
-        machine.index(x7e.lastIncludeIndex());
+        machine.index(transfer.index);
+        machine.indexTerm(transfer.term);
+        machine.matchIndex(transfer.index);
       }
+      _Logger.info("snapshot %d@%d installed on %#x", transfer.index, transfer.term, x7e.peer());
+      return null;
     } else {
-      _Logger.warn("snapshot failed on %#x: %s", x7e.peer(), x7e.errorMsg());
+      transfer.acked = Math.max(transfer.acked, x7e.offset());
     }
-    return null;
+    ISession session = manager.fairLoadSessionByPrefix(x7e.peer());
+    if (session == null) {
+      return null;
+    }
+    List<X7D_RaftSnapshot> chunks = snapshotChunks(x7e.peer(), transfer, session);
+    if (chunks == null || chunks.isEmpty()) {
+      return null;
+    }
+    return chunks.size() == 1
+        ? Triple.of(chunks.get(0), null, SINGLE)
+        : Triple.of(chunks, null, BATCH);
   }
 
   // ==================== ReadIndex 机制 ====================
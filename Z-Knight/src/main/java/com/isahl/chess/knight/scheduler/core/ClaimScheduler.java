@@ -42,16 +42,19 @@ public class ClaimScheduler implements TaskScheduler {
   private final SubTaskRepository _SubTaskRepository;
   private final TaskPool _TaskPool;
   private final ResultAggregator _ResultAggregator;
+  private final DeadlineIndex _DeadlineIndex;
 
   public ClaimScheduler(
       TaskRepository taskRepository,
       SubTaskRepository subTaskRepository,
       TaskPool taskPool,
-      ResultAggregator resultAggregator) {
+      ResultAggregator resultAggregator,
+      DeadlineIndex deadlineIndex) {
     _TaskRepository = taskRepository;
     _SubTaskRepository = subTaskRepository;
     _TaskPool = taskPool;
     _ResultAggregator = resultAggregator;
+    _DeadlineIndex = deadlineIndex;
   }
 
   @Override
@@ -68,6 +71,7 @@ public class ClaimScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     _Logger.info(
         "DispatchScheduler: Created dispatch task {} for {} nodes", taskId, targetNodes.size());
@@ -88,6 +92,7 @@ public class ClaimScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     _Logger.info(
         "ClaimScheduler: Created claim task {} with {} subTasks in pool", taskId, subTaskCount);
@@ -138,6 +143,7 @@ public class ClaimScheduler implements TaskScheduler {
                 .collect(Collectors.toList());
         task.setAggregatedResult(_ResultAggregator.aggregate(entries));
         task.setStatus(TaskStatus.COMPLETE);
+        _DeadlineIndex.unwatch(task.getTaskId());
         _Logger.info("Task {} completed", task.getTaskId());
       } else if (task.hasFailures()) {
         task.setStatus(TaskStatus.PARTIAL_COMPLETE);
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.knight.scheduler.core;
+
+import com.isahl.chess.king.base.cron.ScheduleHandler;
+import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.king.base.cron.features.ICancelable;
+import com.isahl.chess.king.base.features.IValid;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 运行中 task 的截止时刻索引：每个 task 在时间轮上挂一个到期回调，分发时登记、完成时撤销， 到期即触发而无需周期性扫表。
+ *
+ * <p>同一时刻附近到期的 task 合并为一批交给 {@link #onExpired(Consumer)} 登记的处理方。处理方会查库并发起重试，
+ * 在独立的单线程上执行；时间轮的工作线程同时驱动 raft 选举/心跳与 session 保活，到期回调只入队不阻塞。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+@Component
+public class DeadlineIndex {
+  private static final Logger _Logger = LoggerFactory.getLogger(DeadlineIndex.class);
+
+  private final TimeWheel _TimeWheel;
+  private final Map<String, Deadline> _Deadlines = new ConcurrentHashMap<>();
+  private final Queue<String> _Expired = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean _Draining = new AtomicBoolean();
+  private final ExecutorService _Handler =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread thread = new Thread(r, "deadline-expired");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private volatile Consumer<List<String>> vExpiredHandler;
+
+  public DeadlineIndex(TimeWheel timeWheel) {
+    _TimeWheel = timeWheel;
+  }
+
+  public void onExpired(Consumer<List<String>> handler) {
+    vExpiredHandler = handler;
+  }
+
+  /** 登记或更新 task 的截止时刻，deadline 为 null 表示不超时 */
+  public void watch(String taskId, Instant deadline) {
+    if (deadline == null) {
+      return;
+    }
+    long delay = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+    Deadline attach = new Deadline(taskId);
+    // 先入索引再挂时间轮，立即到期的回调也能在索引中找到自己
+    Deadline previous = _Deadlines.put(taskId, attach);
+    if (previous != null) {
+      previous.cancel();
+    }
+    attach.vCancelable =
+        _TimeWheel.acquire(attach, new ScheduleHandler<>(Duration.ofMillis(delay), this::expire));
+  }
+
+  public void unwatch(String taskId) {
+    Deadline deadline = _Deadlines.remove(taskId);
+    if (deadline != null) {
+      deadline.cancel();
+    }
+  }
+
+  public int size() {
+    return _Deadlines.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    _Handler.shutdown();
+  }
+
+  private void expire(Deadline deadline) {
+    // 到期前已被撤销或重新登记的忽略
+    if (_Deadlines.remove(deadline._TaskId, deadline)) {
+      _Expired.offer(deadline._TaskId);
+      if (_Draining.compareAndSet(false, true)) {
+        _Handler.execute(this::drain);
+      }
+    }
+  }
+
+  /** 在处理线程上取走当前累积的全部到期 task，处理期间新到期的合入下一批 */
+  private void drain() {
+    do {
+      List<String> batch = new ArrayList<>();
+      try {
+        for (String taskId; (taskId = _Expired.poll()) != null; ) {
+          batch.add(taskId);
+        }
+        Consumer<List<String>> handler = vExpiredHandler;
+        if (handler != null && !batch.isEmpty()) {
+          handler.accept(batch);
+        }
+      } catch (Exception e) {
+        _Logger.warn("handle expired tasks {} failed", batch, e);
+      } finally {
+        _Draining.set(false);
+      }
+      // 清标记前入队的到期 task 由本线程继续处理
+    } while (!_Expired.isEmpty() && _Draining.compareAndSet(false, true));
+  }
+
+  private static class Deadline implements IValid {
+    private final String _TaskId;
+    private volatile ICancelable vCancelable;
+
+    private Deadline(String taskId) {
+      _TaskId = taskId;
+    }
+
+    private void cancel() {
+      ICancelable cancelable = vCancelable;
+      if (cancelable != null) {
+        cancelable.cancel();
+      }
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,14 +42,17 @@ public class DispatchScheduler implements TaskScheduler {
   private final TaskRepository _TaskRepository;
   private final SubTaskRepository _SubTaskRepository;
   private final ResultAggregator _ResultAggregator;
+  private final DeadlineIndex _DeadlineIndex;
 
   public DispatchScheduler(
       TaskRepository taskRepository,
       SubTaskRepository subTaskRepository,
-      ResultAggregator resultAggregator) {
+      ResultAggregator resultAggregator,
+      DeadlineIndex deadlineIndex) {
     _TaskRepository = taskRepository;
     _SubTaskRepository = subTaskRepository;
     _ResultAggregator = resultAggregator;
+    _DeadlineIndex = deadlineIndex;
   }
 
   @Override
@@ -66,6 +70,7 @@ public class DispatchScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     for (SubTask st : subTasks) {
       sendToNode(st.getTargetNode(), st);
@@ -88,6 +93,7 @@ public class DispatchScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     _Logger.info("Created claim task {} with {} subTasks", taskId, subTaskCount);
     return task;
@@ -96,44 +102,44 @@ public class DispatchScheduler implements TaskScheduler {
   @Override
   @Transactional
   public Optional<SubTask> claimSubTasks(String nodeId, int maxCount) {
-    List<SubTask> pending = _SubTaskRepository.findByStatus(SubTaskStatus.PENDING);
-    if (pending.isEmpty()) {
-      return Optional.empty();
-    }
+    return claimBatch(nodeId, 1).stream().findFirst();
+  }
 
-    int toClaim = Math.min(maxCount, pending.size());
-    SubTask claimed = pending.get(0);
-    claimed.setTargetNode(nodeId);
-    claimed.markRunning();
-    _SubTaskRepository.save(claimed);
+  /** SKIP LOCKED 锁定至多 maxCount 个 PENDING subTask，并发认领的节点不会拿到同一个 subTask */
+  @Transactional
+  public List<SubTask> claimBatch(String nodeId, int maxCount) {
+    List<SubTask> claimed =
+        _SubTaskRepository.lockByStatus(
+            SubTaskStatus.PENDING, PageRequest.of(0, Math.max(1, maxCount)));
+    for (SubTask st : claimed) {
+      st.setTargetNode(nodeId);
+      st.markRunning();
+    }
+    _SubTaskRepository.saveAll(claimed);
 
-    _Logger.info("Node {} claimed subTask {}", nodeId, claimed.getSubTaskId());
-    return Optional.of(claimed);
+    _Logger.info("Node {} claimed {} subTasks", nodeId, claimed.size());
+    return claimed;
   }
 
   @Override
   @Transactional
   public void reportResult(String subTaskId, String result, boolean success) {
-    List<SubTask> all = _SubTaskRepository.findAll();
-    SubTask subTask =
-        all.stream().filter(st -> st.getSubTaskId().equals(subTaskId)).findFirst().orElse(null);
-
+    SubTask subTask = _SubTaskRepository.findById(subTaskId).orElse(null);
     if (subTask == null) {
       _Logger.warn("SubTask {} not found for result report", subTaskId);
       return;
     }
-
-    if (success) {
-      subTask.markComplete(result);
-    } else {
-      subTask.markFailed();
+    String taskId = subTask.getTaskId();
+    if (!_SubTaskRepository.finish(subTaskId, result, success)) {
+      _Logger.warn("SubTask {} already finished, ignore repeated report", subTaskId);
+      return;
     }
-    _SubTaskRepository.save(subTask);
+    _TaskRepository.countResult(taskId, success ? 1 : 0, success ? 0 : 1);
 
-    Task task = _TaskRepository.findById(subTask.getTaskId()).orElse(null);
+    Task task = _TaskRepository.findById(taskId).orElse(null);
     if (task != null) {
-      task.addResult(subTaskId, result, success);
-      if (_ResultAggregator.canComplete(task)) {
+      // 计数未满时无需加载 subTask，全部结束时才逐个检查并聚合一次
+      if (task.isAllReported() && _ResultAggregator.canComplete(task)) {
         List<TaskResult.SubTaskResultEntry> entries =
             task.getSubTasks().stream()
                 .map(
@@ -146,8 +152,9 @@ public class DispatchScheduler implements TaskScheduler {
                 .collect(Collectors.toList());
         task.setAggregatedResult(_ResultAggregator.aggregate(entries));
         task.setStatus(TaskStatus.COMPLETE);
+        _DeadlineIndex.unwatch(task.getTaskId());
         _Logger.info("Task {} completed with aggregated result", task.getTaskId());
-      } else if (task.hasFailures()) {
+      } else if (task.getFailedCount() > 0) {
         task.setStatus(TaskStatus.PARTIAL_COMPLETE);
       }
       _TaskRepository.save(task);
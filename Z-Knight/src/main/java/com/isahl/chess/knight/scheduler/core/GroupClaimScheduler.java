@@ -42,16 +42,19 @@ public class GroupClaimScheduler implements TaskScheduler {
   private final SubTaskRepository _SubTaskRepository;
   private final TaskPool _TaskPool;
   private final ResultAggregator _ResultAggregator;
+  private final DeadlineIndex _DeadlineIndex;
 
   public GroupClaimScheduler(
       TaskRepository taskRepository,
       SubTaskRepository subTaskRepository,
       TaskPool taskPool,
-      ResultAggregator resultAggregator) {
+      ResultAggregator resultAggregator,
+      DeadlineIndex deadlineIndex) {
     _TaskRepository = taskRepository;
     _SubTaskRepository = subTaskRepository;
     _TaskPool = taskPool;
     _ResultAggregator = resultAggregator;
+    _DeadlineIndex = deadlineIndex;
   }
 
   @Override
@@ -68,6 +71,7 @@ public class GroupClaimScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     _Logger.info("GroupClaimScheduler: dispatch not primary mode");
     return task;
@@ -87,6 +91,7 @@ public class GroupClaimScheduler implements TaskScheduler {
 
     task.setStatus(TaskStatus.RUNNING);
     _TaskRepository.save(task);
+    _DeadlineIndex.watch(taskId, task.getDeadline());
 
     _Logger.info(
         "GroupClaimScheduler: Created claim task {} with {} subTasks in pool",
@@ -147,6 +152,7 @@ public class GroupClaimScheduler implements TaskScheduler {
                 .collect(Collectors.toList());
         task.setAggregatedResult(_ResultAggregator.aggregate(entries));
         task.setStatus(TaskStatus.COMPLETE);
+        _DeadlineIndex.unwatch(task.getTaskId());
         _Logger.info("Task {} completed", task.getTaskId());
       } else if (task.hasFailures()) {
         task.setStatus(TaskStatus.PARTIAL_COMPLETE);
@@ -23,6 +23,8 @@
 
 package com.isahl.chess.knight.scheduler.core;
 
+import com.isahl.chess.knight.scheduler.domain.SubTask;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +51,12 @@ public class RetryScheduler {
     }
   }
 
+  public void handleFailures(List<SubTask> subTasks, RetryStrategy strategy) {
+    for (SubTask st : subTasks) {
+      handleFailure(st.getSubTaskId(), st.getTargetNode(), strategy);
+    }
+  }
+
   private void handleEdgeRetry(String subTaskId, RetryContext ctx) {
     if (ctx.edgeRetryCount < ctx.config.maxRetries) {
       ctx.edgeRetryCount++;
@@ -26,83 +26,136 @@ package com.isahl.chess.knight.scheduler.core;
 import com.isahl.chess.knight.scheduler.domain.SubTask;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.springframework.stereotype.Component;
 
+/**
+ * 待认领 subTask 池：每个 group 一条并发 FIFO 队列，认领即 poll 队首，单次 O(1)； 不指定 group 的认领从非空 group 的就绪队列轮转取出，保证认领顺序确定且各
+ * group 公平。
+ *
+ * <p>group 排空即从池中移除，池的大小只与待认领的 group 数有关。release 的 subTask 回到未分组队列的队首，对认领方立即可见并优先被重新认领。
+ */
 @Component
 public class TaskPool {
-  private final ConcurrentHashMap<String, SubTask> _PendingTasks = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<String, Set<String>> _GroupTasks = new ConcurrentHashMap<>();
+  private static final String NO_GROUP = "";
+
+  private final ConcurrentHashMap<String, Group> _Groups = new ConcurrentHashMap<>();
+  private final Queue<Group> _Ready = new ConcurrentLinkedQueue<>();
+  private final Set<String> _Queued = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger _Pending = new AtomicInteger();
 
   public void addTask(SubTask task) {
-    _PendingTasks.put(task.getSubTaskId(), task);
     String groupId = task.getTargetNode();
-    if (groupId != null) {
-      _GroupTasks.computeIfAbsent(groupId, k -> ConcurrentHashMap.newKeySet())
-          .add(task.getSubTaskId());
-    }
+    offer(groupId == null ? NO_GROUP : groupId, task, false);
   }
 
   public Optional<SubTask> claim(String nodeId, int maxCount) {
-    List<String> keys = new ArrayList<>(_PendingTasks.keySet());
-    if (keys.isEmpty()) {
-      return Optional.empty();
-    }
-
-    String firstKey = keys.get(0);
-    SubTask task = _PendingTasks.remove(firstKey);
-    if (task != null) {
-      task.setTargetNode(nodeId);
-      return Optional.of(task);
-    }
-    return Optional.empty();
+    return Optional.ofNullable(next(nodeId));
   }
 
   public Optional<SubTask> claimFromGroup(String groupId, String nodeId, int maxCount) {
-    Set<String> groupTaskIds = _GroupTasks.get(groupId);
-    if (groupTaskIds == null || groupTaskIds.isEmpty()) {
-      return Optional.empty();
-    }
-
-    String firstId = groupTaskIds.iterator().next();
-    SubTask task = _PendingTasks.remove(firstId);
-    if (task != null) {
-      groupTaskIds.remove(task.getSubTaskId());
-      task.setTargetNode(nodeId);
-      return Optional.of(task);
-    }
-    return Optional.empty();
+    Group group = _Groups.get(groupId);
+    return group == null ? Optional.empty() : Optional.ofNullable(poll(group, nodeId));
   }
 
   public List<SubTask> claimBatch(String nodeId, int maxCount) {
-    List<SubTask> claimed = new ArrayList<>();
-    for (int i = 0; i < maxCount; i++) {
-      Optional<SubTask> task = claim(nodeId, 1);
-      if (task.isEmpty()) {
-        break;
-      }
-      claimed.add(task.get());
+    List<SubTask> claimed = new ArrayList<>(Math.min(maxCount, _Pending.get()));
+    for (SubTask task; claimed.size() < maxCount && (task = next(nodeId)) != null; ) {
+      claimed.add(task);
     }
     return claimed;
   }
 
   public void release(SubTask task) {
     task.setTargetNode(null);
-    _PendingTasks.put(task.getSubTaskId(), task);
+    offer(NO_GROUP, task, true);
   }
 
   public int getPendingCount() {
-    return _PendingTasks.size();
+    return _Pending.get();
   }
 
   public int getPendingCountByGroup(String groupId) {
-    Set<String> groupTaskIds = _GroupTasks.get(groupId);
-    if (groupTaskIds == null) {
-      return 0;
-    }
-    return groupTaskIds.size();
+    Group group = _Groups.get(groupId);
+    return group == null ? 0 : group._Size.get();
   }
 
   public Set<String> getAllGroups() {
-    return new HashSet<>(_GroupTasks.keySet());
+    Set<String> groups = new HashSet<>(_Groups.keySet());
+    groups.remove(NO_GROUP);
+    return groups;
+  }
+
+  /** 同一 subTask 在池中至多排队一次；入队与 group 的移除在同一 bin 锁内，不会落入已移除的 group */
+  private void offer(String groupId, SubTask task, boolean first) {
+    _Groups.compute(
+        groupId,
+        (k, group) -> {
+          if (group == null) {
+            group = new Group(k);
+          }
+          if (_Queued.add(task.getSubTaskId())) {
+            group._Size.incrementAndGet();
+            _Pending.incrementAndGet();
+            if (first) {
+              group._Queue.offerFirst(task);
+            } else {
+              group._Queue.offerLast(task);
+            }
+            schedule(group);
+          }
+          return group;
+        });
+  }
+
+  private void schedule(Group group) {
+    if (group._Scheduled.compareAndSet(false, true)) {
+      _Ready.offer(group);
+    }
+  }
+
+  /** 取就绪队首的 group 认领一个，仍有余量的 group 回到队尾 */
+  private SubTask next(String nodeId) {
+    for (Group group; (group = _Ready.poll()) != null; ) {
+      SubTask task = poll(group, nodeId);
+      group._Scheduled.set(false);
+      // 先清标记再复查，与并发 offer 之间至多一方重新入队
+      if (group._Size.get() > 0) {
+        schedule(group);
+      }
+      if (task != null) {
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private SubTask poll(Group group, String nodeId) {
+    SubTask task = group._Queue.pollFirst();
+    if (task != null) {
+      _Queued.remove(task.getSubTaskId());
+      _Pending.decrementAndGet();
+      if (group._Size.decrementAndGet() == 0) {
+        // 排空的 group 移除，期间有新的 offer 时保留
+        _Groups.computeIfPresent(
+            group._Id, (k, g) -> g == group && g._Size.get() == 0 ? null : g);
+      }
+      task.setTargetNode(nodeId);
+    }
+    return task;
+  }
+
+  private static class Group {
+    private final String _Id;
+    private final Deque<SubTask> _Queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger _Size = new AtomicInteger();
+    private final AtomicBoolean _Scheduled = new AtomicBoolean();
+
+    private Group(String id) {
+      _Id = id;
+    }
   }
 }
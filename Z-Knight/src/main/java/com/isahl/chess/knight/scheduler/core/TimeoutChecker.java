@@ -23,58 +23,73 @@
 
 package com.isahl.chess.knight.scheduler.core;
 
+import com.isahl.chess.knight.scheduler.domain.SubTask;
 import com.isahl.chess.knight.scheduler.domain.SubTaskStatus;
 import com.isahl.chess.knight.scheduler.domain.Task;
+import com.isahl.chess.knight.scheduler.domain.TaskStatus;
 import com.isahl.chess.knight.scheduler.repository.SubTaskRepository;
 import com.isahl.chess.knight.scheduler.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * task 超时处理：截止时刻由 {@link DeadlineIndex} 在时间轮上到期触发，启动时从数据库装载一次 RUNNING task， 之后由调度器在分发/完成时维护。
+ *
+ * <p>到期 task 中仍在运行的 subTask 按批交给 {@link RetryScheduler}；仍有运行中的 subTask 时间隔 {@link #RETRY_INTERVAL}
+ * 再次到期，延续原先周期检查推进重试次数的行为。
+ */
 @Component
 public class TimeoutChecker {
   private static final Logger _Logger = LoggerFactory.getLogger(TimeoutChecker.class);
 
+  static final Duration RETRY_INTERVAL = Duration.ofSeconds(5);
+
   private final TaskRepository _TaskRepository;
   private final SubTaskRepository _SubTaskRepository;
   private final RetryScheduler _RetryScheduler;
+  private final DeadlineIndex _DeadlineIndex;
 
   public TimeoutChecker(
       TaskRepository taskRepository,
       SubTaskRepository subTaskRepository,
-      RetryScheduler retryScheduler) {
+      RetryScheduler retryScheduler,
+      DeadlineIndex deadlineIndex) {
     _TaskRepository = taskRepository;
     _SubTaskRepository = subTaskRepository;
     _RetryScheduler = retryScheduler;
+    _DeadlineIndex = deadlineIndex;
+    _DeadlineIndex.onExpired(this::handleTimeouts);
   }
 
-  @Scheduled(fixedRate = 5000)
-  @Transactional
-  public void checkTimeouts() {
-    Instant now = Instant.now();
-    List<Task> runningTasks =
-        _TaskRepository.findByStatus(com.isahl.chess.knight.scheduler.domain.TaskStatus.RUNNING);
-
+  @PostConstruct
+  public void seed() {
+    List<Task> runningTasks = _TaskRepository.findByStatus(TaskStatus.RUNNING);
     for (Task task : runningTasks) {
-      if (task.getDeadline() != null && task.getDeadline().isBefore(now)) {
-        _Logger.warn("Task {} has exceeded deadline, handling timeout", task.getTaskId());
-        handleTaskTimeout(task);
-      }
+      _DeadlineIndex.watch(task.getTaskId(), task.getDeadline());
     }
+    _Logger.info("TimeoutChecker: seeded {} deadlines", _DeadlineIndex.size());
   }
 
-  private void handleTaskTimeout(Task task) {
-    task.getSubTasks().stream()
-        .filter(st -> st.getStatus() == SubTaskStatus.RUNNING)
-        .forEach(
-            st -> {
-              _Logger.warn("SubTask {} timed out, triggering timeout retry", st.getSubTaskId());
-              _RetryScheduler.handleFailure(
-                  st.getSubTaskId(), st.getTargetNode(), RetryStrategy.TIMEOUT_RETRY);
-            });
+  /** 在 {@link DeadlineIndex} 的处理线程上执行，不占用时间轮；一批到期 task 的运行中 subTask 只查询一次 */
+  public void handleTimeouts(List<String> taskIds) {
+    List<SubTask> running =
+        _SubTaskRepository.findByTaskIdInAndStatus(taskIds, SubTaskStatus.RUNNING);
+    if (running.isEmpty()) {
+      return;
+    }
+    _Logger.warn(
+        "{} subTasks of tasks {} timed out, triggering timeout retry", running.size(), taskIds);
+    _RetryScheduler.handleFailures(running, RetryStrategy.TIMEOUT_RETRY);
+
+    Instant next = Instant.now().plus(RETRY_INTERVAL);
+    running.stream()
+        .map(SubTask::getTaskId)
+        .distinct()
+        .forEach(id -> _DeadlineIndex.watch(id, next));
   }
 }
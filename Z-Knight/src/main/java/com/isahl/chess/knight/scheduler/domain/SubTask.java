@@ -27,7 +27,12 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "scheduler_sub_task")
+@Table(
+    name = "scheduler_sub_task",
+    indexes = {
+      @Index(name = "idx_sub_task_status", columnList = "status"),
+      @Index(name = "idx_sub_task_task", columnList = "taskId")
+    })
 public class SubTask {
   @Id private String subTaskId;
 
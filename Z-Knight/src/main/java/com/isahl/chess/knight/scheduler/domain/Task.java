@@ -27,6 +27,7 @@ import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "scheduler_task")
@@ -55,6 +56,19 @@ public class Task {
   @Column(length = 4096)
   private String aggregatedResult;
 
+  @ColumnDefault("0")
+  @Column(nullable = false, updatable = false)
+  private int subTaskCount;
+
+  /* 结果计数只由 TaskRepository.countResult 原子累加，保存实体时不覆盖 */
+  @ColumnDefault("0")
+  @Column(nullable = false, insertable = false, updatable = false)
+  private int completedCount;
+
+  @ColumnDefault("0")
+  @Column(nullable = false, insertable = false, updatable = false)
+  private int failedCount;
+
   public Task() {}
 
   public Task(String taskId, TaskType type, int timeoutSeconds) {
@@ -75,6 +89,7 @@ public class Task {
       subTasks.add(subTask);
       created.add(subTask);
     }
+    subTaskCount += count;
     return created;
   }
 
@@ -85,6 +100,7 @@ public class Task {
       subTasks.add(subTask);
       created.add(subTask);
     }
+    subTaskCount += created.size();
     return created;
   }
 
@@ -116,6 +132,25 @@ public class Task {
     return (int) subTasks.stream().filter(st -> st.getStatus() == SubTaskStatus.COMPLETE).count();
   }
 
+  public int getSubTaskCount() {
+    return subTaskCount;
+  }
+
+  public int getCompletedCount() {
+    return completedCount;
+  }
+
+  public int getFailedCount() {
+    return failedCount;
+  }
+
+  /**
+   * @return 按增量计数所有 subTask 均已结束；没有计数的旧数据总是返回 true，交由逐个检查
+   */
+  public boolean isAllReported() {
+    return completedCount + failedCount >= subTaskCount;
+  }
+
   public String getTaskId() {
     return taskId;
   }
@@ -25,8 +25,17 @@ package com.isahl.chess.knight.scheduler.repository;
 
 import com.isahl.chess.knight.scheduler.domain.SubTask;
 import com.isahl.chess.knight.scheduler.domain.SubTaskStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -38,4 +47,36 @@ public interface SubTaskRepository extends JpaRepository<SubTask, String> {
   List<SubTask> findByStatusAndTargetNode(SubTaskStatus status, String nodeId);
 
   List<SubTask> findByTaskIdAndStatus(String taskId, SubTaskStatus status);
+
+  List<SubTask> findByTaskIdInAndStatus(Collection<String> taskIds, SubTaskStatus status);
+
+  /** 行级写锁并跳过已被其他事务锁定的行(lock.timeout = -2 即 SKIP LOCKED)， 并发认领的节点各自拿到不相交的批次且互不阻塞 */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("SELECT st FROM SubTask st WHERE st.status = :status")
+  List<SubTask> lockByStatus(SubTaskStatus status, Pageable pageable);
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query(
+      "UPDATE SubTask st SET st.status = :status, st.result = :result, st.completedAt = :completedAt"
+          + " WHERE st.subTaskId = :subTaskId AND st.status IN :open")
+  int finish(
+      String subTaskId,
+      SubTaskStatus status,
+      String result,
+      Instant completedAt,
+      Collection<SubTaskStatus> open);
+
+  /**
+   * @return 由未结束转为结束时为 true，重复上报为 false
+   */
+  default boolean finish(String subTaskId, String result, boolean success) {
+    return finish(
+            subTaskId,
+            success ? SubTaskStatus.COMPLETE : SubTaskStatus.FAILED,
+            result,
+            Instant.now(),
+            List.of(SubTaskStatus.PENDING, SubTaskStatus.RUNNING))
+        > 0;
+  }
 }
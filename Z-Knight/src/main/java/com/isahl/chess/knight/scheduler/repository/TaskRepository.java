@@ -29,6 +29,8 @@ import java.time.Instant;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -39,4 +41,11 @@ public interface TaskRepository
   List<Task> findByDeadlineBefore(Instant now);
 
   List<Task> findByStatusAndDeadlineBefore(TaskStatus status, Instant now);
+
+  /** 原子累加结果计数，多节点并发上报同一 task 不丢失更新 */
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query(
+      "UPDATE Task t SET t.completedCount = t.completedCount + :completed,"
+          + " t.failedCount = t.failedCount + :failed WHERE t.taskId = :taskId")
+  int countResult(String taskId, int completed, int failed);
 }
@@ -23,7 +23,10 @@
 
 package com.isahl.chess.pawn.endpoint.device.config;
 
+import com.isahl.chess.king.base.disruptor.components.AdaptivePollStrategy;
+import com.isahl.chess.king.base.disruptor.features.flow.IPollStrategy;
 import com.isahl.chess.queen.config.IMixCoreConfig;
+import java.util.concurrent.TimeUnit;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
@@ -44,6 +47,12 @@ public class MixCoreConfig implements IMixCoreConfig {
   private int logicQueueSizePower;
   private int errorQueueSizePower;
   private int closerQueueSizePower;
+  private int pollSpinTries = AdaptivePollStrategy.DEFAULT_SPIN_TRIES;
+  private int pollYieldTries = AdaptivePollStrategy.DEFAULT_YIELD_TRIES;
+  private long pollMinParkMicros =
+      TimeUnit.NANOSECONDS.toMicros(AdaptivePollStrategy.DEFAULT_MIN_PARK);
+  private long pollMaxParkMicros =
+      TimeUnit.NANOSECONDS.toMicros(AdaptivePollStrategy.DEFAULT_MAX_PARK);
 
   @Override
   public int getDecoderCountPower() {
@@ -105,6 +114,16 @@ public class MixCoreConfig implements IMixCoreConfig {
     return closerQueueSizePower;
   }
 
+  @Override
+  public IPollStrategy getPollStrategy(String processor, int... priorities) {
+    return new AdaptivePollStrategy(
+        pollSpinTries,
+        pollYieldTries,
+        TimeUnit.MICROSECONDS.toNanos(pollMinParkMicros),
+        TimeUnit.MICROSECONDS.toNanos(pollMaxParkMicros),
+        priorities);
+  }
+
   public void setDecoderCountPower(int decoderCountPower) {
     this.decoderCountPower = decoderCountPower;
   }
@@ -152,4 +171,20 @@ public class MixCoreConfig implements IMixCoreConfig {
   public void setCloserQueueSizePower(int closerQueueSizePower) {
     this.closerQueueSizePower = closerQueueSizePower;
   }
+
+  public void setPollSpinTries(int pollSpinTries) {
+    this.pollSpinTries = pollSpinTries;
+  }
+
+  public void setPollYieldTries(int pollYieldTries) {
+    this.pollYieldTries = pollYieldTries;
+  }
+
+  public void setPollMinParkMicros(long pollMinParkMicros) {
+    this.pollMinParkMicros = pollMinParkMicros;
+  }
+
+  public void setPollMaxParkMicros(long pollMaxParkMicros) {
+    this.pollMaxParkMicros = pollMaxParkMicros;
+  }
 }
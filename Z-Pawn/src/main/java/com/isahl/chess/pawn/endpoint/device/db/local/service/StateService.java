@@ -24,11 +24,13 @@
 package com.isahl.chess.pawn.endpoint.device.db.local.service;
 
 import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
+import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.cron.ScheduleHandler;
 import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.SessionEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.repository.IMsgStateRepository;
@@ -41,13 +43,21 @@ import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 import com.isahl.chess.queen.io.core.features.model.routes.IThread;
 import com.isahl.chess.queen.io.core.features.model.routes.IThread.Subscribe;
 import com.isahl.chess.queen.io.core.features.model.routes.IThread.Topic;
+import com.isahl.chess.queen.io.core.features.model.routes.TopicTrie;
 import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongPredicate;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,19 +71,33 @@ import org.springframework.stereotype.Service;
  * @since 2022-01-14
  */
 @Service
-public class StateService implements IValid, IStateService {
+public class StateService implements IValid, IStateService, IRaftSnapshot {
   private final Logger _Logger =
       LoggerFactory.getLogger("endpoint.pawn." + getClass().getSimpleName());
 
+  private static final int SNAPSHOT_VERSION = 1;
+
   private final IDeviceService _DeviceService;
   private final ISessionRepository _SessionRepository;
   private final IMsgStateRepository _MsgStateRepository;
   private final TimeWheel _TimeWheel;
   private final ScheduleHandler<StateService> _StorageHourCleaner;
   private final ZUID _ZUID;
-  private final Map<Pattern, Subscribe> _Topic2Subscribe;
+  private final TopicTrie _TopicTrie;
   private final Map<Long, DeviceClient> _ClientPool;
   private final MsgStateService _MsgStateService;
+  // 各快照视图已应用的日志 index，首个为完整状态
+  private final List<Applied> _Applied = new CopyOnWriteArrayList<>();
+
+  /** 一致性结果由 LinkProcessor 异步应用，单线程写入 */
+  private static class Applied {
+    final LongPredicate owned;
+    volatile long index;
+
+    Applied(LongPredicate owned) {
+      this.owned = owned;
+    }
+  }
 
   @Autowired
   public StateService(
@@ -88,10 +112,11 @@ public class StateService implements IValid, IStateService {
     _SessionRepository = sessionRepository;
     _MsgStateRepository = messageRepository;
     _TimeWheel = timeWheel;
-    _Topic2Subscribe = new TreeMap<>(Comparator.comparing(Pattern::pattern));
+    _TopicTrie = new TopicTrie();
     _ClientPool = new ConcurrentSkipListMap<>();
     _StorageHourCleaner = new ScheduleHandler<>(Duration.ofHours(1), true, StateService::cleanup);
     _MsgStateService = msgStateService;
+    _Applied.add(new Applied(session -> true));
     _Logger.info("StateService initialized");
   }
 
@@ -142,15 +167,7 @@ public class StateService implements IValid, IStateService {
   }
 
   private void onDismiss(long session) {
-    for (Iterator<Map.Entry<Pattern, IThread.Subscribe>> iterator =
-            _Topic2Subscribe.entrySet().iterator();
-        iterator.hasNext(); ) {
-      Map.Entry<Pattern, IThread.Subscribe> entry = iterator.next();
-      entry.getValue().onDismiss(session);
-      if (entry.getValue().isEmpty()) {
-        iterator.remove();
-      }
-    }
+    _TopicTrie.dismiss(session);
   }
 
   @Override
@@ -334,15 +351,8 @@ public class StateService implements IValid, IStateService {
       sessionEntity.client().getSubscribes().add(topic);
       _SessionRepository.save(sessionEntity);
     }
-    Subscribe subscribe = _Topic2Subscribe.computeIfAbsent(topic.pattern(), Subscribe::new);
-    if (session != 0) {
-      if (subscribe.computeIfPresent(
-              session,
-              (key, old) -> old.getValue() > topic.level().getValue() ? old : topic.level())
-          == null) {
-        subscribe.onSubscribe(session, topic.level());
-      }
-    }
+    Subscribe subscribe =
+        _TopicTrie.subscribe(topic.filter(), topic.pattern(), session, topic.level());
     _Logger.info("session = " + session + " subscribe topic: " + topic.pattern().pattern());
     return subscribe;
   }
@@ -355,15 +365,9 @@ public class StateService implements IValid, IStateService {
       sessionEntity.client().getSubscribes().remove(topic);
       _SessionRepository.save(sessionEntity);
     }
-    _Topic2Subscribe.computeIfPresent(
-        topic.pattern(),
-        (k, o) -> {
-          o.onDismiss(session);
-          return o.isEmpty() ? null : o;
-        });
-    if (Objects.isNull(_Topic2Subscribe.get(topic.pattern()))) {
-      _Topic2Subscribe.remove(topic.pattern());
-      _Logger.debug("cleanup topic: %", topic);
+    _TopicTrie.unsubscribe(topic.filter(), session);
+    if (_TopicTrie.get(topic.filter()) == null) {
+      _Logger.debug("cleanup topic: %s", topic);
     }
   }
 
@@ -378,15 +382,143 @@ public class StateService implements IValid, IStateService {
   }
 
   @Override
-  public Map<Pattern, Subscribe> mappings() {
-    return _Topic2Subscribe;
+  public TopicTrie subscriptions() {
+    return _TopicTrie;
   }
 
   @Override
   public List<Pattern> filter(String filter) {
     Pattern filterPattern = Pattern.compile(filter);
-    return _Topic2Subscribe.keySet().stream()
+    return _TopicTrie.mappings().values().stream()
+        .map(Subscribe::pattern)
         .filter(topic -> filterPattern.asMatchPredicate().test(topic.pattern()))
         .toList();
   }
+
+  /*
+  快照格式: [version][client count]([session][length][DeviceClient])*
+           [filter count]([filter][pattern][mapped count]([session][level])*)*
+   */
+  @Override
+  public void save(long index, long term, OutputStream output) throws IOException {
+    save(index, term, output, session -> true);
+  }
+
+  @Override
+  public void restore(long index, long term, InputStream input) throws IOException {
+    restore(index, term, input, session -> true);
+    _Applied.get(0).index = index;
+  }
+
+  @Override
+  public long applied() {
+    return _Applied.get(0).index;
+  }
+
+  /**
+   * LinkProcessor 应用一条已提交日志后回调；批量提案拆分为多条同 index 的通知，见到 index 时只能确认之前的日志已全部应用
+   *
+   * @param key 提交时选择共识组的编号
+   * @param index 日志 index
+   */
+  public void onApplied(long key, long index) {
+    for (Applied applied : _Applied) {
+      if (applied.owned.test(key) && index - 1 > applied.index) {
+        applied.index = index - 1;
+      }
+    }
+  }
+
+  /** 共识组的快照只包含、也只替换 owned 范围内 session 的状态 */
+  @Override
+  public IRaftSnapshot slice(LongPredicate owned) {
+    final Applied _Slice = new Applied(owned);
+    _Applied.add(_Slice);
+    return new IRaftSnapshot() {
+      @Override
+      public void save(long index, long term, OutputStream output) throws IOException {
+        StateService.this.save(index, term, output, owned);
+      }
+
+      @Override
+      public void restore(long index, long term, InputStream input) throws IOException {
+        StateService.this.restore(index, term, input, owned);
+        _Slice.index = index;
+      }
+
+      @Override
+      public long applied() {
+        return _Slice.index;
+      }
+    };
+  }
+
+  private void save(long index, long term, OutputStream output, LongPredicate owned)
+      throws IOException {
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(SNAPSHOT_VERSION);
+    List<Map.Entry<Long, DeviceClient>> clients =
+        _ClientPool.entrySet().stream().filter(entry -> owned.test(entry.getKey())).toList();
+    out.writeInt(clients.size());
+    for (Map.Entry<Long, DeviceClient> entry : clients) {
+      byte[] encoded = entry.getValue().encoded();
+      out.writeLong(entry.getKey());
+      out.writeInt(encoded.length);
+      out.write(encoded);
+    }
+    Map<String, Subscribe> mappings = _TopicTrie.mappings();
+    out.writeInt(mappings.size());
+    for (Map.Entry<String, Subscribe> entry : mappings.entrySet()) {
+      Pattern pattern = entry.getValue().pattern();
+      List<Subscribe.Mapped> mapped =
+          entry.getValue().mapped().stream().filter(m -> owned.test(m.session())).toList();
+      out.writeUTF(entry.getKey());
+      out.writeUTF(pattern == null ? "" : pattern.pattern());
+      out.writeInt(mapped.size());
+      for (Subscribe.Mapped m : mapped) {
+        out.writeLong(m.session());
+        out.writeInt(m.level().getValue());
+      }
+    }
+    out.flush();
+    _Logger.info(
+        "snapshot saved @%d:%d, clients:%d, filters:%d",
+        index, term, clients.size(), mappings.size());
+  }
+
+  private void restore(long index, long term, InputStream input, LongPredicate owned)
+      throws IOException {
+    DataInputStream in = new DataInputStream(input);
+    int version = in.readInt();
+    if (version != SNAPSHOT_VERSION) {
+      throw new IOException("unsupported snapshot version: " + version);
+    }
+    Map<Long, DeviceClient> clients = new HashMap<>();
+    for (int i = 0, count = in.readInt(); i < count; i++) {
+      long session = in.readLong();
+      byte[] encoded = new byte[in.readInt()];
+      in.readFully(encoded);
+      clients.put(session, new DeviceClient(ByteBuf.wrap(encoded)));
+    }
+    _TopicTrie.mappings().values().stream()
+        .flatMap(Subscribe::stream)
+        .map(Subscribe.Mapped::session)
+        .distinct()
+        .filter(owned::test)
+        .forEach(_TopicTrie::dismiss);
+    _ClientPool.keySet().removeIf(owned::test);
+    _ClientPool.putAll(clients);
+    int filters = in.readInt();
+    for (int i = 0; i < filters; i++) {
+      String filter = in.readUTF();
+      String pattern = in.readUTF();
+      Pattern compiled = pattern.isEmpty() ? null : Pattern.compile(pattern);
+      for (int j = 0, count = in.readInt(); j < count; j++) {
+        long session = in.readLong();
+        _TopicTrie.subscribe(filter, compiled, session, IQoS.Level.valueOf(in.readInt()));
+      }
+    }
+    _Logger.info(
+        "snapshot restored @%d:%d, clients:%d, filters:%d", index, term, clients.size(), filters);
+  }
 }
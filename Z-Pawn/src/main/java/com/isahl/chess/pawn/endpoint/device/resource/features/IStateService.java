@@ -29,9 +29,9 @@ import com.isahl.chess.pawn.endpoint.device.model.DeviceClient;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 import com.isahl.chess.queen.io.core.features.model.routes.IThread;
+import com.isahl.chess.queen.io.core.features.model.routes.TopicTrie;
 import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 import org.springframework.data.domain.Pageable;
 
@@ -50,7 +50,10 @@ public interface IStateService {
 
   boolean drop(long target, long msgId);
 
-  Map<Pattern, IThread.Subscribe> mappings();
+  /**
+   * @return 全量订阅关系的主题树，按 topic 层级索引
+   */
+  TopicTrie subscriptions();
 
   List<Pattern> filter(String filter);
 
@@ -28,10 +28,12 @@ import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.features.model.IoSerial;
 import com.isahl.chess.knight.raft.model.replicate.LogEntry;
+import com.isahl.chess.pawn.endpoint.device.db.local.service.StateService;
 import com.isahl.chess.pawn.endpoint.device.spi.IAccessService;
 import com.isahl.chess.queen.events.server.ILinkCustom;
 import com.isahl.chess.queen.io.core.features.cluster.IConsistency;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.routes.ITraceable;
 import com.isahl.chess.queen.io.core.features.model.session.IManager;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import java.util.List;
@@ -46,10 +48,12 @@ public class LinkCustom implements ILinkCustom {
       LoggerFactory.getLogger("endpoint.pawn." + getClass().getSimpleName());
 
   private final List<IAccessService> _AccessServices;
+  private final StateService _StateService;
 
   @Autowired
-  public LinkCustom(List<IAccessService> accessAdapters) {
+  public LinkCustom(List<IAccessService> accessAdapters, StateService stateService) {
     _AccessServices = accessAdapters;
+    _StateService = stateService;
   }
 
   /**
@@ -70,14 +74,21 @@ public class LinkCustom implements ILinkCustom {
 
   @Override
   public List<ITriple> onConsistency(IManager manager, IConsistency backload, IoSerial request) {
+    List<ITriple> result = null;
     if (request != null) {
       for (IAccessService service : _AccessServices) {
         if (service.isSupported(request)) {
-          return service.onConsistency(manager, backload, request);
+          result = service.onConsistency(manager, backload, request);
+          break;
         }
       }
     }
-    return null;
+    // 状态机落后于 commit，快照以此处上报的 index 为快照点
+    if (backload != null && backload.subContent() instanceof LogEntry entry) {
+      long key = request instanceof ITraceable traceable ? traceable.origin() : entry.origin();
+      _StateService.onApplied(key, entry.index());
+    }
+    return result;
   }
 
   @Override
@@ -118,7 +129,8 @@ public class LinkCustom implements ILinkCustom {
         }
         if (entry.payload() != null) {
           IoFactory<IProtocol> factory = manager.findIoFactoryBySerial(entry.factory());
-          return factory.create(entry.subEncoded());
+          // open service 经 raft client 提交的请求不经 link 应答
+          return factory == null ? null : factory.create(entry.subEncoded());
         }
         return null;
       }
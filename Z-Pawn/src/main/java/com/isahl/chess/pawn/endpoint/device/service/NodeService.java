@@ -29,9 +29,13 @@ import com.isahl.chess.bishop.sort.ZSortHolder;
 import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.util.Triple;
+import com.isahl.chess.king.metrics.ZChessMetrics;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.knight.raft.features.IRaftMachine;
 import com.isahl.chess.knight.raft.features.IRaftMapper;
+import com.isahl.chess.knight.raft.features.IRaftSnapshot;
 import com.isahl.chess.knight.raft.service.RaftCustom;
+import com.isahl.chess.knight.raft.service.RaftGroups;
 import com.isahl.chess.knight.raft.service.RaftPeer;
 import com.isahl.chess.pawn.endpoint.device.DeviceNode;
 import com.isahl.chess.pawn.endpoint.device.config.MixConfig;
@@ -39,14 +43,21 @@ import com.isahl.chess.pawn.endpoint.device.spi.IAccessService;
 import com.isahl.chess.pawn.endpoint.device.spi.IHandleHook;
 import com.isahl.chess.queen.config.IAioConfig;
 import com.isahl.chess.queen.config.IMixCoreConfig;
+import com.isahl.chess.queen.events.cluster.IClusterCustom;
+import com.isahl.chess.queen.events.pipe.SlotBalancer;
 import com.isahl.chess.queen.events.server.ILinkCustom;
 import com.isahl.chess.queen.events.server.ILogicHandler;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -63,9 +74,11 @@ public class NodeService {
 
   private final DeviceNode _DeviceNode;
   private final ILinkCustom _LinkCustom;
-  private final RaftCustom _RaftCustom;
+  private final IClusterCustom<IRaftMachine> _RaftCustom;
   private final RaftPeer _RaftPeer;
+  private final RaftGroups _RaftGroups;
   private final ILogicHandler.factory _LogicFactory;
+  private final ObjectProvider<MeterRegistry> _MeterRegistry;
 
   @Autowired
   public NodeService(
@@ -75,9 +88,11 @@ public class NodeService {
       IMixCoreConfig mixCoreConfig,
       IRaftConfig raftConfig,
       IRaftMapper raftMapper,
+      IRaftSnapshot raftSnapshot,
       ILinkCustom linkCustom,
       List<IAccessService> accessAdapters,
-      List<IHandleHook> hooks)
+      List<IHandleHook> hooks,
+      ObjectProvider<MeterRegistry> meterRegistry)
       throws IOException {
     List<ITriple> hosts =
         mixConfig.getListeners().stream()
@@ -89,6 +104,16 @@ public class NodeService {
                         ZSortHolder._Mapping(listener.getScheme())))
             .collect(Collectors.toList());
     _RaftPeer = new RaftPeer(timeWheel, raftConfig, raftMapper);
+    if (raftConfig.getGroups() > 1) {
+      // Multi-Raft，_RaftPeer 作为 0 组
+      _RaftGroups = new RaftGroups(_RaftPeer, timeWheel, raftConfig, raftMapper);
+      _RaftGroups.setSnapshotMachine(raftSnapshot);
+      _RaftCustom = _RaftGroups;
+    } else {
+      _RaftGroups = null;
+      _RaftPeer.setSnapshotMachine(raftSnapshot);
+      _RaftCustom = new RaftCustom(_RaftPeer);
+    }
     _DeviceNode =
         new DeviceNode(
             hosts,
@@ -98,8 +123,8 @@ public class NodeService {
             mixCoreConfig,
             timeWheel,
             _RaftPeer);
-    _RaftCustom = new RaftCustom(_RaftPeer);
     _LinkCustom = linkCustom;
+    _MeterRegistry = meterRegistry;
     _LogicFactory = threadId -> new LogicHandler<>(_DeviceNode, threadId, accessAdapters, hooks);
     _Logger.debug("NodeService created %s", hooks);
   }
@@ -108,10 +133,44 @@ public class NodeService {
   private void start() {
     _DeviceNode.start(
         _LogicFactory, new ZLinkCustom(_LinkCustom), new ZClusterCustom<>(_RaftCustom));
-    _RaftPeer.start(_DeviceNode);
+    if (_RaftGroups != null) {
+      _RaftGroups.start(_DeviceNode);
+    } else {
+      _RaftPeer.start(_DeviceNode);
+    }
+    _MeterRegistry.ifAvailable(this::registerMetrics);
     _Logger.info(" device service start ");
   }
 
+  /** 有 MeterRegistry(actuator) 时导出 IO 层与 raft 日志缓存指标 */
+  private void registerMetrics(MeterRegistry registry) {
+    ZChessMetrics metrics = new ZChessMetrics(registry);
+    metrics.registerRings(_DeviceNode.getRingStats());
+    registerIoSlots(metrics, _DeviceNode.getDecodeBalancer());
+    registerIoSlots(metrics, _DeviceNode.getEncodeBalancer());
+    if (_RaftGroups != null) {
+      metrics.registerRaftLogTail(
+          _RaftGroups.size(), group -> _RaftGroups.peer(group).logTailHitRate());
+    } else {
+      metrics.registerRaftLogTail(1, group -> _RaftPeer.logTailHitRate());
+    }
+    metrics.registerSessionFlow(Arrays.stream(ISort.Type.values()).map(ISort.Type::flow).toList());
+  }
+
+  private void registerIoSlots(ZChessMetrics metrics, SlotBalancer balancer) {
+    if (balancer != null) {
+      metrics.registerIoSlots(
+          balancer.getStage(), balancer.slots(), balancer::load, balancer::backlog);
+    }
+  }
+
+  @PreDestroy
+  private void stop() {
+    if (_RaftGroups != null) {
+      _RaftGroups.dispose();
+    }
+  }
+
   /**
    * @return DeviceNode → NodeService → ConsistencyOpenService
    */
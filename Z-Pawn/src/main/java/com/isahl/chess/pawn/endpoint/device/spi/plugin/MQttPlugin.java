@@ -42,6 +42,7 @@ import com.isahl.chess.bishop.protocol.mqtt.model.QttTopicAlias;
 import com.isahl.chess.bishop.protocol.mqtt.service.IQttAuthProvider;
 import com.isahl.chess.bishop.protocol.mqtt.service.IQttAuthProvider.AuthContext;
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.X0D_Error;
+import com.isahl.chess.king.base.content.SharedBuf;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.features.model.IoSerial;
@@ -61,16 +62,17 @@ import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 import com.isahl.chess.queen.io.core.features.model.routes.IRouter;
 import com.isahl.chess.queen.io.core.features.model.routes.IThread;
+import com.isahl.chess.queen.io.core.features.model.routes.TopicTrie;
 import com.isahl.chess.queen.io.core.features.model.session.IExchanger;
 import com.isahl.chess.queen.io.core.features.model.session.IManager;
 import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -540,6 +542,8 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
               clean(origin);
             }
             x112.responseOk();
+            // 1.5 倍 keepalive 内未收到报文即由空闲扫描断开
+            os.keepalive(x111.getKeepAlive());
             if (_StateService.onLogin(origin, x111.isClean(), x111.getKeepAlive())) {
               x112.setPresent();
             }
@@ -561,7 +565,7 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
               _Logger.debug(" → origin[%#x] subscribe @[%#x], ack ", origin, client);
               subscribes.forEach(
                   (topic, level) -> {
-                    Topic t = new Topic(_QttTopicToRegex(topic), level, 0);
+                    Topic t = new Topic(topic, _QttTopicToRegex(topic), level, 0);
                     Subscribe subscribe = subscribe(t, origin);
                     if (subscribe != null) {
                       x119.addResult(subscribe.level(origin));
@@ -576,7 +580,7 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
             _Logger.debug("origin[%#x] subscribe @[%#x]", origin, client);
             subscribes.forEach(
                 (topic, level) -> {
-                  Topic t = new Topic(_QttTopicToRegex(topic), level, 0);
+                  Topic t = new Topic(topic, _QttTopicToRegex(topic), level, 0);
                   subscribe(t, origin);
                 });
           }
@@ -590,7 +594,11 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
           x11B.msgId(x11A.msgId());
           if (topics != null) {
             _Logger.info("unsubscribe topic:%s", x11A.getTopics());
-            topics.forEach(topic -> unsubscribe(new Topic(_QttTopicToRegex(topic)), origin));
+            topics.forEach(
+                topic ->
+                    unsubscribe(
+                        new Topic(topic, _QttTopicToRegex(topic), IQoS.Level.ALMOST_ONCE, 0),
+                        origin));
             _Logger.debug("origin[%#x] unsubscribe @[%#x]", origin, client);
           }
           if (os != null) {
@@ -645,33 +653,34 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
 
   @Override
   public void retain(String topic, IProtocol content) {
-    if (_StateService.mappings().values().parallelStream()
-            .filter(subscribe -> subscribe.pattern().asMatchPredicate().test(topic))
-            .peek(subscribe -> subscribe.setRetain(content))
-            .count()
-        == 0) {
-      Pattern pattern = _QttTopicToRegex(topic);
-      Subscribe subscribe = new Subscribe(pattern);
-      subscribe.setRetain(content);
-      _StateService.mappings().put(pattern, subscribe);
+    TopicTrie trie = _StateService.subscriptions();
+    List<Subscribe> matched = trie.match(topic);
+    if (matched.isEmpty()) {
+      trie.subscribe(topic, _QttTopicToRegex(topic), 0, IQoS.Level.ALMOST_ONCE).setRetain(content);
+    } else {
+      matched.forEach(subscribe -> subscribe.setRetain(content));
     }
   }
 
   @Override
   public List<Subscribe.Mapped> broker(String topic) {
-    return _StateService.mappings().entrySet().parallelStream()
-        .filter(entry -> entry.getKey().asMatchPredicate().test(topic))
-        .map(Map.Entry::getValue)
-        .flatMap(Subscribe::stream)
-        .collect(Collectors.toList());
+    List<Subscribe.Mapped> mappedList = new ArrayList<>();
+    _StateService.subscriptions().match(topic, subscribe -> mappedList.addAll(subscribe.mapped()));
+    return mappedList;
   }
 
   public List<IThread.Topic> groupBy(long session) {
     _Logger.debug("group by :%#x", session);
-    return _StateService.mappings().values().parallelStream()
-        .filter(subscribe -> subscribe.contains(session))
-        .map(subscribe -> new IThread.Topic(subscribe.pattern(), subscribe.level(session), 0))
-        .collect(Collectors.toList());
+    TopicTrie trie = _StateService.subscriptions();
+    List<IThread.Topic> topics = new ArrayList<>();
+    for (String filter : trie.filters(session)) {
+      Subscribe subscribe = trie.get(filter);
+      IQoS.Level level;
+      if (subscribe != null && (level = subscribe.level(session)) != null) {
+        topics.add(new IThread.Topic(filter, subscribe.pattern(), level, 0));
+      }
+    }
+    return topics;
   }
 
   @Override
@@ -711,16 +720,19 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
       List<Subscribe.Mapped> mappedList,
       List<ITriple> results) {
     _Logger.debug("broker[%s]→%s | %s", x113.topic(), mappedList, x113.toString());
+    // payload 只包装一次，本地订阅者的副本共享同一份内容，各自只编码头部
+    SharedBuf shared = x113.payload() == null ? null : SharedBuf.wrap(x113.payload());
     mappedList.forEach(
         mapped -> {
           long target = mapped.session();
-          X113_QttPublish n113 = x113.duplicate();
+          ISession session = exchanger.findSessionByIndex(target);
+          X113_QttPublish n113 =
+              session != null && shared != null ? x113.duplicate(shared) : x113.duplicate();
           n113.target(target);
           n113.setLevel(mapped.level());
           if (mapped.level().getValue() > 0) {
             n113.msgId(_MessageService.generateId(target));
           }
-          ISession session = exchanger.findSessionByIndex(target);
           if (session != null) {
             _Logger.debug("broker topic → session [%#x,%s] ", session.index(), mapped.level());
             n113.with(session);
@@ -728,11 +740,18 @@ public class MQttPlugin implements IAccessService, IRouter, IThread, IValid {
               register(n113.msgId(), n113);
             }
             results.add(Triple.of(n113, session, session.encoder()));
+            // 订阅者已饱和，暂停 publisher 的读取直到订阅者回落到低水位
+            if (session.isSaturated() && x113.session() != null) {
+              session.throttle(x113.session());
+            }
           } else {
             exchanger.exchange(n113, target, QttFactory._Instance.serial(), results);
             _Logger.debug("no local routing,cluster exchange %#x", mapped.session());
           }
         });
+    if (shared != null) {
+      shared.release();
+    }
   }
 
   @Override
@@ -25,10 +25,13 @@ package com.isahl.chess.player.api.controller;
 import com.isahl.chess.king.base.content.ZResponse;
 import com.isahl.chess.king.base.features.ICode;
 import com.isahl.chess.knight.cluster.features.IConsistencyService;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -54,4 +57,25 @@ public class ConsistencyController {
     ICode result = _ConsistencyService.submit(input);
     return ZResponse.of(result, input, "consistency submit");
   }
+
+  /** 日志提交后才返回，调用方可并发发起而无需轮询 */
+  @PostMapping("/consistent/async")
+  public CompletableFuture<ZResponse<?>> consistencyAsync(String input) {
+    return _ConsistencyService.submitAsync(input)
+        .handle((index, e) -> commit(index, e, "consistency commit"));
+  }
+
+  @PostMapping("/consistent/batch")
+  public CompletableFuture<ZResponse<?>> consistencyBatch(@RequestBody List<String> inputs) {
+    return _ConsistencyService.submitBatch(inputs)
+        .handle((index, e) -> commit(index, e, "consistency batch commit"));
+  }
+
+  private ZResponse<?> commit(Long index, Throwable e, String message) {
+    if (e != null) {
+      _Logger.warn("{} failed", message, e);
+      return ZResponse.error(e.getMessage());
+    }
+    return ZResponse.success(index);
+  }
 }
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.player.api.service;
 
+import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.ICode;
 import com.isahl.chess.king.base.util.IoUtil;
 import com.isahl.chess.king.config.CodeKing;
@@ -33,6 +34,9 @@ import com.isahl.chess.knight.raft.model.RaftNode;
 import com.isahl.chess.knight.raft.model.RaftState;
 import com.isahl.chess.knight.raft.service.RaftPeer;
 import com.isahl.chess.pawn.endpoint.device.DeviceNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -67,6 +71,26 @@ public class ConsistencyOpenService implements IConsistencyService {
     return result;
   }
 
+  @Override
+  public CompletableFuture<Long> submitAsync(String content) {
+    if (IoUtil.isBlank(content)) {
+      return CompletableFuture.failedFuture(new ZException("consistency content is blank"));
+    }
+    return _RaftPeer.submitAsync(new ConsistentText(content, _RaftPeer.generateId()));
+  }
+
+  @Override
+  public CompletableFuture<Long> submitBatch(List<String> contents) {
+    if (contents == null || contents.isEmpty() || contents.stream().anyMatch(IoUtil::isBlank)) {
+      return CompletableFuture.failedFuture(new ZException("consistency contents contain blank"));
+    }
+    List<ConsistentText> batch = new ArrayList<>(contents.size());
+    for (String content : contents) {
+      batch.add(new ConsistentText(content, _RaftPeer.generateId()));
+    }
+    return _RaftPeer.submitBatch(batch);
+  }
+
   @Override
   public ICode modify(String host, int port) {
 
@@ -23,6 +23,9 @@
 
 package com.isahl.chess.queen.config;
 
+import com.isahl.chess.king.base.disruptor.components.AdaptivePollStrategy;
+import com.isahl.chess.king.base.disruptor.features.flow.IPollStrategy;
+
 /**
  * 由于主Pipeline 使用了disruptor 的 RingBuffer 所以有些参数直接使用 __Power 直接设定RingBuffer的 _SIZE
  *
@@ -52,6 +55,18 @@ public interface IMixCoreConfig extends IClusterConfig {
    */
   int getLinkQueueSizePower();
 
+  /**
+   * 多路处理器(Z2Processor)的轮询策略，每次调用返回新实例
+   *
+   * @param processor 处理器名称，与线程名一致：IoDispatcher,LinkProcessor,ClusterProcessor,
+   *     DecodedDispatcher,WriteDispatcher,EncodedProcessor
+   * @param priorities 各 ring 的优先级，数值小者优先；为空时按顺序轮询
+   * @return
+   */
+  default IPollStrategy getPollStrategy(String processor, int... priorities) {
+    return new AdaptivePollStrategy(priorities);
+  }
+
   default int getPoolSize() {
     return 1 // io-dispatch
         + (1 << getDecoderCountPower()) // read-decode
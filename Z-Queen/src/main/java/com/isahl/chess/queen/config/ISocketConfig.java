@@ -23,6 +23,7 @@
 
 package com.isahl.chess.queen.config;
 
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
 import java.time.Duration;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.TrustManager;
@@ -49,6 +50,19 @@ public interface ISocketConfig {
     return 64;
   }
 
+  /** 默认为 send buffer × send queue */
+  default int getSendHighWaterInByte() {
+    return getSnfInByte() * getSendQueueMax();
+  }
+
+  default int getSendLowWaterInByte() {
+    return getSendHighWaterInByte() >> 1;
+  }
+
+  default IOption.SlowConsumer getSlowConsumer() {
+    return IOption.SlowConsumer.DROP_QOS0;
+  }
+
   default int getRcvInByte() {
     return 65536;
   }
@@ -91,7 +91,8 @@ public class ClientWriteDispatcher implements IPipeHandler<QEvent> {
         case WROTE -> {
           IPair wrote = event.getComponent();
           ISession session = wrote.getSecond();
-          if (session.isValid()) {
+          // 已关闭的 session 也要投递，encoder 线程据此回收排队的 packet
+          if (session != null) {
             publish(_Encoder, OperateType.WROTE, wrote, event.getEventBinaryOp());
           }
         }
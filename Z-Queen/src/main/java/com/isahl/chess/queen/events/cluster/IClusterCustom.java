@@ -46,6 +46,16 @@ public interface IClusterCustom<T extends IStorage> extends IMappingCustom {
    */
   List<ITriple> onTimer(IManager manager, T machine);
 
+  /**
+   * 多个共识组共用一个 ClusterProcessor 时，按定时事件的发布者区分所属的组
+   *
+   * @param source 定时事件的发布者
+   * @see #onTimer(IManager, IStorage)
+   */
+  default List<ITriple> onTimer(IManager manager, Object source, T machine) {
+    return onTimer(manager, machine);
+  }
+
   /**
    * Link → Cluster.consistent(Link.consensus_data,consensus_data.origin)
    *
@@ -74,4 +84,14 @@ public interface IClusterCustom<T extends IStorage> extends IMappingCustom {
   boolean waitForCommit();
 
   IConsistency skipConsistency(IoSerial request, long origin);
+
+  /**
+   * ClusterProcessor 处理完一个批次后调用，用于按批次边界合并刷盘
+   *
+   * @param manager session 管理器
+   * @return 与 inject 相同 fst:[response → cluster peer] snd:[→ link] trd:operator
+   */
+  default ITriple onBatchComplete(IManager manager) {
+    return null;
+  }
 }
@@ -37,7 +37,9 @@ import com.isahl.chess.king.base.features.model.IPair;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.events.model.QEvent;
+import com.isahl.chess.queen.events.pipe.SlotBalancer;
 import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
+import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import com.isahl.chess.queen.io.core.features.model.session.ISort;
 import com.lmax.disruptor.RingBuffer;
@@ -53,8 +55,7 @@ public class IoDispatcher implements IPipeHandler<QEvent> {
       LoggerFactory.getLogger("io.queen.dispatcher." + getClass().getSimpleName());
   private final RingBuffer<QEvent> _IoWrote;
   private final RingBuffer<QEvent> _Cluster;
-  private final RingBuffer<QEvent>[] _Workers;
-  private final int _WorkerMask;
+  private final SlotBalancer _Balancer;
   private final IHealth _Health = new Health(-1);
 
   @SafeVarargs
@@ -62,11 +63,11 @@ public class IoDispatcher implements IPipeHandler<QEvent> {
       RingBuffer<QEvent> cluster, RingBuffer<QEvent> wrote, RingBuffer<QEvent>... read) {
     _Cluster = cluster;
     _IoWrote = wrote;
-    _Workers = read;
-    _WorkerMask = _Workers.length - 1;
-    if (Integer.bitCount(_Workers.length) != 1) {
-      throw new IllegalArgumentException("workers' length must be a power of 2");
-    }
+    _Balancer = new SlotBalancer("decode", read);
+  }
+
+  public SlotBalancer getBalancer() {
+    return _Balancer;
   }
 
   @Override
@@ -122,9 +123,10 @@ public class IoDispatcher implements IPipeHandler<QEvent> {
           case READ -> {
             _Logger.debug("read");
             IPair content = event.getComponent();
+            IPacket packet = content.getFirst();
             ISession session = content.getSecond();
             publish(
-                dispatchWorker(session.hashCode()),
+                _Balancer.select(session, packet.getBuffer().readableBytes()),
                 OperateType.DECODE,
                 content,
                 event.getEventBinaryOp());
@@ -171,10 +173,6 @@ public class IoDispatcher implements IPipeHandler<QEvent> {
     }
   }
 
-  private RingBuffer<QEvent> dispatchWorker(int code) {
-    return _Workers[code & _WorkerMask];
-  }
-
   protected RingBuffer<QEvent> getNextPipe(ISort.Mode mode) {
     return mode == ISort.Mode.CLUSTER ? _Cluster : null;
   }
@@ -40,14 +40,23 @@ public class AioWriter implements CompletionHandler<Integer, ISession> {
       LoggerFactory.getLogger("io.queen.operator." + getClass().getSimpleName());
   private final SessionWrote _WroteOperator = new SessionWrote(this);
 
+  /** 写失败后仍投递一次 wrote，由 encoder 线程回收该次写引用的 packet */
+  public static final int WROTE_FAILED = -1;
+
   @Override
   public void completed(Integer result, ISession session) {
     AioWorker worker = (AioWorker) Thread.currentThread();
     switch (result) {
-      case -1 -> worker.publishWroteError(
-          session.getError(), WRITE_EOF, new EOFException("wrote -1!"), session);
-      case 0 -> worker.publishWroteError(
-          session.getError(), WRITE_ZERO, new IllegalArgumentException("wrote zero!"), session);
+      case -1 -> {
+        worker.publishWroteError(
+            session.getError(), WRITE_EOF, new EOFException("wrote -1!"), session);
+        worker.publishWrote(_WroteOperator, WROTE_FAILED, session);
+      }
+      case 0 -> {
+        worker.publishWroteError(
+            session.getError(), WRITE_ZERO, new IllegalArgumentException("wrote zero!"), session);
+        worker.publishWrote(_WroteOperator, WROTE_FAILED, session);
+      }
       default -> {
         _Logger.debug("aio wrote %d | %s", result, session);
         worker.publishWrote(_WroteOperator, result, session);
@@ -59,5 +68,6 @@ public class AioWriter implements CompletionHandler<Integer, ISession> {
   public void failed(Throwable exc, ISession session) {
     AioWorker worker = (AioWorker) Thread.currentThread();
     worker.publishWroteError(session.getError(), WRITE_FAILED, exc, session);
+    worker.publishWrote(_WroteOperator, WROTE_FAILED, session);
   }
 }
@@ -46,6 +46,11 @@ public class PipeEncoder implements IPipeEncoder {
 
   @Override
   public ITriple handle(IProtocol output, ISession session) {
+    // 饱和的 session 上 QoS0 消息在编码前按慢消费者策略丢弃或合并
+    if (!session.admit(output)) {
+      _Logger.debug("slow consumer, %s not admitted | %s", output, session);
+      return null;
+    }
     IPacket send = protocolWrite(output, session);
     // write 错误将向event handler 抛出异常，并终止向session 执行写操作。
     if (send != null) {
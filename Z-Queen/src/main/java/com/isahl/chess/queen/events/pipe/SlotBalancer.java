@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.events.pipe;
+
+import com.isahl.chess.queen.events.model.QEvent;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.lmax.disruptor.RingBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按负载为 session 选择 decode/encode 分片。
+ *
+ * <p>session 首次出现时仍按 hashCode 落到分片；之后按窗口统计每个 session 与每个分片的字节速率(每窗口减半的 滑动平均)，session
+ * 在新窗口的首个事件时，若所在分片比最空闲分片高出的负载足以容纳该 session，并且该 session 投递到原分片的事件已被所有下游消费(静止点，没有在途的帧)，则迁移到最空闲分片，从而保持
+ * session 内的事件顺序。session 出现或迁移后至少停留若干窗口才会再次迁移。
+ *
+ * <p>只能由分发器线程调用，分发器是各分片 ring 唯一的生产者；{@link #load(int)} 与 {@link #backlog(int)} 供监控线程读取。
+ *
+ * <p>-Dz.chess.io.balance.window 设置统计窗口(毫秒)，默认 1000。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class SlotBalancer {
+  public static final String PROP_WINDOW = "z.chess.io.balance.window";
+
+  /** 迁移后至少停留的窗口数，避免统计抖动造成来回迁移 */
+  private static final int SETTLE_WINDOWS = 4;
+
+  private final long _WindowNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong(PROP_WINDOW, 1000L));
+  private final String _Stage;
+  private final RingBuffer<QEvent>[] _Slots;
+  private final int _Mask;
+  private final Map<ISession, Binding> _Bindings = new HashMap<>();
+  private final long[] _WindowBytes;
+  private final long[] _Load;
+  private long mWindow;
+  private long mWindowStart;
+  private volatile long vMigrations;
+
+  public SlotBalancer(String stage, RingBuffer<QEvent>[] slots) {
+    if (Integer.bitCount(slots.length) != 1) {
+      throw new IllegalArgumentException("slots' length must be a power of 2");
+    }
+    _Stage = stage;
+    _Slots = slots;
+    _Mask = slots.length - 1;
+    _WindowBytes = new long[slots.length];
+    _Load = new long[slots.length];
+  }
+
+  /**
+   * @param session 事件所属 session
+   * @param bytes 本次事件的字节数，用于统计速率
+   * @return 本次事件应投递的分片
+   */
+  public RingBuffer<QEvent> select(ISession session, int bytes) {
+    long now = now();
+    if (mWindowStart == 0) {
+      mWindowStart = now;
+    } else if (now - mWindowStart >= _WindowNanos) {
+      roll((now - mWindowStart) / _WindowNanos);
+      mWindowStart = now;
+    }
+    Binding binding = _Bindings.get(session);
+    if (binding == null) {
+      _Bindings.put(session, binding = new Binding(session, session.hashCode() & _Mask, mWindow));
+    } else if (binding.mWindow != mWindow) {
+      binding.roll(mWindow);
+      migrate(binding);
+    }
+    binding.mBytes += bytes;
+    _WindowBytes[binding.mSlot] += bytes;
+    RingBuffer<QEvent> ring = _Slots[binding.mSlot];
+    // 单生产者 ring，下一个发布的序号即 cursor + 1
+    binding.mSequence = ring.getCursor() + 1;
+    return ring;
+  }
+
+  private void migrate(Binding binding) {
+    int source = binding.mSlot;
+    int target = leastLoaded();
+    long rate = binding.mRate;
+    if (target == source
+        || rate == 0
+        || mWindow - binding.mSettled < SETTLE_WINDOWS
+        || _Load[source] - _Load[target] <= rate + (_Load[source] >> 3)) {
+      return;
+    }
+    if (_Slots[source].getMinimumGatingSequence() < binding.mSequence) {
+      // 原分片上仍有该 session 未处理完的事件
+      return;
+    }
+    _Load[source] -= rate;
+    _Load[target] += rate;
+    binding.mSlot = target;
+    binding.mSettled = mWindow;
+    vMigrations++;
+  }
+
+  private int leastLoaded() {
+    int least = 0;
+    for (int i = 1; i < _Slots.length; i++) {
+      if (_Load[i] < _Load[least] || _Load[i] == _Load[least] && backlog(i) < backlog(least)) {
+        least = i;
+      }
+    }
+    return least;
+  }
+
+  private void roll(long windows) {
+    for (int i = 0; i < _Load.length; i++) {
+      _Load[i] = decay(_Load[i], _WindowBytes[i], windows);
+      _WindowBytes[i] = 0;
+    }
+    mWindow += windows;
+    _Bindings.values().removeIf(binding -> binding._Session.isClosed());
+  }
+
+  protected long now() {
+    return System.nanoTime();
+  }
+
+  private static long decay(long rate, long bytes, long windows) {
+    return (rate + bytes) >> Math.min(windows, 63);
+  }
+
+  public String getStage() {
+    return _Stage;
+  }
+
+  public int slots() {
+    return _Slots.length;
+  }
+
+  /**
+   * @return 分片每秒处理的字节数(滑动平均)
+   */
+  public double load(int slot) {
+    return (double) _Load[slot] * TimeUnit.SECONDS.toNanos(1) / _WindowNanos;
+  }
+
+  /**
+   * @return 分片 ring 上尚未被所有下游消费的事件数
+   */
+  public long backlog(int slot) {
+    RingBuffer<QEvent> ring = _Slots[slot];
+    return ring.getCursor() - ring.getMinimumGatingSequence();
+  }
+
+  public long migrations() {
+    return vMigrations;
+  }
+
+  private static class Binding {
+    private final ISession _Session;
+    private int mSlot;
+    private long mWindow;
+    private long mBytes;
+    private long mRate;
+    private long mSequence = -1;
+    private long mSettled;
+
+    private Binding(ISession session, int slot, long window) {
+      _Session = session;
+      mSlot = slot;
+      mWindow = mSettled = window;
+    }
+
+    private void roll(long window) {
+      mRate = decay(mRate, mBytes, window - mWindow);
+      mBytes = 0;
+      mWindow = window;
+    }
+  }
+}
@@ -49,16 +49,18 @@ import org.slf4j.LoggerFactory;
 public class WriteDispatcher implements IPipeHandler<QEvent> {
   private final Logger _Logger =
       LoggerFactory.getLogger("io.queen.dispatcher." + getClass().getSimpleName());
-  private final RingBuffer<QEvent>[] _Encoders;
+  private final SlotBalancer _Balancer;
   private final RingBuffer<QEvent> _Error;
-  private final int _Mask;
   private final IHealth _Health = new Health(-1);
 
   @SafeVarargs
   public WriteDispatcher(RingBuffer<QEvent> error, RingBuffer<QEvent>... workers) {
     _Error = error;
-    _Encoders = workers;
-    _Mask = _Encoders.length - 1;
+    _Balancer = new SlotBalancer("encode", workers);
+  }
+
+  public SlotBalancer getBalancer() {
+    return _Balancer;
   }
 
   @Override
@@ -66,10 +68,6 @@ public class WriteDispatcher implements IPipeHandler<QEvent> {
     return _Health;
   }
 
-  private RingBuffer<QEvent> dispatchEncoder(int code) {
-    return _Encoders[code & _Mask];
-  }
-
   @Override
   public void onEvent(QEvent event, long sequence) throws Exception {
     if (event.hasError()) {
@@ -96,7 +94,7 @@ public class WriteDispatcher implements IPipeHandler<QEvent> {
             try {
               cmd.transfer();
               publish(
-                  dispatchEncoder(session.hashCode()),
+                  _Balancer.select(session, cmd.sizeOf()),
                   OperateType.WRITE,
                   Pair.of(cmd, session),
                   session.encoder());
@@ -112,7 +110,7 @@ public class WriteDispatcher implements IPipeHandler<QEvent> {
           ISession session = content.getSecond();
           if (session != null) {
             publish(
-                dispatchEncoder(session.hashCode()),
+                _Balancer.select(session, 0),
                 OperateType.WROTE,
                 Pair.of(count, session),
                 event.getEventBinaryOp());
@@ -132,7 +130,7 @@ public class WriteDispatcher implements IPipeHandler<QEvent> {
               try {
                 cmd.transfer();
                 publish(
-                    dispatchEncoder(session.hashCode()),
+                    _Balancer.select(session, cmd.sizeOf()),
                     OperateType.WRITE,
                     Pair.of(cmd, session),
                     content.getThird());
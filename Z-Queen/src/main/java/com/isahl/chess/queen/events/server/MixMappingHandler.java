@@ -65,10 +65,13 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
   private final IManager _SessionManager;
   private final ILinkCustom _LinkCustom;
   private final IClusterCustom<T> _ClusterCustom;
+  // 只有共识线程上的实例在批次结束时驱动 cluster custom
+  private final boolean _Consensus;
   private final IHealth _Health = new Health(-1);
 
   public MixMappingHandler(
       String mapper,
+      boolean consensus,
       MixManager manager,
       RingBuffer<QEvent> error,
       RingBuffer<QEvent> writer,
@@ -82,6 +85,7 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
     _Transfer = transfer;
     _LinkCustom = linkCustom;
     _ClusterCustom = clusterCustom;
+    _Consensus = consensus;
   }
 
   @Override
@@ -199,26 +203,7 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
           if (received != null && session != null) {
             try {
               ITriple result = doCustom(_ClusterCustom, _SessionManager, session, received);
-              /*
-               * doCustom 执行结果 snd 是需要反向投递到linker的内容
-               */
-              if (result != null && result.getSecond() instanceof IConsistent backload) {
-                publish(
-                    _Transfer,
-                    CONSISTENCY,
-                    Pair.of(backload, _SessionManager),
-                    _LinkCustom.getUnbox());
-              } else if (result != null && result.getSecond() instanceof Collection<?> collection) {
-                for (Object item : collection) {
-                  if (item instanceof IConsistent backload) {
-                    publish(
-                        _Transfer,
-                        CONSISTENCY,
-                        Pair.of(backload, _SessionManager),
-                        _LinkCustom.getUnbox());
-                  }
-                }
-              } else {
+              if (!backload(result)) {
                 _Logger.debug("cluster received ignore :%s", received);
               }
             } catch (Exception e) {
@@ -239,7 +224,7 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
            */
         case CONSISTENT, CONSISTENT_SERVICE -> {
           IPair content = event.getComponent();
-          IProtocol request = content.getFirst();
+          IoSerial request = content.getFirst();
           IPair routing = content.getSecond();
           /*
            *  origin 在不同状态下的来源
@@ -297,13 +282,48 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
         case CLUSTER_TIMER -> {
           IPair content = event.getComponent();
           T machine = content.getSecond();
-          publish(_Writer, _ClusterCustom.onTimer(_SessionManager, machine));
+          publish(_Writer, _ClusterCustom.onTimer(_SessionManager, content.getFirst(), machine));
         }
         default -> _Logger.warn("mapping handler error %s", event.getEventType().name());
       }
     }
   }
 
+  @Override
+  public void onBatchComplete(long end) {
+    IPipeHandler.super.onBatchComplete(end);
+    if (_Consensus && _ClusterCustom != null) {
+      try {
+        ITriple result = _ClusterCustom.onBatchComplete(_SessionManager);
+        response(result);
+        backload(result);
+      } catch (Exception e) {
+        _Logger.warn("cluster batch complete error", e);
+      }
+    }
+  }
+
+  /**
+   * 执行结果 snd 是需要反向投递到 linker 的内容
+   *
+   * @return 是否有投递
+   */
+  private boolean backload(ITriple result) {
+    if (result != null && result.getSecond() instanceof IConsistent backload) {
+      publish(_Transfer, CONSISTENCY, Pair.of(backload, _SessionManager), _LinkCustom.getUnbox());
+      return true;
+    } else if (result != null && result.getSecond() instanceof Collection<?> collection) {
+      for (Object item : collection) {
+        if (item instanceof IConsistent backload) {
+          publish(
+              _Transfer, CONSISTENCY, Pair.of(backload, _SessionManager), _LinkCustom.getUnbox());
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
   @Override
   public Logger _Logger() {
     return _Logger;
@@ -318,6 +338,11 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
      * trd  [operator-type] : operator-type [SINGLE|BATCH]
      */
     _Logger.debug("handled:[ %s ] → [ %s ]", received, result);
+    response(result);
+    return result;
+  }
+
+  private void response(ITriple result) {
     if (result != null) {
       OperateType type = result.getThird();
       switch (type) {
@@ -335,6 +360,5 @@ public class MixMappingHandler<T extends IStorage> implements IPipeHandler<QEven
         }
       }
     }
-    return result;
   }
 }
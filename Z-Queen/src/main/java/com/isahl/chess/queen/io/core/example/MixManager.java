@@ -23,9 +23,11 @@
 
 package com.isahl.chess.queen.io.core.example;
 
+import com.isahl.chess.king.base.disruptor.components.RingStats;
 import com.isahl.chess.queen.config.IAioConfig;
 import com.isahl.chess.queen.db.model.IStorage;
 import com.isahl.chess.queen.events.cluster.IClusterCustom;
+import com.isahl.chess.queen.events.pipe.SlotBalancer;
 import com.isahl.chess.queen.events.server.ILinkCustom;
 import com.isahl.chess.queen.events.server.ILogicHandler;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEncryptor;
@@ -36,6 +38,7 @@ import com.isahl.chess.queen.io.core.tasks.features.IClusterCore;
 import com.isahl.chess.queen.io.core.tasks.features.ILocalPublisher;
 import java.io.IOException;
 import java.nio.channels.AsynchronousChannelGroup;
+import java.util.List;
 import java.util.function.Supplier;
 
 /**
@@ -70,4 +73,25 @@ public abstract class MixManager extends AioManager implements IBizCore, ICluste
   public ILocalPublisher getLocalPublisher() {
     return _ServerCore;
   }
+
+  /**
+   * @return pipeline 各 ring 的统计，build 之后可用
+   */
+  public List<RingStats> getRingStats() {
+    return _ServerCore.getRingStats();
+  }
+
+  /**
+   * @return decode 分片的负载统计，build 之后可用
+   */
+  public SlotBalancer getDecodeBalancer() {
+    return _ServerCore.getDecodeBalancer();
+  }
+
+  /**
+   * @return encode 分片的负载统计，build 之后可用
+   */
+  public SlotBalancer getEncodeBalancer() {
+    return _ServerCore.getEncodeBalancer();
+  }
 }
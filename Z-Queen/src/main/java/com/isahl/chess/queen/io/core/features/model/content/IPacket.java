@@ -49,6 +49,25 @@ public interface IPacket extends IProtocol {
 
   ByteBuf getBuffer();
 
+  /**
+   * 发送路径使用，不会合并共享的 body
+   *
+   * @return packet 独占的部分，没有共享 body 时等同于 getBuffer()
+   */
+  default ByteBuf getHeader() {
+    return getBuffer();
+  }
+
+  /**
+   * @return 多个 packet 共享的 body 视图，没有时为 null
+   */
+  default ByteBuf getBody() {
+    return null;
+  }
+
+  /** 发送完成或被丢弃时释放持有的共享内容 */
+  default void release() {}
+
   enum Status {
     No_Send,
     To_Send,
@@ -50,6 +50,9 @@ public interface IProtocol extends IoSerial {
 
   default void transfer() throws IOException {}
 
+  /** 未经编码即被丢弃时释放持有的共享内容 */
+  default void release() {}
+
   default byte[] encoded() {
     return encode().array();
   }
@@ -89,6 +89,14 @@ public interface IThread {
     private int mAlias;
     private boolean mRetain;
 
+    /** 原始的 MQTT topic filter，仅用于路由索引，不参与序列化 */
+    private transient String mFilter;
+
+    public Topic(String filter, Pattern pattern, IQoS.Level level, int alias) {
+      this(pattern, level, alias);
+      mFilter = filter;
+    }
+
     public Topic(Pattern pattern, IQoS.Level level, int alias) {
       Objects.requireNonNull(pattern, "Topic's pattern is null");
       Objects.requireNonNull(level, "topic level is null");
@@ -124,6 +132,13 @@ public interface IThread {
       return mLevel;
     }
 
+    /**
+     * @return 订阅时的 topic filter；反序列化得到的 Topic 没有 filter，退化为 pattern 原文
+     */
+    public String filter() {
+      return mFilter == null ? mPattern.pattern() : mFilter;
+    }
+
     public int alias() {
       return mAlias;
     }
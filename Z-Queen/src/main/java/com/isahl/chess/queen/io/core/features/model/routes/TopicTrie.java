@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.features.model.routes;
+
+import com.isahl.chess.queen.io.core.features.model.routes.IThread.Subscribe;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 按层级('/')切分的主题订阅树，匹配代价只与 topic 深度相关，与订阅数量无关。
+ *
+ * <p>读路径 match 无锁；订阅/取消订阅在写锁内增量修改节点。
+ *
+ * <p>维护 session → filter 的反向索引，dismiss 只需访问该 session 实际订阅过的节点。
+ *
+ * <p>遵循 MQTT 语义：'+' 匹配单层，'#' 匹配父层及其后任意层，以 '$' 开头的 topic 不被首层通配符匹配。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class TopicTrie {
+  public static final String SEPARATOR = "/";
+  public static final String SINGLE_LEVEL = "+";
+  public static final String MULTI_LEVEL = "#";
+
+  private final Node _Root = new Node(null, null);
+  private final Map<Long, Set<String>> _Session2Filters = new ConcurrentHashMap<>();
+  private final Map<String, Node> _Filter2Node = new ConcurrentHashMap<>();
+
+  /**
+   * @param filter MQTT topic filter
+   * @param pattern 与 filter 对应的正则，保留在 {@link Subscribe#pattern()} 中
+   * @param session 订阅的 session, 0 表示仅创建节点
+   * @param level 订阅的 QoS, 已有更高等级时保留原等级
+   * @return 该 filter 对应的 subscribe
+   */
+  public Subscribe subscribe(String filter, Pattern pattern, long session, IQoS.Level level) {
+    synchronized (_Root) {
+      Node node = _Filter2Node.computeIfAbsent(filter, f -> insert(split(f)));
+      if (node.mSubscribe == null) {
+        node.mSubscribe = new Subscribe(pattern);
+      }
+      Subscribe subscribe = node.mSubscribe;
+      if (session != 0) {
+        if (subscribe.computeIfPresent(
+                session, (key, old) -> old.getValue() > level.getValue() ? old : level)
+            == null) {
+          subscribe.onSubscribe(session, level);
+        }
+        _Session2Filters.computeIfAbsent(session, k -> ConcurrentHashMap.newKeySet()).add(filter);
+      }
+      return subscribe;
+    }
+  }
+
+  public void unsubscribe(String filter, long session) {
+    synchronized (_Root) {
+      _Session2Filters.computeIfPresent(
+          session,
+          (k, filters) -> {
+            filters.remove(filter);
+            return filters.isEmpty() ? null : filters;
+          });
+      Node node = _Filter2Node.get(filter);
+      if (node != null && node.mSubscribe != null) {
+        node.mSubscribe.onDismiss(session);
+        if (node.mSubscribe.isEmpty()) {
+          remove(filter, node);
+        }
+      }
+    }
+  }
+
+  /**
+   * 清理 session 的全部订阅
+   *
+   * @param session session index
+   */
+  public void dismiss(long session) {
+    synchronized (_Root) {
+      Set<String> filters = _Session2Filters.remove(session);
+      if (filters == null) {
+        return;
+      }
+      for (String filter : filters) {
+        Node node = _Filter2Node.get(filter);
+        if (node != null && node.mSubscribe != null) {
+          node.mSubscribe.onDismiss(session);
+          if (node.mSubscribe.isEmpty()) {
+            remove(filter, node);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param topic 发布的主题名，不含通配符
+   * @return 所有 filter 可以匹配 topic 的 subscribe
+   */
+  public List<Subscribe> match(String topic) {
+    List<Subscribe> result = new ArrayList<>();
+    match(topic, result::add);
+    return result;
+  }
+
+  public void match(String topic, Consumer<Subscribe> consumer) {
+    String[] levels = split(topic);
+    boolean system = topic.startsWith("$");
+    match(_Root, levels, 0, system, consumer);
+  }
+
+  public Subscribe get(String filter) {
+    Node node = _Filter2Node.get(filter);
+    return node == null ? null : node.mSubscribe;
+  }
+
+  public List<String> filters(long session) {
+    Set<String> filters = _Session2Filters.get(session);
+    return filters == null ? Collections.emptyList() : List.copyOf(filters);
+  }
+
+  public Map<String, Subscribe> mappings() {
+    Map<String, Subscribe> mappings = new ConcurrentHashMap<>();
+    _Filter2Node.forEach(
+        (filter, node) -> {
+          Subscribe subscribe = node.mSubscribe;
+          if (subscribe != null) {
+            mappings.put(filter, subscribe);
+          }
+        });
+    return mappings;
+  }
+
+  public int size() {
+    return _Filter2Node.size();
+  }
+
+  private static void match(
+      Node node, String[] levels, int depth, boolean system, Consumer<Subscribe> consumer) {
+    boolean first = depth == 0;
+    if (!(first && system)) {
+      Node multi = node._Children.get(MULTI_LEVEL);
+      if (multi != null && multi.mSubscribe != null) {
+        consumer.accept(multi.mSubscribe);
+      }
+    }
+    if (depth == levels.length) {
+      if (node.mSubscribe != null) {
+        consumer.accept(node.mSubscribe);
+      }
+      return;
+    }
+    Node exact = node._Children.get(levels[depth]);
+    if (exact != null) {
+      match(exact, levels, depth + 1, system, consumer);
+    }
+    if (!(first && system)) {
+      Node single = node._Children.get(SINGLE_LEVEL);
+      if (single != null) {
+        match(single, levels, depth + 1, system, consumer);
+      }
+    }
+  }
+
+  private Node insert(String[] levels) {
+    Node node = _Root;
+    for (String level : levels) {
+      Node parent = node;
+      node = parent._Children.computeIfAbsent(level, l -> new Node(parent, l));
+    }
+    return node;
+  }
+
+  private void remove(String filter, Node node) {
+    _Filter2Node.remove(filter);
+    node.mSubscribe = null;
+    while (node._Parent != null && node.mSubscribe == null && node._Children.isEmpty()) {
+      node._Parent._Children.remove(node._Level, node);
+      node = node._Parent;
+    }
+  }
+
+  private static String[] split(String topic) {
+    return topic.split(SEPARATOR, -1);
+  }
+
+  private static class Node {
+    private final Map<String, Node> _Children = new ConcurrentHashMap<>();
+    private final Node _Parent;
+    private final String _Level;
+    private volatile Subscribe mSubscribe;
+
+    private Node(Node parent, String level) {
+      _Parent = parent;
+      _Level = level;
+    }
+  }
+}
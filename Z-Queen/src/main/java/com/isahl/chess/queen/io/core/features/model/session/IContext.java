@@ -24,6 +24,7 @@ package com.isahl.chess.queen.io.core.features.model.session;
 
 import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.features.IReset;
+import java.util.function.ToIntFunction;
 
 /**
  * @author William.d.zk
@@ -31,7 +32,27 @@ import com.isahl.chess.king.base.features.IReset;
 public interface IContext extends IReset {
   ByteBuf getRvBuffer();
 
-  ByteBuf getWrBuffer();
+  /**
+   * 汇集交给当前 context 解码的数据段
+   *
+   * @param segment 本 session 读入的 rv buffer，或代理层(ssl/ws)解出的数据段
+   * @return 汇集后用于解帧的 buffer
+   */
+  ByteBuf gather(ByteBuf segment);
+
+  /**
+   * 帧长度超过流式阈值时转入流式接收，之后的数据直接从 input 中取走，不再留在 rv buffer 中攒整帧
+   *
+   * @param input gather 之后用于解帧的 buffer
+   * @param frame 计算帧仍缺少的字节数，流式接收过程中不再调用
+   * @return 仍缺少的字节数，不大于 0 时可以解帧
+   */
+  int lack(ByteBuf input, ToIntFunction<ByteBuf> frame);
+
+  /**
+   * @return 待解的帧所在 buffer，流式接收完成时为收齐的整帧
+   */
+  ByteBuf getFrameBuffer();
 
   default void ready() {}
 
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.features.model.session;
+
+import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+
+/**
+ * session 发送侧的流控：按排队字节数的高/低水位判定饱和，饱和时按 {@link IOption.SlowConsumer} 处理 QoS0 消息， 并暂停向其扇出的 publisher
+ * 的读取，直到回落到低水位。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public interface IFlowControl {
+
+  /**
+   * @return 已排队尚未写出的字节数
+   */
+  long queuedBytes();
+
+  /**
+   * @return 排队字节数越过高水位后为 true，回落到低水位前保持
+   */
+  boolean isSaturated();
+
+  /**
+   * 编码之前调用，饱和时按策略处理 QoS0 路由消息
+   *
+   * @return false 表示 output 已被丢弃或合并暂存，不再编码发送
+   */
+  boolean admit(IProtocol output);
+
+  /** publisher 向当前已饱和的 session 扇出，暂停 publisher 的读取，当前 session 回落到低水位时恢复 */
+  void throttle(ISession publisher);
+
+  /** 作为 publisher：有一个扇出目标饱和 */
+  void suspendRead();
+
+  /** 作为 publisher：有一个扇出目标解除饱和，全部解除后恢复读取 */
+  void resumeRead();
+}
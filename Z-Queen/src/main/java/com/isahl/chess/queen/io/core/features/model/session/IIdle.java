@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.features.model.session;
+
+/**
+ * 由空闲扫描器检查的连接活跃度：读空闲超时与写停滞超时都以最近一次的活动时刻判定， 读写路径上只记录时刻，不再为每次 read/write 装卸 JDK 定时器。
+ *
+ * <p>时刻均取扫描器维护的粗粒度单调时钟，单位 ms。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public interface IIdle {
+
+  /**
+   * @return 最近一次读入数据的时刻
+   */
+  long readAt();
+
+  /**
+   * @return 尚未完成的 write 的发起时刻，没有挂起的 write 时为 0
+   */
+  long flushAt();
+
+  /**
+   * @return 读空闲超时，不大于 0 时不检查
+   */
+  long idleTimeout();
+
+  /**
+   * @return 写停滞超时，不大于 0 时不检查
+   */
+  long writeTimeout();
+
+  boolean isClosed();
+
+  /** 超时，由扫描线程批量调用，实现方只应触发关闭而不做清理 */
+  void expire();
+}
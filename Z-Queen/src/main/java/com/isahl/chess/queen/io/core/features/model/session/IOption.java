@@ -48,4 +48,28 @@ public interface IOption {
   boolean isKeepAlive();
 
   Duration getConnectTimeout();
+
+  /** 排队待写字节数达到高水位时 session 进入饱和 */
+  default int getSendHighWater() {
+    return getSnfByte() * getSendQueueMax();
+  }
+
+  /** 饱和的 session 排队字节数回落到低水位时解除饱和 */
+  default int getSendLowWater() {
+    return getSendHighWater() >> 1;
+  }
+
+  default SlowConsumer getSlowConsumer() {
+    return SlowConsumer.DROP_QOS0;
+  }
+
+  /** session 饱和期间对 QoS0 路由消息的处理策略 */
+  enum SlowConsumer {
+    /** 丢弃 */
+    DROP_QOS0,
+    /** 同一 topic 只保留最新一条，解除饱和后发送 */
+    COALESCE,
+    /** 饱和即断开 */
+    DISCONNECT
+  }
 }
@@ -54,6 +54,8 @@ public interface ISession
         IConnectMode,
         IReadable<ISession>,
         IWritable<ISession>,
+        IFlowControl,
+        IIdle,
         Comparable<ISession> {
   boolean isMultiBind();
 
@@ -89,6 +91,13 @@ public interface ISession
 
   int getReadTimeOutSeconds();
 
+  /**
+   * 按 MQTT keepalive 重设读空闲超时：1.5 倍 keepalive 内未收到任何数据即断开
+   *
+   * @param millis keepalive，为 0 时恢复配置的读超时
+   */
+  void keepalive(long millis);
+
   /**
    * 获取 prefix 对应的 write load
    *
@@ -25,6 +25,7 @@ package com.isahl.chess.queen.io.core.features.model.session;
 
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.env.ZUID;
+import com.isahl.chess.king.metrics.FlowStats;
 import com.isahl.chess.queen.events.functions.SessionIgnore;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.pipe.IFilterChain;
@@ -48,14 +49,23 @@ public interface ISort {
     INNER(ZUID.TYPE_INTERNAL);
 
     private final long _Prefix;
+    private final FlowStats _Flow;
 
     Type(long prefix) {
       _Prefix = prefix;
+      _Flow = new FlowStats(name().toLowerCase());
     }
 
     public long prefix() {
       return _Prefix;
     }
+
+    /**
+     * @return 该类 session 的发送流控统计
+     */
+    public FlowStats flow() {
+      return _Flow;
+    }
   }
 
   /** 用于区分当前处理过程属于哪个Pipeline */
@@ -23,16 +23,20 @@
 package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.CompositeByteBuf;
+import com.isahl.chess.king.base.content.StreamBuf;
 import com.isahl.chess.queen.io.core.features.model.session.IContext;
 import com.isahl.chess.queen.io.core.features.model.session.IOption;
+import java.util.function.ToIntFunction;
 
 /**
  * @author William.d.zk
  */
 public abstract class AioContext<O extends IOption> implements IContext {
 
-  private final ByteBuf _WrBuffer;
   private final ByteBuf _RvBuffer;
+  private CompositeByteBuf mGathered;
+  private StreamBuf mStream;
 
   private long mClientStartTime;
   private long mServerArrivedTime;
@@ -41,7 +45,6 @@ public abstract class AioContext<O extends IOption> implements IContext {
 
   protected AioContext(O option) {
     _RvBuffer = ByteBuf.allocate(option.getRcvByte());
-    _WrBuffer = ByteBuf.allocate(option.getSnfByte());
   }
 
   @Override
@@ -62,12 +65,50 @@ public abstract class AioContext<O extends IOption> implements IContext {
 
   @Override
   public ByteBuf getRvBuffer() {
-    return _RvBuffer;
+    return mGathered == null ? _RvBuffer : mGathered;
   }
 
+  /** socket 读入的数据已在 rv buffer 中，直接解帧；代理层解出的数据段以零拷贝方式挂接到组合 buffer， 跨段的帧不再先复制到 rv buffer */
   @Override
-  public ByteBuf getWrBuffer() {
-    return _WrBuffer;
+  public ByteBuf gather(ByteBuf segment) {
+    if (segment == _RvBuffer) {
+      return _RvBuffer;
+    }
+    if (mGathered == null) {
+      mGathered = new CompositeByteBuf();
+    }
+    return mGathered.put(segment);
+  }
+
+  @Override
+  public int lack(ByteBuf input, ToIntFunction<ByteBuf> frame) {
+    if (mStream == null) {
+      int lack = frame.applyAsInt(input);
+      if (lack <= 0) {
+        return lack;
+      }
+      // 超过帧长度上限时抛出，随解码错误关闭 session
+      int length = StreamBuf.checkFrame(input.readableBytes() + lack);
+      if (!StreamBuf.isOversize(length)) {
+        return lack;
+      }
+      mStream = new StreamBuf(length);
+    }
+    return mStream.feed(input);
+  }
+
+  @Override
+  public ByteBuf getFrameBuffer() {
+    return mStream == null ? getRvBuffer() : mStream.content();
+  }
+
+  /** 解帧完成或出错后释放流式接收的缓冲 */
+  @Override
+  public void reset() {
+    if (mStream != null) {
+      mStream.close();
+      mStream = null;
+    }
   }
 
   @Override
@@ -62,6 +62,21 @@ public abstract class AioCreator implements ICreator<AsynchronousSocketChannel>,
     return _Config.getSendQueueMax();
   }
 
+  @Override
+  public int getSendHighWater() {
+    return _Config.getSendHighWaterInByte();
+  }
+
+  @Override
+  public int getSendLowWater() {
+    return _Config.getSendLowWaterInByte();
+  }
+
+  @Override
+  public SlowConsumer getSlowConsumer() {
+    return _Config.getSlowConsumer();
+  }
+
   @Override
   public int getReadTimeOutInSecond() {
     return (int) _Config.getReadTimeoutInMinute().getSeconds();
@@ -27,6 +27,8 @@ import static com.isahl.chess.king.base.content.ByteBuf.vSizeOf;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.ByteBufPool;
+import com.isahl.chess.king.base.content.SharedBuf;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 
@@ -40,6 +42,9 @@ public class AioPacket implements IPacket {
   private int mRightIdempotentBit;
   private int mLeftIdempotentBit;
   private ByteBuf mBuffer;
+  private SharedBuf mShared;
+  private ByteBuf mBody;
+  private boolean mReleased;
 
   public AioPacket(int size) {
     mBuffer = ByteBuf.allocate(size);
@@ -49,11 +54,61 @@ public class AioPacket implements IPacket {
     mBuffer = exist;
   }
 
+  /**
+   * @param header 当前 packet 独占的头部
+   * @param shared 共享的 body，packet 接管调用方持有的一个引用
+   */
+  public AioPacket(ByteBuf header, SharedBuf shared) {
+    mBuffer = header;
+    mShared = shared;
+    mBody = shared.view();
+  }
+
+  /** 需要完整连续内容时(ssl/ws 等二次封装)将共享 body 合并到独占 buffer 中 */
   @Override
   public ByteBuf getBuffer() {
+    if (mShared != null) {
+      ByteBuf header = mBuffer;
+      mBuffer = ByteBufPool.allocate(header.readableBytes() + mBody.readableBytes());
+      mBuffer.put(header);
+      mBuffer.put(mBody);
+      header.release();
+      releaseShared();
+    }
     return mBuffer;
   }
 
+  @Override
+  public ByteBuf getHeader() {
+    return mBuffer;
+  }
+
+  @Override
+  public ByteBuf getBody() {
+    return mBody;
+  }
+
+  /** 归还池化的 buffer 及共享 body 的引用，重复调用无副作用 */
+  @Override
+  public void release() {
+    releaseShared();
+    if (!mReleased) {
+      mReleased = true;
+      if (mBuffer != null) {
+        mBuffer.release();
+      }
+    }
+  }
+
+  private void releaseShared() {
+    SharedBuf shared = mShared;
+    if (shared != null) {
+      mShared = null;
+      mBody = null;
+      shared.release();
+    }
+  }
+
   @Override
   public boolean isSending() {
     return mStatus.equals(Status.Sending);
@@ -100,7 +155,7 @@ public class AioPacket implements IPacket {
 
   @Override
   public int length() {
-    return 1 + mBuffer.capacity();
+    return 1 + getBuffer().capacity();
   }
 
   @Override
@@ -148,6 +203,7 @@ public class AioPacket implements IPacket {
 
   @Override
   public byte[] payload() {
+    getBuffer();
     if (mBuffer.readerIdx() == 0 && mBuffer.writerIdx() == mBuffer.capacity()) {
       return mBuffer.array();
     } else {
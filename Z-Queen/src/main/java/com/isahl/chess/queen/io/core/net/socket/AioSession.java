@@ -30,6 +30,7 @@ import static com.isahl.chess.queen.io.core.features.model.session.IManager.NULL
 import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.util.ArrayUtil;
+import com.isahl.chess.king.metrics.FlowStats;
 import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
@@ -37,17 +38,25 @@ import com.isahl.chess.queen.io.core.features.model.pipe.IFilterChain;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeDecoder;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeTransfer;
+import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 import com.isahl.chess.queen.io.core.features.model.session.*;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
 import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
 import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,7 +64,7 @@ import org.slf4j.LoggerFactory;
 /**
  * @author William.d.zk
  */
-public class AioSession<C extends IPContext> extends LinkedList<IPacket> implements ISession {
+public class AioSession<C extends IPContext> extends ArrayDeque<IPacket> implements ISession {
   private final Logger _Logger =
       LoggerFactory.getLogger("io.queen.session." + getClass().getSimpleName());
 
@@ -71,9 +80,35 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
   private final int _HashCode;
   private final IDismiss _DismissCallback;
   private final int _QueueSizeMax;
+  /* 单轮 gathering write 的 iovec 数与字节数上限 */
+  private static final int GATHER_VECTOR_MAX = 64;
+  private final int _FlushBytesMax;
+  private final ByteBuffer[] _Vectors = new ByteBuffer[GATHER_VECTOR_MAX];
+  private final Gathering _Gathering = new Gathering();
+  private int mVectorCnt;
+  private long mFlushing;
+  /* 写失败后不再接收新的 packet，只在 encoder 线程上读写 */
+  private boolean mWriteFailed;
   private final IAioSort<C> _Sort;
   private final AtomicInteger _State = new AtomicInteger(SESSION_CREATED);
   private final boolean _MultiBind;
+  /* 发送流控，排队字节数只在 encoder 线程上修改 */
+  private static final int COALESCE_TOPIC_MAX = 1024;
+  private final int _HighWater, _LowWater;
+  private final IOption.SlowConsumer _SlowConsumer;
+  private final FlowStats _Flow;
+  private final Set<ISession> _Throttled = ConcurrentHashMap.newKeySet();
+  private final Map<String, IProtocol> _Coalesced = new LinkedHashMap<>();
+  private final AtomicInteger _Credit = new AtomicInteger();
+  private final AtomicBoolean _ReadPaused = new AtomicBoolean();
+  private volatile long vQueuedBytes;
+  private volatile boolean vSaturated;
+  /* 空闲检测，读写路径只记录粗粒度时刻，由 IdleSweeper 分桶复核 */
+  private final IdleSweeper _Sweeper;
+  private IdleSweeper.Entry mSweep;
+  private volatile long vIdleTimeout;
+  private volatile long vReadAt;
+  private volatile long vFlushAt;
   /*----------------------------------------------------------------------------------------------------------------*/
 
   /*----------------------------------------------------------------------------------------------------------------*/
@@ -97,7 +132,7 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
         mIndex,
         isValid(),
         getSessionStateStr(_State.get()),
-        _Context.getWrBuffer().readableBytes(),
+        mFlushing,
         size(),
         _Context.getRvBuffer().readableBytes());
   }
@@ -124,8 +159,16 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
     _ReadTimeOutInSecond = option.getReadTimeOutInSecond();
     _WriteTimeOutInSecond = option.getWriteTimeOutInSecond();
     _QueueSizeMax = option.getSendQueueMax();
+    _FlushBytesMax = option.getSnfByte();
+    _HighWater = option.getSendHighWater();
+    _LowWater = Math.min(option.getSendLowWater(), _HighWater);
+    _SlowConsumer = option.getSlowConsumer();
+    _Flow = sort.getType().flow();
+    _Flow.watermarks(_HighWater, _LowWater);
     _Sort = sort;
     _Context = sort.newContext(option);
+    _Sweeper = IdleSweeper._Instance;
+    vIdleTimeout = TimeUnit.SECONDS.toMillis(_ReadTimeOutInSecond);
     // ------------------------------------------------------------
     option.configChannel(channel);
     mIndex = sort.getType().prefix();
@@ -157,9 +200,12 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
     return _RemoteAddress;
   }
 
+  /**
+   * 先关闭 channel，排队的 packet 仍可能被挂起的 gathering write 读取，不在这里 release； 由 encoder 线程在该次写完成或失败后经 {@link
+   * #recycle()} 回收。没有挂起的写时队列为空。
+   */
   @Override
   public final void close() throws IOException {
-    clear();
     if (isClosed()) {
       return;
     }
@@ -167,6 +213,7 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
     if (_Channel != null) {
       _Channel.close();
     }
+    drained();
   }
 
   @Override
@@ -259,9 +306,21 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
       return;
     }
     mReader = readHandler;
+    if (_Credit.get() > 0) {
+      _ReadPaused.set(true);
+      // 置位前最后一个扇出目标可能已经恢复
+      if (_Credit.get() > 0 || !_ReadPaused.compareAndSet(true, false)) {
+        return;
+      }
+    }
+    read(readHandler);
+  }
+
+  private void read(CompletionHandler<Integer, ISession> readHandler) {
+    // timeout 为 0 不装定时器，读空闲由 IdleSweeper 检测
     _Channel.read(
         _Context.getRvBuffer().discardOnHalf().toWriteBuffer(),
-        _ReadTimeOutInSecond,
+        0,
         TimeUnit.SECONDS,
         this,
         readHandler);
@@ -274,6 +333,7 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
 
   @Override
   public final ByteBuf read(int length) {
+    vReadAt = _Sweeper.now();
     return _Context.getRvBuffer().seek(length);
   }
 
@@ -317,33 +377,35 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
           NotYetConnectedException,
           ShutdownChannelGroupException,
           RejectedExecutionException {
-    if (isClosed()) {
+    if (isClosed() || mWriteFailed) {
+      ps.release();
       return WRITE_STATUS.CLOSED;
     }
-    ps.waitSend();
-    if (size() > _QueueSizeMax) {
-      throw new RejectedExecutionException();
+    if (size() > _QueueSizeMax || vSaturated && _SlowConsumer == IOption.SlowConsumer.DISCONNECT) {
+      ps.release();
+      _Flow.onDisconnected();
+      throw new RejectedExecutionException(
+          String.format(
+              "slow consumer: queued %d packets %d bytes, high water %d",
+              size(), vQueuedBytes, _HighWater));
+    }
+    if (!isReadable(ps)) {
+      ps.release();
+      return WRITE_STATUS.IGNORE;
+    }
+    offer(ps.waitSend());
+    vQueuedBytes += readable(ps.getHeader()) + readable(ps.getBody());
+    if (!vSaturated && vQueuedBytes >= _HighWater) {
+      vSaturated = true;
+      _Flow.onSaturated();
     }
     if (stateLessThan(_State.get(), SESSION_FLUSHED)) {
-      // mSending 未托管给系统
-      if (isEmpty()) {
-        switch (writePacket(ps)) {
-          case IGNORE -> {
-            return WRITE_STATUS.IGNORE;
-          }
-          case UNFINISHED -> offer(ps.send()); // mSending 空间不足
-          case IN_SENDING -> ps.sent();
-        }
-      } else {
-        offer(ps);
-      }
-      writeBuffed2Sending();
+      advanceState(_State, SESSION_SENDING, CAPACITY);
       flush(handler);
     } else {
-      offer(ps);
       _Logger.debug("aio event delay, session buffed packets %d", size());
     }
-    return isEmpty() ? WRITE_STATUS.UNFINISHED : WRITE_STATUS.IN_SENDING;
+    return ps.isSending() ? WRITE_STATUS.IN_SENDING : WRITE_STATUS.UNFINISHED;
   }
 
   @Override
@@ -352,83 +414,239 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
           NotYetConnectedException,
           ShutdownChannelGroupException,
           RejectedExecutionException {
+    if (wroteCnt < 0) {
+      // 写失败，channel 不再读取 iovec，session 随错误关闭
+      mWriteFailed = true;
+      recycle();
+      return WRITE_STATUS.CLOSED;
+    }
     if (isClosed()) {
+      recycle();
       return WRITE_STATUS.CLOSED;
     }
-    ByteBuf sending = _Context.getWrBuffer().skip(wroteCnt);
-    if (!sending.isReadable()) {
-      if (isEmpty()) {
-        recedeState(_State, SESSION_IDLE, CAPACITY);
-        return WRITE_STATUS.IGNORE;
-      }
-      recedeState(_State, SESSION_PENDING, CAPACITY);
+    vFlushAt = 0;
+    consume(wroteCnt);
+    if (vSaturated && vQueuedBytes <= _LowWater) {
+      drained();
     }
-    writeBuffed2Sending();
+    if (isEmpty()) {
+      recedeState(_State, SESSION_IDLE, CAPACITY);
+      sendCoalesced();
+      return WRITE_STATUS.IGNORE;
+    }
+    // 部分写出或仍有排队的 packet，继续下一轮 gathering write
+    recedeState(_State, SESSION_SENDING, CAPACITY);
     flush(handler);
+    sendCoalesced();
     return WRITE_STATUS.FLUSHED;
   }
 
-  private void writeBuffed2Sending() {
-    /*
-     * 将待发的 packet 都写到 sending buffer 中，充满 sending buffer，
-     * 不会出现无限循环，writePacket 中执行 remove 操作，由于都是在相同的线程中
-     * 不存在线程安全问题
-     */
-    _Logger.debug("session buffed packets %d", size());
-    IPacket fps;
-    Loop:
-    do {
-      fps = peek();
-      if (Objects.nonNull(fps)) {
-        switch (writePacket(fps)) {
-          case UNFINISHED -> {
-            fps.send();
-            break Loop;
-          } // mSending fill full
-          case IN_SENDING -> fps.sent();
-          default -> {}
-        }
+  @Override
+  public long queuedBytes() {
+    return vQueuedBytes;
+  }
+
+  @Override
+  public boolean isSaturated() {
+    return vSaturated;
+  }
+
+  @Override
+  public boolean admit(IProtocol output) {
+    if (isClosed() || mWriteFailed) {
+      output.release();
+      return false;
+    }
+    if (!vSaturated
+        || _SlowConsumer == IOption.SlowConsumer.DISCONNECT
+        || !(output instanceof IRoutable routable)
+        || !(output instanceof IQoS qos)
+        || qos.level() != IQoS.Level.ALMOST_ONCE) {
+      return true;
+    }
+    if (_SlowConsumer == IOption.SlowConsumer.COALESCE
+        && routable.topic() != null
+        && (_Coalesced.size() < COALESCE_TOPIC_MAX || _Coalesced.containsKey(routable.topic()))) {
+      IProtocol previous = _Coalesced.put(routable.topic(), output);
+      if (previous != null) {
+        previous.release();
+        _Flow.onCoalesced();
       }
-    } while (Objects.nonNull(fps));
-    // mSending 被填满，或者缓冲队列中没有待发数据
-    _Logger.debug("session remain buffed %d", size());
-    if (_Context.getWrBuffer().isReadable()) {
-      advanceState(_State, SESSION_SENDING, CAPACITY);
+      return false;
     }
+    output.release();
+    _Flow.onDropped();
+    return false;
   }
 
-  private WRITE_STATUS writePacket(IPacket ps) {
-    Objects.requireNonNull(ps);
-    ByteBuf buf = ps.getBuffer();
-    if (buf != null && buf.isReadable()) {
-      _Context.getWrBuffer().putExactly(buf);
-      if (buf.isReadable()) {
-        _Context.getWrBuffer().discard();
-        return WRITE_STATUS.UNFINISHED;
-      } else {
-        remove(ps);
-        return WRITE_STATUS.IN_SENDING;
+  @Override
+  public void throttle(ISession publisher) {
+    if (publisher != this && _Throttled.add(publisher)) {
+      publisher.suspendRead();
+      // 登记期间已回落到低水位
+      if (!vSaturated && _Throttled.remove(publisher)) {
+        publisher.resumeRead();
       }
-    } else {
-      remove(ps);
-      return WRITE_STATUS.IGNORE;
     }
   }
 
+  @Override
+  public void suspendRead() {
+    if (_Credit.getAndIncrement() == 0) {
+      _Flow.onPaused();
+    }
+  }
+
+  @Override
+  public void resumeRead() {
+    if (_Credit.decrementAndGet() == 0) {
+      _Flow.onResumed();
+      if (_ReadPaused.compareAndSet(true, false) && isValid()) {
+        read(mReader);
+      }
+    }
+  }
+
+  /** 解除饱和，恢复被暂停的 publisher */
+  private void drained() {
+    if (vSaturated) {
+      vSaturated = false;
+      _Flow.onDrained();
+    }
+    for (ISession publisher : _Throttled) {
+      if (_Throttled.remove(publisher)) {
+        publisher.resumeRead();
+      }
+    }
+  }
+
+  /** 解除饱和后发送合并暂存的消息 */
+  private void sendCoalesced() {
+    if (vSaturated || _Coalesced.isEmpty()) {
+      return;
+    }
+    IProtocol[] coalesced = _Coalesced.values().toArray(IProtocol[]::new);
+    _Coalesced.clear();
+    IPipeEncoder encoder = encoder();
+    for (IProtocol output : coalesced) {
+      encoder.handle(output, this);
+    }
+  }
+
+  /**
+   * 按已写出的字节数依次推进队首 packet 的 header/body 读索引，完整写出的 packet 出队并 release
+   *
+   * @param wroteCnt 本轮 gathering write 实际写出的字节数
+   */
+  private void consume(long wroteCnt) {
+    Arrays.fill(_Vectors, 0, mVectorCnt, null);
+    mVectorCnt = 0;
+    mFlushing = 0;
+    vQueuedBytes = Math.max(0, vQueuedBytes - wroteCnt);
+    IPacket ps;
+    while (wroteCnt > 0 && (ps = peek()) != null) {
+      wroteCnt = drain(ps.getHeader(), wroteCnt);
+      wroteCnt = drain(ps.getBody(), wroteCnt);
+      if (isReadable(ps)) {
+        break;
+      }
+      poll();
+      ps.sent();
+      ps.release();
+    }
+  }
+
+  /** 挂起的写已结束，在 encoder 线程上 release 仍在排队的 packet 与合并暂存的消息 */
+  private void recycle() {
+    Arrays.fill(_Vectors, 0, mVectorCnt, null);
+    mVectorCnt = 0;
+    mFlushing = 0;
+    for (IPacket ps; (ps = poll()) != null; ) {
+      ps.release();
+    }
+    vQueuedBytes = 0;
+    _Coalesced.values().forEach(IProtocol::release);
+    _Coalesced.clear();
+  }
+
+  private static long drain(ByteBuf buf, long wroteCnt) {
+    if (buf != null && wroteCnt > 0) {
+      int skip = (int) Math.min(buf.readableBytes(), wroteCnt);
+      buf.skip(skip);
+      return wroteCnt - skip;
+    }
+    return wroteCnt;
+  }
+
+  private static int readable(ByteBuf buf) {
+    return buf == null ? 0 : buf.readableBytes();
+  }
+
+  private static boolean isReadable(IPacket ps) {
+    ByteBuf header = ps.getHeader();
+    ByteBuf body = ps.getBody();
+    return header != null && header.isReadable() || body != null && body.isReadable();
+  }
+
+  /**
+   * 将排队 packet 的 header/body 直接作为 iovec 交给 channel，不再复制到 write buffer； 单轮最多 {@link
+   * #GATHER_VECTOR_MAX} 个 buffer，字节数不超过 send buffer 大小
+   */
   private void flush(CompletionHandler<Integer, ISession> handler)
       throws WritePendingException, NotYetConnectedException, ShutdownChannelGroupException {
-    if (stateLessThan(_State.get(), SESSION_FLUSHED) && _Context.getWrBuffer().isReadable()) {
-      _Logger.debug("flush expect[%d] | %s", _Context.getWrBuffer().readableBytes(), this);
-      _Channel.write(
-          _Context.getWrBuffer().toReadBuffer(),
-          _WriteTimeOutInSecond,
-          TimeUnit.SECONDS,
-          this,
-          handler);
+    if (stateLessThan(_State.get(), SESSION_FLUSHED) && !isEmpty()) {
+      int count = 0;
+      long bytes = 0;
+      for (IPacket ps : this) {
+        if (count == GATHER_VECTOR_MAX || bytes >= _FlushBytesMax) {
+          break;
+        }
+        bytes = gather(ps.getHeader(), count, bytes);
+        count += _Vectors[count] == null ? 0 : 1;
+        if (count < GATHER_VECTOR_MAX && bytes < _FlushBytesMax) {
+          bytes = gather(ps.getBody(), count, bytes);
+          count += _Vectors[count] == null ? 0 : 1;
+        }
+        ps.send();
+      }
+      mVectorCnt = count;
+      mFlushing = bytes;
+      _Logger.debug("flush expect[%d] vectors[%d] | %s", bytes, count, this);
+      _Gathering.mHandler = handler;
+      vFlushAt = _Sweeper.now();
+      // 写停滞由 IdleSweeper 检测，不再为每次 write 装卸定时器
+      _Channel.write(_Vectors, 0, count, 0, TimeUnit.SECONDS, this, _Gathering);
       advanceState(_State, SESSION_FLUSHED, CAPACITY);
     }
   }
 
+  private long gather(ByteBuf buf, int index, long bytes) {
+    if (buf != null && buf.isReadable()) {
+      ByteBuffer vector = buf.toReadBuffer();
+      if (bytes + vector.remaining() > _FlushBytesMax) {
+        vector.limit((int) (_FlushBytesMax - bytes));
+      }
+      _Vectors[index] = vector;
+      return bytes + vector.remaining();
+    }
+    return bytes;
+  }
+
+  /** gathering write 以 long 回报写出字节数，单轮不超过 send buffer 大小，转交原有的 int 回调 */
+  private static class Gathering implements CompletionHandler<Long, ISession> {
+    private CompletionHandler<Integer, ISession> mHandler;
+
+    @Override
+    public void completed(Long result, ISession session) {
+      mHandler.completed(result.intValue(), session);
+    }
+
+    @Override
+    public void failed(Throwable exc, ISession session) {
+      mHandler.failed(exc, session);
+    }
+  }
+
   @Override
   public IDismiss getDismissCallback() {
     return _DismissCallback;
@@ -439,6 +657,46 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
     return _ReadTimeOutInSecond;
   }
 
+  @Override
+  public void keepalive(long millis) {
+    vIdleTimeout = millis > 0 ? millis * 3 / 2 : TimeUnit.SECONDS.toMillis(_ReadTimeOutInSecond);
+    if (mSweep != null) {
+      mSweep.rewatch();
+    }
+  }
+
+  @Override
+  public long readAt() {
+    // 因扇出目标饱和而暂停读取期间不计空闲
+    return _ReadPaused.get() ? _Sweeper.now() : vReadAt;
+  }
+
+  @Override
+  public long flushAt() {
+    return vFlushAt;
+  }
+
+  @Override
+  public long idleTimeout() {
+    return vIdleTimeout;
+  }
+
+  @Override
+  public long writeTimeout() {
+    return TimeUnit.SECONDS.toMillis(_WriteTimeOutInSecond);
+  }
+
+  /** 只关闭 channel，挂起的 read/write 以 AsynchronousCloseException 失败后走原有的错误处理完成清理 */
+  @Override
+  public void expire() {
+    _Logger.info("session idle expired, read_at:%d flush_at:%d | %s", vReadAt, vFlushAt, this);
+    try {
+      _Channel.close();
+    } catch (IOException e) {
+      _Logger.warn("idle close channel error", e);
+    }
+  }
+
   @Override
   public ISessionFailed getError() {
     return _Sort.getError();
@@ -477,6 +735,8 @@ public class AioSession<C extends IPContext> extends LinkedList<IPacket> impleme
   @Override
   public void ready() {
     advanceState(_State, SESSION_CONNECTED, CAPACITY);
+    vReadAt = _Sweeper.now();
+    mSweep = _Sweeper.watch(this);
     _Context.ready();
   }
 
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2024. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.net.socket;
+
+import com.isahl.chess.queen.io.core.features.model.session.IIdle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按粗粒度 tick 分桶的空闲连接扫描器。
+ *
+ * <p>连接只在登记时和到期检查时入桶，读写路径只更新 {@link IIdle} 的时刻； 桶到期时逐个按真实的活动时刻复核，未超时的按新的截止时刻重新入桶，超时的在本轮结束后批量 {@link
+ * IIdle#expire()}。每个连接每个超时周期只被检查一次。
+ *
+ * <p>写停滞可能在任意时刻开始，复核间隔不超过写超时，停滞的发现延迟不超过两倍写超时。
+ *
+ * <p>桶与链表只由扫描线程访问，其他线程经 {@link #watch(IIdle)}/{@link Entry#rewatch()} 投递到无锁队列。
+ *
+ * @author william.d.zk
+ * @date 2026-10-18
+ */
+public class IdleSweeper {
+  private static final Logger _Logger =
+      LoggerFactory.getLogger("io.queen." + IdleSweeper.class.getSimpleName());
+
+  public static final String PROP_TICK = "z.chess.io.sweep.tick";
+
+  public static final IdleSweeper _Instance = new IdleSweeper(Long.getLong(PROP_TICK, 1000), 10);
+
+  private final long _TickMillis;
+  private final int _Mask;
+  private final Entry[] _Buckets;
+  private final Queue<Entry> _Incoming = new ConcurrentLinkedQueue<>();
+  private final List<Entry> _Expired = new ArrayList<>();
+  private final Thread _Sweeper;
+  private long mCursor;
+  private int mWatching;
+  private volatile long vNow;
+  private volatile boolean vRunning = true;
+
+  /**
+   * @param tickMillis 分桶粒度
+   * @param bits 桶数 2^bits，单轮覆盖 tick × 2^bits，更远的截止时刻在轮转到时复核
+   */
+  public IdleSweeper(long tickMillis, int bits) {
+    _TickMillis = Math.max(1, tickMillis);
+    _Buckets = new Entry[1 << bits];
+    _Mask = _Buckets.length - 1;
+    vNow = clock();
+    mCursor = vNow / _TickMillis;
+    _Sweeper = new Thread(this::run, "z-chess-idle-sweeper");
+    _Sweeper.setDaemon(true);
+    _Sweeper.start();
+  }
+
+  /**
+   * @return 粗粒度单调时钟，每个 tick 刷新一次
+   */
+  public long now() {
+    return vNow;
+  }
+
+  public Entry watch(IIdle idle) {
+    Entry entry = new Entry(idle);
+    entry.rewatch();
+    return entry;
+  }
+
+  public int getWatching() {
+    return mWatching;
+  }
+
+  public void shutdown() {
+    vRunning = false;
+    LockSupport.unpark(_Sweeper);
+  }
+
+  private static long clock() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  private void run() {
+    long tickNanos = TimeUnit.MILLISECONDS.toNanos(_TickMillis);
+    while (vRunning) {
+      LockSupport.parkNanos(tickNanos);
+      try {
+        sweep(vNow = clock());
+      } catch (Throwable e) {
+        _Logger.warn("idle sweep failed", e);
+      }
+    }
+  }
+
+  private void sweep(long now) {
+    long target = now / _TickMillis;
+    for (Entry entry; (entry = _Incoming.poll()) != null; ) {
+      entry.vQueued = false;
+      check(entry, now, mCursor);
+    }
+    // 扫描线程滞后超过一轮时每个桶只需处理一次
+    for (long tick = Math.max(mCursor, target - _Buckets.length) + 1; tick <= target; tick++) {
+      int slot = (int) (tick & _Mask);
+      Entry head = _Buckets[slot];
+      _Buckets[slot] = null;
+      while (head != null) {
+        Entry entry = head;
+        head = entry.mNext;
+        entry.mPrev = entry.mNext = null;
+        entry.mSlot = -1;
+        mWatching--;
+        check(entry, now, tick);
+      }
+    }
+    mCursor = Math.max(mCursor, target);
+    if (!_Expired.isEmpty()) {
+      _Logger.info("idle sweep expire %d sessions, watching %d", _Expired.size(), mWatching);
+      for (Entry entry : _Expired) {
+        try {
+          entry._Idle.expire();
+        } catch (Throwable e) {
+          _Logger.warn("idle expire failed", e);
+        }
+      }
+      _Expired.clear();
+    }
+  }
+
+  private void check(Entry entry, long now, long tick) {
+    unlink(entry);
+    IIdle idle = entry._Idle;
+    if (idle.isClosed()) {
+      return;
+    }
+    long idleTimeout = idle.idleTimeout();
+    long writeTimeout = idle.writeTimeout();
+    long flushAt = idle.flushAt();
+    long deadline = idleTimeout > 0 ? idle.readAt() + idleTimeout : Long.MAX_VALUE;
+    if (now >= deadline || writeTimeout > 0 && flushAt > 0 && now - flushAt >= writeTimeout) {
+      _Expired.add(entry);
+      return;
+    }
+    if (writeTimeout > 0) {
+      deadline = Math.min(deadline, (flushAt > 0 ? flushAt : now) + writeTimeout);
+    }
+    long at =
+        deadline == Long.MAX_VALUE ? Long.MAX_VALUE : (deadline + _TickMillis - 1) / _TickMillis;
+    link(entry, Math.min(Math.max(at, tick + 1), tick + _Mask));
+  }
+
+  private void link(Entry entry, long tick) {
+    int slot = (int) (tick & _Mask);
+    Entry head = _Buckets[slot];
+    entry.mNext = head;
+    if (head != null) {
+      head.mPrev = entry;
+    }
+    _Buckets[slot] = entry;
+    entry.mSlot = slot;
+    mWatching++;
+  }
+
+  private void unlink(Entry entry) {
+    if (entry.mSlot < 0) {
+      return;
+    }
+    if (entry.mPrev != null) {
+      entry.mPrev.mNext = entry.mNext;
+    } else {
+      _Buckets[entry.mSlot] = entry.mNext;
+    }
+    if (entry.mNext != null) {
+      entry.mNext.mPrev = entry.mPrev;
+    }
+    entry.mPrev = entry.mNext = null;
+    entry.mSlot = -1;
+    mWatching--;
+  }
+
+  public class Entry {
+    private final IIdle _Idle;
+    private Entry mPrev, mNext;
+    private int mSlot = -1;
+    private volatile boolean vQueued;
+
+    private Entry(IIdle idle) {
+      _Idle = idle;
+    }
+
+    /** 超时设置变化后重新按截止时刻入桶 */
+    public void rewatch() {
+      if (!vQueued) {
+        vQueued = true;
+        _Incoming.offer(this);
+      }
+    }
+  }
+}
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.queen.io.core.tasks;
 
+import com.isahl.chess.king.base.disruptor.components.RingStats;
 import com.isahl.chess.king.base.disruptor.components.Z1Processor;
 import com.isahl.chess.king.base.disruptor.components.Z2Processor;
 import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
@@ -36,6 +37,7 @@ import com.isahl.chess.queen.events.model.QEvent;
 import com.isahl.chess.queen.events.pipe.DecodeHandler;
 import com.isahl.chess.queen.events.pipe.EncodeHandler;
 import com.isahl.chess.queen.events.pipe.EncodedHandler;
+import com.isahl.chess.queen.events.pipe.SlotBalancer;
 import com.isahl.chess.queen.events.pipe.WriteDispatcher;
 import com.isahl.chess.queen.events.server.*;
 import com.isahl.chess.queen.io.core.example.MixManager;
@@ -48,7 +50,10 @@ import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SequenceBarrier;
 import java.io.IOException;
 import java.nio.channels.AsynchronousChannelGroup;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
@@ -61,6 +66,7 @@ public class ServerCore extends ThreadPoolExecutor
     implements IBizCore, IClusterCore, ILocalPublisher {
   protected Logger _Logger = LoggerFactory.getLogger("io.queen.core." + getClass().getSimpleName());
 
+  private final IMixCoreConfig _Config;
   private final int _DecoderCount;
   private final int _EncoderCount;
   private final int _LogicCount;
@@ -99,6 +105,10 @@ public class ServerCore extends ThreadPoolExecutor
   private final ConcurrentLinkedQueue<RingBuffer<QEvent>> _AioCacheConcurrentQueue;
   private final ConcurrentLinkedQueue<RingBuffer<QEvent>> _ClusterCacheConcurrentQueue;
 
+  private SlotBalancer mDecodeBalancer;
+  private SlotBalancer mEncodeBalancer;
+  private final List<RingStats> _RingStats = new ArrayList<>();
+
   private final ThreadFactory _WorkerThreadFactory =
       new ThreadFactory() {
         int count;
@@ -156,6 +166,7 @@ public class ServerCore extends ThreadPoolExecutor
         TimeUnit.SECONDS,
         new LinkedBlockingQueue<>(),
         _ThreadFactory);
+    _Config = config;
     _LogicCount = 1 << config.getLogicCountPower();
     _DecoderCount = 1 << config.getDecoderCountPower();
     _EncoderCount = 1 << config.getEncoderCountPower();
@@ -268,7 +279,8 @@ public class ServerCore extends ThreadPoolExecutor
     /*
      * 负责进行 session 上数据的解码，由于相同的 session 是在同一个read processor 上执行
      * 虽然解决了先后顺序和组包的问题，单 session 巨帧(frame > 64K) 将导致资源利用率不均匀
-     * 单帧 处理的数据量限定为 64K，分帧传输将被严格受限，后续继续降低单帧容量
+     * 超过流式阈值(默认 64K)的帧由 context 以 StreamBuf 边读边转存，每次读事件只处理已到达的数据，
+     * 同一 decoder 上的其他 session 在两次读之间照常得到处理
      */
     final Z1Processor<QEvent>[] _DecodeProcessors = new Z1Processor[_DecoderCount];
     Arrays.setAll(_ReadEvents, slot -> createPipelineLite(_AioQueueSize));
@@ -280,6 +292,9 @@ public class ServerCore extends ThreadPoolExecutor
                 _ReadEvents[slot],
                 _DecodeBarriers[slot],
                 new DecodeHandler(encryptSupplier.get(), slot)));
+    for (int slot = 0; slot < _DecoderCount; slot++) {
+      _RingStats.add(_DecodeProcessors[slot].monitor("Decoder." + slot, "read." + slot));
+    }
 
     /* 链路处理 */
     /* 所有带有路由规则绑定的数据都需要投递到这个 Pipeline -> _LinkDecoded */
@@ -296,6 +311,7 @@ public class ServerCore extends ThreadPoolExecutor
             _LinkBarriers,
             new MixMappingHandler<>(
                 "LINK",
+                false,
                 manager,
                 _ErrorEvents[0],
                 _LinkWriteEvent,
@@ -303,6 +319,10 @@ public class ServerCore extends ThreadPoolExecutor
                 linkCustom,
                 clusterCustom));
     _LinkProcessor.setThreadName("LinkProcessor");
+    /* 连接/关闭事件先于业务事件 */
+    _LinkProcessor.setStrategy(_Config.getPollStrategy("LinkProcessor", 0, 1, 1));
+    Collections.addAll(
+        _RingStats, _LinkProcessor.monitor("LinkProcessor", "link.io", "link.decoded", "notify"));
     for (int i = 0, size = _LinkEvents.length; i < size; i++) {
       _LinkEvents[i].addGatingSequences(_LinkProcessor.setGating().getSequences()[i]);
     }
@@ -327,6 +347,7 @@ public class ServerCore extends ThreadPoolExecutor
             _ClusterBarriers,
             new MixMappingHandler<>(
                 "CONSENSUS",
+                true,
                 manager,
                 _ErrorEvents[1],
                 _ClusterWriteEvent,
@@ -334,15 +355,40 @@ public class ServerCore extends ThreadPoolExecutor
                 linkCustom,
                 clusterCustom));
     _ClusterProcessor.setThreadName("ClusterProcessor");
+    /* 集群 io 与选举事件先于其他 ring */
+    _ClusterProcessor.setStrategy(_Config.getPollStrategy("ClusterProcessor", 0, 1, 0, 1, 1));
+    Collections.addAll(
+        _RingStats,
+        _ClusterProcessor.monitor(
+            "ClusterProcessor",
+            "cluster.io",
+            "cluster.decoded",
+            "consensus",
+            "consensus.api",
+            "cluster"));
     for (int i = 0, size = _ClusterEvents.length; i < size; i++) {
       _ClusterEvents[i].addGatingSequences(_ClusterProcessor.setGating().getSequences()[i]);
     }
+    final MixIoDispatcher _MixIoDispatcher =
+        new MixIoDispatcher(_LinkIoEvent, _ClusterIoEvent, _WroteEvent, _ReadEvents);
+    mDecodeBalancer = _MixIoDispatcher.getBalancer();
     final Z2Processor<QEvent> _IoDispatcher =
-        new Z2Processor<>(
-            _DispatchIo,
-            _DispatchIoBarriers,
-            new MixIoDispatcher(_LinkIoEvent, _ClusterIoEvent, _WroteEvent, _ReadEvents));
+        new Z2Processor<>(_DispatchIo, _DispatchIoBarriers, _MixIoDispatcher);
     _IoDispatcher.setThreadName("IoDispatcher");
+    /* 集群 aio 与集群 close 先于业务 aio */
+    final int[] _DispatchIoPriorities = new int[_DispatchIo.length];
+    Arrays.fill(_DispatchIoPriorities, 1);
+    Arrays.fill(_DispatchIoPriorities, _BizIoCount, _BizIoCount + _ClusterIoCount + 1, 0);
+    _IoDispatcher.setStrategy(_Config.getPollStrategy("IoDispatcher", _DispatchIoPriorities));
+    Collections.addAll(
+        _RingStats,
+        _IoDispatcher.monitor(
+            "IoDispatcher",
+            ringNames(
+                ringNames("aio.biz", _BizIoCount),
+                ringNames("aio.cluster", _ClusterIoCount),
+                new String[] {"cluster.local.close", "biz.local.close"},
+                ringNames("error", _ErrorEvents.length))));
     for (int i = 0, size = _DispatchIo.length; i < size; i++) {
       _DispatchIo[i].addGatingSequences(_IoDispatcher.setGating().getSequences()[i]);
     }
@@ -359,6 +405,9 @@ public class ServerCore extends ThreadPoolExecutor
         _LogicProcessors,
         slot ->
             new Z1Processor<>(_LogicEvents[slot], _LogicBarriers[slot], logicFactory.create(slot)));
+    for (int slot = 0; slot < _LogicCount; slot++) {
+      _RingStats.add(_LogicProcessors[slot].monitor("Logic." + slot, "logic." + slot));
+    }
     final RingBuffer<QEvent>[] _DecodedDispatchEvents = new RingBuffer[_DecoderCount + 1];
     IoUtil.addArray(_ReadEvents, _DecodedDispatchEvents, _LocalLogicEvent);
     final SequenceBarrier[] _DecodedDispatchBarriers =
@@ -371,6 +420,12 @@ public class ServerCore extends ThreadPoolExecutor
             _DecodedDispatchBarriers,
             new MixDecodedDispatcher(_LinkDecoded, _ClusterDecoded, _ErrorEvents[2], _LogicEvents));
     _DecodedDispatcher.setThreadName("DecodedDispatcher");
+    _DecodedDispatcher.setStrategy(_Config.getPollStrategy("DecodedDispatcher"));
+    Collections.addAll(
+        _RingStats,
+        _DecodedDispatcher.monitor(
+            "DecodedDispatcher",
+            ringNames(ringNames("read", _DecoderCount), new String[] {"local.logic"})));
     for (int i = 0; i < _DecoderCount; i++) {
       _ReadEvents[i].addGatingSequences(_DecodedDispatcher.setGating().getSequences()[i]);
     }
@@ -396,15 +451,26 @@ public class ServerCore extends ThreadPoolExecutor
     final RingBuffer<QEvent>[] _WriteEvents = new RingBuffer[_EncoderCount];
     Arrays.setAll(_WriteEvents, slot -> createPipelineLite(_AioQueueSize));
     /*
-     * write dispatch ，将各个上游 pipeline 等待发送的数据均匀的分发到 write-pipeline 中，
-     * 需要注意：同一个 session 在 session.size() > 0时将分配到相同的 pipeline 上，从而导致待发消息堆积时线程间负荷不均
+     * write dispatch ，将各个上游 pipeline 等待发送的数据分发到 write-pipeline 中，
+     * 同一个 session 固定在一个 pipeline 上，由 SlotBalancer 在静止点将高负载分片上的 session 迁往空闲分片
      * -------------------------------------------------------------------------------------------------
      * --------
      */
+    final WriteDispatcher _Dispatcher = new WriteDispatcher(_ErrorEvents[3], _WriteEvents);
+    mEncodeBalancer = _Dispatcher.getBalancer();
     final Z2Processor<QEvent> _WriteDispatcher =
-        new Z2Processor<>(
-            _SendEvents, _SendBarriers, new WriteDispatcher(_ErrorEvents[3], _WriteEvents));
+        new Z2Processor<>(_SendEvents, _SendBarriers, _Dispatcher);
     _WriteDispatcher.setThreadName("WriteDispatcher");
+    _WriteDispatcher.setStrategy(_Config.getPollStrategy("WriteDispatcher"));
+    Collections.addAll(
+        _RingStats,
+        _WriteDispatcher.monitor(
+            "WriteDispatcher",
+            ringNames(
+                ringNames("logic", _LogicCount),
+                new String[] {
+                  "wrote", "cluster.write", "cluster.local.send", "link.write", "biz.local.send"
+                })));
     for (int i = 0, size = _SendEvents.length; i < size; i++) {
       _SendEvents[i].addGatingSequences(_WriteDispatcher.setGating().getSequences()[i]);
     }
@@ -417,6 +483,9 @@ public class ServerCore extends ThreadPoolExecutor
                 _WriteEvents[slot],
                 _WriteEvents[slot].newBarrier(),
                 new EncodeHandler(encryptSupplier.get(), slot)));
+    for (int slot = 0; slot < _EncoderCount; slot++) {
+      _RingStats.add(_EncodeProcessors[slot].monitor("Encoder." + slot, "write." + slot));
+    }
     final RingBuffer<QEvent>[] _EncodedEvents = new RingBuffer[_EncoderCount];
     IoUtil.addArray(_WriteEvents, _EncodedEvents);
     final SequenceBarrier[] _EncodedBarriers = new SequenceBarrier[_EncodedEvents.length];
@@ -426,6 +495,10 @@ public class ServerCore extends ThreadPoolExecutor
     final Z2Processor<QEvent> _EncodedProcessor =
         new Z2Processor<>(_EncodedEvents, _EncodedBarriers, new EncodedHandler(_ErrorEvents[4]));
     _EncodedProcessor.setThreadName("EncodedProcessor");
+    _EncodedProcessor.setStrategy(_Config.getPollStrategy("EncodedProcessor"));
+    Collections.addAll(
+        _RingStats,
+        _EncodedProcessor.monitor("EncodedProcessor", ringNames("write", _EncoderCount)));
     for (int i = 0; i < _EncoderCount; i++) {
       _EncodedEvents[i].addGatingSequences(_EncodedProcessor.setGating().getSequences()[i]);
     }
@@ -455,6 +528,37 @@ public class ServerCore extends ThreadPoolExecutor
         getClass().getSimpleName(), processorCounter);
   }
 
+  /**
+   * @return 各处理器在其消费的每个 ring 上的统计，build 之后可用
+   */
+  public List<RingStats> getRingStats() {
+    return Collections.unmodifiableList(_RingStats);
+  }
+
+  private static String[] ringNames(String prefix, int count) {
+    String[] names = new String[count];
+    Arrays.setAll(names, i -> prefix + "." + i);
+    return names;
+  }
+
+  private static String[] ringNames(String[]... parts) {
+    return Arrays.stream(parts).flatMap(Arrays::stream).toArray(String[]::new);
+  }
+
+  /**
+   * @return decode 分片的负载统计，build 之前为 null
+   */
+  public SlotBalancer getDecodeBalancer() {
+    return mDecodeBalancer;
+  }
+
+  /**
+   * @return encode 分片的负载统计，build 之前为 null
+   */
+  public SlotBalancer getEncodeBalancer() {
+    return mEncodeBalancer;
+  }
+
   @Override
   public AsynchronousChannelGroup getServiceChannelGroup() throws IOException {
     if (mServiceChannelGroup == null) {